@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,15 +10,26 @@ package org.csstudio.trends.databrowser3.archive;
 import static org.csstudio.trends.databrowser3.Activator.logger;
 
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 import org.csstudio.trends.databrowser3.Activator;
 import org.csstudio.trends.databrowser3.DataBrowserInstance;
@@ -32,10 +43,12 @@ import org.phoebus.archive.reader.ArchiveReader;
 import org.phoebus.archive.reader.ArchiveReaders;
 import org.phoebus.archive.reader.UnknownChannelException;
 import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.archive.reader.cache.ArchiveCache;
 import org.phoebus.framework.jobs.Job;
 import org.phoebus.framework.jobs.JobManager;
 import org.phoebus.framework.jobs.JobMonitor;
 import org.phoebus.framework.jobs.JobRunnable;
+import org.phoebus.framework.jobs.NamedThreadFactory;
 import org.phoebus.framework.macros.MacroHandler;
 import org.phoebus.util.time.TimestampFormats;
 
@@ -52,9 +65,17 @@ public class ArchiveFetchJob implements JobRunnable
     /** Poll period in millisecs */
     private static final int POLL_PERIOD_MS = 1000;
 
+    /** Minimum time range of a chunk */
+    private static final Duration MIN_CHUNK = Duration.ofHours(1);
+
     /** Limit the number of concurrently running jobs */
     private static final Semaphore concurrent_requests = new Semaphore(Preferences.concurrent_requests, true);
 
+    /** Executor per data server URL, limiting the number of concurrent requests to that server.
+     *  Chunk requests wait in the executor's queue, not in a thread.
+     */
+    private static final ConcurrentHashMap<String, ExecutorService> server_executors = new ConcurrentHashMap<>();
+
     /** Item for which to fetch samples */
     private final PVItem item;
 
@@ -73,14 +94,46 @@ public class ArchiveFetchJob implements JobRunnable
      *  can then poll the progress monitor for cancellation and if
      *  necessary interrupt the WorkerThread which might be 'stuck'
      *  in a long running operation.
+     *
+     *  <p>The WorkerThread fetches all archive data sources
+     *  and time chunks in parallel, merging the samples of the chunks
+     *  in order as they arrive.
      */
     class WorkerThread implements Runnable
     {
         private volatile String message = "Queued";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried */
-        private AtomicReference<ArchiveReader> reader = new AtomicReference<>();
+        /** Archive readers that are currently queried */
+        private final Set<ArchiveReader> readers = ConcurrentHashMap.newKeySet();
+
+        /** Chunk requests */
+        private final List<Future<?>> requests = new CopyOnWriteArrayList<>();
+
+        /** Total and completed number of chunk requests */
+        private int total_chunks;
+        private final AtomicInteger completed_chunks = new AtomicInteger();
+
+        /** Sample count */
+        private final AtomicLong samples = new AtomicLong();
+
+        /** Archives */
+        private List<ArchiveDataSource> archives;
+
+        /** Archives where channel was not found, where fetching failed */
+        private final Set<ArchiveDataSource> archives_without_channel = ConcurrentHashMap.newKeySet(),
+                                              failed_archives = ConcurrentHashMap.newKeySet();
+
+        /** Number of time chunks per archive */
+        private int archive_chunks;
+
+        /** Samples of completed chunks, by archive and time chunk,
+         *  <code>null</code> while chunk is still pending. SYNC on this
+         */
+        private List<List<VType>> unmerged;
+
+        /** Index of next chunk to merge. SYNC on this */
+        private int merge_index = 0;
 
         /** @return Message that somehow indicates progress */
         public String getMessage()
@@ -93,9 +146,10 @@ public class ArchiveFetchJob implements JobRunnable
         {
             cancelled = true;
 
-            final ArchiveReader the_reader = reader.get();
-            if (the_reader != null)
-                the_reader.cancel();
+            for (ArchiveReader reader : readers)
+                reader.cancel();
+            for (Future<?> request : requests)
+                request.cancel(true);
         }
 
         /** {@inheritDoc} */
@@ -104,7 +158,6 @@ public class ArchiveFetchJob implements JobRunnable
         {
             logger.log(Level.FINE, "Starting {0}", ArchiveFetchJob.this);
             final long start_time = System.currentTimeMillis();
-            long samples = 0;
 
             // Number of bins. Negative values are scaling factor for display width
             int bins = Preferences.plot_bins;
@@ -115,36 +168,102 @@ public class ArchiveFetchJob implements JobRunnable
             if (bins <= 0)
                 bins = 800;
 
-            final Collection<ArchiveDataSource> archives = item.getArchiveDataSources();
-            final List<ArchiveDataSource> archives_without_channel = new ArrayList<>();
-            int i = 0;
-            for (ArchiveDataSource archive : archives)
+            archives = new ArrayList<>(item.getArchiveDataSources());
+            final List<Instant> chunks = getChunks(start, end);
+            archive_chunks = chunks.size() - 1;
+            total_chunks = archives.size() * archive_chunks;
+            // Optimized requests spread the bins over the chunks
+            final int chunk_bins = Math.max(2, bins / archive_chunks);
+
+            unmerged = new ArrayList<>(Collections.nCopies(total_chunks, null));
+
+            for (int a=0; a<archives.size()  &&  !cancelled; ++a)
+                for (int c=0; c<archive_chunks  &&  !cancelled; ++c)
+                {
+                    final int chunk_index = a * archive_chunks + c;
+                    final Instant chunk_start = chunks.get(c), chunk_end = chunks.get(c+1);
+                    final ExecutorService executor = getServerExecutor(archives.get(a).getUrl());
+                    requests.add(executor.submit(() -> fetchChunk(chunk_index, chunk_start, chunk_end, chunk_bins)));
+                }
+
+            // Wait for all requests
+            for (Future<?> request : requests)
             {
-                if (cancelled)
+                try
+                {
+                    request.get();
+                }
+                catch (CancellationException ex)
+                {
+                    // Ignore, cancelled
+                }
+                catch (InterruptedException ex)
+                {
+                    cancel();
                     break;
-                final String url = archive.getUrl();
-                // Display "N/total", using '1' for the first sub-archive.
+                }
+                catch (ExecutionException ex)
+                {
+                    logger.log(Level.WARNING, "Archive request failed", ex);
+                }
+            }
+
+            final long end_time = System.currentTimeMillis();
+            logger.log(Level.FINE,
+                    "Ended {0} with {1} samples in {2} secs",
+                    new Object[] { ArchiveFetchJob.this, samples.get(), (end_time - start_time)/1000 });
+            final ArchiveCache cache = ArchiveCache.getInstance();
+            if (cache != null)
+                logger.log(Level.FINE, "{0}", cache);
+
+            if (cancelled)
+                return;
+
+            if (archives_without_channel.size() > 0)
+                listener.channelNotFound(ArchiveFetchJob.this,
+                        archives_without_channel.size() < archives.size(),
+                        archives.stream().filter(archives_without_channel::contains).collect(Collectors.toList()));
+
+            listener.fetchCompleted(ArchiveFetchJob.this);
+        }
+
+        /** Fetch samples for one archive and time chunk
+         *  @param chunk_index Index of archive times chunks per archive plus index of time chunk
+         *  @param chunk_start Start of time chunk
+         *  @param chunk_end End of time chunk
+         *  @param bins Bins for optimized request
+         */
+        private void fetchChunk(final int chunk_index, final Instant chunk_start, final Instant chunk_end, final int bins)
+        {
+            final ArchiveDataSource archive = archives.get(chunk_index / archive_chunks);
+            final String url = archive.getUrl();
+            List<VType> result = null;
+            try
+            {
+                // Skip chunks when the archive already reported missing channel or error
+                if (cancelled  ||  archives_without_channel.contains(archive)  ||  failed_archives.contains(archive))
+                    return;
                 message = MessageFormat.format(Messages.ArchiveFetchDetailFmt,
-                                               archive.getName(), ++i, archives.size());
+                                               archive.getName(), completed_chunks.get() + 1, total_chunks);
                 try
                 (
-                    final ArchiveReader the_reader = ArchiveReaders.createReader(url);
+                    final ArchiveReader the_reader = ArchiveReaders.createCachingReader(url);
                 )
                 {
-                    reader.set(the_reader);
+                    readers.add(the_reader);
                     try
                     (
                         final ValueIterator value_iter = (item.getRequestType() == RequestType.RAW)
-                                            ? the_reader.getRawValues(item.getResolvedName(), start, end)
-                                            : the_reader.getOptimizedValues(item.getResolvedName(), start, end, bins)
+                                            ? the_reader.getRawValues(item.getResolvedName(), chunk_start, chunk_end)
+                                            : the_reader.getOptimizedValues(item.getResolvedName(), chunk_start, chunk_end, bins)
                     )
                     {
                         // Get samples into array
-                        final List<VType> result = new ArrayList<>();
-                        while (value_iter.hasNext())
-                            result.add(value_iter.next());
-                        samples += result.size();
-                        item.mergeArchivedSamples(archive.getName(), result);
+                        final List<VType> values = new ArrayList<>();
+                        while (!cancelled  &&  value_iter.hasNext())
+                            values.add(value_iter.next());
+                        samples.addAndGet(values.size());
+                        result = values;
                     }
                     catch (UnknownChannelException e)
                     {
@@ -154,30 +273,51 @@ public class ArchiveFetchJob implements JobRunnable
                     }
                     finally
                     {
-                        reader.set(null);
+                        readers.remove(the_reader);
                     }
                 }
                 catch (Exception ex)
                 {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
+                    // Only report the first error for each archive
+                    if (! cancelled  &&  failed_archives.add(archive))
                         listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
+                    // Continue with the other data sources
                 }
             }
-            final long end_time = System.currentTimeMillis();
-            logger.log(Level.FINE,
-                    "Ended {0} with {1} samples in {2} secs",
-                    new Object[] { ArchiveFetchJob.this, samples, (end_time - start_time)/1000 });
-
-            if (cancelled)
-                return;
-
-            if (archives_without_channel.size() > 0)
-                listener.channelNotFound(ArchiveFetchJob.this,
-                        archives_without_channel.size() < archives.size(),
-                        archives_without_channel);
+            finally
+            {
+                completed_chunks.incrementAndGet();
+                chunkCompleted(chunk_index, result);
+            }
+        }
 
-            listener.fetchCompleted(ArchiveFetchJob.this);
+        /** Merge samples of completed chunks
+         *
+         *  <p>Merging replaces existing samples where the time ranges overlap.
+         *  Later archives replace overlapping samples of earlier archives.
+         *  Within an archive, each chunk may start with the last sample
+         *  before the chunk start, which replaces the end of the previous chunk.
+         *  For the result to match a serial fetch, chunks are merged in order,
+         *  by archive and then by time.
+         *  Chunks that complete early are kept until all preceding chunks have been merged.
+         *
+         *  @param chunk_index Index of archive times chunks per archive plus index of time chunk
+         *  @param result Samples or <code>null</code>
+         */
+        private synchronized void chunkCompleted(final int chunk_index, final List<VType> result)
+        {
+            unmerged.set(chunk_index, result == null ? List.of() : result);
+            while (merge_index < total_chunks  &&  !cancelled)
+            {
+                final List<VType> chunk = unmerged.get(merge_index);
+                if (chunk == null)
+                    break;
+                if (! chunk.isEmpty())
+                    item.mergeArchivedSamples(archives.get(merge_index / archive_chunks).getName(), chunk);
+                // Release merged samples
+                unmerged.set(merge_index, List.of());
+                ++merge_index;
+            }
         }
 
         @Override
@@ -187,6 +327,40 @@ public class ArchiveFetchJob implements JobRunnable
         }
     }
 
+    /** @param url Data server URL
+     *  @return Executor for requests to that server
+     */
+    private static ExecutorService getServerExecutor(final String url)
+    {
+        return server_executors.computeIfAbsent(url, u ->
+        {
+            final int threads = Preferences.concurrent_server_requests;
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                                                                       new LinkedBlockingQueue<>(),
+                                                                       new NamedThreadFactory("DataBrowserFetch"));
+            // Remove idle threads after 10 seconds
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    /** Split time range into chunks
+     *  @param start Start time
+     *  @param end End time
+     *  @return Start, start of 2nd chunk, ..., end
+     */
+    static List<Instant> getChunks(final Instant start, final Instant end)
+    {
+        final List<Instant> chunks = new ArrayList<>();
+        chunks.add(start);
+        final Duration span = Duration.between(start, end);
+        final long count = Math.max(1, Math.min(Preferences.archive_fetch_chunks, span.dividedBy(MIN_CHUNK)));
+        for (long i=1; i<count; ++i)
+            chunks.add(start.plus(span.multipliedBy(i).dividedBy(count)));
+        chunks.add(end);
+        return chunks;
+    }
+
     /** Schedule a new job.
      *
      *  @param item the item for which the data are fetched
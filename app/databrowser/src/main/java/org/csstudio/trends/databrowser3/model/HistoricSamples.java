@@ -12,7 +12,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.csstudio.javafx.rtplot.data.TimeDataSearch;
 import org.epics.vtype.VType;
 
 /** Holder for 'historic' samples.
@@ -28,31 +27,18 @@ import org.epics.vtype.VType;
  *  the live data ring buffer rolls around, the 'border' time adjustments
  *  might then uncover historic samples that were previously
  *  hidden below the 'live' time range.
+ *  <p>
+ *  Numeric samples are kept in {@link PlotSampleColumns}.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed HistoricSamples to handle waveform index.
  */
 public class HistoricSamples extends PlotSamples
 {
-    private class HistoricSampleAccess extends PlotSamples
-    {
-        @Override
-        public int size()
-        {
-            return samples.length;
-        }
-
-        @Override
-        public PlotSample get(int index)
-        {
-            return samples[index];
-        }
-    };
-
     // No locking in here, all access is via PVSamples
 
     /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    private PlotSampleColumns samples;
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
@@ -65,11 +51,10 @@ public class HistoricSamples extends PlotSamples
     /** Waveform index */
     final private AtomicInteger waveform_index;
 
-    final private TimeDataSearch searcher = new TimeDataSearch();
-
     HistoricSamples(final AtomicInteger waveform_index)
     {
         this.waveform_index = waveform_index;
+        samples = new PlotSampleColumns(waveform_index, 0);
     }
 
     /** Define a new 'border' time beyond which no samples
@@ -90,11 +75,11 @@ public class HistoricSamples extends PlotSamples
     {
         if (border_time.isPresent())
         {
-            final int last_index = searcher.findSampleLessThan(new HistoricSampleAccess(), border_time.get());
+            final int last_index = samples.findSampleLessThan(PlotSampleColumns.toNanos(border_time.get()));
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = samples.size();
     }
 
     /** {@inheritDoc} */
@@ -104,7 +89,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i);
     }
 
     /** {@inheritDoc} */
@@ -118,7 +103,7 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-        return samples.length;
+        return samples.size();
     }
 
     /**
@@ -128,7 +113,7 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-        return samples[i];
+        return samples.get(i);
     }
 
     /** Merge newly received archive data into historic samples
@@ -140,12 +125,12 @@ public class HistoricSamples extends PlotSamples
         // Anything new at all?
         if (result.size() <= 0)
             return;
-        // Turn IValues into PlotSamples
-        final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
+        // Turn VTypes into columns of plot samples
+        final PlotSampleColumns new_samples = new PlotSampleColumns(waveform_index, result.size());
+        for (VType value : result)
+            new_samples.add(source, value);
         // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
+        final PlotSampleColumns merged = PlotSampleMerger.merge(samples, new_samples);
         if (merged == samples)
             return;
         samples = merged;
@@ -157,7 +142,7 @@ public class HistoricSamples extends PlotSamples
     public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples = new PlotSampleColumns(waveform_index, 0);
         border_time = Optional.empty();
     }
 }
@@ -10,11 +10,11 @@ package org.csstudio.trends.databrowser3.model;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.trends.databrowser3.preferences.Preferences;
-import org.phoebus.framework.util.RingBuffer;
 
 /** Ring buffer for 'live' samples.
  *  <p>
  *  New samples are always added to the end of a ring buffer.
+ *  Numeric samples are kept in {@link PlotSampleColumns}.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
@@ -23,15 +23,11 @@ public class LiveSamples extends PlotSamples
 {
     // No locking in here, all access is via PVSamples
 
-    private RingBuffer<PlotSample> samples =
-        new RingBuffer<PlotSample>(Preferences.live_buffer_size);
-
-    /** Waveform index */
-    final private AtomicInteger waveform_index;
+    final private PlotSampleColumns samples;
 
     LiveSamples(final AtomicInteger waveform_index)
     {
-        this.waveform_index = waveform_index;
+        samples = new PlotSampleColumns(waveform_index, Preferences.live_buffer_size);
     }
 
     /** @return Maximum number of samples in ring buffer */
@@ -56,7 +52,6 @@ public class LiveSamples extends PlotSamples
     /** @param sample Sample to add to ring buffer */
     void add(final PlotSample sample)
     {
-        sample.setWaveformIndex(waveform_index);
         samples.add(sample);
         have_new_samples.set(true);
     }
@@ -58,11 +58,17 @@ public class PVSamples extends PlotSamples
     /** Live samples. Should start after end of historic samples */
     final private LiveSamples live;
 
+    /** Waveform index, and the one used for the last change count */
+    final private AtomicInteger waveform_index;
+    private int changed_waveform_index;
+
     private boolean emptyHistoryOnAdd = false;
     private int samplesAddedSinceLastRefresh = 0;
 
     PVSamples(final AtomicInteger waveform_index)
     {
+        this.waveform_index = waveform_index;
+        changed_waveform_index = waveform_index.get();
         history = new HistoricSamples(waveform_index);
         live = new LiveSamples(waveform_index);
     }
@@ -81,6 +87,7 @@ public class PVSamples extends PlotSamples
     public void setLiveCapacity(final int new_capacity) throws Exception
     {
         live.setCapacity(new_capacity);
+        changes.incrementAndGet();
     }
 
     /** @return Combined count of historic and live samples */
@@ -140,6 +147,23 @@ public class PVSamples extends PlotSamples
         return live.get(index - num_old);
     }
 
+    /** {@inheritDoc}
+     *
+     *  <p>Changes to the waveform index also count as a change
+     *  because they affect the value of all samples.
+     */
+    @Override
+    public long getChangeCount()
+    {
+        final int index = waveform_index.get();
+        if (index != changed_waveform_index)
+        {
+            changed_waveform_index = index;
+            changes.incrementAndGet();
+        }
+        return changes.get();
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
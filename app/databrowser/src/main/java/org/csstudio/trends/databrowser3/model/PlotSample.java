@@ -82,7 +82,14 @@ public class PlotSample implements PlotDataItem<Instant>
 
     private static String decodeAlarm(VType value)
     {
-        final Alarm alarm = Alarm.alarmOf(value);
+        return decodeAlarm(Alarm.alarmOf(value));
+    }
+
+    /** @param alarm Alarm, may be <code>null</code>
+     *  @return Info text for alarm
+     */
+    static String decodeAlarm(final Alarm alarm)
+    {
         if (alarm != null)
         {
             if (alarm.getSeverity() == AlarmSeverity.NONE)
@@ -235,6 +242,6 @@ public class PlotSample implements PlotDataItem<Instant>
     @Override
     public String toString()
     {
-        return VTypeHelper.toString(value);
+        return VTypeHelper.toString(getVType());
     }
 }
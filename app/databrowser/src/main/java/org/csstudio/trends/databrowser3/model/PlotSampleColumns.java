@@ -0,0 +1,628 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByte;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VShort;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+
+/** Plot samples in columns of primitives
+ *
+ *  <p>Numeric scalar samples are kept as time stamps in epoch nanoseconds,
+ *  values and, for optimized archive data, min/max/std. deviation,
+ *  instead of a {@link PlotSample} with its {@link VType} per sample.
+ *  Source, alarm and display information rarely change from one sample
+ *  to the next and are kept in a table of distinct {@link SampleMeta}.
+ *  Samples that cannot be represented like this, for example strings, arrays
+ *  or samples with an invalid time stamp, are kept as {@link PlotSample}.
+ *
+ *  <p>{@link #get(int)} returns a {@link PlotSample} that holds the primitive data.
+ *  Its {@link VType} is only created when requested,
+ *  for example by the sample view or export.
+ *
+ *  <p>Acts as a ring buffer: When full, adding a sample replaces the oldest sample.
+ *
+ *  <p>Not thread-safe, access is synchronized via {@link PlotSamples}.
+ *
+ *  @author Kay Kasemir
+ */
+class PlotSampleColumns
+{
+    /** Types of values in the columns */
+    private static final byte DOUBLE = 0, FLOAT = 1, LONG = 2, INT = 3, SHORT = 4, BYTE = 5, ENUM = 6, STATISTICS = 7, OBJECT = -1;
+
+    /** Information shared by many samples */
+    private static class SampleMeta
+    {
+        final String source;
+        final Alarm alarm;
+        /** {@link Display} or {@link EnumDisplay} */
+        final Object display;
+        final byte type;
+        final String info;
+
+        SampleMeta(final String source, final Alarm alarm, final Object display, final byte type)
+        {
+            this.source = source;
+            this.alarm = alarm;
+            this.display = display;
+            this.type = type;
+            info = PlotSample.decodeAlarm(alarm);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(source, alarm, display, type);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof SampleMeta))
+                return false;
+            final SampleMeta other = (SampleMeta) obj;
+            return type == other.type  &&
+                   Objects.equals(source, other.source)  &&
+                   Objects.equals(alarm, other.alarm)  &&
+                   Objects.equals(display, other.display);
+        }
+    }
+
+    /** {@link PlotSample} for a sample in the columns
+     *
+     *  <p>Holds a copy of the primitive data,
+     *  so it remains valid when the ring buffer moves on.
+     */
+    private static class ColumnSample extends PlotSample
+    {
+        private final AtomicInteger waveform_index;
+        private final SampleMeta meta;
+        private final long nanos;
+        private final double value, min, max, std;
+        private final int count;
+        private Instant position = null;
+        private VType vtype = null;
+
+        ColumnSample(final AtomicInteger waveform_index, final SampleMeta meta, final long nanos,
+                     final double value, final double min, final double max, final double std, final int count)
+        {
+            super(waveform_index, meta.source, null, meta.info);
+            this.waveform_index = waveform_index;
+            this.meta = meta;
+            this.nanos = nanos;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+            this.std = std;
+            this.count = count;
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            if (position == null)
+                position = toInstant(nanos);
+            return position;
+        }
+
+        @Override
+        public double getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            // Like PlotSample, only show statistics for the first waveform element
+            return waveform_index.get() == 0 ? std : Double.NaN;
+        }
+
+        @Override
+        public double getMin()
+        {
+            return waveform_index.get() == 0 ? min : Double.NaN;
+        }
+
+        @Override
+        public double getMax()
+        {
+            return waveform_index.get() == 0 ? max : Double.NaN;
+        }
+
+        @Override
+        public String getInfo()
+        {
+            if (meta.type == ENUM)
+                return (((VEnum) getVType()).getValue() + " " + meta.info).trim();
+            return meta.info;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            if (vtype == null)
+                vtype = createVType();
+            return vtype;
+        }
+
+        private VType createVType()
+        {
+            final Time time = Time.of(getPosition());
+            final Display display = meta.type == ENUM ? null : (Display) meta.display;
+            switch (meta.type)
+            {
+            case FLOAT:
+                return VFloat.of((float) value, meta.alarm, time, display);
+            case LONG:
+                return VLong.of((long) value, meta.alarm, time, display);
+            case INT:
+                return VInt.of((int) value, meta.alarm, time, display);
+            case SHORT:
+                return VShort.of((short) value, meta.alarm, time, display);
+            case BYTE:
+                return VByte.of((byte) value, meta.alarm, time, display);
+            case ENUM:
+                return VEnum.of((int) value, (EnumDisplay) meta.display, meta.alarm, time);
+            case STATISTICS:
+                return VStatistics.of(value, std, min, max, count, meta.alarm, time, display);
+            default:
+                return VDouble.of(value, meta.alarm, time, display);
+            }
+        }
+    }
+
+    private final AtomicInteger waveform_index;
+
+    /** Distinct meta data */
+    private final List<SampleMeta> metas = new ArrayList<>();
+    private final Map<SampleMeta, Integer> meta_index = new HashMap<>();
+
+    /** Size of 'metas' that triggers a compaction */
+    private int meta_limit = 1000;
+
+    /** Most recently added meta data, to avoid table lookups */
+    private Alarm last_alarm = null;
+    private Object last_display = null;
+    private String last_source = null;
+    private byte last_type = OBJECT;
+    private int last_meta = -1;
+
+    // Ring buffer indices [start], [start+1], ..., [start+size-1]
+    // with wrap-around at [capacity-1], see RingBuffer
+    private int start = 0, size = 0, capacity;
+
+    /** Time stamps of all samples, including OBJECT samples */
+    private long[] nanos;
+    private double[] values;
+    /** Index into 'metas', -1 for OBJECT samples */
+    private int[] meta;
+    /** Statistics, allocated when first needed */
+    private double[] min, max, std;
+    private int[] count;
+    /** Samples kept as objects, allocated when first needed */
+    private PlotSample[] objects;
+
+    /** @param waveform_index Waveform index
+     *  @param capacity Number of samples to hold
+     */
+    PlotSampleColumns(final AtomicInteger waveform_index, final int capacity)
+    {
+        this.waveform_index = waveform_index;
+        this.capacity = capacity;
+        nanos = new long[capacity];
+        values = new double[capacity];
+        meta = new int[capacity];
+    }
+
+    /** @param time Time stamp
+     *  @return Epoch nanoseconds
+     */
+    static long toNanos(final Instant time)
+    {
+        return time.getEpochSecond() * 1000000000L + time.getNano();
+    }
+
+    /** @param nanos Epoch nanoseconds
+     *  @return Time stamp
+     */
+    static Instant toInstant(final long nanos)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1000000000L), Math.floorMod(nanos, 1000000000L));
+    }
+
+    /** @return Waveform index */
+    AtomicInteger getWaveformIndex()
+    {
+        return waveform_index;
+    }
+
+    /** @return Number of samples */
+    int size()
+    {
+        return size;
+    }
+
+    /** @return Maximum number of samples */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** Set new capacity, preserving the newest samples
+     *  @param new_capacity New capacity
+     *  @throws Exception on out-of-memory error
+     */
+    void setCapacity(final int new_capacity) throws Exception
+    {
+        try
+        {
+            final PlotSampleColumns copy = new PlotSampleColumns(waveform_index, new_capacity);
+            final int keep = Math.min(size, new_capacity);
+            copy.append(this, size - keep, keep);
+            start = 0;
+            size = copy.size;
+            capacity = new_capacity;
+            nanos = copy.nanos;
+            values = copy.values;
+            meta = copy.meta;
+            min = copy.min;
+            max = copy.max;
+            std = copy.std;
+            count = copy.count;
+            objects = copy.objects;
+            metas.clear();
+            metas.addAll(copy.metas);
+            meta_index.clear();
+            meta_index.putAll(copy.meta_index);
+            last_type = OBJECT;
+        }
+        catch (OutOfMemoryError err)
+        {
+            throw new Exception("Out of memory: " + err.getMessage()); //$NON-NLS-1$
+        }
+    }
+
+    /** Remove all samples */
+    void clear()
+    {
+        start = size = 0;
+        objects = null;
+        min = max = std = null;
+        count = null;
+        metas.clear();
+        meta_index.clear();
+        last_type = OBJECT;
+    }
+
+    /** @return Array index for the next sample */
+    private int next()
+    {
+        if (size >= capacity)
+        {
+            ++start; // Overwrite oldest sample
+            if (start >= capacity)
+                start = 0;
+        }
+        else
+            ++size;
+        final int i = (start + size - 1) % capacity;
+        meta[i] = -1;
+        if (objects != null)
+            objects[i] = null;
+        return i;
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Array index
+     */
+    private int index(final int i)
+    {
+        if (i < 0  ||  i >= size)
+            throw new ArrayIndexOutOfBoundsException(i);
+        final int index = start + i;
+        return index < capacity ? index : index - capacity;
+    }
+
+    /** Allocate statistics columns, initialized to 'no statistics' */
+    private void allocateStatistics()
+    {
+        min = new double[capacity];
+        max = new double[capacity];
+        std = new double[capacity];
+        count = new int[capacity];
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+        Arrays.fill(std, Double.NaN);
+    }
+
+    /** @param value Value
+     *  @return Type of value in columns, OBJECT when not supported
+     */
+    private static byte getType(final VType value)
+    {
+        if (value instanceof VDouble)
+            return DOUBLE;
+        if (value instanceof VStatistics)
+            return STATISTICS;
+        if (value instanceof VEnum)
+            return ENUM;
+        if (value instanceof VFloat)
+            return FLOAT;
+        if (value instanceof VInt)
+            return INT;
+        if (value instanceof VLong)
+        {   // Beyond 2^53, double cannot hold all long values
+            final long number = ((VLong) value).getValue();
+            return Math.abs(number) < (1L << 53) ? LONG : OBJECT;
+        }
+        if (value instanceof VShort)
+            return SHORT;
+        if (value instanceof VByte)
+            return BYTE;
+        return OBJECT;
+    }
+
+    /** @param sample Sample to add */
+    void add(final PlotSample sample)
+    {
+        final VType value = sample.getVType();
+        final byte type = sample.isVirtual()  ||  sample.getClass() != PlotSample.class
+                        ? OBJECT : getType(value);
+        add(type, sample.getSource(), value, sample);
+    }
+
+    /** @param source Source of the sample
+     *  @param value Value to add
+     */
+    void add(final String source, final VType value)
+    {
+        add(getType(value), source, value, null);
+    }
+
+    private void add(byte type, final String source, final VType value, final PlotSample sample)
+    {
+        final Time time = Time.timeOf(value);
+        if (time == null  ||  ! time.isValid())
+            type = OBJECT;
+        final int i = next();
+        if (type == OBJECT)
+        {
+            final PlotSample object = sample != null ? sample : new PlotSample(waveform_index, source, value);
+            object.setWaveformIndex(waveform_index);
+            nanos[i] = toNanos(object.getPosition());
+            values[i] = Double.NaN;
+            meta[i] = -1;
+            if (objects == null)
+                objects = new PlotSample[capacity];
+            objects[i] = object;
+            return;
+        }
+
+        nanos[i] = toNanos(time.getTimestamp());
+        final Alarm alarm = Alarm.alarmOf(value);
+        final Object display;
+        if (type == ENUM)
+        {
+            final VEnum enumerated = (VEnum) value;
+            display = enumerated.getDisplay();
+            values[i] = enumerated.getIndex();
+        }
+        else if (type == STATISTICS)
+        {
+            final VStatistics stats = (VStatistics) value;
+            display = stats.getDisplay();
+            values[i] = stats.getAverage();
+            if (min == null)
+                allocateStatistics();
+            min[i] = stats.getMin();
+            max[i] = stats.getMax();
+            std[i] = stats.getStdDev();
+            count[i] = stats.getNSamples();
+        }
+        else
+        {
+            display = ((VNumber) value).getDisplay();
+            values[i] = ((VNumber) value).getValue().doubleValue();
+        }
+        if (type != STATISTICS  &&  min != null)
+        {
+            min[i] = max[i] = std[i] = Double.NaN;
+            count[i] = 0;
+        }
+        if (metas.size() >= meta_limit)
+            compactMeta();
+        meta[i] = getMeta(type, source, alarm, display);
+    }
+
+    /** @return Index of meta data in table, added if new */
+    private int getMeta(final byte type, final String source, final Alarm alarm, final Object display)
+    {
+        if (type == last_type  &&  source == last_source  &&  alarm == last_alarm  &&  display == last_display)
+            return last_meta;
+        final SampleMeta info = new SampleMeta(source, alarm, display, type);
+        Integer index = meta_index.get(info);
+        if (index == null)
+        {
+            index = metas.size();
+            metas.add(info);
+            meta_index.put(info, index);
+        }
+        last_type = type;
+        last_source = source;
+        last_alarm = alarm;
+        last_display = display;
+        last_meta = index;
+        return index;
+    }
+
+    /** Remove meta data that is no longer used by any sample
+     *
+     *  <p>As the ring buffer moves on, older meta data
+     *  might no longer be referenced.
+     */
+    private void compactMeta()
+    {
+        final int[] mapped = new int[metas.size()];
+        Arrays.fill(mapped, -1);
+        final List<SampleMeta> used = new ArrayList<>();
+        for (int s=0; s<size; ++s)
+        {
+            final int i = index(s);
+            final int m = meta[i];
+            if (m < 0)
+                continue;
+            if (mapped[m] < 0)
+            {
+                mapped[m] = used.size();
+                used.add(metas.get(m));
+            }
+            meta[i] = mapped[m];
+        }
+        metas.clear();
+        metas.addAll(used);
+        meta_index.clear();
+        for (int m=0; m<used.size(); ++m)
+            meta_index.put(used.get(m), m);
+        meta_limit = Math.max(1000, 2 * used.size());
+        last_type = OBJECT;
+    }
+
+    /** Append samples from other columns
+     *  @param other Other columns
+     *  @param first Index of first sample in other columns
+     *  @param n Number of samples to append
+     */
+    void append(final PlotSampleColumns other, final int first, final int n)
+    {
+        if (metas.size() + other.metas.size() >= meta_limit)
+            compactMeta();
+        // Map other meta table into this one
+        final int[] mapped = new int[other.metas.size()];
+        Arrays.fill(mapped, -1);
+        for (int s=first; s<first+n; ++s)
+        {
+            final int o = other.index(s);
+            final int i = next();
+            nanos[i] = other.nanos[o];
+            values[i] = other.values[o];
+            final int m = other.meta[o];
+            if (m < 0)
+            {
+                if (objects == null)
+                    objects = new PlotSample[capacity];
+                objects[i] = other.objects[o];
+                objects[i].setWaveformIndex(waveform_index);
+                meta[i] = -1;
+            }
+            else
+            {
+                if (mapped[m] < 0)
+                {
+                    final SampleMeta info = other.metas.get(m);
+                    mapped[m] = getMeta(info.type, info.source, info.alarm, info.display);
+                }
+                meta[i] = mapped[m];
+            }
+            if (other.min != null  &&  min == null)
+                allocateStatistics();
+            if (min != null)
+            {
+                if (other.min != null)
+                {
+                    min[i] = other.min[o];
+                    max[i] = other.max[o];
+                    std[i] = other.std[o];
+                    count[i] = other.count[o];
+                }
+                else
+                {
+                    min[i] = max[i] = std[i] = Double.NaN;
+                    count[i] = 0;
+                }
+            }
+        }
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Time stamp in epoch nanoseconds
+     */
+    long getNanos(final int i)
+    {
+        return nanos[index(i)];
+    }
+
+    /** @param i Sample index 0 .. size()-1
+     *  @return Sample
+     */
+    PlotSample get(final int i)
+    {
+        final int a = index(i);
+        final int m = meta[a];
+        if (m < 0)
+            return objects[a];
+        if (min != null)
+            return new ColumnSample(waveform_index, metas.get(m), nanos[a], values[a], min[a], max[a], std[a], count[a]);
+        return new ColumnSample(waveform_index, metas.get(m), nanos[a], values[a], Double.NaN, Double.NaN, Double.NaN, 0);
+    }
+
+    /** @param time Time stamp in epoch nanoseconds
+     *  @return Index of last sample before that time, or -1
+     */
+    int findSampleLessThan(final long time)
+    {
+        int low = 0, high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getNanos(mid) < time)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    /** @param time Time stamp in epoch nanoseconds
+     *  @return Index of first sample after that time, or -1
+     */
+    int findSampleGreaterThan(final long time)
+    {
+        int low = 0, high = size - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getNanos(mid) > time)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        return low < size ? low : -1;
+    }
+}
@@ -109,4 +109,32 @@ public class PlotSampleMerger
 
         throw new Error("Cannot handle this case");  //$NON-NLS-1$
     }
+
+    /** Add newly received samples to existing columns of samples.
+     *  @param old Existing data
+     *  @param add Newly received data
+     *  @return Columns that combine new and old data
+     */
+    static PlotSampleColumns merge(final PlotSampleColumns old, final PlotSampleColumns add)
+    {
+        // If one is empty, return the other as is:
+        if (old.size() <= 0)
+            return add;
+        if (add.size() <= 0)
+            return old;
+        // Same cases as for arrays: Keep old samples before the start
+        // and after the end of the new samples, which replace the overlapping section.
+        final int l = old.findSampleLessThan(add.getNanos(0));
+        final int r = old.findSampleGreaterThan(add.getNanos(add.size()-1));
+        final int Nl = l + 1;
+        final int Nr = (r < 0) ? 0 : old.size() - r;
+        if (Nl == 0  &&  Nr == 0)
+            return add;
+        final PlotSampleColumns result = new PlotSampleColumns(old.getWaveformIndex(), Nl + add.size() + Nr);
+        result.append(old, 0, Nl);
+        result.append(add, 0, add.size());
+        if (Nr > 0)
+            result.append(old, r, Nr);
+        return result;
+    }
 }
@@ -13,6 +13,7 @@ import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -35,6 +36,11 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
      */
     final protected AtomicBoolean have_new_samples = new AtomicBoolean();
 
+    /** Incremented by {@link #unlockForWriting()}
+     *  @see #getChangeCount()
+     */
+    final protected AtomicLong changes = new AtomicLong();
+
     /** @return Locked for writing? */
     public boolean lockForWriting()
     {
@@ -54,6 +60,7 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
     /** Un-lock after writing */
     public void unlockForWriting()
     {
+        changes.incrementAndGet();
         lock.writeLock().unlock();
         have_new_samples.set(true);
     }
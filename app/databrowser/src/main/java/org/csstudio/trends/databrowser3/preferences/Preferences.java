@@ -56,6 +56,10 @@ public class Preferences
     /** Setting */
     @Preference public static int concurrent_requests;
     /** Setting */
+    @Preference public static int concurrent_server_requests;
+    /** Setting */
+    @Preference public static int archive_fetch_chunks;
+    /** Setting */
     @Preference public static ArchiveRescale archive_rescale;
     /** Setting */
     public static List<ArchiveDataSource> archive_urls;
@@ -107,6 +111,10 @@ public class Preferences
         // Allow at least one at a time
         if (concurrent_requests < 1)
         	concurrent_requests = 1;
+        if (concurrent_server_requests < 1)
+            concurrent_server_requests = 1;
+        if (archive_fetch_chunks < 1)
+            archive_fetch_chunks = 1;
 
         archive_urls = parseArchives(prefs.get("urls"));
         archives = parseArchives(prefs.get("archives"));
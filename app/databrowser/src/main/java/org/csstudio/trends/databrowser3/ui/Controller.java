@@ -36,6 +36,7 @@ import org.csstudio.trends.databrowser3.preferences.Preferences;
 import org.csstudio.trends.databrowser3.ui.plot.ModelBasedPlot;
 import org.csstudio.trends.databrowser3.ui.plot.PlotListener;
 import org.csstudio.trends.databrowser3.ui.properties.AddAxisCommand;
+import org.phoebus.archive.reader.cache.ArchiveCache;
 import org.phoebus.core.types.ProcessVariable;
 import org.phoebus.ui.dialog.DialogHelper;
 import org.phoebus.ui.undo.UndoableActionManager;
@@ -609,7 +610,10 @@ public class Controller
                 final PVItem pv = (PVItem) item;
                 pv.getSamples().clear();
             }
-        // Re-fetch archived data
+        // Re-fetch archived data, not using cached samples
+        final ArchiveCache cache = ArchiveCache.getInstance();
+        if (cache != null)
+            cache.clear();
         scheduleArchiveRetrieval();
     }
 
@@ -13,6 +13,8 @@ import java.util.ServiceLoader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.phoebus.archive.reader.cache.ArchiveCache;
+import org.phoebus.archive.reader.cache.CachingArchiveReader;
 import org.phoebus.archive.reader.spi.ArchiveReaderFactory;
 
 /** Access to {@link ArchiveReader}s via SPI
@@ -50,4 +52,20 @@ public class ArchiveReaders
                 return factory.createReader(url);
         throw new Exception("No archive reader for '" + url + "'");
     }
+
+    /** Create reader that uses the {@link ArchiveCache}
+     *
+     *  <p>Meant for interactive clients like the data browser plot
+     *  that repeatedly request overlapping time ranges.
+     *
+     *  @param url Data source URL
+     *  @return {@link ArchiveReader} that caches samples, or plain reader when cache is disabled
+     *  @throws Exception on error
+     */
+    public static ArchiveReader createCachingReader(final String url) throws Exception
+    {
+        final ArchiveReader reader = createReader(url);
+        final ArchiveCache cache = ArchiveCache.getInstance();
+        return cache == null ? reader : new CachingArchiveReader(cache, url, reader);
+    }
 }
@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import static org.phoebus.archive.reader.ArchiveReaders.logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.core.vtypes.VTypeHelper;
+
+/** Cache of archived samples
+ *
+ *  <p>Keeps the spans of samples that have been fetched,
+ *  per archive, channel and request type.
+ *  A request for a time range that is partially cached
+ *  only fetches the missing sections from the archive
+ *  and stitches them with the cached spans.
+ *
+ *  <p>Spans are kept in memory, least recently used channels are
+ *  evicted when the cache exceeds its size.
+ *  With a spill directory, evicted channels are written to disk
+ *  and read back when requested again.
+ *  Each process writes into its own "archive_cache_PID" subdirectory
+ *  of the spill directory, other files in the spill directory are left alone.
+ *  That subdirectory is removed on exit.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCache
+{
+    /** Fetch samples from the archive */
+    @FunctionalInterface
+    interface SampleFetcher
+    {
+        /** @param start Start time
+         *  @param end End time
+         *  @return Samples from last sample at or before start up to end
+         *  @throws UnknownChannelException when channel is not known
+         *  @throws Exception on error
+         */
+        ValueIterator fetch(Instant start, Instant end) throws UnknownChannelException, Exception;
+    }
+
+    /** Prefix of the per-process subdirectory for spill files */
+    static final String SPILL_PREFIX = "archive_cache_";
+
+    /** Name pattern of spill files, see {@link #spill} */
+    private static final String SPILL_FILES = "samples*.cache";
+
+    private static ArchiveCache instance = null;
+
+    private final long max_bytes;
+    private final Path spill_directory;
+    private final Duration recent;
+
+    /** Spans per key, sorted by time, least recently used key first. SYNC on this */
+    private final LinkedHashMap<String, List<CachedSpan>> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Spill files per key. SYNC on this */
+    private final Map<String, Path> disk = new HashMap<>();
+
+    /** Bytes in memory and on disk. SYNC on this */
+    private long memory_bytes = 0, disk_bytes = 0;
+
+    /** Counter for spill file names. SYNC on this */
+    private long spill_files = 0;
+
+    private final AtomicLong hits = new AtomicLong(), partial_hits = new AtomicLong(), misses = new AtomicLong();
+
+    /** @return Shared cache, <code>null</code> when disabled by preferences */
+    public static synchronized ArchiveCache getInstance()
+    {
+        if (instance == null  &&  ArchiveCachePreferences.memory_mb > 0)
+        {
+            final String dir = ArchiveCachePreferences.spill_directory.trim();
+            instance = new ArchiveCache(ArchiveCachePreferences.memory_mb * 1024L * 1024L,
+                                        dir.isEmpty() ? null : Path.of(dir),
+                                        Duration.ofSeconds(ArchiveCachePreferences.recent_secs));
+        }
+        return instance;
+    }
+
+    /** @param max_bytes Memory limit
+     *  @param spill_directory Directory for evicted spans, or <code>null</code>
+     *  @param recent Samples more recent than this are not cached
+     */
+    ArchiveCache(final long max_bytes, final Path spill_directory, final Duration recent)
+    {
+        this.max_bytes = max_bytes;
+        this.recent = recent;
+        Path directory = null;
+        if (spill_directory != null)
+        {
+            try
+            {
+                Files.createDirectories(spill_directory);
+                removeStaleSpillFiles(spill_directory);
+                directory = Files.createDirectories(spill_directory.resolve(SPILL_PREFIX + ProcessHandle.current().pid()));
+                final Path process_directory = directory;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteSpillDirectory(process_directory),
+                                                                "ArchiveCacheCleanup"));
+            }
+            catch (IOException ex)
+            {
+                logger.log(Level.WARNING, "Cannot use archive cache directory " + spill_directory, ex);
+                directory = null;
+            }
+        }
+        this.spill_directory = directory;
+    }
+
+    /** Remove spill files left by earlier runs
+     *
+     *  <p>Only removes spill files in the subdirectories of
+     *  this or exited processes, keeping those of other
+     *  running processes that share the spill directory.
+     *
+     *  @param spill_directory Spill directory
+     *  @throws IOException on error
+     */
+    private static void removeStaleSpillFiles(final Path spill_directory) throws IOException
+    {
+        final long pid = ProcessHandle.current().pid();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(spill_directory, SPILL_PREFIX + "*"))
+        {
+            for (Path dir : dirs)
+            {
+                final long owner;
+                try
+                {
+                    owner = Long.parseLong(dir.getFileName().toString().substring(SPILL_PREFIX.length()));
+                }
+                catch (NumberFormatException ex)
+                {
+                    continue;
+                }
+                if (! Files.isDirectory(dir)  ||
+                    (owner != pid  &&  ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false)))
+                    continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SPILL_FILES))
+                {
+                    for (Path file : files)
+                        Files.delete(file);
+                }
+                if (owner != pid)
+                {
+                    try
+                    {
+                        Files.delete(dir);
+                    }
+                    catch (IOException ex)
+                    {
+                        logger.log(Level.FINE, "Cannot remove archive cache directory " + dir, ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Remove spill files and subdirectory of this process
+     *  @param directory Subdirectory for spill files of this process
+     */
+    static void deleteSpillDirectory(final Path directory)
+    {
+        if (! Files.isDirectory(directory))
+            return;
+        try
+        {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SPILL_FILES))
+            {
+                for (Path file : files)
+                    Files.delete(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+        catch (IOException ex)
+        {
+            logger.log(Level.FINE, "Cannot remove archive cache directory " + directory, ex);
+        }
+    }
+
+    /** @return Directory for spill files of this cache, or <code>null</code> */
+    Path getSpillDirectory()
+    {
+        return spill_directory;
+    }
+
+    /** @param url Archive data source URL
+     *  @param name Channel name
+     *  @param type Request type, for example "raw" or bin size for optimized data
+     *  @return Key for cache entry
+     */
+    static String createKey(final String url, final String name, final String type)
+    {
+        return url + "\n" + name + "\n" + type;
+    }
+
+    /** Get samples, using cached spans and fetching missing sections
+     *
+     *  @param key Cache key
+     *  @param start Start time
+     *  @param end End time
+     *  @param fetcher Fetches missing sections
+     *  @param cancelled Indicates cancellation, in which case fetched samples are not cached
+     *  @return Samples from last sample at or before start up to end
+     *  @throws UnknownChannelException when channel is not known
+     *  @throws Exception on error
+     */
+    List<VType> getSamples(final String key, final Instant start, final Instant end,
+                           final SampleFetcher fetcher, final BooleanSupplier cancelled) throws UnknownChannelException, Exception
+    {
+        final Instant cutoff = Instant.now().minus(recent);
+
+        // Use cached spans that overlap the requested range, fetch the gaps
+        final List<CachedSpan> segments = new ArrayList<>();
+        boolean any_cached = false, any_fetched = false;
+        Instant covered = start;
+        for (CachedSpan span : getSpans(key))
+        {
+            if (span.getEnd().isBefore(covered))
+                continue;
+            if (span.getStart().isAfter(end))
+                break;
+            if (span.getStart().isAfter(covered))
+            {
+                segments.add(fetch(key, covered, span.getStart(), cutoff, fetcher, cancelled));
+                any_fetched = true;
+            }
+            segments.add(span);
+            any_cached = true;
+            covered = span.getEnd();
+        }
+        if (covered.isBefore(end)  ||  ! any_cached)
+        {
+            segments.add(fetch(key, covered, end, cutoff, fetcher, cancelled));
+            any_fetched = true;
+        }
+
+        if (! any_fetched)
+            hits.incrementAndGet();
+        else if (any_cached)
+            partial_hits.incrementAndGet();
+        else
+            misses.incrementAndGet();
+
+        // Stitch segments, dropping duplicates where they touch
+        final List<VType> result = new ArrayList<>();
+        VType before = null;
+        Instant last = null;
+        for (CachedSpan segment : segments)
+        {
+            final List<VType> samples = segment.getSamples();
+            for (int i=segment.indexAtOrBefore(start); i<samples.size(); ++i)
+            {
+                final VType sample = samples.get(i);
+                final Instant time = VTypeHelper.getTimestamp(sample);
+                if (last != null  &&  ! time.isAfter(last))
+                    continue;
+                if (time.isAfter(end))
+                    break;
+                last = time;
+                if (! time.isAfter(start))
+                    before = sample;
+                else
+                {
+                    if (before != null)
+                    {
+                        result.add(before);
+                        before = null;
+                    }
+                    result.add(sample);
+                }
+            }
+        }
+        if (before != null)
+            result.add(before);
+        return result;
+    }
+
+    /** Fetch samples and add them to the cache
+     *  @return Span with all fetched samples, including those too recent to cache
+     */
+    private CachedSpan fetch(final String key, final Instant start, final Instant end, final Instant cutoff,
+                             final SampleFetcher fetcher, final BooleanSupplier cancelled) throws Exception
+    {
+        final List<VType> samples = new ArrayList<>();
+        try (ValueIterator values = fetcher.fetch(start, end))
+        {
+            while (values.hasNext()  &&  ! cancelled.getAsBoolean())
+                samples.add(values.next());
+        }
+        final CachedSpan span = new CachedSpan(start, end, samples);
+
+        if (cancelled.getAsBoolean()  ||  ! start.isBefore(cutoff))
+            return span;
+        if (end.isAfter(cutoff))
+        {   // Only cache the part before the cutoff
+            final List<VType> older = new ArrayList<>();
+            for (VType sample : samples)
+            {
+                if (VTypeHelper.getTimestamp(sample).isAfter(cutoff))
+                    break;
+                older.add(sample);
+            }
+            add(key, new CachedSpan(start, cutoff, older));
+        }
+        else
+            add(key, span);
+        return span;
+    }
+
+    /** @param key Cache key
+     *  @return Cached spans, sorted by time
+     */
+    private synchronized List<CachedSpan> getSpans(final String key)
+    {
+        final List<CachedSpan> spans = getEntry(key);
+        return spans == null ? List.of() : new ArrayList<>(spans);
+    }
+
+    /** @param key Cache key
+     *  @return Spans in memory, read from disk if necessary, or <code>null</code>
+     */
+    private List<CachedSpan> getEntry(final String key)
+    {
+        List<CachedSpan> spans = memory.get(key);
+        if (spans != null)
+            return spans;
+        final Path file = disk.remove(key);
+        if (file == null)
+            return null;
+        try
+        {
+            disk_bytes -= Files.size(file);
+            spans = SpillFile.read(file);
+            Files.delete(file);
+        }
+        catch (IOException ex)
+        {
+            logger.log(Level.WARNING, "Cannot read archive cache file " + file, ex);
+            return null;
+        }
+        memory.put(key, spans);
+        for (CachedSpan span : spans)
+            memory_bytes += span.getBytes();
+        evict();
+        return memory.get(key);
+    }
+
+    /** @param key Cache key
+     *  @param span Span to add, merged with existing spans that it overlaps or touches
+     */
+    private synchronized void add(final String key, final CachedSpan span)
+    {
+        List<CachedSpan> spans = getEntry(key);
+        if (spans == null)
+        {
+            spans = new ArrayList<>();
+            memory.put(key, spans);
+        }
+        CachedSpan merged = span;
+        final Iterator<CachedSpan> iter = spans.iterator();
+        while (iter.hasNext())
+        {
+            final CachedSpan existing = iter.next();
+            if (existing.touches(merged))
+            {
+                merged = CachedSpan.merge(existing, merged);
+                memory_bytes -= existing.getBytes();
+                iter.remove();
+            }
+        }
+        int index = 0;
+        while (index < spans.size()  &&  spans.get(index).getStart().isBefore(merged.getStart()))
+            ++index;
+        spans.add(index, merged);
+        memory_bytes += merged.getBytes();
+        evict();
+    }
+
+    /** Evict least recently used entries until memory use is within limit */
+    private void evict()
+    {
+        final Iterator<Map.Entry<String, List<CachedSpan>>> iter = memory.entrySet().iterator();
+        while (memory_bytes > max_bytes  &&  iter.hasNext())
+        {
+            final Map.Entry<String, List<CachedSpan>> entry = iter.next();
+            iter.remove();
+            for (CachedSpan span : entry.getValue())
+                memory_bytes -= span.getBytes();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** @param key Cache key
+     *  @param spans Spans evicted from memory
+     */
+    private void spill(final String key, final List<CachedSpan> spans)
+    {
+        if (spill_directory == null  ||  ! SpillFile.canWrite(spans))
+            return;
+        final Path file = spill_directory.resolve("samples" + (++spill_files) + ".cache");
+        try
+        {
+            SpillFile.write(file, spans);
+            disk.put(key, file);
+            disk_bytes += Files.size(file);
+        }
+        catch (IOException ex)
+        {
+            logger.log(Level.WARNING, "Cannot write archive cache file " + file, ex);
+        }
+    }
+
+    /** Remove all cached samples, so they will be fetched again */
+    public synchronized void clear()
+    {
+        memory.clear();
+        memory_bytes = 0;
+        for (Path file : disk.values())
+        {
+            try
+            {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException ex)
+            {
+                logger.log(Level.WARNING, "Cannot delete archive cache file " + file, ex);
+            }
+        }
+        disk.clear();
+        disk_bytes = 0;
+    }
+
+    /** @return Number of requests that were fully served from the cache */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of requests that used cached samples and fetched missing sections */
+    public long getPartialHits()
+    {
+        return partial_hits.get();
+    }
+
+    /** @return Number of requests that had to fetch all samples */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /** @return Estimated memory use in bytes */
+    public synchronized long getMemoryBytes()
+    {
+        return memory_bytes;
+    }
+
+    /** @return Size of spill files in bytes */
+    public synchronized long getDiskBytes()
+    {
+        return disk_bytes;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "Archive cache: " + hits.get() + " hits, " + partial_hits.get() + " partial hits, " + misses.get() + " misses, " +
+               memory.size() + " channels with " + memory_bytes / 1024 + " kB in memory, " +
+               disk.size() + " channels with " + disk_bytes / 1024 + " kB on disk";
+    }
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import org.phoebus.framework.preferences.AnnotatedPreferences;
+import org.phoebus.framework.preferences.Preference;
+
+/** Settings for the archive sample cache
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCachePreferences
+{
+    @Preference static int memory_mb;
+    @Preference static String spill_directory;
+    @Preference static int recent_secs;
+
+    static
+    {
+        AnnotatedPreferences.initialize(ArchiveCachePreferences.class, "/archive_cache_preferences.properties");
+    }
+}
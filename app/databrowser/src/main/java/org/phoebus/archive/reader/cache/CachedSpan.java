@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.phoebus.core.vtypes.VTypeHelper;
+
+/** Samples for a time range that were fetched from an archive
+ *
+ *  <p>Like the result of an archive request,
+ *  the samples start with the last sample at or before the
+ *  start of the span, followed by all samples up to the end.
+ *
+ *  <p>Immutable.
+ *
+ *  @author Kay Kasemir
+ */
+class CachedSpan
+{
+    /** Estimated memory use of a scalar sample, including time stamp and alarm */
+    private static final int SAMPLE_BYTES = 100;
+
+    private final Instant start, end;
+    private final List<VType> samples;
+    private final long bytes;
+
+    /** @param start Start of the time range
+     *  @param end End of the time range
+     *  @param samples Samples sorted by time
+     */
+    CachedSpan(final Instant start, final Instant end, final List<VType> samples)
+    {
+        this.start = start;
+        this.end = end;
+        this.samples = samples;
+        long size = 0;
+        for (VType sample : samples)
+            size += getSize(sample);
+        bytes = size;
+    }
+
+    /** @param value Sample
+     *  @return Estimated memory use in bytes
+     */
+    static long getSize(final VType value)
+    {
+        if (value instanceof VNumberArray)
+            return SAMPLE_BYTES + 8L * ((VNumberArray) value).getData().size();
+        if (value instanceof VString)
+            return SAMPLE_BYTES + 2L * ((VString) value).getValue().length();
+        return SAMPLE_BYTES;
+    }
+
+    /** @return Start of the time range */
+    Instant getStart()
+    {
+        return start;
+    }
+
+    /** @return End of the time range */
+    Instant getEnd()
+    {
+        return end;
+    }
+
+    /** @return Samples, sorted by time */
+    List<VType> getSamples()
+    {
+        return samples;
+    }
+
+    /** @return Estimated memory use in bytes */
+    long getBytes()
+    {
+        return bytes;
+    }
+
+    /** @param other Other span
+     *  @return <code>true</code> if spans overlap or touch
+     */
+    boolean touches(final CachedSpan other)
+    {
+        return ! (other.end.isBefore(start)  ||  other.start.isAfter(end));
+    }
+
+    /** @param time Time stamp
+     *  @return Index of last sample at or before that time, 0 if there is none
+     */
+    int indexAtOrBefore(final Instant time)
+    {
+        int low = 0, high = samples.size() - 1, index = 0;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (VTypeHelper.getTimestamp(samples.get(mid)).isAfter(time))
+                high = mid - 1;
+            else
+            {
+                index = mid;
+                low = mid + 1;
+            }
+        }
+        return index;
+    }
+
+    /** Merge spans that overlap or touch
+     *
+     *  <p>Where both spans hold a sample with the same time stamp,
+     *  the one from the newer span is kept.
+     *
+     *  @param older Older span
+     *  @param newer Newer span
+     *  @return Span that covers both
+     */
+    static CachedSpan merge(final CachedSpan older, final CachedSpan newer)
+    {
+        final Instant start = older.start.isBefore(newer.start) ? older.start : newer.start;
+        final Instant end = older.end.isAfter(newer.end) ? older.end : newer.end;
+        final List<VType> a = older.samples, b = newer.samples;
+        final List<VType> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size()  ||  j < b.size())
+        {
+            final VType sample;
+            if (j >= b.size())
+                sample = a.get(i++);
+            else if (i >= a.size())
+                sample = b.get(j++);
+            else
+            {
+                final int cmp = VTypeHelper.getTimestamp(a.get(i)).compareTo(VTypeHelper.getTimestamp(b.get(j)));
+                if (cmp < 0)
+                    sample = a.get(i++);
+                else
+                {
+                    if (cmp == 0)
+                        ++i;
+                    sample = b.get(j++);
+                }
+            }
+            // Only keep the last sample before the start
+            if (merged.size() == 1  &&  ! VTypeHelper.getTimestamp(sample).isAfter(start))
+                merged.set(0, sample);
+            else
+                merged.add(sample);
+        }
+        return new CachedSpan(start, end, merged);
+    }
+
+    @Override
+    public String toString()
+    {
+        return start + " - " + end + ", " + samples.size() + " samples";
+    }
+}
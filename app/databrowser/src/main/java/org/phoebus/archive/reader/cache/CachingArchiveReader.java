@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+
+/** {@link ArchiveReader} that uses the {@link ArchiveCache}
+ *
+ *  <p>Wraps the reader for an archive data source.
+ *  Raw and optimized requests are served from the cache,
+ *  fetching missing time ranges from the wrapped reader.
+ *  Optimized data is cached per bin size,
+ *  so panning at the same zoom level re-uses cached bins
+ *  while a different zoom level starts a new cache entry.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CachingArchiveReader implements ArchiveReader
+{
+    private final ArchiveCache cache;
+    private final String url;
+    private final ArchiveReader reader;
+    private volatile boolean cancelled = false;
+
+    /** @param cache Cache
+     *  @param url Archive data source URL
+     *  @param reader Reader for that URL
+     */
+    public CachingArchiveReader(final ArchiveCache cache, final String url, final ArchiveReader reader)
+    {
+        this.cache = cache;
+        this.url = url;
+        this.reader = reader;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return reader.getDescription();
+    }
+
+    @Override
+    public Collection<String> getNamesByPattern(final String glob_pattern) throws Exception
+    {
+        return reader.getNamesByPattern(glob_pattern);
+    }
+
+    @Override
+    public ValueIterator getRawValues(final String name, final Instant start, final Instant end)
+            throws UnknownChannelException, Exception
+    {
+        final String key = ArchiveCache.createKey(url, name, "raw");
+        return new ListValueIterator(cache.getSamples(key, start, end,
+                                                      (s, e) -> reader.getRawValues(name, s, e),
+                                                      () -> cancelled));
+    }
+
+    @Override
+    public ValueIterator getOptimizedValues(final String name, final Instant start, final Instant end, final int count)
+            throws UnknownChannelException, Exception
+    {
+        final long bin_millis = Math.max(1, Duration.between(start, end).toMillis() / Math.max(1, count));
+        final String key = ArchiveCache.createKey(url, name, "optimized " + bin_millis + " ms");
+        return new ListValueIterator(cache.getSamples(key, start, end,
+                                                      (s, e) -> reader.getOptimizedValues(name, s, e,
+                                                              (int) Math.max(2, Duration.between(s, e).toMillis() / bin_millis)),
+                                                      () -> cancelled));
+    }
+
+    @Override
+    public void cancel()
+    {
+        cancelled = true;
+        reader.cancel();
+    }
+
+    @Override
+    public void close()
+    {
+        reader.close();
+    }
+
+    /** Iterator over fetched samples */
+    private static class ListValueIterator implements ValueIterator
+    {
+        private final Iterator<VType> samples;
+
+        ListValueIterator(final List<VType> samples)
+        {
+            this.samples = samples.iterator();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return samples.hasNext();
+        }
+
+        @Override
+        public VType next()
+        {
+            return samples.next();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ListNumber;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+
+/** File for cached spans that were evicted from memory
+ *
+ *  <p>Handles the sample types returned by archive readers:
+ *  Numbers, statistics for optimized data, enums, strings and numeric arrays.
+ *  Display information is only written when it changes from one sample to the next.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class SpillFile
+{
+    private static final int MAGIC = 0x53504C31;
+
+    private static final byte DOUBLE = 1, LONG = 2, STATISTICS = 3, ENUM = 4, STRING = 5, ARRAY = 6;
+
+    private static final AlarmSeverity[] severities = AlarmSeverity.values();
+    private static final AlarmStatus[] stati = AlarmStatus.values();
+
+    /** @param spans Spans
+     *  @return <code>true</code> if all samples can be written
+     */
+    static boolean canWrite(final List<CachedSpan> spans)
+    {
+        for (CachedSpan span : spans)
+            for (VType sample : span.getSamples())
+                if (getType(sample) == 0)
+                    return false;
+        return true;
+    }
+
+    private static byte getType(final VType value)
+    {
+        if (value instanceof VStatistics)
+            return STATISTICS;
+        if (value instanceof VDouble  ||  value instanceof VFloat)
+            return DOUBLE;
+        if (value instanceof VNumber)
+            return LONG;
+        if (value instanceof VEnum)
+            return ENUM;
+        if (value instanceof VString)
+            return STRING;
+        if (value instanceof VNumberArray)
+            return ARRAY;
+        return 0;
+    }
+
+    /** @param file File to write
+     *  @param spans Spans to write, must pass {@link #canWrite(List)}
+     *  @throws IOException on error
+     */
+    static void write(final Path file, final List<CachedSpan> spans) throws IOException
+    {
+        try
+        (
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        )
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(spans.size());
+            for (CachedSpan span : spans)
+            {
+                writeInstant(out, span.getStart());
+                writeInstant(out, span.getEnd());
+                out.writeInt(span.getSamples().size());
+                Object last_meta = null;
+                for (VType sample : span.getSamples())
+                {
+                    final byte type = getType(sample);
+                    out.writeByte(type);
+                    writeInstant(out, Time.timeOf(sample).getTimestamp());
+                    final Alarm alarm = Alarm.alarmOf(sample);
+                    out.writeByte(alarm.getSeverity().ordinal());
+                    out.writeByte(alarm.getStatus().ordinal());
+                    out.writeUTF(alarm.getName());
+
+                    final Object meta = type == ENUM ? ((VEnum) sample).getDisplay() : Display.displayOf(sample);
+                    if (meta == last_meta)
+                        out.writeBoolean(false);
+                    else
+                    {
+                        out.writeBoolean(true);
+                        if (type == ENUM)
+                            writeLabels(out, (EnumDisplay) meta);
+                        else if (type != STRING)
+                            writeDisplay(out, (Display) meta);
+                        last_meta = meta;
+                    }
+
+                    switch (type)
+                    {
+                    case DOUBLE:
+                        out.writeDouble(((VNumber) sample).getValue().doubleValue());
+                        break;
+                    case LONG:
+                        out.writeLong(((VNumber) sample).getValue().longValue());
+                        break;
+                    case STATISTICS:
+                    {
+                        final VStatistics stats = (VStatistics) sample;
+                        out.writeDouble(stats.getAverage());
+                        out.writeDouble(stats.getStdDev());
+                        out.writeDouble(stats.getMin());
+                        out.writeDouble(stats.getMax());
+                        out.writeInt(stats.getNSamples());
+                        break;
+                    }
+                    case ENUM:
+                        out.writeInt(((VEnum) sample).getIndex());
+                        break;
+                    case STRING:
+                        out.writeUTF(((VString) sample).getValue());
+                        break;
+                    default:
+                    {
+                        final ListNumber data = ((VNumberArray) sample).getData();
+                        out.writeInt(data.size());
+                        for (int i=0; i<data.size(); ++i)
+                            out.writeDouble(data.getDouble(i));
+                    }
+                    }
+                }
+            }
+        }
+    }
+
+    /** @param file File to read
+     *  @return Spans
+     *  @throws IOException on error
+     */
+    static List<CachedSpan> read(final Path file) throws IOException
+    {
+        try
+        (
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        )
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Invalid cache file " + file);
+            final int count = in.readInt();
+            final List<CachedSpan> spans = new ArrayList<>(count);
+            for (int s=0; s<count; ++s)
+            {
+                final Instant start = readInstant(in);
+                final Instant end = readInstant(in);
+                final int size = in.readInt();
+                final List<VType> samples = new ArrayList<>(size);
+                Display display = Display.none();
+                EnumDisplay labels = null;
+                for (int i=0; i<size; ++i)
+                {
+                    final byte type = in.readByte();
+                    final Time time = Time.of(readInstant(in));
+                    final int sev = in.readByte(), stat = in.readByte();
+                    final Alarm alarm = Alarm.of(severities[sev], stati[stat], in.readUTF());
+                    if (in.readBoolean())
+                    {
+                        if (type == ENUM)
+                            labels = readLabels(in);
+                        else if (type != STRING)
+                            display = readDisplay(in);
+                    }
+                    switch (type)
+                    {
+                    case DOUBLE:
+                        samples.add(VDouble.of(in.readDouble(), alarm, time, display));
+                        break;
+                    case LONG:
+                        samples.add(VLong.of(in.readLong(), alarm, time, display));
+                        break;
+                    case STATISTICS:
+                        samples.add(VStatistics.of(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                                                   in.readInt(), alarm, time, display));
+                        break;
+                    case ENUM:
+                        samples.add(VEnum.of(in.readInt(), labels, alarm, time));
+                        break;
+                    case STRING:
+                        samples.add(VString.of(in.readUTF(), alarm, time));
+                        break;
+                    case ARRAY:
+                    {
+                        final double[] data = new double[in.readInt()];
+                        for (int d=0; d<data.length; ++d)
+                            data[d] = in.readDouble();
+                        samples.add(VDoubleArray.of(ArrayDouble.of(data), alarm, time, display));
+                        break;
+                    }
+                    default:
+                        throw new IOException("Invalid sample type " + type + " in " + file);
+                    }
+                }
+                spans.add(new CachedSpan(start, end, samples));
+            }
+            return spans;
+        }
+    }
+
+    private static void writeInstant(final DataOutputStream out, final Instant time) throws IOException
+    {
+        out.writeLong(time.getEpochSecond());
+        out.writeInt(time.getNano());
+    }
+
+    private static Instant readInstant(final DataInputStream in) throws IOException
+    {
+        final long secs = in.readLong();
+        return Instant.ofEpochSecond(secs, in.readInt());
+    }
+
+    private static void writeDisplay(final DataOutputStream out, final Display display) throws IOException
+    {
+        writeRange(out, display.getDisplayRange());
+        writeRange(out, display.getAlarmRange());
+        writeRange(out, display.getWarningRange());
+        writeRange(out, display.getControlRange());
+        out.writeUTF(display.getUnit());
+        out.writeInt(display.getFormat().getMaximumFractionDigits());
+    }
+
+    private static Display readDisplay(final DataInputStream in) throws IOException
+    {
+        final Range display = readRange(in), alarm = readRange(in), warning = readRange(in), control = readRange(in);
+        final String units = in.readUTF();
+        return Display.of(display, alarm, warning, control, units, NumberFormats.precisionFormat(in.readInt()));
+    }
+
+    private static void writeRange(final DataOutputStream out, final Range range) throws IOException
+    {
+        out.writeDouble(range.getMinimum());
+        out.writeDouble(range.getMaximum());
+    }
+
+    private static Range readRange(final DataInputStream in) throws IOException
+    {
+        final double min = in.readDouble(), max = in.readDouble();
+        if (Double.isNaN(min)  ||  Double.isNaN(max))
+            return Range.undefined();
+        return Range.of(min, max);
+    }
+
+    private static void writeLabels(final DataOutputStream out, final EnumDisplay labels) throws IOException
+    {
+        final List<String> choices = labels.getChoices();
+        out.writeInt(choices.size());
+        for (String choice : choices)
+            out.writeUTF(choice);
+    }
+
+    private static EnumDisplay readLabels(final DataInputStream in) throws IOException
+    {
+        final int count = in.readInt();
+        final List<String> choices = new ArrayList<>(count);
+        for (int i=0; i<count; ++i)
+            choices.add(in.readUTF());
+        return EnumDisplay.of(choices);
+    }
+}
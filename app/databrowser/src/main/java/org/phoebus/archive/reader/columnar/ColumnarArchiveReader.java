@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.columnar;
+
+import static org.phoebus.archive.reader.ArchiveReaders.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.AveragedValueIterator;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.framework.columnar.ColumnarBlock;
+import org.phoebus.framework.columnar.ColumnarStorage;
+import org.phoebus.util.time.TimeDuration;
+
+/** ArchiveReader for columnar file archive
+ *
+ *  <p>Reads the per-channel, per-day partition files
+ *  written by the archive engine's columnar writer.
+ *  Partition files are memory-mapped,
+ *  blocks outside of the requested time range are skipped
+ *  based on their header.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarArchiveReader implements ArchiveReader
+{
+    private final ColumnarStorage storage;
+
+    /** @param root Root directory of the archive
+     *  @throws Exception on error
+     */
+    public ColumnarArchiveReader(final Path root) throws Exception
+    {
+        if (! Files.isDirectory(root))
+            throw new Exception("Cannot find columnar archive directory " + root);
+        storage = new ColumnarStorage(root);
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Columnar file archive\n" + storage.getRoot();
+    }
+
+    @Override
+    public List<String> getNamesByPattern(final String glob_pattern) throws Exception
+    {
+        final String reg_exp = glob_pattern.replace("\\", "\\\\")
+                                           .replace(".", "\\.")
+                                           .replace("*", ".*")
+                                           .replace("?", ".");
+        final Pattern pattern = Pattern.compile(reg_exp, Pattern.CASE_INSENSITIVE);
+        final List<String> result = new ArrayList<>();
+        for (String name : storage.getChannelNames())
+            if (pattern.matcher(name).matches())
+                result.add(name);
+        return result;
+    }
+
+    @Override
+    public ValueIterator getRawValues(final String name, final Instant start, final Instant end)
+            throws UnknownChannelException, Exception
+    {
+        return new ColumnarValueIterator(getPartitions(name, start, end), start, end);
+    }
+
+    @Override
+    public ValueIterator getOptimizedValues(final String name, final Instant start, final Instant end, final int count)
+            throws UnknownChannelException, Exception
+    {
+        final List<Path> partitions = getPartitions(name, start, end);
+
+        // Block headers provide the sample count without decoding the samples
+        final int actual = countSamples(partitions, start, end);
+        final ValueIterator raw_data = new ColumnarValueIterator(partitions, start, end);
+        if (actual < count)
+        {
+            logger.log(Level.FINER, () -> name + " has only " + actual + " samples, using raw data");
+            return raw_data;
+        }
+        final double seconds = TimeDuration.toSecondsDouble(Duration.between(start, end)) / count;
+        logger.log(Level.FINER, () -> name + " has about " + actual + " samples, averaging into " + count + " bins");
+        return new AveragedValueIterator(raw_data, seconds);
+    }
+
+    /** @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @return Partitions that might hold samples from the last sample before 'start' up to 'end'
+     *  @throws UnknownChannelException when channel not in archive
+     *  @throws Exception on error
+     */
+    private List<Path> getPartitions(final String name, final Instant start, final Instant end)
+            throws UnknownChannelException, Exception
+    {
+        if (! storage.hasChannel(name))
+            throw new UnknownChannelException(name);
+        final List<LocalDate> dates = storage.getPartitionDates(name);
+        final LocalDate start_date = ColumnarStorage.getPartitionDate(ColumnarValueIterator.toNanos(start));
+        final LocalDate end_date = ColumnarStorage.getPartitionDate(ColumnarValueIterator.toNanos(end));
+
+        // Start with the last partition at or before the start date,
+        // which holds the last sample before the start time
+        int first = 0;
+        for (int i=0; i<dates.size(); ++i)
+            if (! dates.get(i).isAfter(start_date))
+                first = i;
+
+        final List<Path> partitions = new ArrayList<>();
+        for (int i=first; i<dates.size()  &&  ! dates.get(i).isAfter(end_date); ++i)
+            partitions.add(storage.getPartition(name, dates.get(i)));
+        return partitions;
+    }
+
+    /** @param partitions Partitions
+     *  @param start Start time
+     *  @param end End time
+     *  @return Number of samples in blocks that overlap the time range
+     *  @throws Exception on error
+     */
+    private static int countSamples(final List<Path> partitions, final Instant start, final Instant end) throws Exception
+    {
+        final long start_nanos = ColumnarValueIterator.toNanos(start), end_nanos = ColumnarValueIterator.toNanos(end);
+        int count = 0;
+        for (Path partition : partitions)
+        {
+            final ByteBuffer buffer = ColumnarStorage.map(partition);
+            int position = ColumnarStorage.HEADER_SIZE;
+            while (ColumnarStorage.hasBlock(buffer, position))
+            {
+                if (ColumnarBlock.getLastTime(buffer, position) >= start_nanos  &&
+                    ColumnarBlock.getFirstTime(buffer, position) <= end_nanos)
+                    count += ColumnarBlock.getCount(buffer, position);
+                position += ColumnarBlock.getBlockLength(buffer, position);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.columnar;
+
+import java.nio.file.Paths;
+
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.spi.ArchiveReaderFactory;
+
+/** SPI for "columnar:" archive URLs
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarArchiveReaderFactory implements ArchiveReaderFactory
+{
+    /** Data source prefix */
+    public final static String PREFIX = "columnar:";
+
+    @Override
+    public String getPrefix()
+    {
+        return PREFIX;
+    }
+
+    @Override
+    public ArchiveReader createReader(final String url) throws Exception
+    {
+        return new ColumnarArchiveReader(Paths.get(url.substring(PREFIX.length())));
+    }
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.columnar;
+
+import static org.phoebus.archive.reader.ArchiveReaders.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.framework.columnar.ColumnarBlock;
+import org.phoebus.framework.columnar.ColumnarBlockDecoder;
+import org.phoebus.framework.columnar.ColumnarMetaData;
+import org.phoebus.framework.columnar.ColumnarStorage;
+
+/** Iterator over samples in columnar archive partitions
+ *
+ *  <p>Returns the last sample at or before the start time,
+ *  followed by all samples up to the end time.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class ColumnarValueIterator implements ValueIterator
+{
+    private static final AlarmSeverity[] severities = AlarmSeverity.values();
+    private static final AlarmStatus[] stati = AlarmStatus.values();
+
+    private final List<Path> partitions;
+    private final long start, end;
+
+    /** Index of next partition to map */
+    private int partition_index = 0;
+
+    /** Current partition and position of next block */
+    private ByteBuffer buffer = null;
+    private int position;
+
+    /** Most recent block that ends before 'start' */
+    private ByteBuffer skipped_buffer = null;
+    private int skipped_position;
+
+    /** Decoder for current block, or <code>null</code> */
+    private ColumnarBlockDecoder decoder = null;
+
+    /** Has a sample at or after 'start' been returned? */
+    private boolean started = false;
+
+    /** Last sample before 'start', or <code>null</code> */
+    private VType before = null;
+
+    /** Sample to return after 'before' */
+    private VType stash = null;
+
+    /** Next sample to return, or <code>null</code> at end */
+    private VType next_value;
+
+    /** Display for last meta data */
+    private ColumnarMetaData last_meta = null;
+    private Display display = Display.none();
+    private EnumDisplay labels = null;
+
+    /** @param instant Time stamp
+     *  @return Epoch nanosecs, clamped to the range of long
+     */
+    static long toNanos(final Instant instant)
+    {
+        try
+        {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1000000000L), instant.getNano());
+        }
+        catch (ArithmeticException ex)
+        {
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /** @param partitions Partitions to read, sorted by date
+     *  @param start Start time
+     *  @param end End time
+     */
+    ColumnarValueIterator(final List<Path> partitions, final Instant start, final Instant end)
+    {
+        this.partitions = partitions;
+        this.start = toNanos(start);
+        this.end = toNanos(end);
+        next_value = fetch();
+    }
+
+    /** @return Next sample or <code>null</code> */
+    private VType fetch()
+    {
+        if (stash != null)
+        {
+            final VType value = stash;
+            stash = null;
+            return value;
+        }
+        try
+        {
+            while (true)
+            {
+                if (decoder != null  &&  decoder.next())
+                {
+                    final long time = decoder.getTime();
+                    if (time > end)
+                        break;
+                    final VType value = createValue(decoder);
+                    if (started)
+                        return value;
+                    if (time < start)
+                    {
+                        before = value;
+                        continue;
+                    }
+                    started = true;
+                    final VType previous = before;
+                    before = null;
+                    if (previous == null  ||  time == start)
+                        return value;
+                    stash = value;
+                    return previous;
+                }
+                decoder = null;
+
+                // Step to next block
+                if (buffer != null  &&  ColumnarStorage.hasBlock(buffer, position))
+                {
+                    final int block = position;
+                    position += ColumnarBlock.getBlockLength(buffer, block);
+                    if (ColumnarBlock.getFirstTime(buffer, block) > end)
+                        break;
+                    if (! started  &&  ColumnarBlock.getLastTime(buffer, block) < start)
+                    {   // Skip, but remember for the last sample before 'start'
+                        skipped_buffer = buffer;
+                        skipped_position = block;
+                        continue;
+                    }
+                    if (! started  &&  before == null  &&  skipped_buffer != null)
+                        before = getLastSample(skipped_buffer, skipped_position);
+                    decoder = new ColumnarBlockDecoder(buffer, block);
+                    continue;
+                }
+
+                // Step to next partition
+                if (partition_index >= partitions.size())
+                    break;
+                buffer = ColumnarStorage.map(partitions.get(partition_index++));
+                position = ColumnarStorage.HEADER_SIZE;
+            }
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot read columnar archive samples", ex);
+        }
+
+        // All samples are before 'start'? Return the last one
+        if (! started  &&  skipped_buffer != null  &&  before == null)
+        {
+            try
+            {
+                before = getLastSample(skipped_buffer, skipped_position);
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot read columnar archive samples", ex);
+            }
+        }
+        started = true;
+        final VType value = before;
+        before = null;
+        return value;
+    }
+
+    /** @param buffer Buffer
+     *  @param position Position of block
+     *  @return Last sample in block
+     *  @throws Exception on error
+     */
+    private VType getLastSample(final ByteBuffer buffer, final int position) throws Exception
+    {
+        final ColumnarBlockDecoder block = new ColumnarBlockDecoder(buffer, position);
+        VType value = null;
+        while (block.next())
+            if (block.getTime() <= start)
+                value = createValue(block);
+        return value;
+    }
+
+    /** @param decoder Decoder positioned on a sample
+     *  @return {@link VType} for the sample
+     */
+    private VType createValue(final ColumnarBlockDecoder decoder)
+    {
+        final long nanos = decoder.getTime();
+        final Time time = Time.of(Instant.ofEpochSecond(Math.floorDiv(nanos, 1000000000L), Math.floorMod(nanos, 1000000000L)));
+        final int sev = decoder.getSeverity(), stat = decoder.getStatus();
+        final Alarm alarm = Alarm.of(sev < severities.length ? severities[sev] : AlarmSeverity.UNDEFINED,
+                                     stat < stati.length ? stati[stat] : AlarmStatus.CLIENT,
+                                     decoder.getAlarmName());
+        updateDisplay(decoder.getMetaData());
+        switch (decoder.getType())
+        {
+        case ColumnarBlock.DOUBLE:
+            return VDouble.of(decoder.getDouble(), alarm, time, display);
+        case ColumnarBlock.LONG:
+            if (labels != null)
+                return VEnum.of((int) decoder.getLong(), labels, alarm, time);
+            return VLong.of(decoder.getLong(), alarm, time, display);
+        case ColumnarBlock.STRING:
+            return VString.of(decoder.getString(), alarm, time);
+        default:
+            return VDoubleArray.of(ArrayDouble.of(decoder.getArray()), alarm, time, display);
+        }
+    }
+
+    /** @param meta Meta data of current block */
+    private void updateDisplay(final ColumnarMetaData meta)
+    {
+        if (meta == last_meta)
+            return;
+        last_meta = meta;
+        labels = null;
+        if (meta.isNumeric())
+            display = Display.of(Range.of(meta.getDisplayLow(), meta.getDisplayHigh()),
+                                 Range.of(meta.getAlarmLow(), meta.getAlarmHigh()),
+                                 Range.of(meta.getWarnLow(), meta.getWarnHigh()),
+                                 Range.undefined(),
+                                 meta.getUnits(), NumberFormats.precisionFormat(meta.getPrecision()));
+        else
+        {
+            display = Display.none();
+            if (meta.isEnumerated())
+                labels = EnumDisplay.of(meta.getLabels());
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return next_value != null;
+    }
+
+    @Override
+    public VType next()
+    {
+        if (next_value == null)
+            throw new NoSuchElementException();
+        final VType value = next_value;
+        next_value = fetch();
+        return value;
+    }
+}
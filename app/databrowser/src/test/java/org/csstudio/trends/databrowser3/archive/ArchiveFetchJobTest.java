@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.csstudio.trends.databrowser3.model.ArchiveDataSource;
+import org.csstudio.trends.databrowser3.model.PVItem;
+import org.csstudio.trends.databrowser3.preferences.Preferences;
+import org.epics.vtype.Time;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link ArchiveFetchJob}
+ *
+ *  <p>Uses the {@link DelayedArchiveReader} to simulate
+ *  archive data servers with latency.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveFetchJobTest
+{
+    private static final Instant end = Instant.parse("2023-06-01T00:00:00Z");
+    private static final Instant start = end.minus(Duration.ofDays(1));
+
+    private static class Listener implements ArchiveFetchJobListener
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        volatile List<ArchiveDataSource> not_found = List.of();
+
+        @Override
+        public void fetchCompleted(final ArchiveFetchJob job)
+        {
+            done.countDown();
+        }
+
+        @Override
+        public void archiveFetchFailed(final ArchiveFetchJob job, final ArchiveDataSource archive, final Exception error)
+        {
+            failed.set(true);
+        }
+
+        @Override
+        public void channelNotFound(final ArchiveFetchJob job, final boolean channelFoundAtLeastOnce, final List<ArchiveDataSource> archivesThatFailed)
+        {
+            not_found = archivesThatFailed;
+        }
+    }
+
+    @BeforeEach
+    public void reset()
+    {
+        DelayedArchiveReader.reset();
+    }
+
+    @Test
+    public void testChunks()
+    {
+        List<Instant> chunks = ArchiveFetchJob.getChunks(start, end);
+        assertEquals(Preferences.archive_fetch_chunks + 1, chunks.size());
+        assertEquals(start, chunks.get(0));
+        assertEquals(end, chunks.get(chunks.size()-1));
+
+        // Short time range is not split
+        chunks = ArchiveFetchJob.getChunks(end.minusSeconds(60), end);
+        assertEquals(2, chunks.size());
+    }
+
+    @Test
+    public void testConcurrentFetch() throws Exception
+    {
+        final int limit = Preferences.concurrent_server_requests;
+        final PVItem item = new PVItem("demo", 0);
+        item.setArchiveDataSource(new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "200/A", "A"),
+                                  new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "200/B", "B"),
+                                  new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "200/C", "C"));
+
+        final Listener listener = new Listener();
+        new ArchiveFetchJob(item, start, end, listener);
+        assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+        assertFalse(listener.failed.get());
+
+        // Requests to different servers run concurrently,
+        // but each server only receives the configured number of requests at a time
+        assertTrue(DelayedArchiveReader.max_active.get() > 1);
+        for (String server : List.of("A", "B", "C"))
+        {
+            final int max = DelayedArchiveReader.getMaxActive(server);
+            assertTrue(max >= 1  &&  max <= limit, server + " had " + max + " concurrent requests");
+        }
+
+        // One sample per minute, plus continuation until 'now'
+        assertEquals(24*60 + 1 + 1, item.getSamples().size());
+    }
+
+    @Test
+    public void testServerLimit() throws Exception
+    {
+        // Allow only one request at a time for this server
+        final int original = Preferences.concurrent_server_requests;
+        Preferences.concurrent_server_requests = 1;
+        try
+        {
+            final PVItem item = new PVItem("demo", 0);
+            item.setArchiveDataSource(new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "50/Limited", "Limited"));
+            final Listener listener = new Listener();
+            new ArchiveFetchJob(item, start, end, listener);
+            assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+            assertFalse(listener.failed.get());
+            assertEquals(1, DelayedArchiveReader.getMaxActive("Limited"));
+            assertEquals(24*60 + 1 + 1, item.getSamples().size());
+        }
+        finally
+        {
+            Preferences.concurrent_server_requests = original;
+        }
+    }
+
+    @Test
+    public void testMergeOrder() throws Exception
+    {
+        // Later chunks of the day complete first,
+        // but are merged in time order
+        final List<Instant> merged = new CopyOnWriteArrayList<>();
+        final PVItem item = new PVItem("demo", 0)
+        {
+            @Override
+            public void mergeArchivedSamples(final String server_name, final List<VType> new_samples)
+            {
+                merged.add(Time.timeOf(new_samples.get(0)).getTimestamp());
+                super.mergeArchivedSamples(server_name, new_samples);
+            }
+        };
+        item.setArchiveDataSource(new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "400/Reverse", "Reverse"));
+        final Listener listener = new Listener();
+        new ArchiveFetchJob(item, start, end, listener);
+        assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+        assertFalse(listener.failed.get());
+
+        assertTrue(DelayedArchiveReader.getMaxActive("Reverse") > 1);
+        assertEquals(ArchiveFetchJob.getChunks(start, end).size() - 1, merged.size());
+        final List<Instant> sorted = new ArrayList<>(merged);
+        sorted.sort(null);
+        assertEquals(sorted, merged);
+        assertEquals(24*60 + 1 + 1, item.getSamples().size());
+    }
+
+    @Test
+    public void testUnknownChannel() throws Exception
+    {
+        final PVItem item = new PVItem("unknown", 0);
+        item.setArchiveDataSource(new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "10/A", "A"));
+        final Listener listener = new Listener();
+        new ArchiveFetchJob(item, start, end, listener);
+        assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+        assertEquals(1, listener.not_found.size());
+        assertEquals(0, item.getSamples().size());
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        final PVItem item = new PVItem("demo", 0);
+        item.setArchiveDataSource(new ArchiveDataSource(DelayedArchiveReaderFactory.PREFIX + "60000/A", "A"));
+        final Listener listener = new Listener();
+        final ArchiveFetchJob job = new ArchiveFetchJob(item, start, end, listener);
+
+        // Wait for requests to start, then cancel
+        while (DelayedArchiveReader.active.get() < 1)
+            TimeUnit.MILLISECONDS.sleep(50);
+        job.cancel();
+
+        // In-flight requests stop long before their 60 second delay
+        final long begin = System.currentTimeMillis();
+        while (DelayedArchiveReader.active.get() > 0)
+        {
+            assertTrue(System.currentTimeMillis() - begin < 10000, "Requests still active");
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertTrue(DelayedArchiveReader.cancelled.get() > 0);
+        assertFalse(listener.done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, item.getSamples().size());
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VType;
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.UnknownChannelException;
+import org.phoebus.archive.reader.ValueIterator;
+
+/** Archive reader for tests that returns a sample per minute after a delay
+ *
+ *  <p>Channel "unknown" is not found.
+ *
+ *  <p>In 'reverse' mode, the delay shrinks over the day,
+ *  so requests for later times of the day return sooner.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DelayedArchiveReader implements ArchiveReader
+{
+    /** Number of requests that are currently active */
+    public static final AtomicInteger active = new AtomicInteger();
+
+    /** Maximum number of active requests */
+    public static final AtomicInteger max_active = new AtomicInteger();
+
+    /** Number of active requests per server */
+    private static final ConcurrentHashMap<String, AtomicInteger> server_active = new ConcurrentHashMap<>();
+
+    /** Maximum number of active requests per server */
+    private static final ConcurrentHashMap<String, AtomicInteger> server_max_active = new ConcurrentHashMap<>();
+
+    /** Number of cancelled requests */
+    public static final AtomicInteger cancelled = new AtomicInteger();
+
+    private final long delay_ms;
+    private final String server;
+    private final boolean reverse;
+    private volatile boolean cancel = false;
+
+    /** @param delay_ms Delay of each request in millisecs
+     *  @param server Name of simulated server
+     *  @param reverse Shrink delay for requests that start later in the day?
+     */
+    public DelayedArchiveReader(final long delay_ms, final String server, final boolean reverse)
+    {
+        this.delay_ms = delay_ms;
+        this.server = server;
+        this.reverse = reverse;
+    }
+
+    /** @param server Name of simulated server
+     *  @return Maximum number of requests that were active for that server
+     */
+    public static int getMaxActive(final String server)
+    {
+        final AtomicInteger max = server_max_active.get(server);
+        return max == null ? 0 : max.get();
+    }
+
+    /** Reset statistics */
+    public static void reset()
+    {
+        active.set(0);
+        max_active.set(0);
+        cancelled.set(0);
+        server_active.clear();
+        server_max_active.clear();
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Delayed test data, " + delay_ms + " ms";
+    }
+
+    @Override
+    public List<String> getNamesByPattern(final String glob_pattern) throws Exception
+    {
+        return List.of("demo");
+    }
+
+    @Override
+    public ValueIterator getRawValues(final String name, final Instant start, final Instant end)
+            throws UnknownChannelException, Exception
+    {
+        if (name.equals("unknown"))
+            throw new UnknownChannelException(name);
+        max_active.accumulateAndGet(active.incrementAndGet(), Math::max);
+        final AtomicInteger on_server = server_active.computeIfAbsent(server, s -> new AtomicInteger());
+        server_max_active.computeIfAbsent(server, s -> new AtomicInteger())
+                         .accumulateAndGet(on_server.incrementAndGet(), Math::max);
+        try
+        {
+            // Simulate server latency, stop early when cancelled
+            final long day_secs = Duration.ofDays(1).getSeconds();
+            final long delay = reverse ? delay_ms * (day_secs - start.getEpochSecond() % day_secs) / day_secs
+                                       : delay_ms;
+            final long until = System.currentTimeMillis() + delay;
+            while (System.currentTimeMillis() < until)
+            {
+                if (cancel)
+                {
+                    cancelled.incrementAndGet();
+                    throw new Exception("Cancelled");
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+        finally
+        {
+            on_server.decrementAndGet();
+            active.decrementAndGet();
+        }
+
+        // One sample per minute, starting at a full minute
+        final List<VType> samples = new ArrayList<>();
+        Instant time = Instant.ofEpochSecond(start.getEpochSecond() / 60 * 60);
+        while (! time.isAfter(end))
+        {
+            samples.add(VDouble.of(time.getEpochSecond() / 60.0, Alarm.none(), Time.of(time), Display.none()));
+            time = time.plus(Duration.ofMinutes(1));
+        }
+        final int count = samples.size();
+        return new ValueIterator()
+        {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return i < count;
+            }
+
+            @Override
+            public VType next()
+            {
+                return samples.get(i++);
+            }
+        };
+    }
+
+    @Override
+    public void cancel()
+    {
+        cancel = true;
+    }
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.archive;
+
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.spi.ArchiveReaderFactory;
+
+/** SPI for "delayed:" test archive URLs
+ *
+ *  <p>URL format "delayed:millisecs/name".
+ *  Names that start with "Reverse" return later times of the day sooner.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DelayedArchiveReaderFactory implements ArchiveReaderFactory
+{
+    /** Data source prefix */
+    public final static String PREFIX = "delayed:";
+
+    @Override
+    public String getPrefix()
+    {
+        return PREFIX;
+    }
+
+    @Override
+    public ArchiveReader createReader(final String url) throws Exception
+    {
+        final String spec = url.substring(PREFIX.length());
+        final int sep = spec.indexOf('/');
+        if (sep < 0)
+            return new DelayedArchiveReader(Long.parseLong(spec), "", false);
+        final String server = spec.substring(sep + 1);
+        return new DelayedArchiveReader(Long.parseLong(spec.substring(0, sep)), server, server.startsWith("Reverse"));
+    }
+}
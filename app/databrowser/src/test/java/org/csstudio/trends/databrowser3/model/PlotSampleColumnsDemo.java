@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VType;
+
+/** Compare memory use and iteration speed of
+ *  {@link PlotSample} arrays and {@link PlotSampleColumns}
+ *
+ *  <p>Run with for example "-Dsamples=1000000 -Dstatistics=true".
+ *  For meaningful memory numbers, use a fixed heap like "-Xms2g -Xmx2g".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PlotSampleColumnsDemo
+{
+    private static final int SAMPLES = Integer.getInteger("samples", 1000000);
+    private static final boolean STATISTICS = Boolean.getBoolean("statistics");
+    private static final int RUNS = 10;
+
+    private static final Display display = Display.of(Range.of(0, 10), Range.of(1, 9), Range.of(2,  8), Range.of(0, 10),
+                                                      "a.u.", NumberFormats.precisionFormat(2));
+    private static final Alarm minor = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+    private static final Instant start = Instant.now().minusSeconds(SAMPLES);
+
+    private static VType createValue(final int i)
+    {
+        final double value = 5.0 + 4.0 * Math.sin(i / 100.0);
+        final Alarm alarm = value > 8 ? minor : Alarm.none();
+        final Time time = Time.of(start.plusSeconds(i).plusNanos(i % 1000));
+        if (STATISTICS)
+            return VStatistics.of(value, 0.1, value - 0.5, value + 0.5, 10, alarm, time, display);
+        return VDouble.of(value, alarm, time, display);
+    }
+
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Iterate like the trace painter: Time stamp, value, min/max */
+    private static double iterate(final int size, final IntFunction<PlotSample> get)
+    {
+        double sum = 0;
+        for (int i=0; i<size; ++i)
+        {
+            final PlotSample sample = get.apply(i);
+            sum += sample.getPosition().getNano() + sample.getValue();
+            final double min = sample.getMin();
+            if (! Double.isNaN(min))
+                sum += min + sample.getMax();
+        }
+        return sum;
+    }
+
+    private static void measure(final String title, final int size, final IntFunction<PlotSample> get, final long bytes)
+    {
+        double sum = 0;
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<RUNS; ++run)
+        {
+            final long t0 = System.nanoTime();
+            sum += iterate(size, get);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.format("%-14s: %6.1f bytes/sample, %6.1f ns/sample to iterate (%g)\n",
+                          title, bytes / (double) size, best / (double) size, sum);
+    }
+
+    public static void main(final String[] args)
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        System.out.println(SAMPLES + (STATISTICS ? " samples with statistics" : " scalar samples"));
+
+        measureObjects(waveform_index);
+        measureColumns(waveform_index);
+    }
+
+    /** PlotSample objects, as previously used by HistoricSamples */
+    private static void measureObjects(final AtomicInteger waveform_index)
+    {
+        final long before = usedMemory();
+        final PlotSample[] objects = new PlotSample[SAMPLES];
+        for (int i=0; i<SAMPLES; ++i)
+            objects[i] = new PlotSample(waveform_index, "Archive", createValue(i));
+        measure("PlotSample[]", SAMPLES, i -> objects[i], usedMemory() - before);
+    }
+
+    private static void measureColumns(final AtomicInteger waveform_index)
+    {
+        final long before = usedMemory();
+        final PlotSampleColumns columns = new PlotSampleColumns(waveform_index, SAMPLES);
+        for (int i=0; i<SAMPLES; ++i)
+            columns.add("Archive", createValue(i));
+        measure("Columns", SAMPLES, columns::get, usedMemory() - before);
+    }
+}
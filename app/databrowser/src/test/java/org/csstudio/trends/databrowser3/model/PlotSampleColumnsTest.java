@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser3.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link PlotSampleColumns}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PlotSampleColumnsTest
+{
+    private static PlotSampleColumns create(final AtomicInteger waveform_index, final int... seconds)
+    {
+        final PlotSampleColumns columns = new PlotSampleColumns(waveform_index, seconds.length);
+        for (int secs : seconds)
+            columns.add("Test", VInt.of(secs, Alarm.none(), Time.of(Instant.ofEpochSecond(secs)), Display.none()));
+        return columns;
+    }
+
+    private static String values(final PlotSampleColumns columns)
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (int i=0; i<columns.size(); ++i)
+        {
+            if (i > 0)
+                buf.append(' ');
+            buf.append((int) columns.get(i).getValue());
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testRingBuffer() throws Exception
+    {
+        final PlotSampleColumns columns = new PlotSampleColumns(new AtomicInteger(0), 5);
+        final Alarm minor = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+        for (int i=1; i<=8; ++i)
+            columns.add("Test", VDouble.of(i * 1.5, i % 2 == 0 ? minor : Alarm.none(), Time.of(Instant.ofEpochSecond(i)), Display.none()));
+
+        // Keeps the newest samples
+        assertThat(columns.size(), equalTo(5));
+        final PlotSample sample = columns.get(0);
+        assertThat(sample.getPosition(), equalTo(Instant.ofEpochSecond(4)));
+        assertThat(sample.getValue(), equalTo(6.0));
+        assertThat(sample.getSource(), equalTo("Test"));
+        assertThat(sample.getInfo(), equalTo("MINOR / HIGH"));
+        assertThat(Double.isNaN(sample.getMin()), equalTo(true));
+
+        // VType is created on request
+        final VType value = sample.getVType();
+        assertThat(value, instanceOf(VDouble.class));
+        assertThat(((VDouble) value).getValue(), equalTo(6.0));
+        assertThat(Alarm.alarmOf(value), equalTo(minor));
+        assertThat(Time.timeOf(value).getTimestamp(), equalTo(Instant.ofEpochSecond(4)));
+
+        // Sample remains valid while buffer moves on
+        columns.add("Test", VDouble.of(42.0, Alarm.none(), Time.of(Instant.ofEpochSecond(9)), Display.none()));
+        assertThat(sample.getValue(), equalTo(6.0));
+        assertThat(columns.get(0).getValue(), equalTo(7.5));
+
+        // Shrinking preserves newest samples
+        columns.setCapacity(2);
+        assertThat(columns.size(), equalTo(2));
+        assertThat(columns.get(0).getValue(), equalTo(12.0));
+        assertThat(columns.get(1).getValue(), equalTo(42.0));
+    }
+
+    @Test
+    public void testObjects()
+    {
+        final PlotSampleColumns columns = new PlotSampleColumns(new AtomicInteger(0), 3);
+        final PlotSample text = new PlotSample("Test", VString.of("Hello", Alarm.none(), Time.of(Instant.ofEpochSecond(1))));
+        columns.add(text);
+        columns.add(new PlotSample("Test", VDouble.of(3.14, Alarm.none(), Time.of(Instant.ofEpochSecond(2)), Display.none())));
+        final PlotSample error = new PlotSample("Test", "Disconnected");
+        columns.add(error);
+
+        // Strings and errors are kept as they are
+        assertThat(columns.get(0), sameInstance(text));
+        assertThat(columns.get(1).getValue(), equalTo(3.14));
+        assertThat(columns.get(2), sameInstance(error));
+        assertThat(columns.getNanos(0), equalTo(1000000000L));
+    }
+
+    @Test
+    public void testStatistics()
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        final PlotSampleColumns columns = new PlotSampleColumns(waveform_index, 2);
+        columns.add("Archive", VStatistics.of(2.0, 0.5, 1.0, 3.0, 10, Alarm.none(), Time.of(Instant.ofEpochSecond(1)), Display.none()));
+        columns.add("Archive", VDouble.of(4.0, Alarm.none(), Time.of(Instant.ofEpochSecond(2)), Display.none()));
+
+        PlotSample sample = columns.get(0);
+        assertThat(sample.getValue(), equalTo(2.0));
+        assertThat(sample.getMin(), equalTo(1.0));
+        assertThat(sample.getMax(), equalTo(3.0));
+        assertThat(sample.getStdDev(), equalTo(0.5));
+        assertThat(((VStatistics) sample.getVType()).getNSamples(), equalTo(10));
+        assertThat(Double.isNaN(columns.get(1).getMin()), equalTo(true));
+
+        // Statistics are only shown for the first waveform element
+        waveform_index.set(1);
+        assertThat(Double.isNaN(sample.getMin()), equalTo(true));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final AtomicInteger index = new AtomicInteger(0);
+        // New samples before, after, overlapping, within old samples
+        assertThat(values(PlotSampleMerger.merge(create(index, 980, 990, 1000), create(index, 1100, 1200))), equalTo("980 990 1000 1100 1200"));
+        assertThat(values(PlotSampleMerger.merge(create(index, 1100, 1200), create(index, 980, 990, 1000))), equalTo("980 990 1000 1100 1200"));
+        assertThat(values(PlotSampleMerger.merge(create(index, 990, 1000, 1100), create(index, 980, 1200))), equalTo("980 1200"));
+        assertThat(values(PlotSampleMerger.merge(create(index, 980, 1000, 1100, 1200), create(index, 990, 1050))), equalTo("980 990 1050 1100 1200"));
+        // Either one empty
+        final PlotSampleColumns old = create(index, 980);
+        assertThat(PlotSampleMerger.merge(old, create(index)), sameInstance(old));
+        assertThat(values(PlotSampleMerger.merge(create(index), old)), equalTo("980"));
+    }
+}
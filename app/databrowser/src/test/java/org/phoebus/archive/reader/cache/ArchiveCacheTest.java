@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.archive.reader.cache;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+import org.phoebus.archive.reader.ArchiveReader;
+import org.phoebus.archive.reader.ValueIterator;
+import org.phoebus.core.vtypes.VTypeHelper;
+
+/** JUnit test of the {@link ArchiveCache}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCacheTest
+{
+    private static final Instant t0 = Instant.parse("2023-06-01T00:00:00Z");
+
+    /** Demo archive with a sample every 10 seconds, value = seconds since t0 */
+    private static class DemoFetcher implements ArchiveCache.SampleFetcher
+    {
+        final List<String> requests = new ArrayList<>();
+
+        @Override
+        public ValueIterator fetch(final Instant start, final Instant end)
+        {
+            requests.add(seconds(start) + "-" + seconds(end));
+            final List<VType> samples = new ArrayList<>();
+            for (long secs = Math.floorDiv(seconds(start), 10) * 10; secs <= seconds(end); secs += 10)
+                samples.add(VDouble.of((double) secs, Alarm.none(), Time.of(t0.plusSeconds(secs)), Display.none()));
+            final Iterator<VType> iter = samples.iterator();
+            return new ValueIterator()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public VType next()
+                {
+                    return iter.next();
+                }
+            };
+        }
+    }
+
+    private static long seconds(final Instant time)
+    {
+        return Duration.between(t0, time).getSeconds();
+    }
+
+    private static String get(final ArchiveCache cache, final String key, final long start, final long end, final DemoFetcher fetcher) throws Exception
+    {
+        final List<VType> samples = cache.getSamples(key, t0.plusSeconds(start), t0.plusSeconds(end), fetcher, () -> false);
+        // Samples must be in order without duplicates
+        for (int i=1; i<samples.size(); ++i)
+            assertThat(VTypeHelper.getTimestamp(samples.get(i)).isAfter(VTypeHelper.getTimestamp(samples.get(i-1))), equalTo(true));
+        return samples.stream()
+                      .map(sample -> Long.toString(((VNumber) sample).getValue().longValue()))
+                      .collect(Collectors.joining(" "));
+    }
+
+    @Test
+    public void testStitching() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(1024*1024, null, Duration.ofSeconds(60));
+        final DemoFetcher fetcher = new DemoFetcher();
+
+        assertThat(get(cache, "a", 105, 140, fetcher), equalTo("100 110 120 130 140"));
+        assertThat(cache.getMisses(), equalTo(1L));
+
+        // Only fetch what's not cached
+        assertThat(get(cache, "a", 125, 165, fetcher), equalTo("120 130 140 150 160"));
+        assertThat(fetcher.requests, equalTo(List.of("105-140", "140-165")));
+        assertThat(cache.getPartialHits(), equalTo(1L));
+
+        // Fill gap between two cached spans
+        assertThat(get(cache, "a", 200, 220, fetcher), equalTo("200 210 220"));
+        assertThat(get(cache, "a", 100, 230, fetcher),
+                   equalTo("100 110 120 130 140 150 160 170 180 190 200 210 220 230"));
+        assertThat(fetcher.requests, equalTo(List.of("105-140", "140-165", "200-220", "100-105", "165-200", "220-230")));
+
+        // All cached
+        assertThat(get(cache, "a", 135, 205, fetcher), equalTo("130 140 150 160 170 180 190 200"));
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(fetcher.requests.size(), equalTo(6));
+
+        // Different key is separate
+        assertThat(get(cache, "b", 135, 205, fetcher), equalTo("130 140 150 160 170 180 190 200"));
+        assertThat(fetcher.requests.size(), equalTo(7));
+        System.out.println(cache);
+    }
+
+    @Test
+    public void testRecentSamples() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(1024*1024, null, Duration.ofSeconds(60));
+        final DemoFetcher fetcher = new DemoFetcher();
+        final long now = seconds(Instant.now());
+
+        // Samples within the last minute are fetched again
+        get(cache, "a", now - 600, now, fetcher);
+        get(cache, "a", now - 600, now, fetcher);
+        assertThat(fetcher.requests.size(), equalTo(2));
+        assertThat(cache.getPartialHits(), equalTo(1L));
+        final long refetched = Long.parseLong(fetcher.requests.get(1).split("-")[0]);
+        assertThat(refetched >= now - 61, equalTo(true));
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(1024*1024, null, Duration.ofSeconds(60));
+        final DemoFetcher fetcher = new DemoFetcher();
+        final ArchiveReader reader = new CachingArchiveReader(cache, "demo", new ArchiveReader()
+        {
+            @Override
+            public String getDescription()
+            {
+                return "Demo";
+            }
+
+            @Override
+            public Collection<String> getNamesByPattern(final String glob_pattern)
+            {
+                return List.of();
+            }
+
+            @Override
+            public ValueIterator getRawValues(final String name, final Instant start, final Instant end)
+            {
+                return fetcher.fetch(start, end);
+            }
+        });
+
+        reader.getRawValues("a", t0.plusSeconds(100), t0.plusSeconds(200)).close();
+        reader.getRawValues("a", t0.plusSeconds(100), t0.plusSeconds(200)).close();
+        assertThat(fetcher.requests, equalTo(List.of("100-200")));
+
+        // Refresh clears the cache, so the next fetch reaches the reader again
+        cache.clear();
+        reader.getRawValues("a", t0.plusSeconds(100), t0.plusSeconds(200)).close();
+        assertThat(fetcher.requests, equalTo(List.of("100-200", "100-200")));
+        assertThat(cache.getMisses(), equalTo(2L));
+    }
+
+    @Test
+    public void testEviction() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("cache");
+        // Room for about 150 samples
+        final ArchiveCache cache = new ArchiveCache(150 * CachedSpan.getSize(VDouble.of(0.0, Alarm.none(), Time.now(), Display.none())),
+                                                    directory, Duration.ofSeconds(60));
+        final DemoFetcher fetcher = new DemoFetcher();
+
+        final String a = get(cache, "a", 0, 1000, fetcher);
+        get(cache, "b", 0, 1000, fetcher);
+        // 'a' was spilled to disk
+        assertThat(cache.getDiskBytes(), greaterThan(0L));
+
+        // .. and read back
+        assertThat(get(cache, "a", 0, 1000, fetcher), equalTo(a));
+        assertThat(fetcher.requests.size(), equalTo(2));
+        assertThat(cache.getHits(), equalTo(1L));
+        System.out.println(cache);
+
+        cache.clear();
+        assertThat(cache.getMemoryBytes(), equalTo(0L));
+        assertThat(cache.getDiskBytes(), equalTo(0L));
+
+        // Spill directory of this process is removed on exit
+        ArchiveCache.deleteSpillDirectory(cache.getSpillDirectory());
+        assertThat(Files.exists(cache.getSpillDirectory()), equalTo(false));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSpillDirectory() throws Exception
+    {
+        final Path directory = Files.createTempDirectory("cache");
+        // Files of other applications
+        final Path other = Files.writeString(directory.resolve("other.cache"), "Other");
+        // Spill files of an exited process
+        final Path stale = Files.createDirectory(directory.resolve(ArchiveCache.SPILL_PREFIX + Long.MAX_VALUE));
+        Files.writeString(stale.resolve("samples1.cache"), "Stale");
+        // Files left by an earlier process with the same PID
+        final Path running = Files.createDirectory(directory.resolve(ArchiveCache.SPILL_PREFIX + ProcessHandle.current().pid()));
+        Files.writeString(running.resolve("samples1.cache"), "Stale");
+
+        final ArchiveCache cache = new ArchiveCache(1000, directory, Duration.ofSeconds(60));
+        assertThat(cache.getSpillDirectory(), equalTo(running));
+
+        // Only the stale spill files have been removed
+        assertThat(Files.exists(other), equalTo(true));
+        assertThat(Files.exists(stale), equalTo(false));
+        assertThat(Files.exists(running.resolve("samples1.cache")), equalTo(false));
+
+        Files.delete(running);
+        Files.delete(other);
+        Files.delete(directory);
+    }
+}
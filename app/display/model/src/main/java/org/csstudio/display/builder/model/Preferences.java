@@ -26,7 +26,7 @@ public class Preferences
     /** Preference setting */
     @Preference public static String[] class_files, color_files, font_files;
     /** Preference setting */
-    @Preference public static int read_timeout, cache_timeout, max_reparse_iterations;
+    @Preference public static int read_timeout, cache_timeout, max_reparse_iterations, model_cache_size;
     /** Preference setting */
     @Preference public static double legacy_font_calibration;
     /** Preference setting */
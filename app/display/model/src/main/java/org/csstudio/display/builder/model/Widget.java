@@ -353,6 +353,18 @@ public class Widget
             this.clean = Boolean.valueOf(configurator.isClean());
     }
 
+    /** Copy the result of loading from another widget
+     *
+     *  <p>Used when cloning a widget or display model,
+     *  so the copy reports the same errors as the loaded original.
+     *
+     *  @param original Widget that was loaded
+     */
+    public final void copyCleanState(final Widget original)
+    {
+        this.clean = original.clean;
+    }
+
     /** @return <code>true</code> if this widget was loaded without errors,
      *          <code>false</code> if there were errors
      */
@@ -37,15 +37,16 @@ public class WidgetConfigurator
     /** Custom {@link WidgetConfigurator} can throw this exception
      *  to trigger re-parsing of the XML config.
      *
-     *  <p>{@link ModelReader} will read the XML from the widget's
-     *  parent on down again.
+     *  <p>{@link ModelReader} will read the XML of the parent's
+     *  child widgets again, starting with this widget.
      *  This allows a {@link WidgetConfigurator} to update the XML
      *  by for example by replacing the XML for the currently handled
      *  widget or by adding new widgets.
      *
-     *  <p>Reconfiguration of the XML is limited to the widget and its siblings,
+     *  <p>Reconfiguration of the XML is limited to the widget and its following siblings,
      *  one cannot change the XML from the parent of the widget on up,
-     *  only from the widget and its siblings on and down to child widgets.
+     *  nor the siblings that have already been read,
+     *  only from the widget and its following siblings on and down to child widgets.
      *
      *  <p><b>NOTE:</b>
      *  A re-parsing should only be requested <u>after</u> the XML
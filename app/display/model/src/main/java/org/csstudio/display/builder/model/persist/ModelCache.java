@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.csstudio.display.builder.model.ModelPlugin.logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Preferences;
+import org.csstudio.display.builder.model.util.ModelResourceUtil;
+
+/** Cache of parsed display models
+ *
+ *  <p>Parsing a display file and applying the widget classes
+ *  takes time, yet the same file is often loaded many times,
+ *  for example when it's used by many embedded display or template widgets,
+ *  or when navigating back and forth between displays.
+ *
+ *  <p>The cache keeps the parsed model as a template
+ *  and returns a deep copy, see {@link ModelCloner},
+ *  which the caller may then modify, expand macros etc.
+ *
+ *  <p>Cached models are checked against the modification time and size
+ *  of a file.
+ *  For other resources like "http://.." or "examples:..",
+ *  the content is read (web content via the {@link ModelResourceUtil} cache)
+ *  and compared.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelCache
+{
+    /** Source of a model: Time, size and hash of the content */
+    private static class Source
+    {
+        final long modified, size;
+        final int hash;
+        /** Content, <code>null</code> for a file that's read when loading */
+        final byte[] content;
+
+        Source(final String display_file) throws Exception
+        {
+            final File file = new File(display_file);
+            if (file.isFile())
+            {
+                modified = file.lastModified();
+                size = file.length();
+                hash = 0;
+                content = null;
+            }
+            else
+            {
+                try
+                (
+                    final InputStream stream = ModelResourceUtil.openResourceStream(display_file);
+                )
+                {
+                    content = stream.readAllBytes();
+                }
+                modified = 0;
+                size = content.length;
+                hash = Arrays.hashCode(content);
+            }
+        }
+
+        boolean isSame(final Source other)
+        {
+            return modified == other.modified  &&  size == other.size  &&  hash == other.hash;
+        }
+    }
+
+    /** Parsed model for a source */
+    private static class Template
+    {
+        final Source source;
+        final DisplayModel model;
+        volatile long used = access.incrementAndGet();
+
+        Template(final Source source, final DisplayModel model)
+        {
+            this.source = source;
+            this.model = model;
+        }
+    }
+
+    /** Templates by display file.
+     *  While one thread loads a file, others that need the same file await the future.
+     */
+    private static final Map<String, Future<Template>> templates = new ConcurrentHashMap<>();
+
+    /** Counter used to find the least recently used template */
+    private static final AtomicLong access = new AtomicLong();
+
+    private static final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /** Get model, from cache if possible
+     *
+     *  @param display_file Resolved model file
+     *  @return Copy of the {@link DisplayModel}, with classes applied (except for *.bcf itself)
+     *  @throws Exception on error
+     */
+    public static DisplayModel getModel(final String display_file) throws Exception
+    {
+        final Source source = new Source(display_file);
+        if (Preferences.model_cache_size <= 0)
+            return load(source, display_file).model;
+
+        while (true)
+        {
+            Future<Template> future = templates.get(display_file);
+            boolean loaded = false;
+            if (future == null)
+            {   // In case two threads request the same file,
+                // first one loads, second one awaits the first one's result
+                final FutureTask<Template> task = new FutureTask<>(() -> load(source, display_file));
+                future = templates.putIfAbsent(display_file, task);
+                if (future == null)
+                {
+                    future = task;
+                    task.run();
+                    loaded = true;
+                    misses.incrementAndGet();
+                    trim();
+                }
+            }
+
+            final Template template;
+            try
+            {
+                template = future.get();
+            }
+            catch (ExecutionException ex)
+            {   // Don't cache errors, next call will try again
+                templates.remove(display_file, future);
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
+            }
+
+            if (template.source.isSame(source))
+            {
+                if (! loaded)
+                    hits.incrementAndGet();
+                template.used = access.incrementAndGet();
+                return ModelCloner.clone(template.model);
+            }
+            // File has changed, re-load
+            logger.log(Level.FINE, "Display cache re-loads modified {0}", display_file);
+            templates.remove(display_file, future);
+        }
+    }
+
+    private static Template load(final Source source, final String display_file) throws Exception
+    {
+        final InputStream stream = source.content == null
+                                 ? ModelResourceUtil.openResourceStream(display_file)
+                                 : new ByteArrayInputStream(source.content);
+        final Template template = new Template(source, ModelLoader.loadModel(stream, display_file));
+        logger.log(Level.FINE, "Display cache loaded {0}, {1} bytes", new Object[] { display_file, source.size });
+        return template;
+    }
+
+    /** Remove least recently used templates to keep the cache size */
+    private static void trim()
+    {
+        while (templates.size() > Preferences.model_cache_size)
+        {
+            String oldest = null;
+            long oldest_use = Long.MAX_VALUE;
+            for (Map.Entry<String, Future<Template>> entry : templates.entrySet())
+            {
+                final Template template = getDone(entry.getValue());
+                if (template != null  &&  template.used < oldest_use)
+                {
+                    oldest = entry.getKey();
+                    oldest_use = template.used;
+                }
+            }
+            if (oldest == null)
+                return;
+            logger.log(Level.FINE, "Display cache drops {0}", oldest);
+            templates.remove(oldest);
+        }
+    }
+
+    /** @param future Future for a template
+     *  @return Template if it was loaded, otherwise <code>null</code>
+     */
+    private static Template getDone(final Future<Template> future)
+    {
+        if (! future.isDone())
+            return null;
+        try
+        {
+            return future.get();
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    /** @return Number of requests that used a cached model */
+    public static long getHits()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of requests that loaded a model */
+    public static long getMisses()
+    {
+        return misses.get();
+    }
+
+    /** @return Number of cached models */
+    public static int getSize()
+    {
+        return templates.size();
+    }
+
+    /** @return Total size of the files for cached models */
+    public static long getBytes()
+    {
+        long bytes = 0;
+        for (Future<Template> future : templates.values())
+        {
+            final Template template = getDone(future);
+            if (template != null)
+                bytes += template.source.size;
+        }
+        return bytes;
+    }
+
+    /** Clear cached models
+     *
+     *  <p>Call to force a re-load, for example when widget classes change
+     */
+    public static void clear()
+    {
+        templates.clear();
+    }
+
+    /** @return Cache info */
+    public static String getInfo()
+    {
+        return String.format("Display cache: %d models, %d bytes, %d hits, %d misses",
+                             getSize(), getBytes(), getHits(), getMisses());
+    }
+}
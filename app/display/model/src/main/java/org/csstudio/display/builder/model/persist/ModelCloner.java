@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.csstudio.display.builder.model.ModelPlugin.logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.ArrayWidgetProperty;
+import org.csstudio.display.builder.model.ChildrenProperty;
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.MacroizedWidgetProperty;
+import org.csstudio.display.builder.model.RuntimeWidgetProperty;
+import org.csstudio.display.builder.model.StructuredWidgetProperty;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetFactory;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.MacrosWidgetProperty;
+import org.csstudio.display.builder.model.properties.Points;
+import org.csstudio.display.builder.model.properties.PointsWidgetProperty;
+import org.csstudio.display.builder.model.properties.RulesWidgetProperty;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExprInfoValue;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.model.widgets.PlaceholderWidget;
+import org.phoebus.framework.macros.Macros;
+
+/** Deep copy of a display model
+ *
+ *  <p>Creates widgets of the same type and copies their properties,
+ *  which is much faster than writing the model as XML
+ *  and parsing it again.
+ *
+ *  <p>Properties that support macros copy their specification,
+ *  so macros are expanded anew for the copy.
+ *  Values that may be modified, like macros and points,
+ *  are copied, and rule expressions get new value properties
+ *  attached to the copied widget.
+ *  Runtime properties are not copied.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelCloner
+{
+    /** User data that's copied from the original model */
+    private static final String[] USER_DATA = { DisplayModel.USER_DATA_INPUT_FILE,
+                                                DisplayModel.USER_DATA_INPUT_VERSION };
+
+    /** @param model Display model
+     *  @return Deep copy of the model
+     */
+    public static DisplayModel clone(final DisplayModel model)
+    {
+        final DisplayModel copy = new DisplayModel();
+        for (String key : USER_DATA)
+        {
+            final Object data = model.getUserData(key);
+            if (data != null)
+                copy.setUserData(key, data);
+        }
+        // Copy reports the same load errors as the original
+        copy.copyCleanState(model);
+        copyProperties(model, copy);
+        return copy;
+    }
+
+    /** @param widget Widget
+     *  @return Deep copy of the widget, including child widgets
+     */
+    public static Widget clone(final Widget widget)
+    {
+        final Widget copy;
+        if (widget instanceof PlaceholderWidget)
+        {
+            final PlaceholderWidget placeholder = new PlaceholderWidget(((PlaceholderWidget) widget).getOrigType());
+            placeholder.copyXML((PlaceholderWidget) widget);
+            copy = placeholder;
+        }
+        else
+            copy = WidgetFactory.getInstance().getWidgetDescriptor(widget.getType()).createWidget();
+        copy.copyCleanState(widget);
+        copyProperties(widget, copy);
+        return copy;
+    }
+
+    private static void copyProperties(final Widget original, final Widget copy)
+    {
+        for (WidgetProperty<?> prop : original.getProperties())
+        {
+            final Optional<WidgetProperty<Object>> target = copy.checkProperty(prop.getName());
+            if (! target.isPresent())
+                continue;
+            try
+            {
+                copyProperty(prop, target.get());
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot copy " + original + " " + prop, ex);
+            }
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void copyProperty(final WidgetProperty original, final WidgetProperty copy) throws Exception
+    {
+        if (original instanceof ChildrenProperty)
+        {
+            final List<Widget> orig = ((ChildrenProperty) original).getValue();
+            final List<Widget> children = new ArrayList<>(orig.size());
+            for (Widget child : orig)
+                children.add(clone(child));
+            ((ChildrenProperty) copy).addChildren(children);
+            return;
+        }
+        if (original instanceof RuntimeWidgetProperty  ||  copy.isReadonly())
+            return;
+
+        // Set class flag first since for arrays it's passed on to all elements,
+        // which will then update their own flag
+        copy.useWidgetClass(original.isUsingWidgetClass());
+
+        if (original instanceof ArrayWidgetProperty)
+        {
+            final ArrayWidgetProperty<?> orig = (ArrayWidgetProperty<?>) original;
+            final ArrayWidgetProperty<?> array = (ArrayWidgetProperty<?>) copy;
+            while (array.size() > orig.size())
+                array.removeElement();
+            while (array.size() < orig.size())
+                array.addElement();
+            for (int i=0; i<orig.size(); ++i)
+                copyProperty(orig.getElement(i), array.getElement(i));
+        }
+        else if (original instanceof StructuredWidgetProperty)
+        {
+            final StructuredWidgetProperty orig = (StructuredWidgetProperty) original;
+            final StructuredWidgetProperty struct = (StructuredWidgetProperty) copy;
+            for (int i=0; i<orig.size(); ++i)
+                copyProperty(orig.getElement(i), struct.getElement(i));
+        }
+        else if (original instanceof MacroizedWidgetProperty)
+            ((MacroizedWidgetProperty) copy).setSpecification(((MacroizedWidgetProperty) original).getSpecification());
+        else if (original instanceof MacrosWidgetProperty)
+            copy.setValue(new Macros((Macros) original.getValue()));
+        else if (original instanceof PointsWidgetProperty)
+            copy.setValue(((Points) original.getValue()).clone());
+        else if (original instanceof RulesWidgetProperty)
+            copy.setValue(copyRules((List<RuleInfo>) original.getValue(), copy.getWidget()));
+        else // Other values (colors, fonts, actions, scripts, ..) are immutable
+            copy.setValue(original.getValue());
+    }
+
+    /** @param rules Rules of original widget
+     *  @param widget Copied widget
+     *  @return Rules with value expressions that use properties of the copied widget
+     *  @throws Exception on error
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<RuleInfo> copyRules(final List<RuleInfo> rules, final Widget widget) throws Exception
+    {
+        if (rules.isEmpty())
+            return rules;
+        final List<RuleInfo> copy = new ArrayList<>(rules.size());
+        for (RuleInfo rule : rules)
+        {
+            final List<ExpressionInfo<?>> expressions = new ArrayList<>(rule.getExpressions().size());
+            for (ExpressionInfo<?> expr : rule.getExpressions())
+                if (expr instanceof ExprInfoValue)
+                {
+                    final WidgetProperty value = RulesWidgetProperty.propIDToNewProp(widget, rule.getPropID(), "");
+                    copyProperty(((ExprInfoValue<?>) expr).getPropVal(), value);
+                    expressions.add(new ExprInfoValue<>(expr.getBoolExp(), value));
+                }
+                else
+                    expressions.add(expr);
+            copy.add(new RuleInfo(rule.getName(), rule.getPropID(), rule.getPropAsExprFlag(), expressions, rule.getPVs()));
+        }
+        return copy;
+    }
+}
@@ -67,6 +67,9 @@ public class ModelLoader
     }
 
     /** Load model, with classes applied (except for *.bcf itself)
+     *
+     *  <p>Uses the {@link ModelCache}, so the model file
+     *  is only parsed again when it changed.
      *
      *  @param display_file Model file
      *  @return {@link DisplayModel}
@@ -74,7 +77,7 @@ public class ModelLoader
      */
     public static DisplayModel loadModel(final String display_file) throws Exception
     {
-        return loadModel(ModelResourceUtil.openResourceStream(display_file), display_file);
+        return ModelCache.getModel(display_file);
     }
 
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -187,19 +187,15 @@ public class ModelReader
      */
     public void readWidgets(final ChildrenProperty children, final Element parent_xml)
     {
-        // Save the number of errors we had so far
-        int saved_widget_errors_during_parse = widget_errors_during_parse;
+        // Collect the widgets below this parent,
+        // then add them as children all at once
+        final List<Widget> widgets = new ArrayList<>();
         // Limit the number of retries to avoid infinite loop
         for (int retries=0; retries < Preferences.max_reparse_iterations; ++retries)
         {
-            final List<Widget> widgets = readWidgetsAllowingRetry(parent_xml);
-            if (widgets != null)
+            if (readWidgetsAllowingRetry(parent_xml, widgets))
             {
-                for (Widget child : widgets)
-                    children.addChild(child);
-
-                // Update the number of errors
-                widget_errors_during_parse += saved_widget_errors_during_parse;
+                children.addChildren(widgets);
                 return;
             }
         }
@@ -207,22 +203,33 @@ public class ModelReader
         throw new IllegalStateException("Too many requests to parse again, limited to " + Preferences.max_reparse_iterations + " requests");
     }
 
-    /** Read all '&lt;widget>..' child entries
+    /** Read '&lt;widget>..' child entries
+     *
+     *  <p>A ParseAgainException may rearrange the XML on this level,
+     *  but only from the widget that threw it on.
+     *  Entries for widgets that have already been read are thus skipped
+     *  when reading again, and reading resumes with the widget
+     *  that requested to parse again.
      *
      *  @param parent_xml XML of the parent widget from which child entries are read
-     *  @return List of widgets. May be empty if there were none.
-     *          Returns <code>null</code> if one widget threw a ParseAgainException
+     *  @param widgets Widgets that have already been read. Newly read widgets are added.
+     *  @return <code>true</code> when all entries have been read,
+     *          <code>false</code> if one widget threw a ParseAgainException
      */
-    private List<Widget> readWidgetsAllowingRetry(final Element parent_xml)
+    private boolean readWidgetsAllowingRetry(final Element parent_xml, final List<Widget> widgets)
     {
-        // Collect the widgets below this parent,
-        // don't add them as children, yet,
-        // because ParseAgainException could rearrange the XML on this level.
-        final List<Widget> widgets = new ArrayList<>();
         final String source = xml_file == null ? "line" : xml_file;
-        widget_errors_during_parse = 0;
+        int skip = widgets.size();
         for (final Element widget_xml : XMLUtil.getChildElements(parent_xml, XMLTags.WIDGET))
         {
+            if (skip > 0)
+            {
+                --skip;
+                continue;
+            }
+
+            // Errors of a widget that's read again are counted again
+            final int errors = widget_errors_during_parse;
             boolean added = false;
 
             try
@@ -232,8 +239,9 @@ public class ModelReader
             }
             catch (ParseAgainException ex)
             {
-                ex.printStackTrace();
-                return null;
+                logger.log(Level.FINE, "Reading widgets again: " + ex.getMessage());
+                widget_errors_during_parse = errors;
+                return false;
             }
             catch (WidgetTypeException ex)
             {
@@ -258,12 +266,15 @@ public class ModelReader
                 Widget widget = createPlaceholderWidget(widget_xml);
                 // Check for ParseAgainException
                 if (widget == null)
-                    return null;
+                {
+                    widget_errors_during_parse = errors;
+                    return false;
+                }
 
                 widgets.add(widget);
             }
         }
-        return widgets;
+        return true;
     }
 
     /** @param widget_xml Widget's XML element
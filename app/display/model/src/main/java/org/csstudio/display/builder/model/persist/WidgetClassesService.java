@@ -74,6 +74,8 @@ public class WidgetClassesService
             }
             return null;
         });
+        // Cached models used the previous classes
+        ModelCache.clear();
     }
 
     /** Obtain current set of widget classes.
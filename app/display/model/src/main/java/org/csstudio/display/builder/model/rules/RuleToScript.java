@@ -111,7 +111,7 @@ public class RuleToScript
      *  @param text Text with logical expression
      *  @return Javascript type logic somewhat updated to Python
      */
-    protected static String javascriptToPythonLogic(final String text)
+    public static String javascriptToPythonLogic(final String text)
     {
         final int len = text.length();
         final StringBuilder result = new StringBuilder(len);
@@ -104,6 +104,12 @@ public class PlaceholderWidget extends VisibleWidget
         return orig_type;
     }
 
+    /** @param original Placeholder from which to use the original XML */
+    public final void copyXML(final PlaceholderWidget original)
+    {
+        xml = original.xml;
+    }
+
     @Override
     public final boolean isClean()
     {
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import java.io.FileInputStream;
+import java.nio.file.Paths;
+
+import org.csstudio.display.builder.model.ModelPlugin;
+
+/** Measure time to load a display many times, as for an embedded display used by many widgets
+ *
+ *  <p>Compares parsing the file each time with using the {@link ModelCache}.
+ *
+ *  <p>Run with for example "-Dfile=/path/to/display.bob -Dcount=200".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelCacheDemo
+{
+    private static final int COUNT = Integer.getInteger("count", 200);
+
+    @FunctionalInterface
+    private static interface Loader
+    {
+        void load(String file) throws Exception;
+    }
+
+    /** @return Milliseconds per load */
+    private static double measure(final Loader loader, final String file) throws Exception
+    {
+        final long start = System.nanoTime();
+        for (int i=0; i<COUNT; ++i)
+            loader.load(file);
+        return (System.nanoTime() - start) / 1e6 / COUNT;
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        final String file = System.getProperty("file",
+                                               Paths.get(ModelPlugin.class.getResource("/examples/01_main.bob").toURI()).toString());
+        final Loader parse = name -> ModelLoader.loadModel(new FileInputStream(name), name);
+        final Loader cached = name -> ModelLoader.loadModel(name);
+
+        // Warm up
+        for (int i=0; i<10; ++i)
+        {
+            parse.load(file);
+            cached.load(file);
+        }
+
+        System.out.println(file + ", loaded " + COUNT + " times");
+        System.out.format("Parse each time: %8.3f ms\n", measure(parse, file));
+        System.out.format("Cached copy    : %8.3f ms\n", measure(cached, file));
+        System.out.println(ModelCache.getInfo());
+    }
+}
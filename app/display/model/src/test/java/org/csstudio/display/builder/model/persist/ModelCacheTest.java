@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.csstudio.display.builder.model.ChildrenProperty;
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.ModelPlugin;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExprInfoValue;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link ModelCache} and {@link ModelCloner}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelCacheTest
+{
+    private static String toXML(final DisplayModel model) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        (
+            final ModelWriter writer = new ModelWriter(out);
+        )
+        {
+            writer.writeModel(model);
+        }
+        // Ignore "Saved on .." comment
+        return out.toString().replaceAll("<!--Saved on.*-->", "");
+    }
+
+    /** Check that rule values are attached to the widget, not the original */
+    private static void checkRules(final List<Widget> widgets)
+    {
+        for (Widget widget : widgets)
+        {
+            for (RuleInfo rule : widget.propRules().getValue())
+                for (ExpressionInfo<?> expr : rule.getExpressions())
+                    if (expr instanceof ExprInfoValue)
+                    {
+                        final Widget holder = ((ExprInfoValue<?>) expr).getPropVal().getWidget();
+                        if (holder != null)
+                            assertThat(holder, sameInstance(widget));
+                    }
+            final ChildrenProperty children = ChildrenProperty.getChildren(widget);
+            if (children != null)
+                checkRules(children.getValue());
+        }
+    }
+
+    @Test
+    public void testClone() throws Exception
+    {
+        // Copy of each example must write the same XML
+        final Path examples = Paths.get(ModelPlugin.class.getResource("/examples").toURI());
+        final List<Path> files = Files.walk(examples)
+                                      .filter(path -> path.toString().endsWith(".bob"))
+                                      .collect(Collectors.toList());
+        for (Path file : files)
+        {
+            final DisplayModel model = ModelLoader.loadModel(Files.newInputStream(file), file.toString());
+            final DisplayModel copy = ModelCloner.clone(model);
+            assertThat(copy.getUserData(DisplayModel.USER_DATA_INPUT_FILE), equalTo(file.toString()));
+            assertThat(file.toString(), toXML(copy), equalTo(toXML(model)));
+            checkRules(copy.getChildren());
+        }
+        assertThat(files.isEmpty(), equalTo(false));
+        System.out.println("Compared " + files.size() + " examples");
+    }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        final File file = File.createTempFile("cache_test", ".bob");
+        file.deleteOnExit();
+        final DisplayModel model = new DisplayModel();
+        final LabelWidget label = new LabelWidget();
+        label.propText().setValue("Version 1");
+        model.runtimeChildren().addChild(label);
+        Files.writeString(file.toPath(), toXML(model));
+
+        // First request loads, second one uses cache
+        final long hits = ModelCache.getHits(), misses = ModelCache.getMisses();
+        final DisplayModel first = ModelLoader.loadModel(file.getPath());
+        final DisplayModel second = ModelLoader.loadModel(file.getPath());
+        assertThat(ModelCache.getMisses(), equalTo(misses + 1));
+        assertThat(ModelCache.getHits(), equalTo(hits + 1));
+        assertThat(second.isClean(), equalTo(true));
+        System.out.println(ModelCache.getInfo());
+
+        // Each caller gets its own copy
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.getChildren().get(0), not(sameInstance(first.getChildren().get(0))));
+        assertThat(((LabelWidget) second.getChildren().get(0)).propText().getValue(), equalTo("Version 1"));
+        first.propMacros().getValue().add("X", "changed");
+        assertThat(second.propMacros().getValue().getValue("X"), equalTo(null));
+
+        // Changed file is re-loaded
+        label.propText().setValue("Version 2");
+        Files.writeString(file.toPath(), toXML(model));
+        file.setLastModified(file.lastModified() + 2000);
+        final DisplayModel third = ModelLoader.loadModel(file.getPath());
+        assertThat(ModelCache.getMisses(), equalTo(misses + 2));
+        assertThat(((LabelWidget) third.getChildren().get(0)).propText().getValue(), equalTo("Version 2"));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final File file = File.createTempFile("cache_errors", ".bob");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(),
+                          "<display version=\"2.0.0\">\n" +
+                          "  <widget type=\"label\" version=\"2.0.0\"><name>OK</name></widget>\n" +
+                          "  <widget type=\"no_such_widget\" version=\"2.0.0\"><name>Bad</name></widget>\n" +
+                          "</display>\n");
+
+        // Cached copies report the errors of the loaded original
+        final DisplayModel first = ModelLoader.loadModel(file.getPath());
+        final DisplayModel second = ModelLoader.loadModel(file.getPath());
+        assertThat(second, not(sameInstance(first)));
+        assertThat(first.isClean(), equalTo(false));
+        assertThat(second.isClean(), equalTo(false));
+        assertThat(ModelCloner.clone(second).isClean(), equalTo(false));
+        assertThat(second.getChildren().size(), equalTo(2));
+    }
+}
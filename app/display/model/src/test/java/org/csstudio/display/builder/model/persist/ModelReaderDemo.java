@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.TextUpdateWidget;
+import org.phoebus.framework.persistence.XMLUtil;
+
+/** Measure time and peak heap usage for reading a large display
+ *
+ *  <p>Reads a generated display with many widgets,
+ *  or a display file when run with "-Dfile=/path/to/display.bob".
+ *  Number of generated widgets is set via "-Dwidgets=20000".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelReaderDemo
+{
+    private static final int WIDGETS = Integer.getInteger("widgets", 20000);
+    private static final int RUNS = Integer.getInteger("runs", 5);
+
+    /** @return XML for display with top-level widgets and a few groups */
+    private static byte[] createDisplay() throws Exception
+    {
+        final DisplayModel model = new DisplayModel();
+        GroupWidget group = null;
+        for (int i=0; i<WIDGETS; ++i)
+        {
+            final TextUpdateWidget text = new TextUpdateWidget();
+            text.propName().setValue("Text " + i);
+            text.propPVName().setValue("sim://ramp(" + i + ")");
+            text.propX().setValue(10 * (i % 100));
+            text.propY().setValue(20 * (i / 100));
+            if (i % 10 == 0)
+            {
+                group = new GroupWidget();
+                model.runtimeChildren().addChild(group);
+            }
+            if (i % 2 == 0)
+                model.runtimeChildren().addChild(text);
+            else
+                group.runtimeChildren().addChild(text);
+
+            final LabelWidget label = new LabelWidget();
+            label.propText().setValue("Label " + i);
+            model.runtimeChildren().addChild(label);
+        }
+
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try
+        (
+            final ModelWriter writer = new ModelWriter(buf);
+        )
+        {
+            writer.writeModel(model);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void resetPeakHeap()
+    {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    /** @return Sum of peak usage of all heap pools in MB */
+    private static double getPeakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak / 1024.0 / 1024.0;
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        final String file = System.getProperty("file");
+        final byte[] xml = file == null
+                         ? createDisplay()
+                         : Files.readAllBytes(Paths.get(file));
+        System.out.format("Display with %d bytes\n", xml.length);
+
+        for (int run=0; run<RUNS; ++run)
+        {
+            resetPeakHeap();
+            long start = System.nanoTime();
+            XMLUtil.openXMLDocument(new ByteArrayInputStream(xml), XMLTags.DISPLAY);
+            final double dom_ms = (System.nanoTime() - start) / 1e6;
+            final double dom_mb = getPeakHeap();
+
+            resetPeakHeap();
+            start = System.nanoTime();
+            final DisplayModel model = new ModelReader(new ByteArrayInputStream(xml), file).readModel();
+            final double read_ms = (System.nanoTime() - start) / 1e6;
+            final double read_mb = getPeakHeap();
+
+            System.out.format("XML to DOM: %8.1f ms, peak heap %6.1f MB.  Read model with %d widgets: %8.1f ms, peak heap %6.1f MB\n",
+                              dom_ms, dom_mb, model.getChildren().size(), read_ms, read_mb);
+        }
+    }
+}
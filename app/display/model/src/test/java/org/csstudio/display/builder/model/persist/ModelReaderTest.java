@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.model.persist;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.ModelPlugin;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.widgets.EmbeddedDisplayWidget;
+import org.csstudio.display.builder.model.widgets.GroupWidget;
+import org.csstudio.display.builder.model.widgets.LabelWidget;
+import org.csstudio.display.builder.model.widgets.TextUpdateWidget;
+import org.junit.jupiter.api.Test;
+import org.phoebus.framework.persistence.XMLUtil;
+
+/** JUnit test of the {@link ModelReader}
+ *
+ *  <p>When a widget configurator requests to parse again,
+ *  the reader resumes with that widget.
+ *  Result must be the same as reading the updated XML from the start.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ModelReaderTest
+{
+    private static String toXML(final DisplayModel model) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        (
+            final ModelWriter writer = new ModelWriter(out);
+        )
+        {
+            writer.writeModel(model);
+        }
+        // Ignore "Saved on .." comment
+        return out.toString(XMLUtil.ENCODING).replaceAll("<!--Saved on.*-->", "");
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        // Model written as XML reads back the same,
+        // including models converted from legacy *.opi files
+        final Path examples = Paths.get(ModelPlugin.class.getResource("/examples").toURI());
+        final List<Path> files = Files.walk(examples)
+                                      .filter(path -> path.toString().endsWith(".bob")  ||
+                                                      path.toString().endsWith(".opi"))
+                                      .collect(Collectors.toList());
+        for (Path file : files)
+        {
+            final DisplayModel model = new ModelReader(Files.newInputStream(file), file.toString()).readModel();
+            final String xml = toXML(model);
+            assertThat(file.toString(), toXML(ModelReader.parseXML(xml)), equalTo(xml));
+        }
+        assertThat(files.isEmpty(), equalTo(false));
+        System.out.println("Compared " + files.size() + " examples");
+    }
+
+    @Test
+    public void testParseAgain() throws Exception
+    {
+        // Legacy text update without PV turns into label,
+        // linking container with title bar border is wrapped in group that's added at end
+        final String xml =
+            "<display typeId=\"org.csstudio.opibuilder.Display\" version=\"1.0.0\">" +
+            "  <widget typeId=\"org.csstudio.opibuilder.widgets.Label\" version=\"1.0.0\">" +
+            "    <name>A</name><text>Label</text>" +
+            "  </widget>" +
+            "  <widget typeId=\"org.csstudio.opibuilder.widgets.TextUpdate\" version=\"1.0.0\">" +
+            "    <name>B</name><text>Just text</text>" +
+            "  </widget>" +
+            "  <widget typeId=\"org.csstudio.opibuilder.widgets.linkingContainer\" version=\"1.0.0\">" +
+            "    <name>C</name><x>10</x><y>20</y><width>300</width><height>200</height>" +
+            "    <border_style>12</border_style>" +
+            "  </widget>" +
+            "  <widget typeId=\"org.csstudio.opibuilder.widgets.TextUpdate\" version=\"1.0.0\">" +
+            "    <name>D</name><text>More text</text>" +
+            "  </widget>" +
+            "  <widget typeId=\"org.csstudio.opibuilder.widgets.TextUpdate\" version=\"1.0.0\">" +
+            "    <name>E</name><pv_name>pv</pv_name>" +
+            "  </widget>" +
+            "</display>";
+        final ModelReader reader = new ModelReader(new ByteArrayInputStream(xml.getBytes()));
+        final DisplayModel model = reader.readModel();
+        final List<Widget> widgets = model.getChildren();
+        System.out.println(widgets);
+
+        assertThat(widgets.size(), equalTo(5));
+        assertThat(widgets.get(0).getName(), equalTo("A"));
+        assertThat(widgets.get(0), instanceOf(LabelWidget.class));
+        assertThat(widgets.get(1).getName(), equalTo("B"));
+        assertThat(widgets.get(1), instanceOf(LabelWidget.class));
+        assertThat(widgets.get(2).getName(), equalTo("D"));
+        assertThat(widgets.get(2), instanceOf(LabelWidget.class));
+        assertThat(widgets.get(3).getName(), equalTo("E"));
+        assertThat(widgets.get(3), instanceOf(TextUpdateWidget.class));
+        assertThat(widgets.get(4).getName(), equalTo("C"));
+        assertThat(widgets.get(4), instanceOf(GroupWidget.class));
+
+        final List<Widget> grouped = ((GroupWidget) widgets.get(4)).runtimeChildren().getValue();
+        assertThat(grouped.size(), equalTo(1));
+        assertThat(grouped.get(0).getName(), equalTo("C_Content"));
+        assertThat(grouped.get(0), instanceOf(EmbeddedDisplayWidget.class));
+
+        for (Widget widget : widgets)
+            assertThat(widget.getParent().get(), equalTo(model));
+        assertThat(reader.getNumberOfWidgetErrors(), equalTo(0));
+    }
+}
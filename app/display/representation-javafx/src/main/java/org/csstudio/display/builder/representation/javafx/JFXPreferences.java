@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2021 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,10 @@ public class JFXPreferences
     @Preference public static int tooltip_delay_ms;
     /** Tooltip duration */
     @Preference public static int tooltip_display_sec;
+    /** Perform representation updates on the JavaFX pulse? */
+    @Preference public static boolean pulse_updates;
+    /** Time budget for representation updates per frame */
+    @Preference public static int update_frame_budget_ms;
 
     static
     {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2019 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.csstudio.display.builder.model.Widget;
 import org.csstudio.display.builder.model.WidgetPropertyListener;
 import org.csstudio.display.builder.model.properties.PredefinedColorMaps;
 import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.representation.RepresentationUpdateScheduler;
 import org.csstudio.display.builder.representation.ToolkitRepresentation;
 import org.csstudio.display.builder.representation.javafx.widgets.JFXBaseRepresentation;
 import org.csstudio.javafx.rtplot.ColorMappingFunction;
@@ -171,6 +172,14 @@ public class JFXRepresentation extends ToolkitRepresentation<Parent, Node>
         super(edit_mode);
     }
 
+    @Override
+    protected RepresentationUpdateScheduler createUpdateScheduler()
+    {
+        if (JFXPreferences.pulse_updates)
+            return new PulseUpdateScheduler();
+        return super.createUpdateScheduler();
+    }
+
     @Override
     protected void initialize()
     {
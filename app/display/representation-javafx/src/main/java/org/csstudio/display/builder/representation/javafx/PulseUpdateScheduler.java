@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation.javafx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.csstudio.display.builder.representation.RepresentationUpdateQueue;
+import org.csstudio.display.builder.representation.RepresentationUpdateScheduler;
+import org.csstudio.display.builder.representation.WidgetRepresentation;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/** Perform representation updates on the JavaFX pulse
+ *
+ *  <p>Alternative to the {@link org.csstudio.display.builder.representation.RepresentationUpdateThrottle}
+ *  which has no thread of its own.
+ *  An {@link AnimationTimer} performs queued updates once per frame,
+ *  within a time budget, carrying remaining updates over to the next frame.
+ *
+ *  <p>The timer only runs while updates are queued,
+ *  so there are no extra pulses when the display is idle.
+ *
+ *  @author Kay Kasemir
+ */
+public class PulseUpdateScheduler implements RepresentationUpdateScheduler
+{
+    /** Time budget for updates per frame */
+    private static final long frame_budget_nanos = TimeUnit.MILLISECONDS.toNanos(JFXPreferences.update_frame_budget_ms);
+
+    private final RepresentationUpdateQueue updates = new RepresentationUpdateQueue();
+
+    /** Is the timer started, or about to be started? */
+    private final AtomicBoolean active = new AtomicBoolean();
+
+    private volatile boolean enabled = true;
+
+    private volatile boolean run = true;
+
+    private final AnimationTimer timer = new AnimationTimer()
+    {
+        @Override
+        public void handle(final long now)
+        {
+            if (run  &&  enabled  &&  ! updates.isEmpty())
+                updates.update(frame_budget_nanos);
+
+            if (! run  ||  ! enabled  ||  updates.isEmpty())
+            {
+                stop();
+                active.set(false);
+                // Updates may have been requested before 'active' was cleared
+                if (run  &&  enabled  &&  ! updates.isEmpty())
+                    activate();
+            }
+        }
+    };
+
+    /** Start the timer unless already active */
+    private void activate()
+    {
+        if (! active.compareAndSet(false, true))
+            return;
+        if (Platform.isFxApplicationThread())
+            timer.start();
+        else
+            Platform.runLater(timer::start);
+    }
+
+    @Override
+    public void scheduleUpdate(final WidgetRepresentation<?, ?, ?> representation)
+    {
+        if (updates.add(representation)  &&  enabled  &&  run)
+            activate();
+    }
+
+    @Override
+    public void enable(final boolean enable)
+    {
+        enabled = enable;
+        if (enable  &&  run  &&  ! updates.isEmpty())
+            activate();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        run = false;
+        updates.clear();
+        // Timer stops on next pulse
+    }
+}
@@ -11,7 +11,6 @@ import static org.csstudio.display.builder.representation.EmbeddedDisplayReprese
 import static org.csstudio.display.builder.representation.EmbeddedDisplayRepresentationUtil.loadDisplayModel;
 import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
 
-import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -24,8 +23,7 @@ import org.csstudio.display.builder.model.UntypedWidgetPropertyListener;
 import org.csstudio.display.builder.model.Widget;
 import org.csstudio.display.builder.model.WidgetProperty;
 import org.csstudio.display.builder.model.WidgetPropertyListener;
-import org.csstudio.display.builder.model.persist.ModelReader;
-import org.csstudio.display.builder.model.persist.ModelWriter;
+import org.csstudio.display.builder.model.persist.ModelCloner;
 import org.csstudio.display.builder.model.widgets.GroupWidget;
 import org.csstudio.display.builder.model.widgets.GroupWidget.Style;
 import org.csstudio.display.builder.model.widgets.TemplateInstanceWidget;
@@ -34,7 +32,6 @@ import org.csstudio.display.builder.representation.EmbeddedDisplayRepresentation
 import org.phoebus.framework.jobs.JobManager;
 import org.phoebus.framework.jobs.JobMonitor;
 import org.phoebus.framework.macros.Macros;
-import org.phoebus.framework.persistence.XMLUtil;
 
 import javafx.geometry.Insets;
 import javafx.scene.layout.Background;
@@ -317,16 +314,6 @@ public class TemplateInstanceRepresentation extends RegionBaseRepresentation<Pan
         final DisplayModel template = active_template_model.get();
         try
         {
-            final ByteArrayOutputStream xml = new ByteArrayOutputStream();
-            try
-            (
-                final ModelWriter writer = new ModelWriter(xml)
-            )
-            {
-                writer.writeModel(template);
-            }
-            final String template_xml = xml.toString(XMLUtil.ENCODING);
-
             // Copy template into new model
             final DisplayModel new_model = new DisplayModel();
             // Mark new_model as _not_ being a top-level model,
@@ -348,7 +335,7 @@ public class TemplateInstanceRepresentation extends RegionBaseRepresentation<Pan
                 int i = 0, x = 0, y = 0;
                 for (InstanceProperty instance : model_widget.propInstances().getValue())
                 {
-                    final DisplayModel inst = ModelReader.parseXML(template_xml);
+                    final DisplayModel inst = ModelCloner.clone(template);
                     final GroupWidget wrapper = new GroupWidget();
                     wrapper.propName().setValue("Instance " + i);
                     wrapper.propStyle().setValue(Style.NONE);
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation;
+
+import static org.csstudio.display.builder.representation.ToolkitRepresentation.logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/** Queue of representations that requested an update
+ *
+ *  <p>Representations are added from any thread without locking.
+ *  Each representation is queued at most once until it has been updated,
+ *  in the order in which representations requested an update.
+ *
+ *  <p>The UI thread performs queued updates within a time budget.
+ *  Remaining updates are carried over to the next call.
+ *
+ *  <p>Tracks the latency from requesting an update until it is performed
+ *  and the time spent per call, and logs them like the {@link RepresentationUpdateThrottle}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RepresentationUpdateQueue
+{
+    /** Period in seconds for logging update performance */
+    private static final int performance_log_period_secs = Preferences.performance_log_period_secs;
+
+    /** UI thread durations above this threshold are logged */
+    private static final int performance_log_threshold_ms = Preferences.performance_log_threshold_ms;
+
+    /** Representations in order of update requests */
+    private final Queue<WidgetRepresentation<?, ?, ?>> queue = new ConcurrentLinkedQueue<>();
+
+    /** Time when queued representations requested an update, to avoid queuing them twice */
+    private final ConcurrentHashMap<WidgetRepresentation<?, ?, ?>, Long> requested = new ConcurrentHashMap<>();
+
+    /** Number of queued representations */
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Performance info, only accessed by UI thread
+    private long next_log = 0;
+    private long frames = 0, carried = 0, updates = 0;
+    private long frame_nanos = 0, max_frame_nanos = 0;
+    private long latency_nanos = 0, max_latency_nanos = 0;
+
+    /** @param representation Representation that requests an update
+     *  @return <code>true</code> if added, <code>false</code> if representation was already queued
+     */
+    public boolean add(final WidgetRepresentation<?, ?, ?> representation)
+    {
+        if (requested.putIfAbsent(representation, System.nanoTime()) != null)
+            return false;
+        size.incrementAndGet();
+        queue.add(representation);
+        return true;
+    }
+
+    /** @return <code>true</code> if no updates are queued */
+    public boolean isEmpty()
+    {
+        return size.get() <= 0;
+    }
+
+    /** @return Number of queued updates */
+    public int size()
+    {
+        return Math.max(0, size.get());
+    }
+
+    /** Perform queued updates, must be called on UI thread
+     *
+     *  <p>Performs at least one update.
+     *  Updates that are requested while updating
+     *  are performed within the same call if time permits.
+     *
+     *  @param budget_nanos Time budget
+     *  @return Number of updates performed
+     */
+    public int update(final long budget_nanos)
+    {
+        final long start = System.nanoTime();
+        long now = start;
+        int count = 0;
+        WidgetRepresentation<?, ?, ?> representation;
+        while ((representation = queue.poll()) != null)
+        {
+            size.decrementAndGet();
+            // Remove before updating, so changes during the update will re-queue the representation
+            final Long request = requested.remove(representation);
+            try
+            {
+                // Skip updates when representation has been disposed
+                if (representation.model_widget != null)
+                    representation.updateChanges();
+            }
+            catch (final Throwable ex)
+            {
+                logger.log(Level.SEVERE, "Representation update failed", ex);
+            }
+            ++count;
+            now = System.nanoTime();
+            if (request != null)
+            {
+                final long latency = now - request;
+                latency_nanos += latency;
+                if (latency > max_latency_nanos)
+                    max_latency_nanos = latency;
+            }
+            if (now - start >= budget_nanos)
+                break;
+        }
+
+        final long nanos = now - start;
+        ++frames;
+        updates += count;
+        frame_nanos += nanos;
+        if (nanos > max_frame_nanos)
+            max_frame_nanos = nanos;
+        if (! isEmpty())
+            ++carried;
+        logPerformance(now);
+
+        return count;
+    }
+
+    /** Log performance info once per period if above threshold
+     *  @param now Current time in nanoseconds
+     */
+    private void logPerformance(final long now)
+    {
+        if (next_log == 0)
+        {
+            next_log = now + TimeUnit.SECONDS.toNanos(performance_log_period_secs);
+            return;
+        }
+        if (now < next_log)
+            return;
+
+        final long threshold = TimeUnit.MILLISECONDS.toNanos(performance_log_threshold_ms);
+        if (max_frame_nanos > threshold  ||  max_latency_nanos > threshold)
+            logger.log(Level.FINE,
+                       String.format("%d updates in %d frames, %d with carry-over. " +
+                                     "Frame time average %.1f ms, max %.1f ms. Latency average %.1f ms, max %.1f ms",
+                                     updates, frames, carried,
+                                     frame_nanos / 1e6 / frames, max_frame_nanos / 1e6,
+                                     updates > 0 ? latency_nanos / 1e6 / updates : 0.0, max_latency_nanos / 1e6));
+        frames = carried = updates = 0;
+        frame_nanos = max_frame_nanos = latency_nanos = max_latency_nanos = 0;
+        next_log = now + TimeUnit.SECONDS.toNanos(performance_log_period_secs);
+    }
+
+    /** Remove all queued updates */
+    public void clear()
+    {
+        WidgetRepresentation<?, ?, ?> representation;
+        while ((representation = queue.poll()) != null)
+        {
+            size.decrementAndGet();
+            requested.remove(representation);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation;
+
+/** Schedules updates of widget representations on the UI thread
+ *
+ *  @author Kay Kasemir
+ */
+public interface RepresentationUpdateScheduler
+{
+    /** Called by toolkit representation to request an update.
+     *
+     *  <p>That representation's <code>updateChanges()</code> will be called
+     *
+     *  @param representation Toolkit representation that requests update
+     */
+    public void scheduleUpdate(WidgetRepresentation<?, ?, ?> representation);
+
+    /** @param enable Enable updates, or pause? */
+    public void enable(boolean enable);
+
+    /** Stop updates */
+    public void shutdown();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2016 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,7 +36,7 @@ import java.util.logging.Level;
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
-public class RepresentationUpdateThrottle
+public class RepresentationUpdateThrottle implements RepresentationUpdateScheduler
 {
     /** Instance counter to aid in debugging the throttle start/shutdown */
     private static final AtomicInteger instance = new AtomicInteger();
@@ -91,6 +91,7 @@ public class RepresentationUpdateThrottle
      *
      *  @param representation Toolkit representation that requests update
      */
+    @Override
     public void scheduleUpdate(final WidgetRepresentation<?, ?, ?> representation)
     {
         synchronized (updateable)
@@ -101,6 +102,7 @@ public class RepresentationUpdateThrottle
     }
 
     /** @param enable Enable updates, or pause? */
+    @Override
     public void enable(final boolean enable)
     {
         enabled = enable;
@@ -216,6 +218,7 @@ public class RepresentationUpdateThrottle
     }
 
     /** Shutdown the throttle thread and wait for it to exit */
+    @Override
     public void shutdown()
     {
         run = false;
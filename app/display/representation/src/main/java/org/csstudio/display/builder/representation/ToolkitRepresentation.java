@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -71,7 +71,7 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
 
     private final boolean edit_mode;
 
-    private final RepresentationUpdateThrottle throttle = new RepresentationUpdateThrottle(this);
+    private final RepresentationUpdateScheduler throttle;
 
     /** Listener list */
     private final List<ToolkitListener> listeners = new CopyOnWriteArrayList<>();
@@ -117,6 +117,7 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
     public ToolkitRepresentation(final boolean edit_mode)
     {
         this.edit_mode = edit_mode;
+        throttle = createUpdateScheduler();
         if (! initialized.getAndSet(true))
             initialize();
     }
@@ -437,6 +438,19 @@ abstract public class ToolkitRepresentation<TWP extends Object, TW> implements E
         // else: Widget has no representation because not implemented for this toolkit
     }
 
+    /** Create scheduler for representation updates
+     *
+     *  <p>Called by the constructor.
+     *  Default uses a {@link RepresentationUpdateThrottle},
+     *  a toolkit may provide a scheduler that is driven by its frame updates.
+     *
+     *  @return {@link RepresentationUpdateScheduler}
+     */
+    protected RepresentationUpdateScheduler createUpdateScheduler()
+    {
+        return new RepresentationUpdateThrottle(this);
+    }
+
     /** Called by toolkit representation to request an update.
      *
      *  <p>That representation's <code>updateChanges()</code> will be called
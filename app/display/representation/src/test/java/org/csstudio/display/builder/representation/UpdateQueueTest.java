@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.representation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.display.builder.model.Widget;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of {@link RepresentationUpdateQueue}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class UpdateQueueTest
+{
+    private final RepresentationUpdateQueue queue = new RepresentationUpdateQueue();
+
+    /** Names of updated representations */
+    private final List<String> updated = new ArrayList<>();
+
+    private class TestWidgetRepresentation extends WidgetRepresentation<Object, Object, Widget>
+    {
+        private final String name;
+        public volatile long update_ms = 0;
+        public volatile boolean trigger_on_update = false;
+
+        public TestWidgetRepresentation(final String name)
+        {
+            this.name = name;
+            model_widget = new Widget("Demo");
+        }
+
+        @Override
+        public Object createComponents(Object parent)
+        {
+            return null;
+        }
+
+        @Override
+        public void updateChanges()
+        {
+            updated.add(name);
+            if (trigger_on_update)
+            {
+                trigger_on_update = false;
+                queue.add(this);
+            }
+            try
+            {
+                TimeUnit.MILLISECONDS.sleep(update_ms);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        }
+
+        @Override
+        public void dispose()
+        {
+            // NOP
+        }
+
+        @Override
+        public void updateOrder()
+        {
+            // NOP
+        }
+    }
+
+    @Test
+    public void testOrder() throws Exception
+    {
+        final TestWidgetRepresentation a = new TestWidgetRepresentation("A");
+        final TestWidgetRepresentation b = new TestWidgetRepresentation("B");
+        final TestWidgetRepresentation c = new TestWidgetRepresentation("C");
+
+        // Updates in order of requests, each representation once
+        assertThat(queue.add(b), equalTo(true));
+        assertThat(queue.add(a), equalTo(true));
+        assertThat(queue.add(b), equalTo(false));
+        assertThat(queue.add(c), equalTo(true));
+        assertThat(queue.size(), equalTo(3));
+
+        assertThat(queue.update(TimeUnit.SECONDS.toNanos(1)), equalTo(3));
+        assertThat(updated, equalTo(List.of("B", "A", "C")));
+        assertThat(queue.isEmpty(), equalTo(true));
+
+        // Request during update is handled in same call
+        updated.clear();
+        a.trigger_on_update = true;
+        queue.add(a);
+        queue.add(b);
+        assertThat(queue.update(TimeUnit.SECONDS.toNanos(1)), equalTo(3));
+        assertThat(updated, equalTo(List.of("A", "B", "A")));
+
+        // Disposed representation is skipped
+        updated.clear();
+        queue.add(c);
+        c.destroy();
+        queue.add(a);
+        assertThat(queue.update(TimeUnit.SECONDS.toNanos(1)), equalTo(2));
+        assertThat(updated, equalTo(List.of("A")));
+    }
+
+    @Test
+    public void testBudget() throws Exception
+    {
+        for (int i=0; i<10; ++i)
+        {
+            final TestWidgetRepresentation rep = new TestWidgetRepresentation("W" + i);
+            rep.update_ms = 10;
+            queue.add(rep);
+        }
+
+        // Budget allows for about 3 updates, rest is carried over
+        int count = queue.update(TimeUnit.MILLISECONDS.toNanos(25));
+        System.out.println("First frame: " + count + " updates");
+        assertThat(count >= 1  &&  count < 10, equalTo(true));
+        assertThat(queue.size(), equalTo(10 - count));
+
+        // At least one update even if budget is exceeded
+        assertThat(queue.update(0), equalTo(1));
+
+        // Remaining updates in later frames, in original order
+        while (! queue.isEmpty())
+            queue.update(TimeUnit.MILLISECONDS.toNanos(25));
+        assertThat(updated.size(), equalTo(10));
+        for (int i=0; i<10; ++i)
+            assertThat(updated.get(i), equalTo("W" + i));
+    }
+}
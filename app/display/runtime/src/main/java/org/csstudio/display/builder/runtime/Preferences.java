@@ -32,6 +32,16 @@ public class Preferences
     /** Preference setting */
     @Preference public static String probe_display;
     /** Preference setting */
+    @Preference public static boolean compile_rules;
+    /** Preference setting */
+    @Preference public static int script_threads;
+    /** Preference setting */
+    @Preference public static boolean script_queue_per_script;
+    /** Preference setting */
+    @Preference public static int script_warning_seconds;
+    /** Preference setting */
+    @Preference public static int script_statistics_period_secs;
+    /** Preference setting */
     public static final List<TextPatch> pv_name_patches = new ArrayList<>();
 
     static
@@ -114,7 +114,7 @@ public class RuntimeUtil
             {
                 // This takes about 3 seconds
                 final long start = System.currentTimeMillis();
-                scripting = new ScriptSupport();
+                scripting = new ScriptSupport(model.getDisplayName());
                 final long elapsed = System.currentTimeMillis() - start;
                 logger.log(Level.FINE, "ScriptSupport created for {0} by {1} in {2} ms", new Object[] { model, widget, elapsed });
                 model.setUserData(Widget.USER_DATA_SCRIPT_SUPPORT, scripting);
@@ -37,6 +37,7 @@ public class BaseScriptSupport
         if (was_queued == Boolean.TRUE)
         {
             logger.log(Level.FINE, "Skipping script {0}, already queued for execution", script);
+            ScriptSupport.getStatistics().coalesced();
             return false;
         }
         return true;
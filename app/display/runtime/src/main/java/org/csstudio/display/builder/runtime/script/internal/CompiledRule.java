@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import static org.csstudio.display.builder.runtime.WidgetRuntime.logger;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.WidgetProperty;
+import org.csstudio.display.builder.model.properties.Points;
+import org.csstudio.display.builder.model.properties.WidgetColor;
+import org.csstudio.display.builder.model.properties.WidgetFont;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleInfo.ExpressionInfo;
+import org.csstudio.display.builder.model.rules.RuleToScript;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.PVUtil;
+import org.csstudio.display.builder.runtime.script.PVUtil.PVHasNoValueException;
+import org.phoebus.framework.macros.MacroHandler;
+import org.phoebus.framework.macros.Macros;
+
+/** Rule compiled into Java
+ *
+ *  <p>Handles the same rules as the script generated by {@link RuleToScript},
+ *  with the same result,
+ *  but evaluates them right away in the calling thread
+ *  instead of queuing them for the script thread.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledRule implements Script
+{
+    private final String name;
+    private final String prop_id;
+    private final RuleExpression[] expressions;
+    /** Property values for each expression */
+    private final Object[] values;
+    /** Value when no expression holds, or PVs have no value */
+    private final Object default_value;
+
+    /** Values of PVs as used in rule expressions */
+    private static class PVInputs implements RuleExpression.Inputs
+    {
+        private final RuntimePV[] pvs;
+
+        PVInputs(final RuntimePV[] pvs)
+        {
+            this.pvs = pvs;
+        }
+
+        @Override
+        public double getDouble(final int index)
+        {
+            return PVUtil.getDouble(pvs[index]);
+        }
+
+        @Override
+        public long getLong(final int index)
+        {
+            return PVUtil.getLong(pvs[index]);
+        }
+
+        @Override
+        public String getString(final int index)
+        {
+            return PVUtil.getString(pvs[index]);
+        }
+
+        @Override
+        public int getSeverity(final int index)
+        {
+            return PVUtil.getSeverity(pvs[index]);
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public int getLegacySeverity(final int index)
+        {
+            return PVUtil.getLegacySeverity(pvs[index]);
+        }
+    }
+
+    /** Compile rule
+     *
+     *  @param widget Widget on which the rule is invoked
+     *  @param rule Rule to compile
+     *  @return {@link CompiledRule} or <code>null</code> if rule needs to be executed as a script
+     */
+    public static CompiledRule compile(final Widget widget, final RuleInfo rule)
+    {
+        if (rule.getPropAsExprFlag())
+        {
+            logger.log(Level.FINE, () -> "Rule " + rule.getName() + " of " + widget + " uses script for value expressions");
+            return null;
+        }
+        try
+        {
+            return new CompiledRule(widget, rule);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.FINE, () -> "Rule " + rule.getName() + " of " + widget + " uses script: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private CompiledRule(final Widget widget, final RuleInfo rule) throws Exception
+    {
+        name = widget.getType() + ":" + widget.getName() + ":" + rule.getName();
+        prop_id = rule.getPropID();
+        final WidgetProperty<?> prop = widget.getProperty(prop_id);
+        final Object example = prop.getDefaultValue();
+
+        final List<ExpressionInfo<?>> infos = rule.getExpressions();
+        expressions = new RuleExpression[infos.size()];
+        values = new Object[infos.size()];
+        final Macros macros = widget.getEffectiveMacros();
+        for (int i=0; i<expressions.length; ++i)
+        {
+            String expanded;
+            try
+            {
+                expanded = MacroHandler.replace(macros, infos.get(i).getBoolExp());
+            }
+            catch (Exception ex)
+            {
+                expanded = infos.get(i).getBoolExp();
+                logger.log(Level.WARNING, "Cannot expand macro in " + expanded, ex);
+            }
+            expressions[i] = new RuleExpression(RuleToScript.javascriptToPythonLogic(expanded), rule.getPVs().size());
+            values[i] = getValue(example, (WidgetProperty<?>) infos.get(i).getPropVal());
+        }
+        default_value = getValue(example, prop);
+    }
+
+    /** @param example Example value that determines type of property
+     *  @param prop Property
+     *  @return Value that the script would use for the property
+     *  @throws Exception if value cannot be handled
+     */
+    private static Object getValue(final Object example, final WidgetProperty<?> prop) throws Exception
+    {
+        final Object value = prop.getValue();
+        if (example instanceof Number  ||  example instanceof Enum<?>)
+        {
+            if (value instanceof Enum<?>)
+                return ((Enum<?>) value).ordinal();
+            if (value instanceof Double  &&  ! Double.isFinite((Double) value))
+                throw new Exception("Cannot handle value " + value);
+            if (value instanceof Number)
+                return value;
+            throw new Exception("Cannot handle value " + value);
+        }
+        if (example instanceof Boolean)
+            return Boolean.parseBoolean(value.toString());
+        if (example instanceof WidgetColor)
+        {   // Script creates plain color, not named color
+            final WidgetColor color = (WidgetColor) value;
+            return new WidgetColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+        }
+        if (example instanceof WidgetFont)
+        {
+            final WidgetFont font = (WidgetFont) value;
+            return new WidgetFont(font.getFamily(), font.getStyle(), font.getSize());
+        }
+        if (example instanceof Points)
+            return ((Points) value).clone();
+        // Script would interpret escape sequences
+        final String text = value.toString();
+        if (text.indexOf('\\') >= 0)
+            throw new Exception("Cannot handle text " + text);
+        return text;
+    }
+
+    @Override
+    public Future<Object> submit(final Widget widget, final RuntimePV... pvs)
+    {
+        evaluate(widget, pvs);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** Evaluate rule and update property
+     *
+     *  <p>Synchronized so that concurrent updates from several PVs
+     *  set the property in the order in which the PVs were read.
+     *
+     *  @param widget Widget
+     *  @param pvs PVs of the rule
+     */
+    private synchronized void evaluate(final Widget widget, final RuntimePV[] pvs)
+    {
+        Object value = default_value;
+        try
+        {
+            if (expressions.length > 0)
+            {   // Script reads pvInt.. of all PVs,
+                // using the default value if any PV has no value
+                for (RuntimePV pv : pvs)
+                    PVUtil.getLong(pv);
+                final PVInputs inputs = new PVInputs(pvs);
+                for (int i=0; i<expressions.length; ++i)
+                    if (expressions[i].test(inputs))
+                    {
+                        value = values[i];
+                        break;
+                    }
+            }
+        }
+        catch (PVHasNoValueException ex)
+        {
+            value = default_value;
+        }
+        catch (Exception ex)
+        {
+            value = default_value;
+            logFailure(widget, ex);
+        }
+
+        try
+        {
+            widget.setPropertyValue(prop_id, value instanceof Points ? ((Points) value).clone() : value);
+        }
+        catch (Exception ex)
+        {
+            logFailure(widget, ex);
+        }
+    }
+
+    private void logFailure(final Widget widget, final Exception ex)
+    {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("Rule execution failed\n");
+        try
+        {
+            final DisplayModel model = widget.getDisplayModel();
+            buf.append("Display '").append(model.getDisplayName()).append("', ");
+        }
+        catch (Exception ignore)
+        {
+            // Skip display model
+        }
+        buf.append(widget).append(", ").append(this);
+        logger.log(Level.WARNING, buf.toString(), ex);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompiledRule " + name;
+    }
+}
@@ -70,7 +70,7 @@ class JavaScriptSupport extends BaseScriptSupport
         if (! markAsScheduled(script))
             return null;
 
-        return support.submit(() ->
+        return support.submit(script, true, () ->
         {
             // Script may be queued again
             removeScheduleMarker(script);
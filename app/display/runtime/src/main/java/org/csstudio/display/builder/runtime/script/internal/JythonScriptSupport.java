@@ -249,14 +249,14 @@ class JythonScriptSupport extends BaseScriptSupport implements AutoCloseable
             return null;
 
         // System.out.println("Submit on " + Thread.currentThread().getName());
-        return support.submit(() ->
+        return support.submit(script, false, () ->
         {
             // System.out.println("Executing " + script + " on " + Thread.currentThread().getName());
             // Script may be queued again
             removeScheduleMarker(script);
             try
             {
-                // Executor is single-threaded.
+                // Queue of this display executes one script at a time.
                 // Should be OK to update 'widget' & 'pvs', which already exist
                 // in the python interpreter shared by all scripts of this display,
                 // because only one script will execute at a time.
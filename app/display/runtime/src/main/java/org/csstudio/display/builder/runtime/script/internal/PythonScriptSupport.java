@@ -56,7 +56,7 @@ public class PythonScriptSupport extends BaseScriptSupport
         if (! markAsScheduled(script))
             return null;
 
-        return support.submit(() ->
+        return support.submit(script, true, () ->
         {
             // Script may be queued again
             removeScheduleMarker(script);
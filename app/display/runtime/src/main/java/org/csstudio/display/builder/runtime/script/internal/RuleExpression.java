@@ -0,0 +1,703 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Boolean expression of a rule, compiled into Java
+ *
+ *  <p>Rules are turned into Python, see RuleToScript.
+ *  This parses the same Python text as the generated script,
+ *  but only a subset that can be evaluated with the same result:
+ *  <ul>
+ *  <li>Variables pv0, pvInt0, pvStr0, pvSev0, pvLegacySev0, ...
+ *  <li>Integer, floating point and "string" constants, True, False
+ *  <li>Arithmetic +, -, *, /, % on numbers,
+ *      using Python 2 integer division for integers
+ *  <li>Comparisons ==, !=, &lt;, &lt;=, &gt;, &gt;= of two numbers or two strings
+ *  <li>not, and, or
+ *  </ul>
+ *
+ *  <p>Operators follow the Python precedence,
+ *  for example 'and' before 'or', and 'not' after comparisons.
+ *  The formula support in core-formula was not used since it treats
+ *  '&amp;' and '|' with the same precedence and binds '!' to the
+ *  following operand.
+ *
+ *  <p>Anything else, for example function calls or
+ *  comparing a string with a number, is rejected
+ *  so that the rule will use the script.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleExpression
+{
+    /** Values of the rule's PVs */
+    public interface Inputs
+    {
+        /** @param index PV index
+         *  @return Value of pv0, pv1, ...
+         */
+        public double getDouble(int index);
+
+        /** @param index PV index
+         *  @return Value of pvInt0, pvInt1, ...
+         */
+        public long getLong(int index);
+
+        /** @param index PV index
+         *  @return Value of pvStr0, pvStr1, ...
+         */
+        public String getString(int index);
+
+        /** @param index PV index
+         *  @return Value of pvSev0, pvSev1, ...
+         */
+        public int getSeverity(int index);
+
+        /** @param index PV index
+         *  @return Value of pvLegacySev0, pvLegacySev1, ...
+         */
+        public int getLegacySeverity(int index);
+    }
+
+    private enum Type
+    {
+        INTEGER, FLOAT, STRING, BOOLEAN
+    }
+
+    /** Node in the expression tree
+     *
+     *  <p>Each node has a fixed type,
+     *  and is evaluated via the method for that type.
+     *  Numbers can be read as integer or float.
+     */
+    private static abstract class Node
+    {
+        final Type type;
+
+        Node(final Type type)
+        {
+            this.type = type;
+        }
+
+        boolean isNumber()
+        {
+            return type == Type.INTEGER  ||  type == Type.FLOAT;
+        }
+
+        long integer(final Inputs inputs)
+        {
+            throw new IllegalStateException(type + " is not an integer");
+        }
+
+        double number(final Inputs inputs)
+        {
+            return integer(inputs);
+        }
+
+        String string(final Inputs inputs)
+        {
+            throw new IllegalStateException(type + " is not a string");
+        }
+
+        /** @return Truth value, using Python rules for non-boolean types */
+        boolean test(final Inputs inputs)
+        {
+            switch (type)
+            {
+            case INTEGER: return integer(inputs) != 0;
+            // NaN is true
+            case FLOAT:   return number(inputs) != 0.0;
+            case STRING:  return ! string(inputs).isEmpty();
+            default:      throw new IllegalStateException("Cannot test " + type);
+            }
+        }
+    }
+
+    private static final Pattern VARIABLE = Pattern.compile("(pv|pvInt|pvStr|pvSev|pvLegacySev)(0|[1-9][0-9]*)");
+
+    private final String expression;
+    private final Node tree;
+
+    // Parser state
+    private final int pv_count;
+    private int pos = 0;
+
+    /** Compile expression
+     *  @param expression Python expression, see RuleToScript
+     *  @param pv_count Number of PVs in rule
+     *  @throws Exception if the expression cannot be compiled
+     */
+    public RuleExpression(final String expression, final int pv_count) throws Exception
+    {
+        this.expression = expression;
+        this.pv_count = pv_count;
+        tree = parseOr();
+        skipSpace();
+        if (pos < expression.length())
+            throw error("Unexpected '" + expression.substring(pos) + "'");
+    }
+
+    /** @param inputs Values of the PVs
+     *  @return <code>true</code> if the expression holds
+     *  @throws ArithmeticException for division by zero, numeric overflow
+     */
+    public boolean test(final Inputs inputs)
+    {
+        return tree.test(inputs);
+    }
+
+    private Exception error(final String message)
+    {
+        return new Exception(message + " in rule expression '" + expression + "'");
+    }
+
+    private void skipSpace()
+    {
+        while (pos < expression.length()  &&  Character.isWhitespace(expression.charAt(pos)))
+            ++pos;
+    }
+
+    /** @param operator Operator
+     *  @return <code>true</code> if operator was found and skipped
+     */
+    private boolean accept(final String operator)
+    {
+        skipSpace();
+        if (! expression.startsWith(operator, pos))
+            return false;
+        pos += operator.length();
+        return true;
+    }
+
+    /** @param keyword Keyword like 'and'
+     *  @return <code>true</code> if keyword was found and skipped
+     */
+    private boolean acceptKeyword(final String keyword)
+    {
+        skipSpace();
+        final int end = pos + keyword.length();
+        if (! expression.startsWith(keyword, pos)  ||
+            (end < expression.length()  &&  isNameChar(expression.charAt(end))))
+            return false;
+        pos = end;
+        return true;
+    }
+
+    private static boolean isNameChar(final char c)
+    {
+        return Character.isLetterOrDigit(c)  ||  c == '_';
+    }
+
+    /** @return 'a or b or ..' */
+    private Node parseOr() throws Exception
+    {
+        Node result = parseAnd();
+        while (acceptKeyword("or"))
+        {
+            final Node left = result, right = parseAnd();
+            result = new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.test(inputs)  ||  right.test(inputs);
+                }
+            };
+        }
+        return result;
+    }
+
+    /** @return 'a and b and ..' */
+    private Node parseAnd() throws Exception
+    {
+        Node result = parseNot();
+        while (acceptKeyword("and"))
+        {
+            final Node left = result, right = parseNot();
+            result = new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.test(inputs)  &&  right.test(inputs);
+                }
+            };
+        }
+        return result;
+    }
+
+    /** @return 'not a' or 'a' */
+    private Node parseNot() throws Exception
+    {
+        if (acceptKeyword("not"))
+        {
+            final Node arg = parseNot();
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return ! arg.test(inputs);
+                }
+            };
+        }
+        return parseComparison();
+    }
+
+    /** @return 'a == b', 'a &lt; b', .. or just 'a' */
+    private Node parseComparison() throws Exception
+    {
+        final Node left = parseSum();
+        final String op;
+        // Check 2-char operators first
+        if (accept("=="))
+            op = "==";
+        else if (accept("!="))
+            op = "!=";
+        else if (accept("<="))
+            op = "<=";
+        else if (accept(">="))
+            op = ">=";
+        else if (accept("<>"))
+            throw error("Unsupported '<>'");
+        else if (accept("<"))
+            op = "<";
+        else if (accept(">"))
+            op = ">";
+        else
+            return left;
+        final Node right = parseSum();
+
+        // Python would chain 'a < b < c'
+        skipSpace();
+        if (pos < expression.length()  &&  "=!<>".indexOf(expression.charAt(pos)) >= 0)
+            throw error("Unsupported chained comparison");
+
+        if (left.type == Type.STRING  &&  right.type == Type.STRING)
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return compare(op, left.string(inputs).compareTo(right.string(inputs)));
+                }
+            };
+        if (! left.isNumber()  ||  ! right.isNumber())
+            throw error("Cannot compare " + left.type + " " + op + " " + right.type);
+        if (left.type == Type.INTEGER  &&  right.type == Type.INTEGER)
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return compare(op, Long.compare(left.integer(inputs), right.integer(inputs)));
+                }
+            };
+        switch (op)
+        {   // Handle NaN like Python: Only '!=' is true
+        case "==":
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) == right.number(inputs);
+                }
+            };
+        case "!=":
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) != right.number(inputs);
+                }
+            };
+        case "<":
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) < right.number(inputs);
+                }
+            };
+        case "<=":
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) <= right.number(inputs);
+                }
+            };
+        case ">":
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) > right.number(inputs);
+                }
+            };
+        default:
+            return new Node(Type.BOOLEAN)
+            {
+                @Override
+                boolean test(final Inputs inputs)
+                {
+                    return left.number(inputs) >= right.number(inputs);
+                }
+            };
+        }
+    }
+
+    /** @param op Comparison operator
+     *  @param comparison Result of comparing left and right value
+     *  @return <code>true</code> if comparison holds
+     */
+    private static boolean compare(final String op, final int comparison)
+    {
+        switch (op)
+        {
+        case "==": return comparison == 0;
+        case "!=": return comparison != 0;
+        case "<":  return comparison <  0;
+        case "<=": return comparison <= 0;
+        case ">":  return comparison >  0;
+        default:   return comparison >= 0;
+        }
+    }
+
+    /** @return 'a + b - c ..' */
+    private Node parseSum() throws Exception
+    {
+        Node result = parseProduct();
+        while (true)
+        {
+            final char op;
+            if (accept("+"))
+                op = '+';
+            else if (accept("-"))
+                op = '-';
+            else
+                return result;
+            result = createArithmetic(op, result, parseProduct());
+        }
+    }
+
+    /** @return 'a * b / c ..' */
+    private Node parseProduct() throws Exception
+    {
+        Node result = parseUnary();
+        while (true)
+        {
+            final char op;
+            if (accept("**")  ||  accept("//"))
+                throw error("Unsupported operator");
+            else if (accept("*"))
+                op = '*';
+            else if (accept("/"))
+                op = '/';
+            else if (accept("%"))
+                op = '%';
+            else
+                return result;
+            result = createArithmetic(op, result, parseUnary());
+        }
+    }
+
+    private Node createArithmetic(final char op, final Node left, final Node right) throws Exception
+    {
+        if (! left.isNumber()  ||  ! right.isNumber())
+            throw error("Cannot compute " + left.type + " " + op + " " + right.type);
+        if (left.type == Type.INTEGER  &&  right.type == Type.INTEGER)
+            return new Node(Type.INTEGER)
+            {
+                @Override
+                long integer(final Inputs inputs)
+                {
+                    final long a = left.integer(inputs), b = right.integer(inputs);
+                    switch (op)
+                    {
+                    case '+': return Math.addExact(a, b);
+                    case '-': return Math.subtractExact(a, b);
+                    case '*': return Math.multiplyExact(a, b);
+                    // Python 2 integer division rounds down
+                    case '/': return Math.floorDiv(a, b);
+                    default:  return Math.floorMod(a, b);
+                    }
+                }
+            };
+        return new Node(Type.FLOAT)
+        {
+            @Override
+            double number(final Inputs inputs)
+            {
+                final double a = left.number(inputs), b = right.number(inputs);
+                switch (op)
+                {
+                case '+': return a + b;
+                case '-': return a - b;
+                case '*': return a * b;
+                case '/':
+                    if (b == 0.0)
+                        throw new ArithmeticException("float division by zero");
+                    return a / b;
+                default:
+                    if (b == 0.0)
+                        throw new ArithmeticException("float modulo");
+                    // Python result has the sign of the divisor
+                    final double result = a % b;
+                    return (result != 0.0  &&  (result < 0) != (b < 0)) ? result + b : result;
+                }
+            }
+        };
+    }
+
+    /** @return '-a', '+a' or 'a' */
+    private Node parseUnary() throws Exception
+    {
+        if (accept("-"))
+        {
+            final Node arg = parseUnary();
+            if (arg.type == Type.INTEGER)
+                return new Node(Type.INTEGER)
+                {
+                    @Override
+                    long integer(final Inputs inputs)
+                    {
+                        return Math.negateExact(arg.integer(inputs));
+                    }
+                };
+            if (arg.type == Type.FLOAT)
+                return new Node(Type.FLOAT)
+                {
+                    @Override
+                    double number(final Inputs inputs)
+                    {
+                        return - arg.number(inputs);
+                    }
+                };
+            throw error("Cannot negate " + arg.type);
+        }
+        if (accept("+"))
+        {
+            final Node arg = parseUnary();
+            if (! arg.isNumber())
+                throw error("Cannot apply '+' to " + arg.type);
+            return arg;
+        }
+        return parseValue();
+    }
+
+    /** @return Constant, variable or '( expression )' */
+    private Node parseValue() throws Exception
+    {
+        skipSpace();
+        if (pos >= expression.length())
+            throw error("Unexpected end");
+        final char c = expression.charAt(pos);
+        if (c == '(')
+        {
+            ++pos;
+            final Node result = parseOr();
+            if (! accept(")"))
+                throw error("Missing ')'");
+            return result;
+        }
+        if (c == '"'  ||  c == '\'')
+            return parseString(c);
+        if (Character.isDigit(c)  ||  c == '.')
+            return parseNumber();
+        if (Character.isLetter(c)  ||  c == '_')
+        {
+            final int start = pos;
+            while (pos < expression.length()  &&  isNameChar(expression.charAt(pos)))
+                ++pos;
+            final String name = expression.substring(start, pos);
+            skipSpace();
+            if (pos < expression.length()  &&  (expression.charAt(pos) == '('  ||  expression.charAt(pos) == '.'))
+                throw error("Unsupported call or attribute '" + name + expression.charAt(pos) + "'");
+            return createVariable(name);
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Node parseString(final char quote) throws Exception
+    {
+        final StringBuilder buf = new StringBuilder();
+        ++pos;
+        while (pos < expression.length()  &&  expression.charAt(pos) != quote)
+        {
+            char c = expression.charAt(pos++);
+            if (c == '\\')
+            {   // Only handle basic escapes, not hex or unicode
+                if (pos >= expression.length())
+                    break;
+                c = expression.charAt(pos++);
+                if (c == 'n')
+                    c = '\n';
+                else if (c == 't')
+                    c = '\t';
+                else if (c != '\\'  &&  c != '"'  &&  c != '\'')
+                    throw error("Unsupported escape sequence '\\" + c + "'");
+            }
+            // Python 2 "str" would not match the unicode text of a PV
+            else if (c > 127)
+                throw error("Unsupported non-ASCII text");
+            buf.append(c);
+        }
+        if (pos >= expression.length())
+            throw error("Missing closing quote");
+        ++pos;
+        final String value = buf.toString();
+        return new Node(Type.STRING)
+        {
+            @Override
+            String string(final Inputs inputs)
+            {
+                return value;
+            }
+        };
+    }
+
+    private Node parseNumber() throws Exception
+    {
+        final int start = pos;
+        boolean is_float = false;
+        while (pos < expression.length())
+        {
+            final char c = expression.charAt(pos);
+            if (Character.isDigit(c))
+                ++pos;
+            else if (c == '.')
+            {
+                is_float = true;
+                ++pos;
+            }
+            else if ((c == 'e'  ||  c == 'E')  &&  pos > start)
+            {
+                is_float = true;
+                ++pos;
+                if (pos < expression.length()  &&  (expression.charAt(pos) == '+'  ||  expression.charAt(pos) == '-'))
+                    ++pos;
+            }
+            else
+                break;
+        }
+        final String text = expression.substring(start, pos);
+        if (pos < expression.length()  &&  isNameChar(expression.charAt(pos)))
+            throw error("Unsupported number format '" + text + expression.charAt(pos) + "'");
+        if (is_float)
+        {
+            final double value = Double.parseDouble(text);
+            return new Node(Type.FLOAT)
+            {
+                @Override
+                double number(final Inputs inputs)
+                {
+                    return value;
+                }
+            };
+        }
+        // Python 2 reads "010" as octal
+        if (text.length() > 1  &&  text.startsWith("0"))
+            throw error("Unsupported octal number '" + text + "'");
+        final long value = Long.parseLong(text);
+        return new Node(Type.INTEGER)
+        {
+            @Override
+            long integer(final Inputs inputs)
+            {
+                return value;
+            }
+        };
+    }
+
+    private Node createVariable(final String name) throws Exception
+    {
+        if (name.equals("True")  ||  name.equals("False"))
+        {
+            final long value = name.equals("True") ? 1 : 0;
+            return new Node(Type.INTEGER)
+            {
+                @Override
+                long integer(final Inputs inputs)
+                {
+                    return value;
+                }
+            };
+        }
+
+        final Matcher matcher = VARIABLE.matcher(name);
+        if (! matcher.matches())
+            throw error("Unsupported name '" + name + "'");
+        final int index = Integer.parseInt(matcher.group(2));
+        if (index >= pv_count)
+            throw error("Rule has no PV for '" + name + "'");
+        switch (matcher.group(1))
+        {
+        case "pv":
+            return new Node(Type.FLOAT)
+            {
+                @Override
+                double number(final Inputs inputs)
+                {
+                    return inputs.getDouble(index);
+                }
+            };
+        case "pvInt":
+            return new Node(Type.INTEGER)
+            {
+                @Override
+                long integer(final Inputs inputs)
+                {
+                    return inputs.getLong(index);
+                }
+            };
+        case "pvStr":
+            return new Node(Type.STRING)
+            {
+                @Override
+                String string(final Inputs inputs)
+                {
+                    return inputs.getString(index);
+                }
+            };
+        case "pvSev":
+            return new Node(Type.INTEGER)
+            {
+                @Override
+                long integer(final Inputs inputs)
+                {
+                    return inputs.getSeverity(index);
+                }
+            };
+        default:
+            return new Node(Type.INTEGER)
+            {
+                @Override
+                long integer(final Inputs inputs)
+                {
+                    return inputs.getLegacySeverity(index);
+                }
+            };
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+}
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import static org.csstudio.display.builder.runtime.WidgetRuntime.logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.phoebus.framework.jobs.NamedThreadFactory;
+
+/** Pool of threads that execute scripts
+ *
+ *  <p>Scripts are submitted to a {@link ScriptQueue}.
+ *  Each queue executes one script at a time, in the order
+ *  in which they were submitted, but different queues
+ *  share the threads of the pool and execute concurrently.
+ *
+ *  <p>When a script has been running for a long time
+ *  while other scripts are waiting in its queue,
+ *  a warning identifies the blocking script.
+ *
+ *  <p>Statistics and currently running scripts
+ *  are logged periodically at level FINE.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScriptPool
+{
+    private final ThreadPoolExecutor executor;
+
+    private final ScriptStatistics statistics = new ScriptStatistics();
+
+    /** Execution time after which a script that delays queued scripts is reported */
+    private final long warning_nanos;
+
+    /** Period for logging statistics, 0 to disable */
+    private final long log_nanos;
+
+    /** Time of next statistics log */
+    private final AtomicLong next_log;
+
+    /** Open queues */
+    private final Set<ScriptQueue> queues = ConcurrentHashMap.newKeySet();
+
+    /** Invocation of a script
+     *
+     *  <p>Updates statistics and the state of its queue
+     *  before the future completes, so that a caller
+     *  awaiting the result sees the updated information.
+     */
+    private static class Invocation extends FutureTask<Object>
+    {
+        private final ScriptQueue queue;
+        private final Object script;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long start = 0;
+
+        Invocation(final ScriptQueue queue, final Object script, final Callable<Object> callable)
+        {
+            super(callable);
+            this.queue = queue;
+            this.script = script;
+        }
+
+        /** @param start Start time of execution */
+        void started(final long start)
+        {
+            this.start = start;
+        }
+
+        @Override
+        protected void set(final Object result)
+        {
+            finish(false);
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(final Throwable ex)
+        {
+            finish(true);
+            super.setException(ex);
+        }
+
+        /** Update statistics and queue, only once
+         *  @param failed Did the script fail?
+         */
+        void finish(final boolean failed)
+        {
+            if (finished.compareAndSet(false, true))
+                queue.finished(this, System.nanoTime() - start, ! (failed  ||  isCancelled()));
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.valueOf(script);
+        }
+    }
+
+    /** Queue of scripts that execute one at a time, in order */
+    public class ScriptQueue
+    {
+        private final String name;
+
+        // SYNC on this
+        private final Deque<Invocation> queued = new ArrayDeque<>();
+        /** Is an executor task scheduled or running for this queue? */
+        private boolean active = false;
+        private boolean closed = false;
+        private Invocation running = null;
+        private Thread running_thread = null;
+        private long running_since = 0;
+        private boolean warned = false;
+
+        private ScriptQueue(final String name)
+        {
+            this.name = name;
+        }
+
+        /** Request that a script gets executed
+         *  @param script Script, used for messages
+         *  @param callable {@link Callable} for executing the script
+         *  @return Future for script that was just submitted
+         */
+        public Future<Object> submit(final Object script, final Callable<Object> callable)
+        {
+            final Invocation invocation = new Invocation(this, script, callable);
+            final String blocking;
+            final boolean schedule;
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    // Happens when we submit a script while the display has closed down
+                    // Log only at fine level for debugging, otherwise OK to skip the script.
+                    logger.log(Level.FINE, "Skipping script {0}, display closed", script);
+                    return CompletableFuture.completedFuture(null);
+                }
+                queued.add(invocation);
+                statistics.queued();
+                blocking = checkBlocking();
+                schedule = ! active;
+                active = true;
+            }
+            if (blocking != null)
+                logger.log(Level.WARNING, blocking);
+            if (schedule)
+                executor.execute(this::executeNext);
+            return invocation;
+        }
+
+        /** @return Message if running script delays queued scripts for the first time, else <code>null</code> */
+        private String checkBlocking()
+        {
+            if (running == null  ||  warned  ||  warning_nanos <= 0)
+                return null;
+            final long nanos = System.nanoTime() - running_since;
+            if (nanos < warning_nanos)
+                return null;
+            warned = true;
+            if (logger.isLoggable(Level.FINE))
+            {
+                final StringBuilder buf = new StringBuilder();
+                buf.append("Stack trace of ").append(running_thread.getName()).append(" executing ").append(running).append(":\n");
+                for (StackTraceElement element : running_thread.getStackTrace())
+                    buf.append("    at ").append(element).append('\n');
+                logger.log(Level.FINE, buf.toString());
+            }
+            return String.format("Script %s in %s has been running for %d seconds, delaying %d queued scripts",
+                                 running, name, TimeUnit.NANOSECONDS.toSeconds(nanos), queued.size());
+        }
+
+        /** Execute next queued script, then re-schedule to allow other queues to use the thread */
+        private void executeNext()
+        {
+            final Invocation invocation;
+            final long start = System.nanoTime();
+            synchronized (this)
+            {
+                invocation = queued.poll();
+                if (invocation == null)
+                {
+                    active = false;
+                    return;
+                }
+                running = invocation;
+                running_thread = Thread.currentThread();
+                running_since = start;
+                warned = false;
+            }
+
+            invocation.started(start);
+            invocation.run();
+            // Invocation that was cancelled before it started did not finish
+            invocation.finish(true);
+
+            synchronized (this)
+            {
+                if (queued.isEmpty())
+                {
+                    active = false;
+                    return;
+                }
+            }
+            executor.execute(this::executeNext);
+        }
+
+        /** Called by invocation when it ends, before its future completes
+         *  @param invocation Invocation that ended
+         *  @param nanos Execution time
+         *  @param success Did it complete without error?
+         */
+        private void finished(final Invocation invocation, final long nanos, final boolean success)
+        {
+            statistics.executed(nanos, success);
+            synchronized (this)
+            {
+                if (running == invocation)
+                {
+                    running = null;
+                    running_thread = null;
+                }
+            }
+            logStatistics();
+        }
+
+        /** @return Number of queued scripts, not including one that's running */
+        public synchronized int getQueueDepth()
+        {
+            return queued.size();
+        }
+
+        /** @return Info about running script or <code>null</code> */
+        private synchronized String getRunningInfo()
+        {
+            if (running == null)
+                return null;
+            return String.format("%s in %s running for %d ms on %s, %d queued",
+                                 running, name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - running_since),
+                                 running_thread.getName(), queued.size());
+        }
+
+        /** Cancel queued scripts, interrupt running script
+         *  and ignore scripts that are submitted from now on
+         */
+        public void close()
+        {
+            final List<Invocation> cancel;
+            synchronized (this)
+            {
+                closed = true;
+                cancel = new ArrayList<>(queued);
+                for (int i=queued.size(); i>0; --i)
+                    statistics.dequeued();
+                queued.clear();
+                if (running != null)
+                    cancel.add(running);
+            }
+            queues.remove(this);
+            // OK to cancel() if script already finished
+            for (Invocation invocation : cancel)
+                invocation.cancel(true);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ScriptQueue " + name;
+        }
+    }
+
+    /** Create pool
+     *
+     *  @param threads Maximum number of threads, 0 to add threads as needed
+     *  @param warning_seconds Report scripts that run this long while others are queued, 0 to disable
+     *  @param log_seconds Period for logging statistics at level FINE, 0 to disable
+     */
+    public ScriptPool(final int threads, final int warning_seconds, final int log_seconds)
+    {
+        if (threads > 0)
+        {
+            executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                                              new LinkedBlockingQueue<>(),
+                                              new NamedThreadFactory("ScriptSupport"));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        else
+            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.SECONDS,
+                                              new SynchronousQueue<>(),
+                                              new NamedThreadFactory("ScriptSupport"));
+        warning_nanos = TimeUnit.SECONDS.toNanos(warning_seconds);
+        log_nanos = TimeUnit.SECONDS.toNanos(log_seconds);
+        next_log = new AtomicLong(System.nanoTime() + log_nanos);
+    }
+
+    /** @param name Name of queue, used for messages
+     *  @return {@link ScriptQueue}
+     */
+    public ScriptQueue createQueue(final String name)
+    {
+        final ScriptQueue queue = new ScriptQueue(name);
+        queues.add(queue);
+        return queue;
+    }
+
+    /** @return Statistics of scripts executed by this pool */
+    public ScriptStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /** Log statistics and running scripts once per period */
+    private void logStatistics()
+    {
+        if (log_nanos <= 0  ||  ! logger.isLoggable(Level.FINE))
+            return;
+        final long now = System.nanoTime();
+        final long next = next_log.get();
+        // Only one of several concurrently ending scripts logs
+        if (now - next < 0  ||  ! next_log.compareAndSet(next, now + log_nanos))
+            return;
+        final StringBuilder buf = new StringBuilder();
+        buf.append("Script statistics: ").append(statistics);
+        for (String running : getRunningScripts())
+            buf.append("\nRunning: ").append(running);
+        logger.log(Level.FINE, buf.toString());
+    }
+
+    /** @return Scripts that are currently executing, with the queue they block */
+    public List<String> getRunningScripts()
+    {
+        final List<String> running = new ArrayList<>();
+        for (ScriptQueue queue : queues)
+        {
+            final String info = queue.getRunningInfo();
+            if (info != null)
+                running.add(info);
+        }
+        return running;
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.script.internal;
+
+import java.util.concurrent.TimeUnit;
+
+/** Script execution statistics
+ *
+ *  <p>Counts executed and coalesced script invocations,
+ *  tracks the number of queued invocations
+ *  and keeps a histogram of execution times.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScriptStatistics
+{
+    /** Upper limits of the execution time histogram bins in milliseconds.
+     *  Last bin holds all executions that took longer.
+     */
+    private static final long[] BIN_LIMITS_MS = { 1, 10, 100, 1000, 10000 };
+
+    // SYNC on this
+    private long executed = 0, coalesced = 0, failed = 0;
+    private int queued = 0, max_queued = 0;
+    private long max_nanos = 0;
+    private final long[] bins = new long[BIN_LIMITS_MS.length + 1];
+
+    /** Script invocation has been queued */
+    synchronized void queued()
+    {
+        ++queued;
+        if (queued > max_queued)
+            max_queued = queued;
+    }
+
+    /** Queued script invocation was removed without executing */
+    synchronized void dequeued()
+    {
+        --queued;
+    }
+
+    /** Script invocation was skipped because the script is already queued */
+    synchronized void coalesced()
+    {
+        ++coalesced;
+    }
+
+    /** @param nanos Execution time of script invocation that was queued
+     *  @param success Did it complete without error?
+     */
+    synchronized void executed(final long nanos, final boolean success)
+    {
+        --queued;
+        ++executed;
+        if (! success)
+            ++failed;
+        if (nanos > max_nanos)
+            max_nanos = nanos;
+        final long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bin = 0;
+        while (bin < BIN_LIMITS_MS.length  &&  ms >= BIN_LIMITS_MS[bin])
+            ++bin;
+        ++bins[bin];
+    }
+
+    /** @return Number of executed script invocations */
+    public synchronized long getExecuted()
+    {
+        return executed;
+    }
+
+    /** @return Number of script invocations that failed or were interrupted */
+    public synchronized long getFailed()
+    {
+        return failed;
+    }
+
+    /** @return Number of script invocations that were skipped because the script was already queued */
+    public synchronized long getCoalesced()
+    {
+        return coalesced;
+    }
+
+    /** @return Number of script invocations that are currently queued or executing */
+    public synchronized int getQueued()
+    {
+        return queued;
+    }
+
+    /** @return Maximum number of script invocations that were queued or executing at the same time */
+    public synchronized int getMaxQueued()
+    {
+        return max_queued;
+    }
+
+    /** @return Longest execution time in milliseconds */
+    public synchronized long getMaxExecutionTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(max_nanos);
+    }
+
+    /** @return Upper limits in milliseconds for all but the last bin of the execution time histogram */
+    public static long[] getHistogramLimits()
+    {
+        return BIN_LIMITS_MS.clone();
+    }
+
+    /** @return Number of executions for each bin of the histogram */
+    public synchronized long[] getHistogram()
+    {
+        return bins.clone();
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        synchronized (this)
+        {
+            buf.append(String.format("%d scripts executed, %d failed, %d coalesced, %d queued (max %d), max. execution time %d ms",
+                                     executed, failed, coalesced, queued, max_queued, TimeUnit.NANOSECONDS.toMillis(max_nanos)));
+            buf.append(", execution times: ");
+            for (int bin=0; bin<bins.length; ++bin)
+            {
+                if (bin > 0)
+                    buf.append(", ");
+                if (bin < BIN_LIMITS_MS.length)
+                    buf.append("< ").append(BIN_LIMITS_MS[bin]);
+                else
+                    buf.append(">= ").append(BIN_LIMITS_MS[bin-1]);
+                buf.append(" ms: ").append(bins[bin]);
+            }
+        }
+        return buf.toString();
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2015-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,19 +13,17 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 
 import org.csstudio.display.builder.model.properties.ScriptInfo;
-import org.phoebus.framework.jobs.NamedThreadFactory;
+import org.csstudio.display.builder.runtime.Preferences;
+import org.csstudio.display.builder.runtime.script.internal.ScriptPool.ScriptQueue;
 
 /** Script (Jython, Javascript) Support
  *
@@ -33,25 +31,36 @@ import org.phoebus.framework.jobs.NamedThreadFactory;
  *  Script files are parsed/compiled (possibly slow) and can then be executed
  *  multiple times (hopefully faster).
  *
- *  <p>Scripts are executed on one thread per support/interpreter.
+ *  <p>Scripts are executed one at a time, in order, on a queue per support/interpreter.
+ *  Queues of all supports share the threads of one {@link ScriptPool}.
+ *  Scripts that execute in their own scope may be configured
+ *  to use a queue per script, so they execute concurrently.
  *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class ScriptSupport
 {
-    /** Increment instance numbers across all script support threads */
-    private static final ThreadFactory thread_factory = new NamedThreadFactory("ScriptSupport");
+    /** Thread pool shared by all script supports */
+    private static final ScriptPool pool = new ScriptPool(Preferences.script_threads,
+                                                              Preferences.script_warning_seconds,
+                                                              Preferences.script_statistics_period_secs);
 
-    /** Single thread script executor, shared by Jython and Javascript */
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(thread_factory);
+    private final String name;
 
-    /** Futures of submitted scripts to allow cancellation */
-    private final Queue<Future<Object>> active_scripts = new ConcurrentLinkedQueue<>();
+    /** Script queue, shared by Jython and Javascript */
+    private final ScriptQueue queue;
+
+    /** Queues for scripts that execute in their own scope, by script.
+     *  SYNC on this map
+     */
+    private final Map<Script, ScriptQueue> script_queues = new HashMap<>();
+
+    private boolean closed = false;
 
     // Script supports.
-    // Could provide two executors, one for jython and one for javascript,
-    // but each one needs to be single-threaded because there's only one interpreter
+    // Could provide two queues, one for jython and one for javascript,
+    // but each one needs to execute one script at a time because there's only one interpreter
     // with only one global variable for 'window' etc.
     private final PythonScriptSupport python;
     private final JythonScriptSupport jython;
@@ -60,6 +69,16 @@ public class ScriptSupport
     /** @throws Exception on error */
     public ScriptSupport() throws Exception
     {
+        this("Scripts");
+    }
+
+    /** @param name Name, for example display name, used for messages
+     *  @throws Exception on error
+     */
+    public ScriptSupport(final String name) throws Exception
+    {
+        this.name = name;
+        queue = pool.createQueue(name);
         python = new PythonScriptSupport(this);
         jython = new JythonScriptSupport(this);
         javascript = new JavaScriptSupport(this);
@@ -134,37 +153,57 @@ public class ScriptSupport
     }
 
     /** Request that a script gets executed
+     *  @param script Script to execute
+     *  @param own_scope Does the script execute in its own scope, not sharing an interpreter with other scripts?
      *  @param callable {@link Callable} for executing the script
      *  @return Future for script that was just submitted
      */
-    Future<Object> submit(final Callable<Object> callable)
+    Future<Object> submit(final Script script, final boolean own_scope, final Callable<Object> callable)
     {
-        try
+        if (own_scope  &&  Preferences.script_queue_per_script)
         {
-            final Future<Object> running = executor.submit(callable);
-            // No longer track scripts that have finished
-            active_scripts.removeIf(f -> f.isDone());
-            active_scripts.add(running);
-            return running;
-        }
-        catch (RejectedExecutionException ex)
-        {
-            // Rejection happens when we submit a script while the display has closed down
-            // Log only at fine level for debugging, otherwise OK to skip the script.
-            logger.log(Level.FINE, "Skipping script, display closed", ex);
-            return CompletableFuture.completedFuture(null);
+            final ScriptQueue script_queue;
+            synchronized (script_queues)
+            {
+                if (closed)
+                {
+                    logger.log(Level.FINE, "Skipping script {0}, display closed", script);
+                    return CompletableFuture.completedFuture(null);
+                }
+                script_queue = script_queues.computeIfAbsent(script, s -> pool.createQueue(name + ", " + s));
+            }
+            return script_queue.submit(script, callable);
         }
+        return queue.submit(script, callable);
+    }
+
+    /** @return Statistics of scripts executed by all script supports */
+    public static ScriptStatistics getStatistics()
+    {
+        return pool.getStatistics();
+    }
+
+    /** Locate scripts that block the queue of a display
+     *  @return Scripts that are currently executing
+     */
+    public static List<String> getRunningScripts()
+    {
+        return pool.getRunningScripts();
     }
 
     /** Release resources (interpreter, ...) */
     public void close()
     {
-        // Prevent new scripts from starting
-        executor.shutdown();
-        // Interrupt scripts which are still running
-        // (OK to cancel() if script already finished)
-        for (Future<Object> running : active_scripts)
-            running.cancel(true);
+        // Prevent new scripts from starting,
+        // interrupt scripts which are still running
+        queue.close();
+        synchronized (script_queues)
+        {
+            closed = true;
+            for (ScriptQueue script_queue : script_queues.values())
+                script_queue.close();
+            script_queues.clear();
+        }
 
         jython.close();
     }
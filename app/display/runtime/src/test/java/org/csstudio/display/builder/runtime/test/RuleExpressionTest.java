@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.csstudio.display.builder.model.rules.RuleToScript;
+import org.csstudio.display.builder.runtime.script.internal.RuleExpression;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of rule expressions compiled into Java
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleExpressionTest
+{
+    /** PV values for test */
+    private static class TestInputs implements RuleExpression.Inputs
+    {
+        final double[] values;
+        final String[] texts;
+        final int[] severities;
+
+        TestInputs(final double[] values, final String[] texts, final int[] severities)
+        {
+            this.values = values;
+            this.texts = texts;
+            this.severities = severities;
+        }
+
+        @Override
+        public double getDouble(final int index)
+        {
+            return values[index];
+        }
+
+        @Override
+        public long getLong(final int index)
+        {
+            return (long) values[index];
+        }
+
+        @Override
+        public String getString(final int index)
+        {
+            return texts[index];
+        }
+
+        @Override
+        public int getSeverity(final int index)
+        {
+            return severities[index];
+        }
+
+        @Override
+        public int getLegacySeverity(final int index)
+        {
+            return severities[index] == 0 ? 0 : -1;
+        }
+    }
+
+    private static final TestInputs inputs = new TestInputs(new double[] { 3.5, 7, Double.NaN },
+                                                            new String[] { "3.5", "On", "" },
+                                                            new int[] { 0, 2, 4 });
+
+    private static boolean test(final String expression) throws Exception
+    {
+        final RuleExpression rule = new RuleExpression(expression, 3);
+        return rule.test(inputs);
+    }
+
+    private static void checkUnsupported(final String expression)
+    {
+        final Exception ex = assertThrows(Exception.class, () -> new RuleExpression(expression, 3));
+        System.out.println(ex.getMessage());
+    }
+
+    @Test
+    public void testComparisons() throws Exception
+    {
+        assertThat(test("pv0 > 3"), equalTo(true));
+        assertThat(test("pv0 >= 3.5"), equalTo(true));
+        assertThat(test("pv0 < 3.5"), equalTo(false));
+        assertThat(test("pv0 <= 3.5"), equalTo(true));
+        assertThat(test("pv0 == 3.5"), equalTo(true));
+        assertThat(test("pv0 != 3.5"), equalTo(false));
+        assertThat(test("pvInt0 == 3"), equalTo(true));
+        assertThat(test("pvInt1==7"), equalTo(true));
+        assertThat(test("pvStr1 == \"On\""), equalTo(true));
+        assertThat(test("pvStr1 == 'Off'"), equalTo(false));
+        assertThat(test("pvStr1 != \"Off\""), equalTo(true));
+        assertThat(test("pvSev1 == 2"), equalTo(true));
+        assertThat(test("pvLegacySev1 == -1"), equalTo(true));
+    }
+
+    @Test
+    public void testNaN() throws Exception
+    {
+        // Like Python, only '!=' holds for NaN
+        assertThat(test("pv2 == pv2"), equalTo(false));
+        assertThat(test("pv2 != pv2"), equalTo(true));
+        assertThat(test("pv2 < 1"), equalTo(false));
+        assertThat(test("pv2 >= 1"), equalTo(false));
+        // .. but NaN is true
+        assertThat(test("pv2"), equalTo(true));
+    }
+
+    @Test
+    public void testLogic() throws Exception
+    {
+        assertThat(test("pv0 > 3 and pv1 > 3"), equalTo(true));
+        assertThat(test("pv0 > 5 or pv1 > 5"), equalTo(true));
+        assertThat(test("not pv0 > 5"), equalTo(true));
+        assertThat(test("not (pv0 > 5)"), equalTo(true));
+        assertThat(test("True"), equalTo(true));
+        assertThat(test("False"), equalTo(false));
+        assertThat(test("pvStr2"), equalTo(false));
+        assertThat(test("pvStr1"), equalTo(true));
+        assertThat(test("pvInt0"), equalTo(true));
+
+        // 'and' has higher precedence than 'or'
+        assertThat(test("True or True and False"), equalTo(true));
+        assertThat(test("(True or True) and False"), equalTo(false));
+    }
+
+    @Test
+    public void testArithmetic() throws Exception
+    {
+        assertThat(test("pv0 + 1 == 4.5"), equalTo(true));
+        assertThat(test("pv0 * 2 - 1 == 6"), equalTo(true));
+        assertThat(test("-pv0 == -3.5"), equalTo(true));
+        assertThat(test("pv1 / 2 == 3.5"), equalTo(true));
+        // Python 2 integer division rounds down
+        assertThat(test("pvInt1 / 2 == 3"), equalTo(true));
+        assertThat(test("-pvInt1 / 2 == -4"), equalTo(true));
+        assertThat(test("pvInt1 % 4 == 3"), equalTo(true));
+        assertThat(test("-pvInt1 % 4 == 1"), equalTo(true));
+        assertThat(test("-pv1 % 4 == 1"), equalTo(true));
+        assertThat(test("1e1 == 10"), equalTo(true));
+        assertThat(test("2 + 3 * 4 == 14"), equalTo(true));
+
+        assertThrows(ArithmeticException.class, () -> test("pvInt0 / 0 > 1"));
+        assertThrows(ArithmeticException.class, () -> test("pv0 / 0 > 1"));
+    }
+
+    @Test
+    public void testJavaScriptSyntax() throws Exception
+    {
+        // Rules are written with JavaScript syntax, then patched into Python
+        assertThat(test(patch("pv0 > 3 && pv1 < 8")), equalTo(true));
+        assertThat(test(patch("pv0 > 5 || pvStr1 == \"On\"")), equalTo(true));
+        assertThat(test(patch("!(pv0 > 5)")), equalTo(true));
+        assertThat(test(patch("pvInt0 = 3")), equalTo(true));
+        assertThat(test(patch("true")), equalTo(true));
+        assertThat(test(patch("pv0 > 5 || pv0 > 3 && pv1 > 8")), equalTo(false));
+    }
+
+    /** @param expression JavaScript-type expression
+     *  @return Python, as patched by RuleToScript.javascriptToPythonLogic
+     */
+    private static String patch(final String expression)
+    {
+        return RuleToScript.javascriptToPythonLogic(expression);
+    }
+
+    @Test
+    public void testUnsupported() throws Exception
+    {
+        // Function calls, unknown names
+        checkUnsupported("abs(pv0) > 1");
+        checkUnsupported("len(pvStr0) > 1");
+        checkUnsupported("Math.abs(pv0) > 1");
+        checkUnsupported("x > 1");
+        checkUnsupported("pvs[0] > 1");
+        // No such PV
+        checkUnsupported("pv3 > 1");
+        checkUnsupported("pv01 > 1");
+        // Comparing text with number
+        checkUnsupported("pvStr0 == 3.5");
+        // Chained comparison, bit operations, power
+        checkUnsupported("1 < pv0 < 5");
+        checkUnsupported("pvInt0 & 1");
+        checkUnsupported("pv0 ** 2 > 1");
+        checkUnsupported("pv0 ^ 2 > 1");
+        // Python 2 octal, long
+        checkUnsupported("pvInt0 == 010");
+        checkUnsupported("pvInt0 == 10L");
+        // Syntax errors
+        checkUnsupported("pv0 >");
+        checkUnsupported("(pv0 > 1");
+        checkUnsupported("pvStr0 == \"On");
+        checkUnsupported("pv0 > 1 pv1");
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import java.io.ByteArrayInputStream;
+
+import org.csstudio.display.builder.model.DisplayModel;
+import org.csstudio.display.builder.model.Widget;
+import org.csstudio.display.builder.model.persist.ModelLoader;
+import org.csstudio.display.builder.model.rules.RuleInfo;
+import org.csstudio.display.builder.model.rules.RuleToScript;
+import org.csstudio.display.builder.runtime.pv.PVFactory;
+import org.csstudio.display.builder.runtime.pv.RuntimePV;
+import org.csstudio.display.builder.runtime.script.internal.CompiledRule;
+import org.csstudio.display.builder.runtime.script.internal.Script;
+import org.csstudio.display.builder.runtime.script.internal.ScriptSupport;
+
+/** Measure rules evaluated per second, compiled into Java vs. Jython script
+ *
+ *  <p>Number of evaluations is set via "-Dcount=20000".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RulesDemo
+{
+    private static final int COUNT = Integer.getInteger("count", 20000);
+
+    private static void measure(final String title, final Script rule, final Widget widget, final RuntimePV pv) throws Exception
+    {
+        for (int run=0; run<3; ++run)
+        {
+            final long start = System.nanoTime();
+            for (int i=0; i<COUNT; ++i)
+            {
+                pv.write(i % 2);
+                rule.submit(widget, pv).get();
+            }
+            final double secs = (System.nanoTime() - start) / 1e9;
+            System.out.format("%-10s: %10.0f rules/sec, width %d\n", title, COUNT / secs, widget.propWidth().getValue());
+        }
+    }
+
+    public static void main(final String[] args) throws Exception
+    {
+        // Rectangle with rule-based width
+        final DisplayModel display = ModelLoader.loadModel(RulesDemo.class.getResourceAsStream("/rt_examples/rule_demo.opi"), "rule_demo.opi");
+        final Widget widget = display.runtimeChildren().getChildByName("Rectangle");
+        final RuleInfo rule = widget.propRules().getValue().get(0);
+        final RuntimePV pv = PVFactory.getPV(rule.getPVs().get(0).getName());
+
+        final Script compiled = CompiledRule.compile(widget, rule);
+        if (compiled == null)
+            throw new Exception("Cannot compile " + rule);
+        measure("Compiled", compiled, widget, pv);
+
+        final ScriptSupport scripting = new ScriptSupport();
+        final String script_text = RuleToScript.generatePy(widget, rule);
+        final Script script = scripting.compile(".", "rule.py", new ByteArrayInputStream(script_text.getBytes()));
+        measure("Jython", script, widget, pv);
+
+        scripting.close();
+        PVFactory.releasePV(pv);
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.csstudio.display.builder.runtime.test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.csstudio.display.builder.runtime.WidgetRuntime;
+import org.csstudio.display.builder.runtime.script.internal.ScriptPool;
+import org.csstudio.display.builder.runtime.script.internal.ScriptPool.ScriptQueue;
+import org.csstudio.display.builder.runtime.script.internal.ScriptStatistics;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the {@link ScriptPool}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScriptPoolTest
+{
+    @Test
+    public void testOrder() throws Exception
+    {
+        final ScriptPool pool = new ScriptPool(4, 0, 0);
+        final ScriptQueue queue = pool.createQueue("Test");
+
+        // Scripts of one queue execute in order, one at a time
+        final List<Integer> executed = new ArrayList<>();
+        Future<Object> last = null;
+        for (int i=0; i<1000; ++i)
+        {
+            final int number = i;
+            last = queue.submit("Script " + i, () ->
+            {
+                // Not synchronized, relying on one script at a time
+                executed.add(number);
+                return null;
+            });
+        }
+        last.get(10, TimeUnit.SECONDS);
+        assertThat(executed.size(), equalTo(1000));
+        for (int i=0; i<1000; ++i)
+            assertThat(executed.get(i), equalTo(i));
+
+        final ScriptStatistics stats = pool.getStatistics();
+        assertThat(stats.getExecuted(), equalTo(1000L));
+        assertThat(stats.getQueued(), equalTo(0));
+        queue.close();
+    }
+
+    @Test
+    public void testBlocking() throws Exception
+    {
+        final ScriptPool pool = new ScriptPool(2, 1, 0);
+        final ScriptQueue slow = pool.createQueue("Slow display");
+        final ScriptQueue fast = pool.createQueue("Fast display");
+
+        // Script that blocks its queue
+        final CountDownLatch release = new CountDownLatch(1);
+        slow.submit("sleep.py", () ->
+        {
+            release.await();
+            return null;
+        });
+        final Future<Object> delayed = slow.submit("delayed.py", () -> "Delayed");
+
+        // Other queue still executes
+        final Future<Object> other = fast.submit("other.py", () -> "Done");
+        assertThat(other.get(10, TimeUnit.SECONDS), equalTo("Done"));
+        assertThat(delayed.isDone(), equalTo(false));
+        assertThat(slow.getQueueDepth(), equalTo(1));
+
+        // Blocking script can be located
+        final List<String> running = pool.getRunningScripts();
+        assertThat(running.size(), equalTo(1));
+        assertThat(running.get(0).startsWith("sleep.py in Slow display"), equalTo(true));
+
+        release.countDown();
+        assertThat(delayed.get(10, TimeUnit.SECONDS), equalTo("Delayed"));
+        slow.close();
+        fast.close();
+    }
+
+    @Test
+    public void testStatisticsLog() throws Exception
+    {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final Handler handler = new Handler()
+        {
+            @Override
+            public void publish(final LogRecord record)
+            {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        final Level original_level = WidgetRuntime.logger.getLevel();
+        WidgetRuntime.logger.setLevel(Level.FINE);
+        WidgetRuntime.logger.addHandler(handler);
+        try
+        {
+            final ScriptPool pool = new ScriptPool(1, 0, 1);
+            final ScriptQueue queue = pool.createQueue("Logging display");
+
+            // Not logged before the first period has passed
+            queue.submit("first.py", () -> null).get(10, TimeUnit.SECONDS);
+            assertThat(messages.stream().anyMatch(msg -> msg.startsWith("Script statistics")), equalTo(false));
+
+            TimeUnit.MILLISECONDS.sleep(1100);
+            queue.submit("second.py", () -> null).get(10, TimeUnit.SECONDS);
+            assertThat(messages.stream().anyMatch(msg -> msg.startsWith("Script statistics: 2 scripts executed")), equalTo(true));
+            queue.close();
+        }
+        finally
+        {
+            WidgetRuntime.logger.removeHandler(handler);
+            WidgetRuntime.logger.setLevel(original_level);
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception
+    {
+        final ScriptPool pool = new ScriptPool(0, 0, 0);
+        final ScriptQueue queue = pool.createQueue("Closing display");
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<Object> running = queue.submit("sleep.py", () ->
+        {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return null;
+        });
+        final Future<Object> queued = queue.submit("queued.py", () -> "Never");
+        assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+
+        // Closing interrupts running script and cancels queued script
+        queue.close();
+        assertThat(running.isCancelled(), equalTo(true));
+        assertThat(queued.isCancelled(), equalTo(true));
+
+        // Scripts submitted after close are skipped
+        assertThat(queue.submit("late.py", () -> "Late").get(), equalTo(null));
+
+        // Interrupted script has ended
+        final ScriptStatistics stats = pool.getStatistics();
+        for (int i=0; i<100  &&  stats.getExecuted() < 1; ++i)
+            TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(stats.getExecuted(), equalTo(1L));
+        assertThat(stats.getFailed(), equalTo(1L));
+        assertThat(stats.getQueued(), equalTo(0));
+    }
+}
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -23,19 +24,27 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
 {
     final private ReadWriteLock lock = new InstrumentedReadWriteLock();
     final private List<PlotDataItem<XTYPE>> data;
+    /** Count of changes, -1 when data is provided by caller and might change without notice */
+    final private AtomicLong changes;
 
     /** Construct with existing data
      *  @param data
      */
     public ArrayPlotDataProvider(final List<PlotDataItem<XTYPE>> data)
     {
-        this.data = data;
+        this(data, -1);
     }
 
     /** Construct with internal array */
     public ArrayPlotDataProvider()
     {
-        this(new ArrayList<PlotDataItem<XTYPE>>());
+        this(new ArrayList<PlotDataItem<XTYPE>>(), 0);
+    }
+
+    private ArrayPlotDataProvider(final List<PlotDataItem<XTYPE>> data, final long changes)
+    {
+        this.data = data;
+        this.changes = new AtomicLong(changes);
     }
 
     /** @param item Item to add to the list
@@ -48,6 +57,8 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
         try
         {
             data.add(item);
+            if (changes.get() >= 0)
+                changes.incrementAndGet();
         }
         finally
         {
@@ -73,6 +84,16 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
         return data.get(index);
     }
 
+    /** {@inheritDoc}
+     *
+     *  <p>Changes are only tracked when using the internal array
+     */
+    @Override
+    public long getChangeCount()
+    {
+        return changes.get();
+    }
+
     @Override
     public String toString()
     {
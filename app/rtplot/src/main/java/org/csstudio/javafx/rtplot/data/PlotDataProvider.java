@@ -58,6 +58,22 @@ public interface PlotDataProvider<XTYPE extends Comparable<XTYPE>>
      */
     public PlotDataItem<XTYPE> get(int index);
 
+    /** Indicate changes to the samples
+     *
+     *  <p>The plot may cache information derived from the samples,
+     *  for example a reduced set of samples to paint,
+     *  for as long as the change count remains the same.
+     *
+     *  <p>Must be called while holding the lock.
+     *
+     *  @return Count that increments whenever samples are added or modified,
+     *          or -1 when changes are not tracked
+     */
+    public default long getChangeCount()
+    {
+        return -1;
+    }
+
     //    public String toString()
     //    {
     //        // Derived class should include InstrumentedReadWriteLock#toString()
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+
+import org.csstudio.javafx.rtplot.data.PlotDataItem;
+import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.PlotDataSearch;
+import org.csstudio.javafx.rtplot.internal.util.IntList;
+import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
+
+/** Samples of a trace, reduced for painting
+ *
+ *  <p>When many samples fall into the same pixel column,
+ *  painting them all only re-paints the same pixels.
+ *  For each pixel column, this keeps the first and last sample
+ *  as well as the samples with the lowest and highest value,
+ *  also known as "M4" decimation.
+ *  For samples with min/max or standard deviation,
+ *  the samples with the outermost min/max and value &plusmn; std. deviation
+ *  are kept as well.
+ *  Lines and areas painted from the reduced samples
+ *  thus cover the same pixels as when painting all samples.
+ *
+ *  <p>Only samples within the visible range are considered,
+ *  plus one more sample on each end.
+ *  Requires samples that are ordered by position.
+ *  The reduced samples are cached until the data,
+ *  as indicated by {@link PlotDataProvider#getChangeCount()},
+ *  or the horizontal axis change.
+ *
+ *  <p>The reduced samples refer to the original samples by index,
+ *  so they must be accessed while holding the lock of the original data.
+ *
+ *  @param <XTYPE> Data type of horizontal {@link org.csstudio.javafx.rtplot.Axis}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class DecimatedData<XTYPE extends Comparable<XTYPE>> implements PlotDataProvider<XTYPE>
+{
+    /** Reduce samples when there are more than this many per pixel column */
+    static final int THRESHOLD = 8;
+
+    /** Kinds of samples that are painted differently */
+    private static final int HAS_RANGE = 1, HAS_STDDEV = 2;
+
+    private final PlotDataProvider<XTYPE> data;
+    private final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
+
+    /** Are samples ordered? Valid for 'ordered_changes', 'ordered_size' */
+    private boolean ordered = false;
+    private long ordered_changes = -1;
+    private int ordered_size = -1;
+
+    /** Parameters for which 'indices' were computed */
+    private long changes = -1;
+    private int size = -1, x = -1, width = -1;
+    private XTYPE x0 = null, x1 = null;
+
+    /** Was data reduced, or do all samples need to be painted? */
+    private boolean reduced = false;
+
+    /** Indices of the samples to paint */
+    private final IntList indices = new IntList(1000);
+
+    /** Samples in current pixel column */
+    private final int[] column = new int[8];
+
+    /** @param data Original data */
+    DecimatedData(final PlotDataProvider<XTYPE> data)
+    {
+        this.data = data;
+    }
+
+    /** @return Original data */
+    PlotDataProvider<XTYPE> getData()
+    {
+        return data;
+    }
+
+    /** Reduce samples for painting
+     *
+     *  <p>Must be called while holding the lock of the data.
+     *
+     *  @param x_transform Coordinate transform of the horizontal axis
+     *  @param bounds Bounds of the plot area
+     *  @return This reduced data, or the original data if it could not be reduced
+     */
+    PlotDataProvider<XTYPE> reduce(final ScreenTransform<XTYPE> x_transform, final Rectangle bounds)
+    {
+        final int N = data.size();
+        final long change_count = data.getChangeCount();
+        // Samples half a pixel outside of the bounds still round into the first resp. last column
+        final XTYPE left = x_transform.inverse(bounds.x - 1);
+        final XTYPE right = x_transform.inverse(bounds.getMaxX() + 1);
+
+        // Use cached result?
+        if (change_count >= 0  &&  change_count == changes  &&  N == size  &&
+            bounds.x == x  &&  bounds.width == width  &&
+            Objects.equals(left, x0)  &&  Objects.equals(right, x1))
+            return reduced ? this : data;
+
+        changes = change_count;
+        size = N;
+        x = bounds.x;
+        width = bounds.width;
+        x0 = left;
+        x1 = right;
+        indices.clear();
+        reduced = false;
+
+        if (width <= 0  ||  N <= THRESHOLD * width  ||  !isOrdered(N, change_count))
+            return data;
+
+        // Determine first and last sample to reduce, then go one sample further on each end
+        int start = search.findSampleLessOrEqual(data, left);
+        start = start < 0 ? 0 : Math.max(0, start-1);
+        int end = search.findSampleGreaterOrEqual(data, right);
+        end = end < 0 ? N : Math.min(end+1, N);
+        if (end - start <= THRESHOLD * width)
+            return data;
+
+        decimate(x_transform, start, end);
+        reduced = true;
+        return this;
+    }
+
+    /** @param N Number of samples
+     *  @param change_count Change count of data
+     *  @return <code>true</code> if samples are ordered by position
+     */
+    private boolean isOrdered(final int N, final long change_count)
+    {
+        if (change_count >= 0  &&  change_count == ordered_changes  &&  N == ordered_size)
+            return ordered;
+        ordered_changes = change_count;
+        ordered_size = N;
+        ordered = true;
+        XTYPE last = data.get(0).getPosition();
+        for (int i=1; i<N; ++i)
+        {
+            final XTYPE pos = data.get(i).getPosition();
+            if (pos.compareTo(last) < 0)
+            {
+                ordered = false;
+                break;
+            }
+            last = pos;
+        }
+        return ordered;
+    }
+
+    /** Fill 'indices' with samples to paint
+     *  @param x_transform Coordinate transform of the horizontal axis
+     *  @param start Start and ..
+     *  @param end .. end index of samples to reduce
+     */
+    private void decimate(final ScreenTransform<XTYPE> x_transform, final int start, final int end)
+    {
+        // Current pixel column and kind of samples in it
+        long pixel = Long.MIN_VALUE;
+        int kind = -1;
+        int first = -1, last = -1;
+        int min_i = -1, max_i = -1, low_i = -1, high_i = -1, lower_i = -1, upper_i = -1;
+        double min = 0, max = 0, low = 0, high = 0, lower = 0, upper = 0;
+        boolean in_gap = false;
+
+        for (int i=start; i<end; ++i)
+        {
+            final PlotDataItem<XTYPE> item = data.get(i);
+            final double value = item.getValue();
+            if (Double.isNaN(value))
+            {   // Keep one sample of each gap
+                if (first >= 0)
+                    addColumn(first, last, min_i, max_i, low_i, high_i, lower_i, upper_i);
+                first = -1;
+                if (! in_gap)
+                    indices.add(i);
+                in_gap = true;
+                continue;
+            }
+            in_gap = false;
+
+            final long px = Math.round(x_transform.transform(item.getPosition()));
+            final double item_low = item.getMin(), item_high = item.getMax(), dev = item.getStdDev();
+            final int item_kind = (Double.isNaN(item_low) || Double.isNaN(item_high) ? 0 : HAS_RANGE) |
+                                  (dev > 0 ? HAS_STDDEV : 0);
+            // Start new column for new pixel, or when samples change between
+            // having and not having min/max, because that causes a gap in the area
+            if (first < 0  ||  px != pixel  ||  item_kind != kind)
+            {
+                if (first >= 0)
+                    addColumn(first, last, min_i, max_i, low_i, high_i, lower_i, upper_i);
+                pixel = px;
+                kind = item_kind;
+                first = last = min_i = max_i = i;
+                min = max = value;
+                low_i = high_i = lower_i = upper_i = -1;
+            }
+            else
+            {
+                last = i;
+                if (value < min)
+                {
+                    min = value;
+                    min_i = i;
+                }
+                if (value > max)
+                {
+                    max = value;
+                    max_i = i;
+                }
+            }
+            if ((item_kind & HAS_RANGE) != 0)
+            {
+                if (low_i < 0  ||  item_low < low)
+                {
+                    low = item_low;
+                    low_i = i;
+                }
+                if (high_i < 0  ||  item_high > high)
+                {
+                    high = item_high;
+                    high_i = i;
+                }
+            }
+            if ((item_kind & HAS_STDDEV) != 0)
+            {
+                if (lower_i < 0  ||  value - dev < lower)
+                {
+                    lower = value - dev;
+                    lower_i = i;
+                }
+                if (upper_i < 0  ||  value + dev > upper)
+                {
+                    upper = value + dev;
+                    upper_i = i;
+                }
+            }
+        }
+        if (first >= 0)
+            addColumn(first, last, min_i, max_i, low_i, high_i, lower_i, upper_i);
+    }
+
+    /** Add sample indices of one pixel column, in order, without duplicates
+     *  @param idx Indices, -1 for unused
+     */
+    private void addColumn(final int... idx)
+    {
+        int n = 0;
+        for (int i : idx)
+            if (i >= 0)
+                column[n++] = i;
+        Arrays.sort(column, 0, n);
+        for (int i=0; i<n; ++i)
+            if (i == 0  ||  column[i] != column[i-1])
+                indices.add(column[i]);
+    }
+
+    @Override
+    public Lock getLock()
+    {
+        return data.getLock();
+    }
+
+    @Override
+    public int size()
+    {
+        return indices.size();
+    }
+
+    @Override
+    public PlotDataItem<XTYPE> get(final int index)
+    {
+        return data.get(indices.get(index));
+    }
+
+    @Override
+    public long getChangeCount()
+    {
+        return data.getChangeCount();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Decimated to " + indices.size() + " samples: " + data;
+    }
+}
@@ -19,9 +19,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.IntToDoubleFunction;
-import java.util.function.ToDoubleFunction;
-import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 
 import org.csstudio.javafx.rtplot.Axis;
@@ -35,11 +32,9 @@ import org.csstudio.javafx.rtplot.data.ValueRange;
 import org.csstudio.javafx.rtplot.internal.undo.ChangeImageZoom;
 import org.csstudio.javafx.rtplot.internal.util.GraphicsUtils;
 import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
-import org.csstudio.javafx.rtplot.internal.util.Log10;
 import org.epics.util.array.ArrayByte;
 import org.epics.util.array.ArrayInteger;
 import org.epics.util.array.ArrayShort;
-import org.epics.util.array.IteratorNumber;
 import org.epics.util.array.ListNumber;
 import org.epics.vtype.VImageType;
 import org.phoebus.ui.javafx.BufferUtil;
@@ -440,53 +435,6 @@ public class ImagePlot extends PlotCanvasBase
         x_axis.setBounds(image_area.x, image_area.height, image_area.width, x_axis_height);
     }
 
-    // Functionals for reading the next Number as an unsigned value
-    private static double getUnsignedByte(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt(iter.nextByte());
-    }
-
-    private static double getUnsignedShort(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt(iter.nextShort());
-    }
-
-    private static double getUnsignedInt(final IteratorNumber iter)
-    {
-        return Integer.toUnsignedLong(iter.nextInt());
-    }
-
-    // Functionals for RGB
-    private static int getUByteForRGB(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt(iter.nextByte());
-    }
-
-    private static int getUShortForRGB(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt(iter.nextShort());
-    }
-
-    private static int getUIntForRGB(final IteratorNumber iter)
-    {
-        return iter.nextInt();
-    }
-
-    private static int getByteForRGB(final IteratorNumber iter)
-    {
-        return Byte.toUnsignedInt((byte)(iter.nextByte()+Byte.MIN_VALUE));
-    }
-
-    private static int getShortForRGB(final IteratorNumber iter)
-    {
-        return Short.toUnsignedInt((short)(iter.nextShort()+Short.MIN_VALUE));
-    }
-
-    private static int getIntForRGB(final IteratorNumber iter)
-    {
-        return iter.nextInt()+Integer.MIN_VALUE;
-    }
-
     /** Buffers used to create the next image buffer */
     private final DoubleBuffer buffers = new DoubleBuffer();
 
@@ -526,77 +474,9 @@ public class ImagePlot extends PlotCanvasBase
         final VImageType type = this.vimage_type;
         final ColorMappingFunction color_mapping = this.color_mapping;
 
-        ToDoubleFunction<IteratorNumber> next_sample_func = IteratorNumber::nextDouble;
-        boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
-        @SuppressWarnings("unchecked")
-        final ToIntFunction<IteratorNumber> next_rgb [] = new ToIntFunction [3];
-        if (numbers != null)
-        {
-            if (isRGB)
-            {
-                if (numbers instanceof ArrayShort)
-                {
-                    if (unsigned)
-                    {
-                        next_rgb[0] = (iter) -> getUShortForRGB(iter) << 8 & 0xFF0000;
-                        next_rgb[1] = (iter) -> getUShortForRGB(iter) & 0xFF00;
-                        next_rgb[2] = (iter) -> getUShortForRGB(iter) >>> 8;
-                    }
-                    else
-                    {
-                        next_rgb[0] = (iter) -> getShortForRGB(iter) << 8 & 0xFF0000;
-                        next_rgb[1] = (iter) -> getShortForRGB(iter) & 0xFF00;
-                        next_rgb[2] = (iter) -> getShortForRGB(iter) >>> 8;
-                    }
-                }
-                if (numbers instanceof ArrayInteger)
-                {
-                    if (unsigned)
-                    {
-                        next_rgb[0] = (iter) -> getUIntForRGB(iter) >>> 8 & 0xFF0000;
-                        next_rgb[1] = (iter) -> getUIntForRGB(iter) >>> 16 & 0xFF00;
-                        next_rgb[2] = (iter) -> getUIntForRGB(iter) >>> 24;
-                    }
-                    else
-                    {
-                        next_rgb[0] = (iter) -> getIntForRGB(iter) >>> 8 & 0xFF0000;
-                        next_rgb[1] = (iter) -> getIntForRGB(iter) >>> 16 & 0xFF00;
-                        next_rgb[2] = (iter) -> getIntForRGB(iter) >>> 24;
-                    }
-                }
-                else
-                {
-                    if (!(numbers instanceof ArrayByte))
-                        logger.log(Level.WARNING, "Cannot handle rgb1 image data of type " + numbers.getClass().getName());
-                    if (unsigned)
-                    {
-                        next_rgb[0] = (iter) -> getUByteForRGB(iter) << 16;
-                        next_rgb[1] = (iter) -> getUByteForRGB(iter) << 8;
-                        next_rgb[2] = (iter) -> getUByteForRGB(iter);
-                    }
-                    else
-                    {
-                        next_rgb[0] = (iter) -> getByteForRGB(iter) << 16;
-                        next_rgb[1] = (iter) -> getByteForRGB(iter) << 8;
-                        next_rgb[2] = (iter) -> getByteForRGB(iter);
-                    }
-                }
-            }
-            else //is not RGB
-            {
-                if (unsigned)
-                {
-                    if (numbers instanceof ArrayShort)
-                        next_sample_func = ImagePlot::getUnsignedShort;
-                    else if (numbers instanceof ArrayByte)
-                        next_sample_func = ImagePlot::getUnsignedByte;
-                    else if (numbers instanceof ArrayInteger)
-                        next_sample_func = ImagePlot::getUnsignedInt;
-                    else
-                        logger.log(Level.WARNING, "Cannot handle unsigned data of type " + numbers.getClass().getName());
-                }
-            }
-        }
+        final boolean isRGB = type == VImageType.TYPE_RGB1 || type == VImageType.TYPE_RGB2 || type == VImageType.TYPE_RGB3;
+        // Primitive array behind the data, fetched once for autoscale and drawing
+        final Object array = numbers == null ? null : ImageRenderer.getArray(numbers);
 
         // Transform from full axis range into data range,
         // using the current 'zoom' state of each axis
@@ -625,33 +505,16 @@ public class ImagePlot extends PlotCanvasBase
         double min_value = this.min, max_value = this.max;
         if (autoscale  &&  numbers != null  &&  !isRGB)
         {   // Determine value range within the potentially zoomed/panned data
-            min_value = Double.MAX_VALUE;
-            max_value = Double.NEGATIVE_INFINITY;
-
-            // Fetch sample by index, honoring 'unsigned' data
-            IntToDoubleFunction get_sample_func = numbers::getDouble;
-            if (unsigned)
+            if (numbers.size() >= data_width * data_height)
             {
-                if (numbers instanceof ArrayShort)
-                    get_sample_func = index -> Short.toUnsignedInt(numbers.getShort(index));
-                else if (numbers instanceof ArrayByte)
-                    get_sample_func = index -> Byte.toUnsignedInt(numbers.getByte(index));
-                else if (numbers instanceof ArrayInteger)
-                    get_sample_func = index -> Integer.toUnsignedLong(numbers.getInt(index));
-                else
-                    logger.log(Level.WARNING, "Cannot handle unsigned data of type " + numbers.getClass().getName());
+                final double[] range = ImageRenderer.findRange(array, unsigned, data_width, src_x1, src_x2, src_y1, src_y2);
+                min_value = range[0];
+                max_value = range[1];
             }
-            for (int y=src_y1;  y<src_y2;  ++y)
+            else
             {
-                int row = y * data_width;
-                for (int x=src_x1;  x<src_x2;  ++x)
-                {
-                    final double sample = get_sample_func.applyAsDouble(x + row);
-                    if (sample > max_value)
-                        max_value = sample;
-                    if (sample < min_value)
-                        min_value = sample;
-                }
+                min_value = Double.MAX_VALUE;
+                max_value = Double.NEGATIVE_INFINITY;
             }
             logger.log(Level.FINE, "Autoscale range {0} .. {1}", new Object[] { min_value, max_value });
         }
@@ -684,8 +547,8 @@ public class ImagePlot extends PlotCanvasBase
             // Paint the image
             gc.setClip(image_area.x, image_area.y, image_area.width, image_area.height);
             final Object image_or_error =  !isRGB ?
-                    drawData(data_width, data_height, numbers, next_sample_func, min_value, max_value, color_mapping) :
-                    drawDataRGB(data_width, data_height, numbers, next_rgb, type);
+                    drawData(data_width, data_height, numbers, array, unsigned, min_value, max_value, color_mapping) :
+                    drawDataRGB(data_width, data_height, numbers, array, unsigned, type);
             if (image_or_error instanceof BufferedImage)
             {
                 final BufferedImage unscaled = (BufferedImage) image_or_error;
@@ -852,7 +715,8 @@ public class ImagePlot extends PlotCanvasBase
         return image;
     }
 
-    // private static long runs = 0, avg_nano = 0;
+    /** Renders image data into the data buffers */
+    private final ImageRenderer renderer = new ImageRenderer();
 
     /** Buffers used for the data (to be merged/scaled into the complete image) */
     private final DoubleBuffer data_buffers = new DoubleBuffer();
@@ -860,18 +724,17 @@ public class ImagePlot extends PlotCanvasBase
     /** @param data_width
      *  @param data_height
      *  @param numbers
-     *  @param next_sample_func
+     *  @param array Primitive array of the numbers
+     *  @param unsigned
      *  @param min
      *  @param max
      *  @param color_mapping
      *  @return {@link BufferedImage}, sized to match data or String with error message
      */
     private Object drawData(final int data_width, final int data_height, final ListNumber numbers,
-                                   final ToDoubleFunction<IteratorNumber> next_sample_func,
-                                   double min, double max, final ColorMappingFunction color_mapping)
+                            final Object array, final boolean unsigned,
+                            double min, double max, final ColorMappingFunction color_mapping)
     {
-        // final long start = System.nanoTime();
-
         if (data_width <= 0  ||  data_height <= 0)
         {
             // With invalid size, cannot create a BufferedImage, not even for the error message
@@ -899,62 +762,23 @@ public class ImagePlot extends PlotCanvasBase
         // Creating a byte[] with one byte per pixel and ColorModel based on color map is fastest,
         // but only 8 bits per pixel instead of 8 bits each for R, G and B isn't enough resolution.
         // Rounding of values into 8 bits creates artifacts.
+        // Renderer uses a color lookup table with 16 bit resolution.
         final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-        final IteratorNumber iter = numbers.iterator();
-        int idx = 0;
-
-        if (colorbar_axis.isLogarithmic())
-        {
-            final double lmin = Log10.log10(min),
-                         lmax = Log10.log10(max),
-                         span = lmax - lmin;
-            for (int y=0; y<data_height; ++y)
-                for (int x=0; x<data_width; ++x)
-                {
-                    final double sample = Log10.log10(next_sample_func.applyAsDouble(iter));
-                    double scaled = (sample - lmin) / span;
-                    if (scaled < 0.0)
-                        scaled = 0;
-                    else if (scaled > 1.0)
-                        scaled = 1.0;
-                    data[idx++] = color_mapping.getRGB(scaled);
-                }
-        }
-        else
-        {
-            final double span = max - min;
-            for (int y=0; y<data_height; ++y)
-                for (int x=0; x<data_width; ++x)
-                {
-                    final double sample = next_sample_func.applyAsDouble(iter);
-                    double scaled = (sample - min) / span;
-                    if (scaled < 0.0)
-                        scaled = 0;
-                    else if (scaled > 1.0)
-                        scaled = 1.0;
-                    data[idx++] = color_mapping.getRGB(scaled);
-                }
-        }
-        // final long nano = System.nanoTime() - start;
-        // avg_nano = (avg_nano*3 + nano)/4;
-        // if (++runs > 100)
-        // {
-        //     runs = 0;
-        //    System.out.println(avg_nano/1e6 + " ms");
-        // }
-
+        renderer.render(array, unsigned, data_width, data_height, min, max,
+                        colorbar_axis.isLogarithmic(), color_mapping, data);
         return image;
     }
 
     /** @param data_width
      *  @param data_height
      *  @param numbers
-     *  @param next_rgbs
+     *  @param array Primitive array of the numbers
+     *  @param unsigned
      *  @param type RGB type (RGB1, RGB2, or RGB3)
      *  @return {@link BufferedImage}, sized to match data
      */
     private Object drawDataRGB(final int data_width, final int data_height, final ListNumber numbers,
-                               final ToIntFunction<IteratorNumber> next_rgbs [], final VImageType type)
+                               final Object array, final boolean unsigned, final VImageType type)
     {
         if (data_width <= 0  ||  data_height <= 0)
         {
@@ -972,42 +796,7 @@ public class ImagePlot extends PlotCanvasBase
 
         // Using direct access to 'int' pixels in data buffer for speed. See other drawData() for details.
         final int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-        final IteratorNumber iter = numbers.iterator();
-
-        switch(type)
-        {
-            case TYPE_RGB2:
-                for (int y_times_width = 0; y_times_width < data_height*data_width; y_times_width += data_width)
-                {
-                    //red
-                    for (int x = 0; x < data_width; ++x)
-                        data[y_times_width + x] = 0xFF000000 | next_rgbs[0].applyAsInt(iter);
-                    //green
-                    for (int x = 0; x < data_width; ++x)
-                        data[y_times_width + x] |= next_rgbs[1].applyAsInt(iter);
-                    //blue
-                    for (int x = 0; x < data_width; ++x)
-                        data[y_times_width + x] |= next_rgbs[2].applyAsInt(iter);
-                }
-                break;
-            case TYPE_RGB3:
-                //red
-                for (int i = 0; i < data_height*data_width; ++i)
-                    data[i] = 0xFF000000 | next_rgbs[0].applyAsInt(iter);
-                //green
-                for (int i = 0; i < data_height*data_width; ++i)
-                    data[i] |= next_rgbs[1].applyAsInt(iter);
-                //blue
-                for (int i = 0; i < data_height*data_width; ++i)
-                    data[i] |= next_rgbs[2].applyAsInt(iter);
-                break;
-            default:
-                throw new IllegalArgumentException("Image type must be an RGB type");
-                //no "break;"
-            case TYPE_RGB1:
-                for (int i = 0; i < data_height*data_width; ++i)
-                    data[i] = 0xFF000000 | next_rgbs[0].applyAsInt(iter) | next_rgbs[1].applyAsInt(iter) | next_rgbs[2].applyAsInt(iter);
-        }
+        ImageRenderer.renderRGB(array, unsigned, type, data_width, data_height, data);
 
         return image;
     }
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import java.util.stream.IntStream;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.csstudio.javafx.rtplot.internal.util.Log10;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListByte;
+import org.epics.util.array.ListFloat;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ListLong;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListShort;
+import org.epics.vtype.VImageType;
+
+/** Render image data into ARGB pixels
+ *
+ *  <p>Reads the primitive array behind the image data
+ *  instead of calling an iterator for each sample,
+ *  maps values to colors via a lookup table,
+ *  and renders sections of rows in parallel.
+ *
+ *  <p>For 8 and 16 bit data, the lookup table is indexed by the raw sample,
+ *  resulting in the same colors as calling the color mapping for each sample.
+ *  For other data types, the value range is quantized into {@link #LUT_SIZE} steps,
+ *  which is still much finer than the 8 bits of each color component.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class ImageRenderer
+{
+    /** Size of lookup table for data that is not 8 bit */
+    static final int LUT_SIZE = 65536;
+
+    /** Minimum number of pixels to handle in one parallel section */
+    static final int SECTION_PIXELS = 64 * 1024;
+
+    /** Lookup table, ARGB for raw 8 or 16 bit samples or quantized values */
+    private int[] lut = null;
+
+    /** Color for NaN values */
+    private int nan_rgb;
+
+    /** Parameters for which 'lut' was computed */
+    private Class<?> lut_type = null;
+    private ColorMappingFunction lut_mapping = null;
+    private boolean lut_unsigned, lut_log;
+    private double lut_min, lut_max;
+
+    /** For quantized lookup: Low end of value range (log10 if 'lut_log') and scaling to LUT index */
+    private double low, scale;
+
+    /** Handler for a section of rows */
+    @FunctionalInterface
+    private static interface Section
+    {
+        /** @param section Index of section
+         *  @param start First row
+         *  @param end Row after the last row of the section
+         */
+        void render(int section, int start, int end);
+    }
+
+    /** @param rows Number of rows
+     *  @param width Pixels per row
+     *  @return Number of sections for parallel processing
+     */
+    private static int getSectionCount(final int rows, final int width)
+    {
+        return (int) Math.max(1, Math.min(rows, (long) rows * width / SECTION_PIXELS));
+    }
+
+    /** Handle rows in parallel sections
+     *  @param sections Number of sections
+     *  @param rows Number of rows
+     *  @param section Handler for each section
+     */
+    private static void forSections(final int sections, final int rows, final Section section)
+    {
+        if (sections <= 1)
+            section.render(0, 0, rows);
+        else
+            IntStream.range(0, sections)
+                     .parallel()
+                     .forEach(s -> section.render(s, (int) ((long) rows * s / sections),
+                                                     (int) ((long) rows * (s+1) / sections)));
+    }
+
+    /** Get primitive array of image data
+     *
+     *  <p>Returns the array wrapped by the image data,
+     *  or a copy if the data is not backed by a plain array.
+     *
+     *  @param numbers Image data
+     *  @return byte[], short[], int[], long[], float[] or double[]
+     */
+    static Object getArray(final ListNumber numbers)
+    {
+        final Object array = CollectionNumbers.wrappedArray(numbers);
+        if (array != null)
+            return array;
+
+        final int N = numbers.size();
+        if (numbers instanceof ListByte)
+        {
+            final byte[] copy = new byte[N];
+            for (int i=0; i<N; ++i)
+                copy[i] = numbers.getByte(i);
+            return copy;
+        }
+        if (numbers instanceof ListShort)
+        {
+            final short[] copy = new short[N];
+            for (int i=0; i<N; ++i)
+                copy[i] = numbers.getShort(i);
+            return copy;
+        }
+        if (numbers instanceof ListInteger)
+        {
+            final int[] copy = new int[N];
+            for (int i=0; i<N; ++i)
+                copy[i] = numbers.getInt(i);
+            return copy;
+        }
+        if (numbers instanceof ListLong)
+        {
+            final long[] copy = new long[N];
+            for (int i=0; i<N; ++i)
+                copy[i] = numbers.getLong(i);
+            return copy;
+        }
+        if (numbers instanceof ListFloat)
+        {
+            final float[] copy = new float[N];
+            for (int i=0; i<N; ++i)
+                copy[i] = numbers.getFloat(i);
+            return copy;
+        }
+        final double[] copy = new double[N];
+        for (int i=0; i<N; ++i)
+            copy[i] = numbers.getDouble(i);
+        return copy;
+    }
+
+    /** Determine value range of a region in the image
+     *  @param array Image data from {@link #getArray(ListNumber)}
+     *  @param unsigned Treat byte, short, int as unsigned?
+     *  @param width Image width
+     *  @param x1 First column ..
+     *  @param x2 .. and column after the last column of the region
+     *  @param y1 First row ..
+     *  @param y2 .. and row after the last row of the region
+     *  @return { min, max }, min &gt; max when there are no valid samples
+     */
+    static double[] findRange(final Object array, final boolean unsigned, final int width,
+                              final int x1, final int x2, final int y1, final int y2)
+    {
+        final int sections = getSectionCount(y2 - y1, x2 - x1);
+        final double[] min = new double[sections], max = new double[sections];
+        forSections(sections, y2 - y1, (section, start, end) ->
+        {
+            double low = Double.MAX_VALUE, high = Double.NEGATIVE_INFINITY;
+            for (int y=y1+start; y<y1+end; ++y)
+            {
+                final int from = y * width + x1, to = y * width + x2;
+                if (array instanceof byte[])
+                {
+                    final byte[] data = (byte[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final int sample = unsigned ? Byte.toUnsignedInt(data[i]) : data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+                else if (array instanceof short[])
+                {
+                    final short[] data = (short[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final int sample = unsigned ? Short.toUnsignedInt(data[i]) : data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+                else if (array instanceof int[])
+                {
+                    final int[] data = (int[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final long sample = unsigned ? Integer.toUnsignedLong(data[i]) : data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+                else if (array instanceof long[])
+                {
+                    final long[] data = (long[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final double sample = data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+                else if (array instanceof float[])
+                {
+                    final float[] data = (float[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final double sample = data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+                else
+                {
+                    final double[] data = (double[]) array;
+                    for (int i=from; i<to; ++i)
+                    {
+                        final double sample = data[i];
+                        if (sample < low)
+                            low = sample;
+                        if (sample > high)
+                            high = sample;
+                    }
+                }
+            }
+            min[section] = low;
+            max[section] = high;
+        });
+
+        final double[] range = { Double.MAX_VALUE, Double.NEGATIVE_INFINITY };
+        for (int s=0; s<sections; ++s)
+        {
+            range[0] = Math.min(range[0], min[s]);
+            range[1] = Math.max(range[1], max[s]);
+        }
+        return range;
+    }
+
+    /** Update lookup table
+     *  @param type Type of array
+     *  @param unsigned Treat byte, short as unsigned?
+     *  @param min Value range ..
+     *  @param max .. to map onto color map, must be valid with min &lt; max
+     *  @param log Use log scale?
+     *  @param color_mapping Color mapping
+     */
+    private void updateLookup(final Class<?> type, final boolean unsigned,
+                              final double min, final double max, final boolean log,
+                              final ColorMappingFunction color_mapping)
+    {
+        if (lut != null  &&  type == lut_type  &&  unsigned == lut_unsigned  &&  log == lut_log  &&
+            min == lut_min  &&  max == lut_max  &&  color_mapping == lut_mapping)
+            return;
+        lut_type = type;
+        lut_unsigned = unsigned;
+        lut_log = log;
+        lut_min = min;
+        lut_max = max;
+        lut_mapping = color_mapping;
+
+        low = log ? Log10.log10(min) : min;
+        final double span = (log ? Log10.log10(max) : max) - low;
+        nan_rgb = color_mapping.getRGB(Double.NaN);
+
+        if (type == byte[].class  ||  type == short[].class)
+        {   // Entry for each raw sample
+            final boolean bytes = type == byte[].class;
+            final int size = bytes ? 256 : 65536;
+            if (lut == null  ||  lut.length != size)
+                lut = new int[size];
+            for (int raw=0; raw<size; ++raw)
+            {
+                final double value;
+                if (unsigned)
+                    value = raw;
+                else
+                    value = bytes ? (byte) raw : (short) raw;
+                double scaled = ((log ? Log10.log10(value) : value) - low) / span;
+                if (scaled < 0.0)
+                    scaled = 0;
+                else if (scaled > 1.0)
+                    scaled = 1.0;
+                lut[raw] = color_mapping.getRGB(scaled);
+            }
+        }
+        else
+        {   // Quantized value range
+            if (lut == null  ||  lut.length != LUT_SIZE)
+                lut = new int[LUT_SIZE];
+            for (int i=0; i<LUT_SIZE; ++i)
+                lut[i] = color_mapping.getRGB(i / (LUT_SIZE - 1.0));
+            scale = (LUT_SIZE - 1) / span;
+        }
+    }
+
+    /** @param lut Quantized lookup table
+     *  @param nan_rgb Color for NaN
+     *  @param low Low end of value range
+     *  @param scale Scaling from value to table index
+     *  @param value Value
+     *  @return ARGB from quantized lookup table
+     */
+    private static int lookup(final int[] lut, final int nan_rgb, final double low, final double scale, final double value)
+    {
+        final double scaled = (value - low) * scale;
+        if (scaled > 0)
+            return lut[scaled < LUT_SIZE - 1 ? (int) (scaled + 0.5) : LUT_SIZE - 1];
+        if (scaled <= 0)
+            return lut[0];
+        return nan_rgb;
+    }
+
+    /** Render image with color map
+     *  @param array Image data from {@link #getArray(ListNumber)}
+     *  @param unsigned Treat byte, short, int as unsigned?
+     *  @param width Image width
+     *  @param height Image height
+     *  @param min Value range ..
+     *  @param max .. to map onto color map, must be valid with min &lt; max
+     *  @param log Use log scale?
+     *  @param color_mapping Color mapping
+     *  @param pixels ARGB pixels of image
+     */
+    void render(final Object array, final boolean unsigned,
+                final int width, final int height,
+                final double min, final double max, final boolean log,
+                final ColorMappingFunction color_mapping, final int[] pixels)
+    {
+        updateLookup(array.getClass(), unsigned, min, max, log, color_mapping);
+        final int[] lut = this.lut;
+        final int nan_rgb = this.nan_rgb;
+        final double low = this.low, scale = this.scale;
+        forSections(getSectionCount(height, width), height, (section, start, end) ->
+        {
+            final int from = start * width, to = end * width;
+            if (array instanceof byte[])
+                render((byte[]) array, lut, from, to, pixels);
+            else if (array instanceof short[])
+                render((short[]) array, lut, from, to, pixels);
+            else if (log)
+                for (int i=from; i<to; ++i)
+                    pixels[i] = lookup(lut, nan_rgb, low, scale, Log10.log10(getDouble(array, unsigned, i)));
+            else if (array instanceof int[])
+                render((int[]) array, unsigned, lut, nan_rgb, low, scale, from, to, pixels);
+            else if (array instanceof long[])
+                render((long[]) array, lut, nan_rgb, low, scale, from, to, pixels);
+            else if (array instanceof float[])
+                render((float[]) array, lut, nan_rgb, low, scale, from, to, pixels);
+            else
+                render((double[]) array, lut, nan_rgb, low, scale, from, to, pixels);
+        });
+    }
+
+    // Separate loop for each data type keeps each one simple for the JIT compiler
+
+    private static void render(final byte[] data, final int[] lut, final int from, final int to, final int[] pixels)
+    {
+        for (int i=from; i<to; ++i)
+            pixels[i] = lut[data[i] & 0xFF];
+    }
+
+    private static void render(final short[] data, final int[] lut, final int from, final int to, final int[] pixels)
+    {
+        for (int i=from; i<to; ++i)
+            pixels[i] = lut[data[i] & 0xFFFF];
+    }
+
+    private static void render(final int[] data, final boolean unsigned,
+                               final int[] lut, final int nan_rgb, final double low, final double scale,
+                               final int from, final int to, final int[] pixels)
+    {
+        if (unsigned)
+            for (int i=from; i<to; ++i)
+                pixels[i] = lookup(lut, nan_rgb, low, scale, Integer.toUnsignedLong(data[i]));
+        else
+            for (int i=from; i<to; ++i)
+                pixels[i] = lookup(lut, nan_rgb, low, scale, data[i]);
+    }
+
+    private static void render(final long[] data,
+                               final int[] lut, final int nan_rgb, final double low, final double scale,
+                               final int from, final int to, final int[] pixels)
+    {
+        for (int i=from; i<to; ++i)
+            pixels[i] = lookup(lut, nan_rgb, low, scale, data[i]);
+    }
+
+    private static void render(final float[] data,
+                               final int[] lut, final int nan_rgb, final double low, final double scale,
+                               final int from, final int to, final int[] pixels)
+    {
+        for (int i=from; i<to; ++i)
+            pixels[i] = lookup(lut, nan_rgb, low, scale, data[i]);
+    }
+
+    private static void render(final double[] data,
+                               final int[] lut, final int nan_rgb, final double low, final double scale,
+                               final int from, final int to, final int[] pixels)
+    {
+        for (int i=from; i<to; ++i)
+            pixels[i] = lookup(lut, nan_rgb, low, scale, data[i]);
+    }
+
+    /** @param array int[], long[], float[] or double[]
+     *  @param unsigned Treat int as unsigned?
+     *  @param index Index
+     *  @return Sample
+     */
+    private static double getDouble(final Object array, final boolean unsigned, final int index)
+    {
+        if (array instanceof int[])
+            return unsigned ? Integer.toUnsignedLong(((int[]) array)[index]) : ((int[]) array)[index];
+        if (array instanceof long[])
+            return ((long[]) array)[index];
+        if (array instanceof float[])
+            return ((float[]) array)[index];
+        return ((double[]) array)[index];
+    }
+
+    /** Render RGB image
+     *
+     *  <p>Each color component uses the most significant 8 bits of
+     *  byte, short or int data.
+     *  Other data types are truncated to bytes.
+     *
+     *  @param array Image data from {@link #getArray(ListNumber)}
+     *  @param unsigned Treat data as unsigned? Otherwise offset by the minimum signed value
+     *  @param type RGB type (RGB1, RGB2, or RGB3)
+     *  @param width Image width
+     *  @param height Image height
+     *  @param pixels ARGB pixels of image
+     *  @throws IllegalArgumentException if type is not an RGB type
+     */
+    static void renderRGB(Object array, final boolean unsigned, final VImageType type,
+                          final int width, final int height, final int[] pixels)
+    {
+        // Offset of green and blue from red, and step from pixel to pixel
+        final int green, blue, step;
+        switch (type)
+        {
+        case TYPE_RGB1:
+            green = 1;
+            blue = 2;
+            step = 3;
+            break;
+        case TYPE_RGB2:
+            green = width;
+            blue = 2 * width;
+            step = 1;
+            break;
+        case TYPE_RGB3:
+            green = width * height;
+            blue = 2 * width * height;
+            step = 1;
+            break;
+        default:
+            throw new IllegalArgumentException("Image type must be an RGB type");
+        }
+
+        // Truncate other data types to bytes
+        if (array instanceof long[])
+        {
+            final long[] longs = (long[]) array;
+            final byte[] bytes = new byte[longs.length];
+            for (int i=0; i<bytes.length; ++i)
+                bytes[i] = (byte) longs[i];
+            array = bytes;
+        }
+        else if (array instanceof float[])
+        {
+            final float[] floats = (float[]) array;
+            final byte[] bytes = new byte[floats.length];
+            for (int i=0; i<bytes.length; ++i)
+                bytes[i] = (byte) floats[i];
+            array = bytes;
+        }
+        else if (array instanceof double[])
+        {
+            final double[] doubles = (double[]) array;
+            final byte[] bytes = new byte[doubles.length];
+            for (int i=0; i<bytes.length; ++i)
+                bytes[i] = (byte) doubles[i];
+            array = bytes;
+        }
+        final Object data = array;
+
+        // Signed data is offset by the minimum signed value, which flips the sign bit
+        final int flip = unsigned ? 0 : 0x80;
+        forSections(getSectionCount(height, width), height, (section, start, end) ->
+        {
+            for (int y=start; y<end; ++y)
+            {
+                final int row = y * width;
+                // Index of red sample for first pixel in row
+                int red = type == VImageType.TYPE_RGB3 ? row : 3 * row;
+                if (data instanceof byte[])
+                {
+                    final byte[] bytes = (byte[]) data;
+                    for (int x=0; x<width; ++x, red+=step)
+                        pixels[row + x] = 0xFF000000 |
+                                          ((bytes[red]       & 0xFF) ^ flip) << 16 |
+                                          ((bytes[red+green] & 0xFF) ^ flip) <<  8 |
+                                          ((bytes[red+blue]  & 0xFF) ^ flip);
+                }
+                else if (data instanceof short[])
+                {
+                    final short[] shorts = (short[]) data;
+                    for (int x=0; x<width; ++x, red+=step)
+                        pixels[row + x] = 0xFF000000 |
+                                          ((shorts[red]       >> 8 & 0xFF) ^ flip) << 16 |
+                                          ((shorts[red+green] >> 8 & 0xFF) ^ flip) <<  8 |
+                                          ((shorts[red+blue]  >> 8 & 0xFF) ^ flip);
+                }
+                else
+                {
+                    final int[] ints = (int[]) data;
+                    for (int x=0; x<width; ++x, red+=step)
+                        pixels[row + x] = 0xFF000000 |
+                                          ((ints[red]       >>> 24) ^ flip) << 16 |
+                                          ((ints[red+green] >>> 24) ^ flip) <<  8 |
+                                          ((ints[red+blue]  >>> 24) ^ flip);
+                }
+            }
+        });
+    }
+}
@@ -14,6 +14,8 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.Stroke;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
@@ -57,6 +59,19 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
     final private static int OUTSIDE = 1000;
     private int x_min, x_max, y_min, y_max;
 
+    /** Reduced data of each trace, cached until data or axis change */
+    private final Map<Trace<XTYPE>, DecimatedData<XTYPE>> decimated = new WeakHashMap<>();
+
+    /** Paint reduced data for lines and areas? */
+    private boolean decimate = true;
+
+    /** @param decimate Reduce data to a few samples per pixel column for lines and areas? */
+    void setDecimation(final boolean decimate)
+    {
+        this.decimate = decimate;
+        decimated.clear();
+    }
+
     final private int clipX(final double x)
     {
         if (x < x_min)
@@ -131,8 +146,40 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             if (end <= 0)
                 return;
 
+            // Lines and areas painted from reduced data look the same,
+            // but error bars and bars are painted for each sample
+            PlotDataProvider<XTYPE> painted = data;
             switch (type)
             {
+            case AREA:
+            case AREA_DIRECT:
+            case LINES:
+            case LINES_DIRECT:
+            case SINGLE_LINE:
+            case SINGLE_LINE_DIRECT:
+                if (decimate)
+                {
+                    DecimatedData<XTYPE> reduced = decimated.get(trace);
+                    if (reduced == null  ||  reduced.getData() != data)
+                    {
+                        reduced = new DecimatedData<>(data);
+                        decimated.put(trace, reduced);
+                    }
+                    painted = reduced.reduce(x_transform, bounds);
+                }
+                break;
+            default:
+                break;
+            }
+
+            if (painted != data)
+            {   // Reduced data is already limited to the visible range
+                end = painted.size();
+                if (logger.isLoggable(Level.FINE))
+                    logger.log(Level.FINE, "Reduced drawing from samples 0.." + data.size() + " to " + end);
+            }
+            else switch (type)
+            {
             // Types that require ordered X axis so start..end can be optimized
             case AREA:
             case LINES_ERROR_BARS:
@@ -170,37 +217,37 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 break;
             case AREA:
                 gc.setPaint(tpcolor);
-                drawMinMaxArea(gc, x_transform, y_axis, data, start, end);
+                drawMinMaxArea(gc, x_transform, y_axis, painted, start, end);
                 gc.setPaint(color);
-                drawStdDevLines(gc, x_transform, y_axis, data, start, end, trace.getWidth());
-                drawValueStaircase(gc, x_transform, y_axis, data, start, end, trace.getWidth(), trace.getLineStyle());
+                drawStdDevLines(gc, x_transform, y_axis, painted, start, end, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, painted, start, end, trace.getWidth(), trace.getLineStyle());
                 break;
             case AREA_DIRECT:
                 gc.setPaint(tpcolor);
-                drawMinMaxArea(gc, x_transform, y_axis, data, start, end);
+                drawMinMaxArea(gc, x_transform, y_axis, painted, start, end);
                 gc.setPaint(color);
-                drawStdDevLines(gc, x_transform, y_axis, data, start, end, trace.getWidth());
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth(), trace.getLineStyle());
+                drawStdDevLines(gc, x_transform, y_axis, painted, start, end, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, painted, trace.getWidth(), trace.getLineStyle());
                 break;
             case LINES:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, painted, trace.getWidth());
                 gc.setPaint(tpcolor);
-                drawStdDevLines(gc, x_transform, y_axis, data, start, end, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, painted, start, end, trace.getWidth());
                 gc.setPaint(color);
-                drawValueStaircase(gc, x_transform, y_axis, data, start, end, trace.getWidth(), trace.getLineStyle());
+                drawValueStaircase(gc, x_transform, y_axis, painted, start, end, trace.getWidth(), trace.getLineStyle());
                 break;
             case LINES_DIRECT:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, painted, trace.getWidth());
                 gc.setPaint(tpcolor);
-                drawStdDevLines(gc, x_transform, y_axis, data, start, end, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, painted, start, end, trace.getWidth());
                 gc.setPaint(color);
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth(), trace.getLineStyle());
+                drawValueLines(gc, x_transform, y_axis, painted, trace.getWidth(), trace.getLineStyle());
                 break;
             case SINGLE_LINE:
-                drawValueStaircase(gc, x_transform, y_axis, data, start, end, trace.getWidth(), trace.getLineStyle());
+                drawValueStaircase(gc, x_transform, y_axis, painted, start, end, trace.getWidth(), trace.getLineStyle());
                 break;
             case SINGLE_LINE_DIRECT:
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth(), trace.getLineStyle());
+                drawValueLines(gc, x_transform, y_axis, painted, trace.getWidth(), trace.getLineStyle());
                 break;
             case LINES_ERROR_BARS:
                 drawErrorBars(gc, x_transform, y_axis, data, trace.getPointSize());
@@ -225,6 +272,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 drawValueStaircase(gc, x_transform, y_axis, data, start, end, trace.getWidth(), trace.getLineStyle());
             }
 
+            // Points are painted for each sample
             if (point_type != PointType.NONE)
                 drawPoints(gc, x_transform, y_axis, data, point_type, trace.getPointSize());
         }
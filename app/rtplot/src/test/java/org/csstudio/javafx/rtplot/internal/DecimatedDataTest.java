@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.javafx.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.javafx.rtplot.data.PlotDataItem;
+import org.csstudio.javafx.rtplot.data.PlotDataProvider;
+import org.csstudio.javafx.rtplot.data.SimpleDataItem;
+import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of {@link DecimatedData}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class DecimatedDataTest
+{
+    private static final int WIDTH = 500, N = 100000;
+    private static final Rectangle bounds = new Rectangle(0, 0, WIDTH, 300);
+
+    /** Counts calls to get() */
+    private static class CountingData extends ArrayPlotDataProvider<Double>
+    {
+        final AtomicInteger gets = new AtomicInteger();
+
+        @Override
+        public PlotDataItem<Double> get(final int index)
+        {
+            gets.incrementAndGet();
+            return super.get(index);
+        }
+    }
+
+    private static CountingData createData(final int count) throws Exception
+    {
+        final CountingData data = new CountingData();
+        for (int i=0; i<count; ++i)
+            data.add(new SimpleDataItem<>((double) i, Math.sin(i / 1000.0) + (i % 7) * 0.01));
+        return data;
+    }
+
+    private static ScreenTransform<Double> createTransform(final double x0, final double x1)
+    {
+        final ScreenTransform<Double> transform = new LinearScreenTransform();
+        transform.config(x0, x1, bounds.x, bounds.x + bounds.width - 1);
+        return transform;
+    }
+
+    /** Check that each pixel column has the same first, last, min and max value */
+    private static void checkColumns(final PlotDataProvider<Double> data, final PlotDataProvider<Double> reduced,
+                                     final ScreenTransform<Double> transform)
+    {
+        final double[] orig_min = new double[WIDTH], orig_max = new double[WIDTH];
+        final double[] red_min = new double[WIDTH], red_max = new double[WIDTH];
+        scan(data, transform, orig_min, orig_max);
+        scan(reduced, transform, red_min, red_max);
+        for (int x=0; x<WIDTH; ++x)
+        {
+            assertThat("Min at " + x, red_min[x], equalTo(orig_min[x]));
+            assertThat("Max at " + x, red_max[x], equalTo(orig_max[x]));
+        }
+    }
+
+    private static void scan(final PlotDataProvider<Double> data, final ScreenTransform<Double> transform,
+                             final double[] min, final double[] max)
+    {
+        for (int x=0; x<WIDTH; ++x)
+        {
+            min[x] = Double.POSITIVE_INFINITY;
+            max[x] = Double.NEGATIVE_INFINITY;
+        }
+        for (int i=0; i<data.size(); ++i)
+        {
+            final PlotDataItem<Double> item = data.get(i);
+            final long x = Math.round(transform.transform(item.getPosition()));
+            if (x < 0  ||  x >= WIDTH  ||  Double.isNaN(item.getValue()))
+                continue;
+            min[(int)x] = Math.min(min[(int)x], item.getValue());
+            max[(int)x] = Math.max(max[(int)x], item.getValue());
+        }
+    }
+
+    @Test
+    public void testReduction() throws Exception
+    {
+        final CountingData data = createData(N);
+        final ScreenTransform<Double> transform = createTransform(0.0, N - 1.0);
+        final DecimatedData<Double> decimated = new DecimatedData<>(data);
+        final PlotDataProvider<Double> reduced = decimated.reduce(transform, bounds);
+        System.out.println(reduced);
+
+        assertThat(reduced, sameInstance(decimated));
+        assertThat(reduced.size(), lessThan(4 * (WIDTH+1)));
+        assertThat(reduced.get(0), sameInstance(data.get(0)));
+        assertThat(reduced.get(reduced.size()-1), sameInstance(data.get(N-1)));
+        checkColumns(data, reduced, transform);
+
+        // Samples remain ordered
+        for (int i=1; i<reduced.size(); ++i)
+            assertThat(reduced.get(i-1).getPosition(), lessThan(reduced.get(i).getPosition()));
+    }
+
+    @Test
+    public void testVisibleRange() throws Exception
+    {
+        final CountingData data = createData(N);
+        // Zoom into the middle
+        final ScreenTransform<Double> transform = createTransform(40000.0, 60000.0);
+        final PlotDataProvider<Double> reduced = new DecimatedData<>(data).reduce(transform, bounds);
+        assertThat(reduced, not(sameInstance(data)));
+        // One sample beyond each end of the visible range
+        assertThat(reduced.get(0).getPosition(), lessThan(40000.0));
+        assertThat(reduced.get(reduced.size()-1).getPosition(), greaterThan(60000.0));
+        checkColumns(data, reduced, transform);
+
+        // Zoomed in so far that there's no need to reduce
+        final PlotDataProvider<Double> all = new DecimatedData<>(data).reduce(createTransform(40000.0, 41000.0), bounds);
+        assertThat(all, sameInstance(data));
+    }
+
+    @Test
+    public void testGaps() throws Exception
+    {
+        final CountingData data = new CountingData();
+        for (int i=0; i<N; ++i)
+            data.add(new SimpleDataItem<>((double) i, (i >= 50000  &&  i < 50500) ? Double.NaN : i));
+        final PlotDataProvider<Double> reduced = new DecimatedData<>(data).reduce(createTransform(0.0, N - 1.0), bounds);
+        assertThat(reduced, not(sameInstance(data)));
+
+        // Gap is kept as one NaN sample
+        int gaps = 0;
+        for (int i=0; i<reduced.size(); ++i)
+            if (Double.isNaN(reduced.get(i).getValue()))
+            {
+                ++gaps;
+                assertThat(reduced.get(i-1).getPosition(), equalTo(49999.0));
+                assertThat(reduced.get(i+1).getPosition(), equalTo(50500.0));
+            }
+        assertThat(gaps, equalTo(1));
+    }
+
+    @Test
+    public void testUnordered() throws Exception
+    {
+        final CountingData data = new CountingData();
+        for (int i=0; i<N; ++i)
+            data.add(new SimpleDataItem<>((double) (i % 1000), i));
+        final PlotDataProvider<Double> reduced = new DecimatedData<>(data).reduce(createTransform(0.0, 999.0), bounds);
+        assertThat(reduced, sameInstance(data));
+    }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        final CountingData data = createData(N);
+        final ScreenTransform<Double> transform = createTransform(0.0, N - 1.0);
+        final DecimatedData<Double> decimated = new DecimatedData<>(data);
+        decimated.reduce(transform, bounds);
+        final int size = decimated.size();
+
+        // Same data and axis: Cached
+        data.gets.set(0);
+        decimated.reduce(transform, bounds);
+        assertThat(data.gets.get(), equalTo(0));
+        assertThat(decimated.size(), equalTo(size));
+
+        // New sample: Reduced again
+        data.add(new SimpleDataItem<>((double) N, 10.0));
+        decimated.reduce(transform, bounds);
+        assertThat(data.gets.get(), not(equalTo(0)));
+        checkColumns(data, decimated, transform);
+
+        // Different axis range: Reduced again
+        data.gets.set(0);
+        decimated.reduce(createTransform(0.0, N / 2.0), bounds);
+        assertThat(data.gets.get(), not(equalTo(0)));
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.IteratorNumber;
+import org.epics.util.array.ListNumber;
+
+/** Measure frames per second of the {@link ImageRenderer}
+ *
+ *  <p>Compares with iterating over the samples
+ *  and calling the color mapping for each sample,
+ *  for common detector sizes and data types.
+ *
+ *  <p>Run with for example "-Dsizes=1024,2048,4096 -Dseconds=5".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageRendererDemo
+{
+    private static final String[] SIZES = System.getProperty("sizes", "1024,2048,4096").split(",");
+    private static final double SECONDS = Double.parseDouble(System.getProperty("seconds", "2"));
+
+    private static final ColorMappingFunction mapping = ColorMappingFunction.GRAYSCALE;
+
+    /** Render image */
+    @FunctionalInterface
+    private static interface Renderer
+    {
+        void render(ListNumber numbers, int size, double min, double max, int[] pixels);
+    }
+
+    /** Render by iterating over samples, calling color mapping for each sample */
+    private static void renderIterator(final ListNumber numbers, final int size, final double min, final double max, final int[] pixels)
+    {
+        final IteratorNumber iter = numbers.iterator();
+        final double span = max - min;
+        int idx = 0;
+        for (int y=0; y<size; ++y)
+            for (int x=0; x<size; ++x)
+            {
+                double scaled = (Short.toUnsignedInt(iter.nextShort()) - min) / span;
+                if (scaled < 0.0)
+                    scaled = 0;
+                else if (scaled > 1.0)
+                    scaled = 1.0;
+                pixels[idx++] = mapping.getRGB(scaled);
+            }
+    }
+
+    /** @return Frames per second */
+    private static double measure(final Renderer renderer, final ListNumber numbers, final int size, final int[] pixels)
+    {
+        // Warm up
+        renderer.render(numbers, size, 0, 4095, pixels);
+        int frames = 0;
+        final long start = System.nanoTime();
+        long nanos;
+        do
+        {
+            // Vary the range as with autoscale
+            renderer.render(numbers, size, frames % 2, 4095, pixels);
+            ++frames;
+            nanos = System.nanoTime() - start;
+        }
+        while (nanos < SECONDS * 1e9);
+        return frames / (nanos / 1e9);
+    }
+
+    public static void main(final String[] args)
+    {
+        System.out.println("Size        Type    Iterator [fps]  Renderer [fps]");
+        for (String s : SIZES)
+        {
+            final int size = Integer.parseInt(s.trim());
+            final int N = size * size;
+            final int[] pixels = new int[N];
+
+            // 12 bit detector data in various types
+            final byte[] bytes = new byte[N];
+            final short[] shorts = new short[N];
+            final int[] ints = new int[N];
+            final float[] floats = new float[N];
+            final double[] doubles = new double[N];
+            for (int i=0; i<N; ++i)
+            {
+                final int value = (int) (2048 + 2000 * Math.sin(i % size / 100.0) * Math.cos(i / size / 50.0));
+                bytes[i] = (byte) value;
+                shorts[i] = (short) value;
+                ints[i] = value;
+                floats[i] = value;
+                doubles[i] = value;
+            }
+            final ListNumber[] data = { ArrayByte.of(bytes), ArrayShort.of(shorts), ArrayInteger.of(ints),
+                                        ArrayFloat.of(floats), ArrayDouble.of(doubles) };
+            final String[] types = { "byte", "ushort", "int", "float", "double" };
+
+            final ImageRenderer image_renderer = new ImageRenderer();
+            final Renderer renderer = (numbers, sz, min, max, pix) ->
+                image_renderer.render(ImageRenderer.getArray(numbers), true, sz, sz, min, max, false, mapping, pix);
+
+            for (int t=0; t<data.length; ++t)
+            {
+                // Iterator only for unsigned short as reference
+                final String iterator = t == 1
+                                      ? String.format("%14.1f", measure(ImageRendererDemo::renderIterator, data[t], size, pixels))
+                                      : "             -";
+                System.out.format("%4d x %4d %-7s %s  %14.1f\n",
+                                  size, size, types[t], iterator, measure(renderer, data[t], size, pixels));
+            }
+        }
+    }
+}
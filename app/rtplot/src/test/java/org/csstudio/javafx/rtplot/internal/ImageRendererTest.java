@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.Arrays;
+
+import org.csstudio.javafx.rtplot.ColorMappingFunction;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.VImageType;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of {@link ImageRenderer}
+ *
+ *  <p>Compares with mapping each sample via the {@link ColorMappingFunction}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ImageRendererTest
+{
+    /** Large enough to be rendered in parallel sections */
+    private static final int WIDTH = 640, HEIGHT = 480, N = WIDTH * HEIGHT;
+
+    /** Color mapping with distinct red, green, blue */
+    private static final ColorMappingFunction mapping = value ->
+    {
+        final int level = (int) (value * 255 + 0.5);
+        return ColorMappingFunction.getRGB(new int[] { level, 255 - level, level / 2 });
+    };
+
+    /** @return Expected color of each sample */
+    private static int[] getExpected(final ListNumber numbers, final boolean unsigned, final double min, final double max)
+    {
+        final int[] expected = new int[N];
+        for (int i=0; i<N; ++i)
+        {
+            double value = numbers.getDouble(i);
+            if (unsigned  &&  numbers instanceof ArrayShort)
+                value = Short.toUnsignedInt(numbers.getShort(i));
+            else if (unsigned  &&  numbers instanceof ArrayByte)
+                value = Byte.toUnsignedInt(numbers.getByte(i));
+            final double scaled = Math.max(0.0, Math.min(1.0, (value - min) / (max - min)));
+            expected[i] = mapping.getRGB(scaled);
+        }
+        return expected;
+    }
+
+    /** @return Largest difference of any color component */
+    private static int getMaxDifference(final int[] expected, final int[] pixels)
+    {
+        int diff = 0;
+        for (int i=0; i<N; ++i)
+            for (int shift=0; shift<32; shift += 8)
+                diff = Math.max(diff, Math.abs((expected[i] >> shift & 0xFF) - (pixels[i] >> shift & 0xFF)));
+        return diff;
+    }
+
+    @Test
+    public void testShorts()
+    {
+        final short[] data = new short[N];
+        for (int i=0; i<N; ++i)
+            data[i] = (short) (i * 7);
+        final ListNumber numbers = ArrayShort.of(data);
+        final ImageRenderer renderer = new ImageRenderer();
+        final int[] pixels = new int[N];
+
+        // 16 bit data uses a table for each raw sample, result is exact
+        renderer.render(ImageRenderer.getArray(numbers), true, WIDTH, HEIGHT, 1000.0, 60000.0, false, mapping, pixels);
+        assertThat(getMaxDifference(getExpected(numbers, true, 1000.0, 60000.0), pixels), equalTo(0));
+
+        renderer.render(ImageRenderer.getArray(numbers), false, WIDTH, HEIGHT, -20000.0, 20000.0, false, mapping, pixels);
+        assertThat(getMaxDifference(getExpected(numbers, false, -20000.0, 20000.0), pixels), equalTo(0));
+
+        final double[] range = ImageRenderer.findRange(ImageRenderer.getArray(numbers), true, WIDTH, 0, WIDTH, 0, HEIGHT);
+        assertThat(range[0], equalTo(0.0));
+        assertThat(range[1], equalTo(65535.0));
+    }
+
+    @Test
+    public void testBytes()
+    {
+        final byte[] data = new byte[N];
+        for (int i=0; i<N; ++i)
+            data[i] = (byte) (i % 253);
+        final ListNumber numbers = ArrayByte.of(data);
+        final int[] pixels = new int[N];
+        new ImageRenderer().render(ImageRenderer.getArray(numbers), true, WIDTH, HEIGHT, 0.0, 255.0, false, mapping, pixels);
+        assertThat(getMaxDifference(getExpected(numbers, true, 0.0, 255.0), pixels), equalTo(0));
+
+        // Range of a region
+        final double[] range = ImageRenderer.findRange(ImageRenderer.getArray(numbers), false, WIDTH, 0, 10, 0, 1);
+        assertThat(range[0], equalTo(0.0));
+        assertThat(range[1], equalTo(9.0));
+    }
+
+    @Test
+    public void testDoubles()
+    {
+        final double[] data = new double[N];
+        for (int i=0; i<N; ++i)
+            data[i] = Math.sin(i / 1000.0) * 1e6;
+        final ListNumber numbers = ArrayDouble.of(data);
+        final int[] pixels = new int[N];
+        new ImageRenderer().render(ImageRenderer.getArray(numbers), false, WIDTH, HEIGHT, -5e5, 5e5, false, mapping, pixels);
+        // Quantized lookup table may round differently
+        assertThat(getMaxDifference(getExpected(numbers, false, -5e5, 5e5), pixels), lessThanOrEqualTo(1));
+
+        final double[] range = ImageRenderer.findRange(ImageRenderer.getArray(numbers), false, WIDTH, 0, WIDTH, 0, HEIGHT);
+        assertThat(range[0], equalTo(Arrays.stream(data).min().getAsDouble()));
+        assertThat(range[1], equalTo(Arrays.stream(data).max().getAsDouble()));
+    }
+
+    @Test
+    public void testRGB()
+    {
+        // Pixel i has red = i, green = i+1, blue = i+2 (in low 8 bits)
+        final byte[] rgb1 = new byte[3*N], rgb2 = new byte[3*N], rgb3 = new byte[3*N];
+        for (int y=0; y<HEIGHT; ++y)
+            for (int x=0; x<WIDTH; ++x)
+            {
+                final int i = x + y*WIDTH;
+                for (int c=0; c<3; ++c)
+                {
+                    rgb1[3*i + c] = (byte) (i + c);
+                    rgb2[3*y*WIDTH + c*WIDTH + x] = (byte) (i + c);
+                    rgb3[c*N + i] = (byte) (i + c);
+                }
+            }
+
+        final int[] pixels = new int[N];
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayByte.of(rgb1)), true, VImageType.TYPE_RGB1, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0);
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayByte.of(rgb2)), true, VImageType.TYPE_RGB2, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0);
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayByte.of(rgb3)), true, VImageType.TYPE_RGB3, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0);
+        // Signed data is offset by -128
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayByte.of(rgb1)), false, VImageType.TYPE_RGB1, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0x80);
+
+        // Wider data uses the most significant byte
+        final int[] ints = new int[3*N];
+        for (int i=0; i<ints.length; ++i)
+            ints[i] = (rgb1[i] & 0xFF) << 24 | 0x123456;
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayInteger.of(ints)), true, VImageType.TYPE_RGB1, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0);
+        final short[] shorts = new short[3*N];
+        for (int i=0; i<shorts.length; ++i)
+            shorts[i] = (short) ((rgb3[i] & 0xFF) << 8 | 0x12);
+        ImageRenderer.renderRGB(ImageRenderer.getArray(ArrayShort.of(shorts)), true, VImageType.TYPE_RGB3, WIDTH, HEIGHT, pixels);
+        checkRGB(pixels, 0);
+    }
+
+    private static void checkRGB(final int[] pixels, final int flip)
+    {
+        for (int i=0; i<N; ++i)
+        {
+            final int expected = 0xFF000000 | ((i & 0xFF) ^ flip) << 16 | (((i+1) & 0xFF) ^ flip) << 8 | (((i+2) & 0xFF) ^ flip);
+            assertThat("Pixel " + i, pixels[i], equalTo(expected));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.javafx.rtplot.internal;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import org.csstudio.javafx.rtplot.LineStyle;
+import org.csstudio.javafx.rtplot.PointType;
+import org.csstudio.javafx.rtplot.TraceType;
+import org.csstudio.javafx.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.javafx.rtplot.data.SimpleDataItem;
+import org.csstudio.javafx.rtplot.internal.util.LinearScreenTransform;
+import org.csstudio.javafx.rtplot.internal.util.ScreenTransform;
+
+import javafx.scene.paint.Color;
+
+/** Measure time to paint a trace with and without {@link DecimatedData}
+ *
+ *  <p>Paints traces of increasing size into an image,
+ *  with the complete trace visible.
+ *  'First' paint includes reducing the data,
+ *  'repeated' paint uses the cached reduction.
+ *
+ *  <p>Run with for example "-Dmax=10000000 -Dtype=AREA_DIRECT".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class TracePainterDemo
+{
+    private static final int MAX = Integer.getInteger("max", 1000000);
+    private static final TraceType TYPE = TraceType.valueOf(System.getProperty("type", "SINGLE_LINE_DIRECT"));
+    private static final int WIDTH = 1000, HEIGHT = 400, REPEAT = 10;
+
+    public static void main(final String[] args) throws Exception
+    {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gc = image.createGraphics();
+        gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        final Rectangle bounds = new Rectangle(0, 0, WIDTH, HEIGHT);
+
+        final YAxisImpl<Double> y_axis = new YAxisImpl<>("Value", new PlotPartListener()
+        {
+            @Override
+            public void layoutPlotPart(final PlotPart plotPart)
+            {
+            }
+
+            @Override
+            public void refreshPlotPart(final PlotPart plotPart)
+            {
+            }
+        });
+        y_axis.setBounds(0, 0, 50, HEIGHT);
+        y_axis.setValueRange(-2.0, 2.0);
+
+        System.out.println(TYPE + ", " + WIDTH + " pixels wide");
+        System.out.println("   Samples  All [ms]  First [ms]  Repeated [ms]");
+        for (int N = 1000;  N <= MAX;  N *= 10)
+        {
+            final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+            for (int i=0; i<N; ++i)
+                data.add(new SimpleDataItem<>((double) i, Math.sin(i * 20.0 / N) + Math.random() * 0.5));
+            final TraceImpl<Double> trace = new TraceImpl<>("Demo", "a.u.", data, Color.BLUE,
+                                                            TYPE, 1, LineStyle.SOLID, PointType.NONE, 5, 0);
+            final ScreenTransform<Double> x_transform = new LinearScreenTransform();
+            x_transform.config(0.0, (double) N, bounds.x, bounds.x + bounds.width - 1);
+
+            // Paint all samples
+            final TracePainter<Double> painter = new TracePainter<>();
+            painter.setDecimation(false);
+            final double all = paint(gc, bounds, x_transform, y_axis, trace, painter);
+
+            // First paint needs to reduce data, then re-use the reduced data
+            painter.setDecimation(true);
+            long start = System.nanoTime();
+            painter.paint(gc, bounds, 50, x_transform, y_axis, trace);
+            final double first = (System.nanoTime() - start) / 1e6;
+            final double repeated = paint(gc, bounds, x_transform, y_axis, trace, painter);
+
+            System.out.format("%10d  %8.2f  %10.2f  %13.2f\n", N, all, first, repeated);
+        }
+        gc.dispose();
+    }
+
+    /** @return Average milliseconds per paint */
+    private static double paint(final Graphics2D gc, final Rectangle bounds,
+                                final ScreenTransform<Double> x_transform, final YAxisImpl<Double> y_axis,
+                                final TraceImpl<Double> trace, final TracePainter<Double> painter)
+    {
+        // Warm up
+        painter.paint(gc, bounds, 50, x_transform, y_axis, trace);
+        final long start = System.nanoTime();
+        for (int i=0; i<REPEAT; ++i)
+            painter.paint(gc, bounds, 50, x_transform, y_axis, trace);
+        return (System.nanoTime() - start) / 1e6 / REPEAT;
+    }
+}
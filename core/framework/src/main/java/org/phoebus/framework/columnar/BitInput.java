@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.nio.ByteBuffer;
+
+/** Read bits from a byte buffer, most significant bit first
+ *  @author Kay Kasemir
+ */
+class BitInput
+{
+    private final ByteBuffer buffer;
+
+    /** Bits read from buffer but not yet consumed, in the low 'available' bits */
+    private long pending = 0;
+    private int available = 0;
+
+    /** @param buffer Buffer, read from its position to its limit */
+    BitInput(final ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    /** @param count Number of bits, 0..64
+     *  @return Mask for the low 'count' bits
+     */
+    static long mask(final int count)
+    {
+        return count >= 64 ? -1L : (1L << count) - 1;
+    }
+
+    /** @return Number of bits that remain to be read */
+    long remaining()
+    {
+        return buffer.remaining() * 8L + available;
+    }
+
+    /** @return Next bit */
+    boolean readBit()
+    {
+        return readBits(1) != 0;
+    }
+
+    /** @param count Number of bits, 0..64
+     *  @return Value of those bits
+     *  @throws java.nio.BufferUnderflowException when reading beyond the buffer
+     */
+    long readBits(final int count)
+    {
+        if (count > 32)
+        {
+            final long high = readBits(count - 32);
+            return (high << 32) | readBits(32);
+        }
+        // 'available' is below 'count', so pending can hold another 8 bits
+        while (available < count)
+        {
+            pending = (pending << 8) | (buffer.get() & 0xFF);
+            available += 8;
+        }
+        available -= count;
+        return (pending >>> available) & mask(count);
+    }
+}
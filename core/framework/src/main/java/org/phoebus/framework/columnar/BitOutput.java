@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.util.Arrays;
+
+/** Write bits into a growing byte array, most significant bit first
+ *  @author Kay Kasemir
+ */
+class BitOutput
+{
+    private byte[] buffer;
+
+    /** Number of complete bytes in buffer */
+    private int size = 0;
+
+    /** Bits not yet written to buffer, in the low 'used' bits */
+    private long pending = 0;
+    private int used = 0;
+
+    /** @param capacity Initial capacity in bytes */
+    BitOutput(final int capacity)
+    {
+        buffer = new byte[Math.max(8, capacity)];
+    }
+
+    /** @param value Value, only the low 'count' bits are written
+     *  @param count Number of bits, 0..64
+     */
+    void writeBits(final long value, final int count)
+    {
+        if (count > 32)
+        {
+            writeBits(value >>> 32, count - 32);
+            writeBits(value, 32);
+            return;
+        }
+        // 'used' is below 8, so pending can hold another 32 bits
+        pending = (pending << count) | (value & BitInput.mask(count));
+        used += count;
+        while (used >= 8)
+        {
+            if (size >= buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            used -= 8;
+            buffer[size++] = (byte) (pending >>> used);
+        }
+    }
+
+    /** Write remaining bits, padding the last byte with zeros
+     *  @return Number of bytes
+     */
+    int finish()
+    {
+        if (used > 0)
+            writeBits(0, 8 - used);
+        return size;
+    }
+
+    /** @return Buffer, valid up to the size returned by {@link #finish()} */
+    byte[] getBuffer()
+    {
+        return buffer;
+    }
+}
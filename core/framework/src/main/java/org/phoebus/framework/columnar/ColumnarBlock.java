@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.nio.ByteBuffer;
+
+/** Block of samples in a columnar archive partition file
+ *
+ *  <p>All samples in a block have the same value type and meta data.
+ *  Block layout, big endian:
+ *  <pre>
+ *  int    Length of block in bytes, not including this int
+ *  byte   Value type
+ *  int    Sample count
+ *  long   Time stamp of first sample, epoch nanosecs
+ *  long   Time stamp of last sample, epoch nanosecs
+ *  ...    Meta data
+ *  short  Number of alarm names, followed by UTF strings
+ *  int    Length of bit stream in bytes, followed by the bit stream
+ *  </pre>
+ *
+ *  <p>For each sample, the bit stream holds
+ *  <ul>
+ *  <li>Time stamp: Delta of delta to the previous time stamps
+ *  <li>Alarm: One bit for 'same as previous', or severity, status and name index
+ *  <li>Value: Depending on value type
+ *  </ul>
+ *
+ *  <p>Double values are stored as XOR with the previous value,
+ *  only writing the 'meaningful' bits between the leading and trailing zeros
+ *  of the XOR result, re-using the previous leading/trailing zero window when possible.
+ *  Array elements are XOR-ed with the preceding element.
+ *  Long values are stored as delta to the previous value.
+ *  Deltas use a variable number of bits.
+ *  This follows the time series compression described in
+ *  "Gorilla: A Fast, Scalable, In-Memory Time Series Database",
+ *  Pelkonen et al., VLDB 2015.
+ *
+ *  @author Kay Kasemir
+ */
+public class ColumnarBlock
+{
+    /** Value types */
+    public static final byte DOUBLE = 1, LONG = 2, STRING = 3, DOUBLE_ARRAY = 4;
+
+    /** Maximum number of samples in a block */
+    public static final int MAX_SAMPLES = 10000;
+
+    /** Maximum number of different alarm names in a block */
+    static final int MAX_NAMES = 0xFFFF;
+
+    /** Bits used for severity and status */
+    static final int SEVERITY_BITS = 3, STATUS_BITS = 3, NAME_BITS = 16;
+
+    /** Bit widths for delta-of-delta time stamps in nanosecs */
+    static final int[] TIME_WIDTHS = { 12, 24, 40 };
+
+    /** Bit widths for deltas of long values and lengths */
+    static final int[] LONG_WIDTHS = { 8, 16, 32 };
+
+    /** Offsets in block */
+    private static final int COUNT_OFFSET = 5, FIRST_OFFSET = 9, LAST_OFFSET = 17;
+
+    /** Smallest valid block length, not including the length itself */
+    static final int MIN_LENGTH = LAST_OFFSET + 8 - 4 + 1 + 2 + 4;
+
+    /** @param buffer Buffer
+     *  @param position Start of block
+     *  @return Length of block including the length field
+     */
+    public static int getBlockLength(final ByteBuffer buffer, final int position)
+    {
+        return 4 + buffer.getInt(position);
+    }
+
+    /** @param buffer Buffer
+     *  @param position Start of block
+     *  @return Number of samples in block
+     */
+    public static int getCount(final ByteBuffer buffer, final int position)
+    {
+        return buffer.getInt(position + COUNT_OFFSET);
+    }
+
+    /** @param buffer Buffer
+     *  @param position Start of block
+     *  @return Epoch nanosecs of first sample in block
+     */
+    public static long getFirstTime(final ByteBuffer buffer, final int position)
+    {
+        return buffer.getLong(position + FIRST_OFFSET);
+    }
+
+    /** @param buffer Buffer
+     *  @param position Start of block
+     *  @return Epoch nanosecs of last sample in block
+     */
+    public static long getLastTime(final ByteBuffer buffer, final int position)
+    {
+        return buffer.getLong(position + LAST_OFFSET);
+    }
+
+    /** @param value Signed value
+     *  @return Zig-zag encoded value where small negative and positive numbers are small
+     */
+    static long zigzag(final long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** @param value Zig-zag encoded value
+     *  @return Signed value
+     */
+    static long unzigzag(final long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Write unsigned value with variable number of bits
+     *
+     *  <p>0 is written as '0'.
+     *  For the N-th width, N '1' bits and a '0' are followed
+     *  by the value in that number of bits.
+     *  Larger values are written as all '1' followed by 64 bits.
+     *
+     *  @param out {@link BitOutput}
+     *  @param value Unsigned value
+     *  @param widths Increasing bit widths
+     */
+    static void writeVariable(final BitOutput out, final long value, final int[] widths)
+    {
+        if (value == 0)
+        {
+            out.writeBits(0, 1);
+            return;
+        }
+        for (int i=0; i<widths.length; ++i)
+            if ((value >>> widths[i]) == 0)
+            {
+                out.writeBits(BitInput.mask(i+1) << 1, i+2);
+                out.writeBits(value, widths[i]);
+                return;
+            }
+        out.writeBits(BitInput.mask(widths.length+1), widths.length+1);
+        out.writeBits(value, 64);
+    }
+
+    /** @param in {@link BitInput}
+     *  @param widths Bit widths used to write the value
+     *  @return Unsigned value
+     *  @see #writeVariable(BitOutput, long, int[])
+     */
+    static long readVariable(final BitInput in, final int[] widths)
+    {
+        int ones = 0;
+        while (ones <= widths.length  &&  in.readBit())
+            ++ones;
+        if (ones == 0)
+            return 0;
+        if (ones <= widths.length)
+            return in.readBits(widths[ones-1]);
+        return in.readBits(64);
+    }
+}
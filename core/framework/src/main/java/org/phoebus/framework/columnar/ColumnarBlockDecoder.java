@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Decode samples from a {@link ColumnarBlock}
+ *
+ *  <p>Call {@link #next()} to step to the next sample,
+ *  then use the get..() methods that match the value type of the block.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarBlockDecoder
+{
+    private final byte type;
+    private final int count;
+    private final long first_time, last_time;
+    private final ColumnarMetaData meta;
+    private final String[] names;
+    private final BitInput bits;
+
+    private int index = 0;
+    private long time, delta;
+    private int severity = 0, status = 0, name = -1;
+
+    private boolean have_double = false;
+    private long double_bits;
+    private int leading, trailing;
+
+    private long long_value = 0;
+    private String string_value = "";
+    private double[] array_value = new double[0];
+
+    /** Wrap buffer as {@link InputStream} for reading the header */
+    private static class BufferInput extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        BufferInput(final ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+    }
+
+    /** @param buffer Buffer
+     *  @param position Start of block in buffer
+     *  @throws IOException on error
+     */
+    public ColumnarBlockDecoder(final ByteBuffer buffer, final int position) throws IOException
+    {
+        final int length = buffer.getInt(position);
+        if (length < ColumnarBlock.MIN_LENGTH  ||  position + 4L + length > buffer.limit())
+            throw new IOException("Invalid block length " + length + " at " + position);
+        final ByteBuffer block = buffer.duplicate();
+        block.limit(position + 4 + length);
+        block.position(position + 4);
+
+        final DataInput in = new DataInputStream(new BufferInput(block));
+        type = in.readByte();
+        if (type < ColumnarBlock.DOUBLE  ||  type > ColumnarBlock.DOUBLE_ARRAY)
+            throw new IOException("Unknown value type " + type + " at " + position);
+        count = in.readInt();
+        first_time = in.readLong();
+        last_time = in.readLong();
+        meta = ColumnarMetaData.read(in);
+        names = new String[in.readUnsignedShort()];
+        for (int i=0; i<names.length; ++i)
+            names[i] = in.readUTF();
+        final int bit_bytes = in.readInt();
+        if (bit_bytes != block.remaining())
+            throw new IOException("Invalid bit stream length " + bit_bytes + " at " + position);
+        bits = new BitInput(block);
+    }
+
+    /** @return Value type */
+    public byte getType()
+    {
+        return type;
+    }
+
+    /** @return Number of samples */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /** @return Epoch nanosecs of first sample */
+    public long getFirstTime()
+    {
+        return first_time;
+    }
+
+    /** @return Epoch nanosecs of last sample */
+    public long getLastTime()
+    {
+        return last_time;
+    }
+
+    /** @return Meta data */
+    public ColumnarMetaData getMetaData()
+    {
+        return meta;
+    }
+
+    /** Decode next sample
+     *  @return <code>true</code> if there was another sample, <code>false</code> at end of block
+     *  @throws IOException on error
+     */
+    public boolean next() throws IOException
+    {
+        if (index >= count)
+            return false;
+        try
+        {
+            readTimeAndAlarm();
+            switch (type)
+            {
+            case ColumnarBlock.DOUBLE:
+                readDouble();
+                break;
+            case ColumnarBlock.LONG:
+                long_value += ColumnarBlock.unzigzag(ColumnarBlock.readVariable(bits, ColumnarBlock.LONG_WIDTHS));
+                break;
+            case ColumnarBlock.STRING:
+                if (bits.readBit())
+                {
+                    final byte[] text = new byte[readLength(8)];
+                    for (int i=0; i<text.length; ++i)
+                        text[i] = (byte) bits.readBits(8);
+                    string_value = new String(text, StandardCharsets.UTF_8);
+                }
+                break;
+            default:
+                // New array, caller may keep the previous one
+                array_value = new double[readLength(1)];
+                for (int i=0; i<array_value.length; ++i)
+                {
+                    readDouble();
+                    array_value[i] = Double.longBitsToDouble(double_bits);
+                }
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw new IOException("Corrupted block, cannot read sample " + index, ex);
+        }
+        ++index;
+        return true;
+    }
+
+    /** @param element_bits Minimum number of bits per element
+     *  @return Number of elements
+     *  @throws IOException if length exceeds what remains in block
+     */
+    private int readLength(final int element_bits) throws IOException
+    {
+        final long length = ColumnarBlock.readVariable(bits, ColumnarBlock.LONG_WIDTHS);
+        if (length < 0  ||  length * element_bits > bits.remaining())
+            throw new IOException("Invalid length " + length);
+        return (int) length;
+    }
+
+    private void readTimeAndAlarm() throws IOException
+    {
+        if (index == 0)
+        {
+            time = bits.readBits(64);
+            delta = 0;
+        }
+        else
+        {
+            delta += ColumnarBlock.unzigzag(ColumnarBlock.readVariable(bits, ColumnarBlock.TIME_WIDTHS));
+            time += delta;
+        }
+        if (bits.readBit())
+        {
+            severity = (int) bits.readBits(ColumnarBlock.SEVERITY_BITS);
+            status = (int) bits.readBits(ColumnarBlock.STATUS_BITS);
+            name = (int) bits.readBits(ColumnarBlock.NAME_BITS);
+            if (name >= names.length)
+                throw new IOException("Invalid alarm name index " + name);
+        }
+        else if (name < 0)
+            throw new IOException("Missing alarm for first sample");
+    }
+
+    private void readDouble()
+    {
+        if (! have_double)
+        {
+            double_bits = bits.readBits(64);
+            have_double = true;
+        }
+        else if (bits.readBit())
+        {
+            if (bits.readBit())
+            {
+                leading = (int) bits.readBits(5);
+                final int meaningful = (int) bits.readBits(6) + 1;
+                trailing = 64 - leading - meaningful;
+            }
+            double_bits ^= bits.readBits(64 - leading - trailing) << trailing;
+        }
+    }
+
+    /** @return Epoch nanosecs of current sample */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /** @return Alarm severity ordinal of current sample */
+    public int getSeverity()
+    {
+        return severity;
+    }
+
+    /** @return Alarm status ordinal of current sample */
+    public int getStatus()
+    {
+        return status;
+    }
+
+    /** @return Alarm name of current sample */
+    public String getAlarmName()
+    {
+        return names[name];
+    }
+
+    /** @return Value of current {@link ColumnarBlock#DOUBLE} sample */
+    public double getDouble()
+    {
+        return Double.longBitsToDouble(double_bits);
+    }
+
+    /** @return Value of current {@link ColumnarBlock#LONG} sample */
+    public long getLong()
+    {
+        return long_value;
+    }
+
+    /** @return Value of current {@link ColumnarBlock#STRING} sample */
+    public String getString()
+    {
+        return string_value;
+    }
+
+    /** @return Value of current {@link ColumnarBlock#DOUBLE_ARRAY} sample */
+    public double[] getArray()
+    {
+        return array_value;
+    }
+}
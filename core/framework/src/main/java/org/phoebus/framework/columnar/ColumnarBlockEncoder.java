@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Encode samples into a {@link ColumnarBlock}
+ *
+ *  <p>Add samples in time order via one of the add..() methods
+ *  that matches the value type of the block,
+ *  then fetch the encoded block.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarBlockEncoder
+{
+    private final byte type;
+    private final ColumnarMetaData meta;
+    private final BitOutput bits = new BitOutput(1024);
+
+    /** Alarm names and their index */
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> name_index = new HashMap<>();
+
+    private int count = 0;
+    private long first_time, last_time, last_delta;
+    private int last_severity = 0, last_status = 0, last_name = -1;
+
+    /** State of XOR-compressed doubles */
+    private boolean have_double = false;
+    private long last_bits;
+    private int last_leading = -1, last_trailing;
+
+    private long last_long = 0;
+    private String last_string = "";
+
+    /** @param type Value type, {@link ColumnarBlock#DOUBLE} etc.
+     *  @param meta Meta data for all samples in this block
+     */
+    public ColumnarBlockEncoder(final byte type, final ColumnarMetaData meta)
+    {
+        if (type < ColumnarBlock.DOUBLE  ||  type > ColumnarBlock.DOUBLE_ARRAY)
+            throw new IllegalArgumentException("Unknown value type " + type);
+        this.type = type;
+        this.meta = meta;
+    }
+
+    /** @return Value type */
+    public byte getType()
+    {
+        return type;
+    }
+
+    /** @return Meta data */
+    public ColumnarMetaData getMetaData()
+    {
+        return meta;
+    }
+
+    /** @return Number of samples */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /** @return Epoch nanosecs of first sample */
+    public long getFirstTime()
+    {
+        return first_time;
+    }
+
+    /** @return Epoch nanosecs of last sample */
+    public long getLastTime()
+    {
+        return last_time;
+    }
+
+    /** @return <code>true</code> if block cannot hold more samples */
+    public boolean isFull()
+    {
+        return count >= ColumnarBlock.MAX_SAMPLES  ||  names.size() >= ColumnarBlock.MAX_NAMES;
+    }
+
+    /** Add double sample
+     *  @param time Epoch nanosecs
+     *  @param severity Alarm severity ordinal
+     *  @param status Alarm status ordinal
+     *  @param name Alarm name
+     *  @param value Value
+     */
+    public void addDouble(final long time, final int severity, final int status, final String name, final double value)
+    {
+        checkType(ColumnarBlock.DOUBLE);
+        writeTimeAndAlarm(time, severity, status, name);
+        writeDouble(value);
+    }
+
+    /** Add long sample
+     *  @param time Epoch nanosecs
+     *  @param severity Alarm severity ordinal
+     *  @param status Alarm status ordinal
+     *  @param name Alarm name
+     *  @param value Value
+     */
+    public void addLong(final long time, final int severity, final int status, final String name, final long value)
+    {
+        checkType(ColumnarBlock.LONG);
+        writeTimeAndAlarm(time, severity, status, name);
+        ColumnarBlock.writeVariable(bits, ColumnarBlock.zigzag(value - last_long), ColumnarBlock.LONG_WIDTHS);
+        last_long = value;
+    }
+
+    /** Add string sample
+     *  @param time Epoch nanosecs
+     *  @param severity Alarm severity ordinal
+     *  @param status Alarm status ordinal
+     *  @param name Alarm name
+     *  @param value Value
+     */
+    public void addString(final long time, final int severity, final int status, final String name, final String value)
+    {
+        checkType(ColumnarBlock.STRING);
+        writeTimeAndAlarm(time, severity, status, name);
+        if (value.equals(last_string))
+        {
+            bits.writeBits(0, 1);
+            return;
+        }
+        bits.writeBits(1, 1);
+        final byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        ColumnarBlock.writeVariable(bits, text.length, ColumnarBlock.LONG_WIDTHS);
+        for (byte b : text)
+            bits.writeBits(b, 8);
+        last_string = value;
+    }
+
+    /** Add array sample
+     *  @param time Epoch nanosecs
+     *  @param severity Alarm severity ordinal
+     *  @param status Alarm status ordinal
+     *  @param name Alarm name
+     *  @param value Array elements
+     */
+    public void addArray(final long time, final int severity, final int status, final String name, final double[] value)
+    {
+        checkType(ColumnarBlock.DOUBLE_ARRAY);
+        writeTimeAndAlarm(time, severity, status, name);
+        ColumnarBlock.writeVariable(bits, value.length, ColumnarBlock.LONG_WIDTHS);
+        for (double element : value)
+            writeDouble(element);
+    }
+
+    private void checkType(final byte expected)
+    {
+        if (type != expected)
+            throw new IllegalStateException("Block of type " + type + " cannot add type " + expected);
+    }
+
+    private void writeTimeAndAlarm(final long time, final int severity, final int status, final String name)
+    {
+        if (count == 0)
+        {
+            first_time = time;
+            bits.writeBits(time, 64);
+            last_delta = 0;
+        }
+        else
+        {
+            final long delta = time - last_time;
+            ColumnarBlock.writeVariable(bits, ColumnarBlock.zigzag(delta - last_delta), ColumnarBlock.TIME_WIDTHS);
+            last_delta = delta;
+        }
+        last_time = time;
+        ++count;
+
+        Integer index = name_index.get(name);
+        if (index == null)
+        {
+            index = names.size();
+            names.add(name);
+            name_index.put(name, index);
+        }
+        if (severity == last_severity  &&  status == last_status  &&  index == last_name)
+            bits.writeBits(0, 1);
+        else
+        {
+            bits.writeBits(1, 1);
+            bits.writeBits(severity, ColumnarBlock.SEVERITY_BITS);
+            bits.writeBits(status, ColumnarBlock.STATUS_BITS);
+            bits.writeBits(index, ColumnarBlock.NAME_BITS);
+            last_severity = severity;
+            last_status = status;
+            last_name = index;
+        }
+    }
+
+    private void writeDouble(final double value)
+    {
+        final long value_bits = Double.doubleToRawLongBits(value);
+        if (! have_double)
+        {
+            bits.writeBits(value_bits, 64);
+            have_double = true;
+        }
+        else
+        {
+            final long xor = value_bits ^ last_bits;
+            if (xor == 0)
+                bits.writeBits(0, 1);
+            else
+            {
+                final int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+                final int trailing = Long.numberOfTrailingZeros(xor);
+                if (last_leading >= 0  &&  leading >= last_leading  &&  trailing >= last_trailing)
+                {   // Meaningful bits fit into previous window
+                    bits.writeBits(0b10, 2);
+                    bits.writeBits(xor >>> last_trailing, 64 - last_leading - last_trailing);
+                }
+                else
+                {
+                    final int meaningful = 64 - leading - trailing;
+                    bits.writeBits(0b11, 2);
+                    bits.writeBits(leading, 5);
+                    bits.writeBits(meaningful - 1, 6);
+                    bits.writeBits(xor >>> trailing, meaningful);
+                    last_leading = leading;
+                    last_trailing = trailing;
+                }
+            }
+        }
+        last_bits = value_bits;
+    }
+
+    /** @return Encoded block
+     *  @throws IOException on error
+     */
+    public byte[] encode() throws IOException
+    {
+        final int bit_bytes = bits.finish();
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream(bit_bytes + 128);
+        final DataOutputStream out = new DataOutputStream(buf);
+        // Placeholder for length
+        out.writeInt(0);
+        out.writeByte(type);
+        out.writeInt(count);
+        out.writeLong(first_time);
+        out.writeLong(last_time);
+        meta.write(out);
+        out.writeShort(names.size());
+        for (String name : names)
+            out.writeUTF(name);
+        out.writeInt(bit_bytes);
+        out.write(bits.getBuffer(), 0, bit_bytes);
+        out.flush();
+
+        final byte[] block = buf.toByteArray();
+        final int length = block.length - 4;
+        block[0] = (byte) (length >>> 24);
+        block[1] = (byte) (length >>> 16);
+        block[2] = (byte) (length >>> 8);
+        block[3] = (byte) length;
+        return block;
+    }
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/** Meta data for the samples in a block:
+ *  Numeric display information, enumeration labels, or none.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarMetaData
+{
+    private static final byte NONE = 0, NUMERIC = 1, ENUMERATED = 2;
+
+    /** No meta data */
+    public static final ColumnarMetaData EMPTY = new ColumnarMetaData(NONE, "", 0, new double[6], Collections.emptyList());
+
+    private final byte kind;
+    private final String units;
+    private final int precision;
+    /** Display, warning, alarm low and high */
+    private final double[] limits;
+    private final List<String> labels;
+
+    private ColumnarMetaData(final byte kind, final String units, final int precision,
+                             final double[] limits, final List<String> labels)
+    {
+        this.kind = kind;
+        this.units = units;
+        this.precision = precision;
+        this.limits = limits;
+        this.labels = labels;
+    }
+
+    /** @param units Units
+     *  @param precision Precision
+     *  @param display_low Display range
+     *  @param display_high Display range
+     *  @param warn_low Warning range
+     *  @param warn_high Warning range
+     *  @param alarm_low Alarm range
+     *  @param alarm_high Alarm range
+     *  @return Numeric meta data
+     */
+    public static ColumnarMetaData numeric(final String units, final int precision,
+                                           final double display_low, final double display_high,
+                                           final double warn_low, final double warn_high,
+                                           final double alarm_low, final double alarm_high)
+    {
+        return new ColumnarMetaData(NUMERIC, units == null ? "" : units, precision,
+                                    new double[] { display_low, display_high, warn_low, warn_high, alarm_low, alarm_high },
+                                    Collections.emptyList());
+    }
+
+    /** @param labels Enumeration labels
+     *  @return Enumerated meta data
+     */
+    public static ColumnarMetaData enumerated(final List<String> labels)
+    {
+        return new ColumnarMetaData(ENUMERATED, "", 0, new double[6], List.copyOf(labels));
+    }
+
+    /** @return Is this numeric meta data? */
+    public boolean isNumeric()
+    {
+        return kind == NUMERIC;
+    }
+
+    /** @return Is this enumerated meta data? */
+    public boolean isEnumerated()
+    {
+        return kind == ENUMERATED;
+    }
+
+    /** @return Units */
+    public String getUnits()
+    {
+        return units;
+    }
+
+    /** @return Precision */
+    public int getPrecision()
+    {
+        return precision;
+    }
+
+    /** @return Display range low */
+    public double getDisplayLow()
+    {
+        return limits[0];
+    }
+
+    /** @return Display range high */
+    public double getDisplayHigh()
+    {
+        return limits[1];
+    }
+
+    /** @return Warning range low */
+    public double getWarnLow()
+    {
+        return limits[2];
+    }
+
+    /** @return Warning range high */
+    public double getWarnHigh()
+    {
+        return limits[3];
+    }
+
+    /** @return Alarm range low */
+    public double getAlarmLow()
+    {
+        return limits[4];
+    }
+
+    /** @return Alarm range high */
+    public double getAlarmHigh()
+    {
+        return limits[5];
+    }
+
+    /** @return Enumeration labels */
+    public List<String> getLabels()
+    {
+        return labels;
+    }
+
+    /** @param out Where to write meta data
+     *  @throws IOException on error
+     */
+    void write(final DataOutput out) throws IOException
+    {
+        out.writeByte(kind);
+        if (kind == NUMERIC)
+        {
+            out.writeUTF(units);
+            out.writeInt(precision);
+            for (double limit : limits)
+                out.writeDouble(limit);
+        }
+        else if (kind == ENUMERATED)
+        {
+            out.writeShort(labels.size());
+            for (String label : labels)
+                out.writeUTF(label);
+        }
+    }
+
+    /** @param in Where to read meta data
+     *  @return {@link ColumnarMetaData}
+     *  @throws IOException on error
+     */
+    static ColumnarMetaData read(final DataInput in) throws IOException
+    {
+        final byte kind = in.readByte();
+        if (kind == NUMERIC)
+        {
+            final String units = in.readUTF();
+            final int precision = in.readInt();
+            final double[] limits = new double[6];
+            for (int i=0; i<limits.length; ++i)
+                limits[i] = in.readDouble();
+            return new ColumnarMetaData(kind, units, precision, limits, Collections.emptyList());
+        }
+        if (kind == ENUMERATED)
+        {
+            final int count = in.readUnsignedShort();
+            final List<String> labels = new ArrayList<>(count);
+            for (int i=0; i<count; ++i)
+                labels.add(in.readUTF());
+            return new ColumnarMetaData(kind, "", 0, new double[6], labels);
+        }
+        if (kind == NONE)
+            return EMPTY;
+        throw new IOException("Unknown meta data type " + kind);
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (! (obj instanceof ColumnarMetaData))
+            return false;
+        final ColumnarMetaData other = (ColumnarMetaData) obj;
+        return kind == other.kind            &&
+               precision == other.precision  &&
+               units.equals(other.units)     &&
+               Arrays.equals(limits, other.limits) &&
+               labels.equals(other.labels);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(kind, units, precision, Arrays.hashCode(limits), labels);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (kind == NUMERIC)
+            return "Numeric meta data '" + units + "', precision " + precision + ", limits " + Arrays.toString(limits);
+        if (kind == ENUMERATED)
+            return "Enumerated meta data " + labels;
+        return "No meta data";
+    }
+}
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** File storage for a columnar archive
+ *
+ *  <p>Each channel has a directory below the root directory.
+ *  The directory name is the URL-encoded channel name.
+ *  Samples of a channel are kept in one partition file per (UTC) day,
+ *  "yyyy-MM-dd.col", which holds a short header followed by
+ *  {@link ColumnarBlock}s.
+ *
+ *  <p>Partition files are only appended.
+ *  Readers use the blocks that are complete when they map the file.
+ *  When a writer finds an incomplete block at the end of a partition,
+ *  for example after a crash, the incomplete block is truncated.
+ *
+ *  <p>A channel must only be written by one writer at a time.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarStorage
+{
+    /** Logger for columnar archive */
+    public static final Logger logger = Logger.getLogger(ColumnarStorage.class.getPackageName());
+
+    /** File name suffix of partition files */
+    public static final String SUFFIX = ".col";
+
+    /** Magic number at start of partition file, "PCOL" */
+    private static final int MAGIC = 0x50434F4C;
+
+    /** Format version */
+    private static final byte VERSION = 1;
+
+    /** Size of partition file header, position of first block */
+    public static final int HEADER_SIZE = 5;
+
+    private static final long NANOS_PER_DAY = 24L * 60 * 60 * 1000000000L;
+
+    private final Path root;
+
+    /** Partitions that have been checked for incomplete blocks,
+     *  with the end of the last complete block. SYNC on this
+     */
+    private final Map<Path, Long> checked = new HashMap<>();
+
+    /** @param root Root directory of the archive */
+    public ColumnarStorage(final Path root)
+    {
+        this.root = root;
+    }
+
+    /** @return Root directory of the archive */
+    public Path getRoot()
+    {
+        return root;
+    }
+
+    /** @param name Channel name
+     *  @return Directory name for channel
+     */
+    public static String encodeName(final String name)
+    {
+        // URLEncoder leaves '*' which isn't allowed in all file systems
+        return URLEncoder.encode(name, StandardCharsets.UTF_8).replace("*", "%2A");
+    }
+
+    /** @param directory Directory name of a channel
+     *  @return Channel name
+     */
+    public static String decodeName(final String directory)
+    {
+        return URLDecoder.decode(directory, StandardCharsets.UTF_8);
+    }
+
+    /** @param epoch_nanos Time stamp in epoch nanosecs
+     *  @return Date of the partition that holds samples for that time
+     */
+    public static LocalDate getPartitionDate(final long epoch_nanos)
+    {
+        return LocalDate.ofEpochDay(Math.floorDiv(epoch_nanos, NANOS_PER_DAY));
+    }
+
+    /** @return Names of all channels in archive
+     *  @throws IOException on error
+     */
+    public List<String> getChannelNames() throws IOException
+    {
+        final List<String> names = new ArrayList<>();
+        if (! Files.isDirectory(root))
+            return names;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory))
+        {
+            for (Path dir : dirs)
+                names.add(decodeName(dir.getFileName().toString()));
+        }
+        return names;
+    }
+
+    /** @param name Channel name
+     *  @return <code>true</code> if the archive has a directory for the channel
+     */
+    public boolean hasChannel(final String name)
+    {
+        return Files.isDirectory(root.resolve(encodeName(name)));
+    }
+
+    /** @param name Channel name
+     *  @param date Date
+     *  @return Path to partition file, which may not exist
+     */
+    public Path getPartition(final String name, final LocalDate date)
+    {
+        return root.resolve(encodeName(name)).resolve(date.toString() + SUFFIX);
+    }
+
+    /** @param name Channel name
+     *  @return Dates of existing partitions, sorted
+     *  @throws IOException on error
+     */
+    public List<LocalDate> getPartitionDates(final String name) throws IOException
+    {
+        final List<LocalDate> dates = new ArrayList<>();
+        final Path dir = root.resolve(encodeName(name));
+        if (! Files.isDirectory(dir))
+            return dates;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX))
+        {
+            for (Path file : files)
+            {
+                final String filename = file.getFileName().toString();
+                try
+                {
+                    dates.add(LocalDate.parse(filename.substring(0, filename.length() - SUFFIX.length())));
+                }
+                catch (DateTimeParseException ex)
+                {
+                    logger.log(Level.WARNING, "Ignoring " + file);
+                }
+            }
+        }
+        Collections.sort(dates);
+        return dates;
+    }
+
+    /** Append blocks to a partition
+     *  @param name Channel name
+     *  @param date Partition date
+     *  @param blocks Encoded blocks
+     *  @throws IOException on error
+     */
+    public void append(final String name, final LocalDate date, final List<byte[]> blocks) throws IOException
+    {
+        final Path partition = getPartition(name, date);
+        Files.createDirectories(partition.getParent());
+        try (FileChannel file = FileChannel.open(partition, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            long end = file.size();
+            if (end < HEADER_SIZE)
+            {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC);
+                header.put(VERSION);
+                header.flip();
+                file.truncate(0);
+                writeFully(file, header, 0);
+                end = HEADER_SIZE;
+            }
+            else
+            {
+                final Long checked_end;
+                synchronized (this)
+                {
+                    checked_end = checked.get(partition);
+                }
+                // Check unless file still ends where the last append left it
+                if (checked_end == null  ||  checked_end != end)
+                    end = checkBlocks(partition, file);
+            }
+
+            try
+            {
+                for (byte[] block : blocks)
+                {
+                    writeFully(file, ByteBuffer.wrap(block), end);
+                    end += block.length;
+                }
+            }
+            catch (IOException ex)
+            {
+                // Remove what was written of the failed block.
+                // If that fails as well, next append will check the partition
+                synchronized (this)
+                {
+                    checked.remove(partition);
+                }
+                try
+                {
+                    file.truncate(end);
+                }
+                catch (IOException truncate_error)
+                {
+                    ex.addSuppressed(truncate_error);
+                }
+                throw ex;
+            }
+            synchronized (this)
+            {
+                checked.put(partition, end);
+            }
+        }
+    }
+
+    /** @param file File
+     *  @param buffer Data to write
+     *  @param position Position in file
+     *  @throws IOException on error
+     */
+    private static void writeFully(final FileChannel file, final ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+            position += file.write(buffer, position);
+    }
+
+    /** Check header and blocks, truncate incomplete block at end
+     *  @param partition Partition path
+     *  @param file Partition file
+     *  @return End of the last complete block
+     *  @throws IOException on error
+     */
+    private long checkBlocks(final Path partition, final FileChannel file) throws IOException
+    {
+        final long size = file.size();
+        final ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        file.read(buf, 0);
+        buf.flip();
+        checkHeader(partition, buf);
+
+        long end = HEADER_SIZE;
+        final ByteBuffer length = ByteBuffer.allocate(4);
+        while (end + 4 <= size)
+        {
+            length.clear();
+            file.read(length, end);
+            final int block_length = length.getInt(0);
+            if (block_length < ColumnarBlock.MIN_LENGTH  ||  end + 4 + block_length > size)
+                break;
+            end += 4 + block_length;
+        }
+        if (end != size)
+        {
+            logger.log(Level.WARNING, "Truncating incomplete block in " + partition + " at " + end + " of " + size);
+            file.truncate(end);
+        }
+        return end;
+    }
+
+    /** @param partition Partition path
+     *  @param buffer Buffer with partition header
+     *  @throws IOException if header is not valid
+     */
+    private static void checkHeader(final Path partition, final ByteBuffer buffer) throws IOException
+    {
+        if (buffer.limit() < HEADER_SIZE  ||  buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a columnar archive partition: " + partition);
+        if (buffer.get(4) != VERSION)
+            throw new IOException("Unknown version " + buffer.get(4) + " of " + partition);
+    }
+
+    /** Memory-map partition for reading
+     *
+     *  <p>Blocks start at {@link #HEADER_SIZE}.
+     *  The last block may be incomplete if it is still being written.
+     *
+     *  @param partition Partition path
+     *  @return Buffer with content of partition
+     *  @throws IOException on error
+     */
+    public static ByteBuffer map(final Path partition) throws IOException
+    {
+        try (FileChannel file = FileChannel.open(partition, StandardOpenOption.READ))
+        {
+            if (file.size() > Integer.MAX_VALUE)
+                throw new IOException("Partition too large to map: " + partition);
+            final ByteBuffer buffer = file.map(MapMode.READ_ONLY, 0, file.size());
+            checkHeader(partition, buffer);
+            return buffer;
+        }
+    }
+
+    /** @param buffer Mapped partition
+     *  @param position Position of a block
+     *  @return <code>true</code> if there is a complete block at the position
+     */
+    public static boolean hasBlock(final ByteBuffer buffer, final int position)
+    {
+        if (position + 4 > buffer.limit())
+            return false;
+        final int length = buffer.getInt(position);
+        return length >= ColumnarBlock.MIN_LENGTH  &&  position + 4L + length <= buffer.limit();
+    }
+}
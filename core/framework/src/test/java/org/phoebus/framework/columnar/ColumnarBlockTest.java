@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/** JUnit test of the columnar archive blocks and storage
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarBlockTest
+{
+    private static final long START = 1_700_000_000_123_456_789L;
+
+    @Test
+    public void testVariable()
+    {
+        final long[] values = { 0, 1, 255, 256, 65535, 65536, 0xFFFFFFFFL, 0x100000000L, Long.MAX_VALUE, -1 };
+        final BitOutput out = new BitOutput(8);
+        for (long value : values)
+        {
+            ColumnarBlock.writeVariable(out, value, ColumnarBlock.LONG_WIDTHS);
+            out.writeBits(1, 1);
+        }
+        final int size = out.finish();
+
+        final BitInput in = new BitInput(ByteBuffer.wrap(out.getBuffer(), 0, size));
+        for (long value : values)
+        {
+            assertEquals(value, ColumnarBlock.readVariable(in, ColumnarBlock.LONG_WIDTHS));
+            assertTrue(in.readBit());
+        }
+
+        for (long value : new long[] { 0, 1, -1, 42, -42, Long.MIN_VALUE, Long.MAX_VALUE })
+            assertEquals(value, ColumnarBlock.unzigzag(ColumnarBlock.zigzag(value)));
+    }
+
+    @Test
+    public void testDoubles() throws Exception
+    {
+        final double[] values = { 3.14, 3.14, 3.15, -1e300, Double.NaN, 0.0, -0.0,
+                                  Double.POSITIVE_INFINITY, Double.MIN_VALUE, 1.0, 1.0, 2.0 };
+        final ColumnarMetaData meta = ColumnarMetaData.numeric("mm", 3, -10, 10, -5, 5, -8, 8);
+        final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE, meta);
+        // Irregular time stamps, including a large gap and a step back
+        final long[] times = new long[values.length];
+        for (int i=0; i<values.length; ++i)
+        {
+            times[i] = START + i * 1_000_000_000L + (i == 5 ? 86_000_000_000_000L : 0) - (i == 7 ? 3 : 0) + (i * 7919L % 1000);
+            encoder.addDouble(times[i], i < 3 ? 0 : 2, i < 3 ? 0 : 4, i < 3 ? "NO_ALARM" : "HIHI", values[i]);
+        }
+        assertEquals(values.length, encoder.getCount());
+
+        final byte[] block = encoder.encode();
+        final ByteBuffer buffer = ByteBuffer.wrap(block);
+        assertEquals(block.length, ColumnarBlock.getBlockLength(buffer, 0));
+        assertEquals(values.length, ColumnarBlock.getCount(buffer, 0));
+        assertEquals(times[0], ColumnarBlock.getFirstTime(buffer, 0));
+        assertEquals(times[times.length-1], ColumnarBlock.getLastTime(buffer, 0));
+
+        final ColumnarBlockDecoder decoder = new ColumnarBlockDecoder(buffer, 0);
+        assertThat(decoder.getMetaData(), equalTo(meta));
+        for (int i=0; i<values.length; ++i)
+        {
+            assertTrue(decoder.next());
+            assertEquals(times[i], decoder.getTime());
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.getDouble()));
+            assertEquals(i < 3 ? 0 : 2, decoder.getSeverity());
+            assertEquals(i < 3 ? 0 : 4, decoder.getStatus());
+            assertEquals(i < 3 ? "NO_ALARM" : "HIHI", decoder.getAlarmName());
+        }
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    public void testCompression() throws Exception
+    {
+        // 1Hz samples of a slowly changing value
+        final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE, ColumnarMetaData.EMPTY);
+        final Random random = new Random(42);
+        double value = 100.0;
+        for (int i=0; i<ColumnarBlock.MAX_SAMPLES; ++i)
+        {
+            if (random.nextInt(10) == 0)
+                value += 0.5;
+            encoder.addDouble(START + i * 1_000_000_000L, 0, 0, "", value);
+        }
+        assertTrue(encoder.isFull());
+        final byte[] block = encoder.encode();
+        final double bytes_per_sample = block.length / (double) ColumnarBlock.MAX_SAMPLES;
+        System.out.format("%d samples in %d bytes, %.2f bytes per sample\n",
+                          ColumnarBlock.MAX_SAMPLES, block.length, bytes_per_sample);
+        // Uncompressed, time and value alone would need 16 bytes
+        assertTrue(bytes_per_sample < 2.0);
+    }
+
+    @Test
+    public void testLongsStringsArrays() throws Exception
+    {
+        final long[] longs = { 0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE, 42, 42 };
+        ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.LONG, ColumnarMetaData.enumerated(List.of("Off", "On")));
+        for (int i=0; i<longs.length; ++i)
+            encoder.addLong(START + i, 0, 0, "", longs[i]);
+        ColumnarBlockDecoder decoder = new ColumnarBlockDecoder(ByteBuffer.wrap(encoder.encode()), 0);
+        assertThat(decoder.getMetaData().getLabels(), equalTo(List.of("Off", "On")));
+        for (long value : longs)
+        {
+            assertTrue(decoder.next());
+            assertEquals(value, decoder.getLong());
+        }
+        assertFalse(decoder.next());
+
+        final String[] strings = { "", "Hello", "Hello", "Grüße, ∆", "" };
+        encoder = new ColumnarBlockEncoder(ColumnarBlock.STRING, ColumnarMetaData.EMPTY);
+        for (int i=0; i<strings.length; ++i)
+            encoder.addString(START + i, 0, 0, "", strings[i]);
+        decoder = new ColumnarBlockDecoder(ByteBuffer.wrap(encoder.encode()), 0);
+        for (String value : strings)
+        {
+            assertTrue(decoder.next());
+            assertEquals(value, decoder.getString());
+        }
+        assertFalse(decoder.next());
+
+        final double[][] arrays = { { 1, 2, 3 }, { }, { 1, 2, 3 }, { Double.NaN, 4e-20 } };
+        encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE_ARRAY, ColumnarMetaData.EMPTY);
+        for (int i=0; i<arrays.length; ++i)
+            encoder.addArray(START + i, 0, 0, "", arrays[i]);
+        decoder = new ColumnarBlockDecoder(ByteBuffer.wrap(encoder.encode()), 0);
+        for (double[] value : arrays)
+        {
+            assertTrue(decoder.next());
+            assertArrayEquals(value, decoder.getArray());
+        }
+        assertFalse(decoder.next());
+
+        final ColumnarBlockEncoder doubles = encoder;
+        assertThrows(IllegalStateException.class, () -> doubles.addDouble(START, 0, 0, "", 1.0));
+    }
+
+    @Test
+    public void testCorruptedBlock() throws Exception
+    {
+        final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.STRING, ColumnarMetaData.EMPTY);
+        for (int i=0; i<100; ++i)
+            encoder.addString(START + i, 0, 0, "", "Text " + i);
+        final byte[] block = encoder.encode();
+        // Damage the bit stream, decoder must report error instead of reading garbage
+        for (int i=block.length-200; i<block.length; ++i)
+            block[i] = (byte) 0xFF;
+        final ColumnarBlockDecoder decoder = new ColumnarBlockDecoder(ByteBuffer.wrap(block), 0);
+        assertThrows(IOException.class, () ->
+        {
+            while (decoder.next())
+                decoder.getString();
+        });
+    }
+
+    @Test
+    public void testStorage() throws Exception
+    {
+        final Path root = Files.createTempDirectory("columnar");
+        try
+        {
+            final ColumnarStorage storage = new ColumnarStorage(root);
+            final String name = "sim://sine(0, 10, 0.1)*2";
+            assertEquals(name, ColumnarStorage.decodeName(ColumnarStorage.encodeName(name)));
+            assertFalse(ColumnarStorage.encodeName(name).contains("*"));
+            assertFalse(storage.hasChannel(name));
+
+            final LocalDate date = ColumnarStorage.getPartitionDate(START);
+            assertEquals(LocalDate.of(2023, 11, 14), date);
+            assertEquals(LocalDate.of(1969, 12, 31), ColumnarStorage.getPartitionDate(-1));
+
+            storage.append(name, date, List.of(createBlock(0, 10), createBlock(10, 20)));
+            assertTrue(storage.hasChannel(name));
+            assertThat(storage.getChannelNames(), equalTo(List.of(name)));
+            assertThat(storage.getPartitionDates(name), equalTo(List.of(date)));
+            assertEquals(20, countSamples(storage.getPartition(name, date)));
+
+            // Simulate crash while writing a block
+            final Path partition = storage.getPartition(name, date);
+            final byte[] partial = createBlock(20, 30);
+            try (FileChannel file = FileChannel.open(partition, StandardOpenOption.APPEND))
+            {
+                file.write(ByteBuffer.wrap(partial, 0, partial.length / 2));
+            }
+            // Reader ignores the incomplete block
+            assertEquals(20, countSamples(partition));
+
+            // New writer truncates the incomplete block before appending
+            new ColumnarStorage(root).append(name, date, List.of(createBlock(20, 30)));
+            assertEquals(30, countSamples(partition));
+        }
+        finally
+        {
+            try (Stream<Path> files = Files.walk(root))
+            {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static byte[] createBlock(final int start, final int end) throws IOException
+    {
+        final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE, ColumnarMetaData.EMPTY);
+        for (int i=start; i<end; ++i)
+            encoder.addDouble(START + i * 1_000_000L, 0, 0, "", i);
+        return encoder.encode();
+    }
+
+    private static int countSamples(final Path partition) throws IOException
+    {
+        final ByteBuffer buffer = ColumnarStorage.map(partition);
+        int count = 0, position = ColumnarStorage.HEADER_SIZE;
+        while (ColumnarStorage.hasBlock(buffer, position))
+        {
+            final ColumnarBlockDecoder decoder = new ColumnarBlockDecoder(buffer, position);
+            while (decoder.next())
+            {
+                assertEquals(count, decoder.getDouble(), 0.0);
+                ++count;
+            }
+            position += ColumnarBlock.getBlockLength(buffer, position);
+        }
+        return count;
+    }
+}
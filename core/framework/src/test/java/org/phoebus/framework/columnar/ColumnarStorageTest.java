@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.framework.columnar;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** JUnit test that writes and reads back a {@link ColumnarStorage}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarStorageTest
+{
+    /** Start of 2023-11-14 */
+    private static final long DAY_START = 1_699_920_000_000_000_000L;
+
+    private static final long HOUR = 60L * 60 * 1_000_000_000L;
+
+    private Path root;
+
+    @BeforeEach
+    public void createRoot() throws IOException
+    {
+        root = Files.createTempDirectory("columnar");
+    }
+
+    @AfterEach
+    public void deleteRoot() throws IOException
+    {
+        try (Stream<Path> files = Files.walk(root))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /** Sample as read back */
+    private static class Sample
+    {
+        final long time;
+        final int severity;
+        final String alarm;
+        final Object value;
+
+        Sample(final long time, final int severity, final String alarm, final Object value)
+        {
+            this.time = time;
+            this.severity = severity;
+            this.alarm = alarm;
+            this.value = value;
+        }
+    }
+
+    /** @param storage Storage
+     *  @param name Channel name
+     *  @return All samples in all partitions of the channel
+     */
+    private static List<Sample> readAll(final ColumnarStorage storage, final String name) throws IOException
+    {
+        final List<Sample> samples = new ArrayList<>();
+        for (LocalDate date : storage.getPartitionDates(name))
+        {
+            final ByteBuffer buffer = ColumnarStorage.map(storage.getPartition(name, date));
+            int position = ColumnarStorage.HEADER_SIZE;
+            while (ColumnarStorage.hasBlock(buffer, position))
+            {
+                final ColumnarBlockDecoder decoder = new ColumnarBlockDecoder(buffer, position);
+                while (decoder.next())
+                {
+                    final Object value;
+                    switch (decoder.getType())
+                    {
+                    case ColumnarBlock.STRING:
+                        value = decoder.getString();
+                        break;
+                    case ColumnarBlock.LONG:
+                        value = decoder.getLong();
+                        break;
+                    default:
+                        value = decoder.getDouble();
+                    }
+                    samples.add(new Sample(decoder.getTime(), decoder.getSeverity(), decoder.getAlarmName(), value));
+                }
+                position += ColumnarBlock.getBlockLength(buffer, position);
+            }
+        }
+        return samples;
+    }
+
+    @Test
+    public void testWriteRead() throws Exception
+    {
+        final ColumnarStorage storage = new ColumnarStorage(root);
+        final String name = "Demo:Value";
+
+        // Samples for two days, written in several appends of several blocks
+        final long[] times = new long[48];
+        for (int i=0; i<times.length; ++i)
+            times[i] = DAY_START + i * HOUR + i;
+        for (int first=0; first<times.length; first+=12)
+        {
+            final LocalDate date = ColumnarStorage.getPartitionDate(times[first]);
+            final List<byte[]> blocks = new ArrayList<>();
+            for (int start=first; start<first+12; start+=4)
+            {
+                final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE, ColumnarMetaData.EMPTY);
+                for (int i=start; i<start+4; ++i)
+                    encoder.addDouble(times[i], i % 3, i % 3, i % 3 == 0 ? "" : "HIGH", i * 0.5);
+                blocks.add(encoder.encode());
+            }
+            storage.append(name, date, blocks);
+        }
+
+        assertThat(storage.getChannelNames(), equalTo(List.of(name)));
+        assertThat(storage.getPartitionDates(name), equalTo(List.of(LocalDate.of(2023, 11, 14), LocalDate.of(2023, 11, 15))));
+
+        final List<Sample> samples = readAll(storage, name);
+        assertEquals(times.length, samples.size());
+        for (int i=0; i<times.length; ++i)
+        {
+            final Sample sample = samples.get(i);
+            assertEquals(times[i], sample.time);
+            assertEquals(i % 3, sample.severity);
+            assertEquals(i % 3 == 0 ? "" : "HIGH", sample.alarm);
+            assertEquals(i * 0.5, sample.value);
+        }
+
+        // Other types of samples for another channel
+        final ColumnarBlockEncoder text = new ColumnarBlockEncoder(ColumnarBlock.STRING, ColumnarMetaData.EMPTY);
+        text.addString(DAY_START, 0, 0, "", "Hello");
+        text.addString(DAY_START + 1, 0, 0, "", "Bye");
+        final ColumnarBlockEncoder state = new ColumnarBlockEncoder(ColumnarBlock.LONG, ColumnarMetaData.enumerated(List.of("Off", "On")));
+        state.addLong(DAY_START + 2, 0, 0, "", 1);
+        storage.append("Demo:Text", LocalDate.of(2023, 11, 14), List.of(text.encode(), state.encode()));
+        final List<Sample> other = readAll(storage, "Demo:Text");
+        assertEquals(3, other.size());
+        assertEquals("Hello", other.get(0).value);
+        assertEquals("Bye", other.get(1).value);
+        assertEquals(1L, other.get(2).value);
+        assertEquals(times.length, readAll(storage, name).size());
+    }
+
+    @Test
+    public void testIncompleteBlock() throws Exception
+    {
+        final ColumnarStorage storage = new ColumnarStorage(root);
+        final String name = "Demo:Value";
+        final LocalDate date = ColumnarStorage.getPartitionDate(DAY_START);
+
+        final ColumnarBlockEncoder encoder = new ColumnarBlockEncoder(ColumnarBlock.DOUBLE, ColumnarMetaData.EMPTY);
+        encoder.addDouble(DAY_START, 0, 0, "", 1.0);
+        final byte[] block = encoder.encode();
+        storage.append(name, date, List.of(block));
+
+        // Failed write leaves part of a block at the end of the partition
+        final Path partition = storage.getPartition(name, date);
+        try (FileChannel file = FileChannel.open(partition, StandardOpenOption.APPEND))
+        {
+            file.write(ByteBuffer.wrap(block, 0, block.length - 1));
+        }
+        assertEquals(1, readAll(storage, name).size());
+
+        // Same storage instance notices the incomplete block before appending
+        storage.append(name, date, List.of(block));
+        final List<Sample> samples = readAll(storage, name);
+        assertEquals(2, samples.size());
+        for (Sample sample : samples)
+            assertEquals(1.0, sample.value);
+        assertEquals(ColumnarStorage.HEADER_SIZE + 2 * block.length, Files.size(partition));
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017-2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2017-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,9 +9,11 @@ package org.phoebus.pv;
 
 import static org.phoebus.pv.PV.logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
@@ -174,8 +176,11 @@ public class PVPool
     }
 
     /** PV Pool
-     *  SYNC on 'pool':
-     *  Otherwise, two threads concurrently looking for a new PV would both add it.
+     *
+     *  <p>Thread-safe, creates each PV only once
+     *  even when several threads concurrently look for the same new PV.
+     *  PVs are created without holding a lock on the complete pool,
+     *  so different PVs can be created in parallel.
      */
     final private static RefCountMap<String, PV> pool = new RefCountMap<>();
 
@@ -216,6 +221,34 @@ public class PVPool
         return ref.getEntry();
     }
 
+    /** Obtain several PVs
+     *
+     *  <p>Convenience method for code that needs many PVs at once,
+     *  for example when opening a display.
+     *  Obtains all PVs, or none: If one of the PVs cannot be obtained,
+     *  the PVs that were already obtained are released.
+     *
+     *  @param names PV names
+     *  @return {@link PV}s in the order of the provided names
+     *  @throws Exception on error
+     *  @see #releasePVs(Collection)
+     */
+    public static List<PV> getPVs(final Collection<String> names) throws Exception
+    {
+        final List<PV> pvs = new ArrayList<>(names.size());
+        try
+        {
+            for (String name : names)
+                pvs.add(getPV(name));
+        }
+        catch (Exception ex)
+        {
+            releasePVs(pvs);
+            throw ex;
+        }
+        return pvs;
+    }
+
     private static PV createPV(PVFactory factory, final String name, final String base_name)
     {
         try
@@ -242,12 +275,16 @@ public class PVPool
             logger.log(Level.CONFIG, () -> "PV '" + pv.getName() + "' remaining references: " + references);
     }
 
+    /** @param pvs PVs to be released */
+    public static void releasePVs(final Collection<PV> pvs)
+    {
+        for (PV pv : pvs)
+            releasePV(pv);
+    }
+
     /** @return PVs currently in the pool with reference count information */
     public static Collection<ReferencedEntry<PV>> getPVReferences()
     {
-        synchronized (pool)
-        {
-            return pool.getEntries();
-        }
+        return pool.getEntries();
     }
 }
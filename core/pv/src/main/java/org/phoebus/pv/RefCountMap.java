@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2017-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,11 +9,13 @@ package org.phoebus.pv;
 
 import static org.phoebus.pv.PV.logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.logging.Level;
@@ -21,6 +23,9 @@ import java.util.logging.Level;
 /** Map that keeps reference count for its objects
  *
  *  <p>Thread-safe.
+ *  Different keys can be created concurrently,
+ *  and items are created without holding a lock,
+ *  so creating an item may in turn create other items.
  *
  *  @param <K> Key data type
  *  @param <E> Entry data type
@@ -32,12 +37,43 @@ public class RefCountMap<K, E>
     /** Wrapper for an entry with reference count */
     public static class ReferencedEntry<E>
     {
-        private final E entry;
+        /** Thread that creates the item */
+        private final Thread creator;
+
+        /** Signals that item has been created, or creation failed */
+        private final CountDownLatch created = new CountDownLatch(1);
+
+        private volatile E entry = null;
+        private volatile Throwable error = null;
         private final AtomicInteger references = new AtomicInteger(0);
 
-        private ReferencedEntry(final E entry)
+        private ReferencedEntry(final Thread creator)
+        {
+            this.creator = creator;
+        }
+
+        private void setEntry(final E entry)
         {
             this.entry = Objects.requireNonNull(entry);
+            created.countDown();
+        }
+
+        private void setError(final Throwable error)
+        {
+            this.error = error;
+            created.countDown();
+        }
+
+        /** Wait for item to be created by another thread
+         *  @throws Throwable Error from creating the item
+         */
+        private void await() throws Throwable
+        {
+            if (creator == Thread.currentThread()  &&  created.getCount() > 0)
+                throw new Exception("Recursive creation");
+            created.await();
+            if (error != null)
+                throw error;
         }
 
         /** @return Item */
@@ -73,11 +109,15 @@ public class RefCountMap<K, E>
     // But the computeIfAbsent() mapping function must not itself update the map,
     // which can happen with a formula PV which references and thus creates
     // other PVs.
-    // With plain synchronization, adding a formula takes the synchronization lock,
-    // and while it is held, recursive additions from the same thread are possible.
+    // Next used plain synchronization, which allowed recursive additions
+    // from the same thread, but serialized all lookups and creations.
     //
-    // SYNC on access.
-    final private Map<K, ReferencedEntry<E>> map = new HashMap<>();
+    // Now the ConcurrentHashMap only holds its (per-bin) lock
+    // to add or remove a placeholder entry and update the reference count.
+    // The thread that added the placeholder then creates the item
+    // outside of any lock, while other threads that request the
+    // same key wait for that item.
+    final private ConcurrentHashMap<K, ReferencedEntry<E>> map = new ConcurrentHashMap<>();
 
     /** Get or create item
      *
@@ -85,28 +125,45 @@ public class RefCountMap<K, E>
      *  Otherwise create new item with initial reference count of 1.
      *
      *  @param key Item key
-     *  @param creator Function that will be called atomically to create new items
+     *  @param creator Function that will be called once to create new items.
+     *                 Called without holding a lock, may itself add other items.
      *  @return reference counted entry
      */
     public ReferencedEntry<E> createOrGet(final K key, final Supplier<E> creator)
     {
-        try
+        final Thread thread = Thread.currentThread();
+        final boolean[] is_new = { false };
+        final ReferencedEntry<E> ref_entry = map.compute(key, (k, existing) ->
         {
-            ReferencedEntry<E> ref_entry;
-            synchronized (map)
+            final ReferencedEntry<E> result;
+            if (existing == null)
             {
-                ref_entry = map.get(key);
-                if (ref_entry == null)
-                {
-                    ref_entry = new ReferencedEntry<>(creator.get());
-                    map.put(key, ref_entry);
-                }
+                result = new ReferencedEntry<>(thread);
+                is_new[0] = true;
             }
-            ref_entry.addRef();
+            else
+                result = existing;
+            result.addRef();
+            return result;
+        });
+
+        try
+        {
+            if (is_new[0])
+                ref_entry.setEntry(creator.get());
+            else
+                ref_entry.await();
             return ref_entry;
         }
         catch (Throwable ex)
         {
+            if (is_new[0])
+            {   // Let waiting threads know, and allow next attempt to try again
+                map.remove(key, ref_entry);
+                ref_entry.setError(ex);
+            }
+            else // Remove reference added above
+                map.computeIfPresent(key, (k, entry) -> (entry == ref_entry  &&  entry.decRef() <= 0) ? null : entry);
             // Show PV name to help debug errors
             throw new RuntimeException("Error for PV " + key, ex);
         }
@@ -119,31 +176,29 @@ public class RefCountMap<K, E>
     public int release(final K key)
     {
         // System.out.println("Release " + key + " in " + map);
-        synchronized (map)
+        final int[] refs = { -1 };
+        map.computeIfPresent(key, (k, entry) ->
         {
-            final ReferencedEntry<E> entry = map.get(key);
-            if (entry == null)
-            {
-                logger.log(Level.WARNING, "No reference found for " + key, new Exception("Call stack"));
-                return 0;
-            }
-
-            final int refs = entry.decRef();
-            if (refs <= 0)
-            {   // No more references
-                map.remove(key);
-                return 0;
-            }
-            return refs;
+            refs[0] = entry.decRef();
+            // No more references?
+            return refs[0] <= 0 ? null : entry;
+        });
+        if (refs[0] < 0)
+        {
+            logger.log(Level.WARNING, "No reference found for " + key, new Exception("Call stack"));
+            return 0;
         }
+        return refs[0];
     }
 
     /** @return Entries in map */
     public Collection<ReferencedEntry<E>> getEntries()
     {
-        synchronized (map)
-        {
-            return Collections.unmodifiableCollection(map.values());
-        }
+        // Skip entries that are still being created
+        final List<ReferencedEntry<E>> entries = new ArrayList<>(map.size());
+        for (ReferencedEntry<E> entry : map.values())
+            if (entry.getEntry() != null)
+                entries.add(entry);
+        return Collections.unmodifiableCollection(entries);
     }
 }
@@ -25,6 +25,11 @@ import org.epics.pva.data.PVAShortArray;
  *
  *  <p>Base for all compression codecs.
  *
+ *  <p>A codec holds buffers from the previous image
+ *  which are re-used when possible,
+ *  so each PV needs its own codec instance,
+ *  and it must not be called concurrently.
+ *
  *  @author Kay Kasemir
  */
 abstract public class Codec
@@ -45,7 +50,43 @@ abstract public class Codec
         Double.BYTES    // 10 double
     };
 
+    /** De-compressed bytes of previous image for data types other than byte,
+     *  only used while converting into the actual data type and thus always re-used
+     */
+    private byte[] expanded = null;
+
+    /** Original data type of previous image */
+    private int previous_type = -1;
+
+    /** Array data of previous image (byte[], short[], ...) */
+    private Object previous = null;
+
+    /** @param orig_data_type Original data type of new image
+     *  @return Array data of previous image if it may be re-used for new image, else <code>null</code>
+     */
+    private Object getReusableArray(final int orig_data_type)
+    {
+        if (PVA_Preferences.epics_pva_reuse_image_arrays  &&  orig_data_type == previous_type)
+            return previous;
+        return null;
+    }
+
+    /** @param orig_data_type Original data type of image
+     *  @param array Array data of image
+     *  @return Array data
+     */
+    private <T> T remember(final int orig_data_type, final T array)
+    {
+        previous_type = orig_data_type;
+        previous = array;
+        return array;
+    }
+
     /** De-compress value
+     *
+     *  <p>When the preference <code>epics_pva_reuse_image_arrays</code> is set,
+     *  the array of the previously returned image data will be re-used
+     *  if the data type and size match.
      *
      *  @param value Value with compressed value
      *  @param orig_data_type Original data type ID
@@ -56,14 +97,23 @@ abstract public class Codec
     public PVAData decompress(final PVAByteArray value, final int orig_data_type,
                               final int value_count) throws Exception
     {
+        if (orig_data_type <= 0  ||  orig_data_type >= BYTES_PER_SAMPLE.length)
+            throw new Exception("Cannot decode compressed data for orig data type  " + orig_data_type);
         final boolean unsigned = orig_data_type >= 5  &&  orig_data_type <= 8;
         final byte[] compressed = ((PVAByteArray)value).get();
-        final byte[] expanded = decompress(compressed, BYTES_PER_SAMPLE[orig_data_type] * value_count);
-        logger.log(Level.FINE, () -> "Decompressed " + compressed.length + " into " + expanded.length + " bytes");
+        final int size = BYTES_PER_SAMPLE[orig_data_type] * value_count;
 
-        // byte, ubyte: Done!
+        // byte, ubyte: Done once de-compressed!
         if (orig_data_type == 1  ||  orig_data_type == 5)
-            return new PVAByteArray(unsigned ? "ubyteValue" : "byteValue", unsigned, expanded);
+        {
+            final Object reuse = getReusableArray(orig_data_type);
+            final byte[] bytes = decompress(compressed, size, reuse instanceof byte[] ? (byte[]) reuse : null);
+            logger.log(Level.FINE, () -> "Decompressed " + compressed.length + " into " + bytes.length + " bytes");
+            return new PVAByteArray(unsigned ? "ubyteValue" : "byteValue", unsigned, remember(orig_data_type, bytes));
+        }
+
+        expanded = decompress(compressed, size, expanded);
+        logger.log(Level.FINE, () -> "Decompressed " + compressed.length + " into " + expanded.length + " bytes");
 
         // Need to 'cast' the expanded data from byte[] to orig_data_type[].
         // In C/C++, that's easy without copying the data:
@@ -73,14 +123,8 @@ abstract public class Codec
         //   int[] ints = (short []) (Object) expanded;
         //   int[] ints = cvt.asIntBuffer().array();
         //
-        // cvt.getInt() as used below eventually calls Unsafe.getInt(..).
-        // There are per-element access routines for each data type in Unsafe,
-        // but couldn't find a general array cast operation.
-        // There are Unsafe.copyMemoryXX routines that might save a little time over
-        // a per-element copy, but they still result in a full copy of the data,
-        // not saving any memory.
-        // Besides, the array elements might need to be swapped to the correct endian,
-        // so going with the ByteBuffer.getXXX() calls which handle byte order.
+        // The typed view buffers do, however, support a bulk copy
+        // into the target array which also handles the byte order.
 
         // Unclear what byte order the data will be.
         // This worked in tests with X86_64 on Linux,
@@ -88,41 +132,47 @@ abstract public class Codec
         // and NTNDArray doesn't include any hint
         cvt.order(ByteOrder.LITTLE_ENDIAN);
 
+        final Object reuse = getReusableArray(orig_data_type);
         switch (orig_data_type)
         {
         case 2: // short
         case 6: // ushort
-            final short[] shorts = new short[value_count];
-            for (int i=0; i<shorts.length; ++i)
-                shorts[i] = cvt.getShort();
-            return new PVAShortArray(unsigned ? "ushortValue" : "shortValue", unsigned, shorts);
-
+        {
+            final short[] shorts = (reuse instanceof short[]  &&  ((short[]) reuse).length == value_count)
+                                 ? (short[]) reuse : new short[value_count];
+            cvt.asShortBuffer().get(shorts);
+            return new PVAShortArray(unsigned ? "ushortValue" : "shortValue", unsigned, remember(orig_data_type, shorts));
+        }
         case 3: // int
         case 7: // uint
-            final int[] ints = new int[value_count];
-            for (int i=0; i<ints.length; ++i)
-                ints[i] = cvt.getInt();
-            return new PVAIntArray(unsigned ? "uintValue" : "intValue", unsigned, ints);
-
+        {
+            final int[] ints = (reuse instanceof int[]  &&  ((int[]) reuse).length == value_count)
+                             ? (int[]) reuse : new int[value_count];
+            cvt.asIntBuffer().get(ints);
+            return new PVAIntArray(unsigned ? "uintValue" : "intValue", unsigned, remember(orig_data_type, ints));
+        }
         case 4: // long
         case 8: // ulong
-            final long[] longs = new long[value_count];
-            for (int i=0; i<longs.length; ++i)
-                longs[i] = cvt.getLong();
-            return new PVALongArray(unsigned ? "ulongValue" : "longValue", unsigned, longs);
-
+        {
+            final long[] longs = (reuse instanceof long[]  &&  ((long[]) reuse).length == value_count)
+                               ? (long[]) reuse : new long[value_count];
+            cvt.asLongBuffer().get(longs);
+            return new PVALongArray(unsigned ? "ulongValue" : "longValue", unsigned, remember(orig_data_type, longs));
+        }
         case 9: // float
-            final float[] floats = new float[value_count];
-            for (int i=0; i<floats.length; ++i)
-                floats[i] = cvt.getFloat();
-            return new PVAFloatArray("floatValue", floats);
-
+        {
+            final float[] floats = (reuse instanceof float[]  &&  ((float[]) reuse).length == value_count)
+                                 ? (float[]) reuse : new float[value_count];
+            cvt.asFloatBuffer().get(floats);
+            return new PVAFloatArray("floatValue", remember(orig_data_type, floats));
+        }
         case 10: // double
-            final double[] doubles = new double[value_count];
-            for (int i=0; i<doubles.length; ++i)
-                doubles[i] = cvt.getDouble();
-            return new PVADoubleArray("doubleValue", doubles);
-
+        {
+            final double[] doubles = (reuse instanceof double[]  &&  ((double[]) reuse).length == value_count)
+                                   ? (double[]) reuse : new double[value_count];
+            cvt.asDoubleBuffer().get(doubles);
+            return new PVADoubleArray("doubleValue", remember(orig_data_type, doubles));
+        }
         default:
             throw new Exception("Cannot decode compressed data for orig data type  " + orig_data_type);
         }
@@ -136,4 +186,20 @@ abstract public class Codec
      *  @throws Exception on error
      */
     abstract public byte[] decompress(byte[] data, final int decompressed_size) throws Exception;
+
+    /** De-compress byte array, if possible into provided buffer
+     *
+     *  <p>Default implementation ignores the buffer,
+     *  codecs that can de-compress into a provided buffer override.
+     *
+     *  @param data Compressed data
+     *  @param decompressed_size Expected de-compressed size in bytes
+     *  @param buffer Buffer to use if it has the decompressed size, may be <code>null</code>
+     *  @return De-compressed data, either in the provided buffer or a new one
+     *  @throws Exception on error
+     */
+    public byte[] decompress(final byte[] data, final int decompressed_size, final byte[] buffer) throws Exception
+    {
+        return decompress(data, decompressed_size);
+    }
 }
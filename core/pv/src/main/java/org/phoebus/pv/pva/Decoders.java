@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2019-2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2019-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -373,7 +373,7 @@ public class Decoders
      */
     public static VType decodeDouble(final PVAStructure struct, final PVADouble field)
     {
-        return VDouble.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeDouble(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -382,7 +382,7 @@ public class Decoders
      */
     public static VType decodeFloat(final PVAStructure struct, final PVAFloat field)
     {
-        return VFloat.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeFloat(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -391,9 +391,7 @@ public class Decoders
      */
     public static VType decodeLong(final PVAStructure struct, final PVALong field)
     {
-        if (field.isUnsigned())
-            return VULong.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        return VLong.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeLong(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -402,9 +400,7 @@ public class Decoders
      */
     public static VType decodeInt(final PVAStructure struct, final PVAInt field)
     {
-        if (field.isUnsigned())
-            return VUInt.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        return VInt.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeInt(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -413,9 +409,7 @@ public class Decoders
      */
     public static VType decodeShort(final PVAStructure struct, final PVAShort field)
     {
-        if (field.isUnsigned())
-            return VUShort.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        return VShort.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeShort(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -424,9 +418,7 @@ public class Decoders
      */
     public static VType decodeByte(final PVAStructure struct, final PVAByte field)
     {
-        if (field.isUnsigned())
-            return VUByte.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        return VByte.of(field.get(), decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeByte(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -435,8 +427,7 @@ public class Decoders
      */
     public static VType decodeDoubleArray(final PVAStructure struct, final PVADoubleArray field)
     {
-        return VDoubleArray.of(ArrayDouble.of(field.get()),
-                               decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeDoubleArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -445,8 +436,7 @@ public class Decoders
      */
     public static VType decodeFloatArray(final PVAStructure struct, final PVAFloatArray field)
     {
-        return VFloatArray.of(ArrayFloat.of(field.get()),
-                              decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeFloatArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -455,12 +445,7 @@ public class Decoders
      */
     public static VType decodeLongArray(final PVAStructure struct, final PVALongArray field)
     {
-        if (field.isUnsigned())
-            return VULongArray.of(ArrayULong.of(field.get()),
-                                  decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        else
-            return VLongArray.of(ArrayLong.of(field.get()),
-                                 decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeLongArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -469,12 +454,7 @@ public class Decoders
      */
     public static VType decodeIntArray(final PVAStructure struct, final PVAIntArray field)
     {
-        if (field.isUnsigned())
-            return VUIntArray.of(ArrayUInteger.of(field.get()),
-                                 decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        else
-            return VIntArray.of(ArrayInteger.of(field.get()),
-                                decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeIntArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -483,12 +463,7 @@ public class Decoders
      */
     public static VType decodeShortArray(final PVAStructure struct, final PVAShortArray field)
     {
-        if (field.isUnsigned())
-            return VUShortArray.of(ArrayUShort.of(field.get()),
-                                   decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        else
-            return VShortArray.of(ArrayShort.of(field.get()),
-                                  decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeShortArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -497,12 +472,7 @@ public class Decoders
      */
     public static VType decodeByteArray(final PVAStructure struct, final PVAByteArray field)
     {
-        if (field.isUnsigned())
-            return VUByteArray.of(ArrayUByte.of(field.get()),
-                                  decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
-        else
-            return VByteArray.of(ArrayByte.of(field.get()),
-                                 decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+        return decodeByteArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 
     /** @param struct Structure
@@ -520,43 +490,153 @@ public class Decoders
      *  @throws Exception on error
      */
     public static VType decodeNumber(final PVAStructure struct, final PVANumber field) throws Exception
+    {
+        return decodeNumber(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
+    }
+
+    /** Decode number with given meta data
+     *
+     *  <p>Allows re-using alarm, time and display
+     *  that did not change since the last update.
+     *
+     *  @param field Field for number
+     *  @param alarm Alarm
+     *  @param time Time
+     *  @param display Display
+     *  @return VType for number
+     *  @throws Exception on error
+     */
+    static VType decodeNumber(final PVANumber field, final Alarm alarm, final Time time, final Display display) throws Exception
     {
         if (field instanceof PVADouble)
-            return Decoders.decodeDouble(struct, (PVADouble) field);
+            return decodeDouble((PVADouble) field, alarm, time, display);
         if (field instanceof PVAFloat)
-            return Decoders.decodeFloat(struct, (PVAFloat) field);
+            return decodeFloat((PVAFloat) field, alarm, time, display);
         if (field instanceof PVALong)
-            return Decoders.decodeLong(struct, (PVALong) field);
+            return decodeLong((PVALong) field, alarm, time, display);
         if (field instanceof PVAInt)
-            return Decoders.decodeInt(struct, (PVAInt) field);
+            return decodeInt((PVAInt) field, alarm, time, display);
         if (field instanceof PVAShort)
-            return Decoders.decodeShort(struct, (PVAShort) field);
+            return decodeShort((PVAShort) field, alarm, time, display);
         if (field instanceof PVAByte)
-            return Decoders.decodeByte(struct, (PVAByte) field);
+            return decodeByte((PVAByte) field, alarm, time, display);
         throw new Exception("Cannot handle " + field.getClass().getName());
     }
 
-    /** @param struct Structure
+    private static VType decodeDouble(final PVADouble field, final Alarm alarm, final Time time, final Display display)
+    {
+        return VDouble.of(field.get(), alarm, time, display);
+    }
+
+    private static VType decodeFloat(final PVAFloat field, final Alarm alarm, final Time time, final Display display)
+    {
+        return VFloat.of(field.get(), alarm, time, display);
+    }
+
+    private static VType decodeLong(final PVALong field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VULong.of(field.get(), alarm, time, display);
+        return VLong.of(field.get(), alarm, time, display);
+    }
+
+    private static VType decodeInt(final PVAInt field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUInt.of(field.get(), alarm, time, display);
+        return VInt.of(field.get(), alarm, time, display);
+    }
+
+    private static VType decodeShort(final PVAShort field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUShort.of(field.get(), alarm, time, display);
+        return VShort.of(field.get(), alarm, time, display);
+    }
+
+    private static VType decodeByte(final PVAByte field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUByte.of(field.get(), alarm, time, display);
+        return VByte.of(field.get(), alarm, time, display);
+    }
+
+    /** Decode numeric array with given meta data
+     *
+     *  <p>Allows re-using alarm, time and display
+     *  that did not change since the last update.
+     *
      *  @param field Field for numeric array
+     *  @param alarm Alarm
+     *  @param time Time
+     *  @param display Display
      *  @return VType for number array
      *  @throws Exception on error
      */
-    public static VType decodeArray(final PVAStructure struct, final PVAArray field) throws Exception
+    static VType decodeNumericArray(final PVAArray field, final Alarm alarm, final Time time, final Display display) throws Exception
     {
         if (field instanceof PVADoubleArray)
-            return Decoders.decodeDoubleArray(struct, (PVADoubleArray) field);
+            return decodeDoubleArray((PVADoubleArray) field, alarm, time, display);
         if (field instanceof PVAFloatArray)
-            return Decoders.decodeFloatArray(struct, (PVAFloatArray) field);
+            return decodeFloatArray((PVAFloatArray) field, alarm, time, display);
         if (field instanceof PVALongArray)
-            return Decoders.decodeLongArray(struct, (PVALongArray) field);
+            return decodeLongArray((PVALongArray) field, alarm, time, display);
         if (field instanceof PVAIntArray)
-            return Decoders.decodeIntArray(struct, (PVAIntArray) field);
+            return decodeIntArray((PVAIntArray) field, alarm, time, display);
         if (field instanceof PVAShortArray)
-            return Decoders.decodeShortArray(struct, (PVAShortArray) field);
+            return decodeShortArray((PVAShortArray) field, alarm, time, display);
         if (field instanceof PVAByteArray)
-            return Decoders.decodeByteArray(struct, (PVAByteArray) field);
+            return decodeByteArray((PVAByteArray) field, alarm, time, display);
+        throw new Exception("Cannot handle " + field.getClass().getName());
+    }
+
+    private static VType decodeDoubleArray(final PVADoubleArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        return VDoubleArray.of(ArrayDouble.of(field.get()), alarm, time, display);
+    }
+
+    private static VType decodeFloatArray(final PVAFloatArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        return VFloatArray.of(ArrayFloat.of(field.get()), alarm, time, display);
+    }
+
+    private static VType decodeLongArray(final PVALongArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VULongArray.of(ArrayULong.of(field.get()), alarm, time, display);
+        return VLongArray.of(ArrayLong.of(field.get()), alarm, time, display);
+    }
+
+    private static VType decodeIntArray(final PVAIntArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUIntArray.of(ArrayUInteger.of(field.get()), alarm, time, display);
+        return VIntArray.of(ArrayInteger.of(field.get()), alarm, time, display);
+    }
+
+    private static VType decodeShortArray(final PVAShortArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUShortArray.of(ArrayUShort.of(field.get()), alarm, time, display);
+        return VShortArray.of(ArrayShort.of(field.get()), alarm, time, display);
+    }
+
+    private static VType decodeByteArray(final PVAByteArray field, final Alarm alarm, final Time time, final Display display)
+    {
+        if (field.isUnsigned())
+            return VUByteArray.of(ArrayUByte.of(field.get()), alarm, time, display);
+        return VByteArray.of(ArrayByte.of(field.get()), alarm, time, display);
+    }
+
+    /** @param struct Structure
+     *  @param field Field for numeric array
+     *  @return VType for number array
+     *  @throws Exception on error
+     */
+    public static VType decodeArray(final PVAStructure struct, final PVAArray field) throws Exception
+    {
         if (field instanceof PVAStringArray)
             return Decoders.decodeStringArray(struct, (PVAStringArray) field);
-        throw new Exception("Cannot handle " + field.getClass().getName());
+        return decodeNumericArray(field, decodeAlarm(struct), decodeTime(struct), decodeDisplay(struct));
     }
 }
@@ -41,6 +41,11 @@ import org.epics.vtype.VImageType;
 import org.epics.vtype.VType;
 
 /** VImage from NT ND Array data
+ *
+ *  <p>An instance of the decoder holds codecs
+ *  that re-use buffers from one image to the next,
+ *  so it must only be used for one PV and not concurrently.
+ *
  *  @author Kay Kasemir
  *  @author Amanda Carpenter - Original code to handle unsigned VImageDataType, detect VImageType
  */
@@ -62,11 +67,34 @@ public class ImageDecoder
         VImageType.TYPE_YUV411
     };
 
-    /** @param struct Structure with image
+    /** Codec for LZ4 compressed data, created when needed */
+    private LZ4Codec lz4 = null;
+
+    /** Codec for JPEG compressed data, created when needed */
+    private JPEGCodec jpeg = null;
+
+    /** Decode image
+     *
+     *  <p>Creates a new decoder, i.e. does not re-use any buffers
+     *
+     *  @param struct Structure with image
      *  @return VType for image
      *  @throws Exception on error
      */
     public static VType decode(final PVAStructure struct) throws Exception
+    {
+        return new ImageDecoder().decodeImage(struct);
+    }
+
+    /** Decode image
+     *
+     *  <p>Codecs may re-use buffers from previous call
+     *
+     *  @param struct Structure with image
+     *  @return VType for image
+     *  @throws Exception on error
+     */
+    public VType decodeImage(final PVAStructure struct) throws Exception
     {
         // Get dimensions
         final PVAStructureArray dim = struct.get("dimension");
@@ -211,9 +239,17 @@ public class ImageDecoder
 
                 Codec codec = null;
                 if (name.get().equalsIgnoreCase("lz4"))
-                    codec = new LZ4Codec();
+                {
+                    if (lz4 == null)
+                        lz4 = new LZ4Codec();
+                    codec = lz4;
+                }
                 else if (name.get().equalsIgnoreCase("jpeg"))
-                    codec = new JPEGCodec();
+                {
+                    if (jpeg == null)
+                        jpeg = new JPEGCodec();
+                    codec = jpeg;
+                }
                 else
                     logger.log(Level.WARNING, "NDArray codec '" + name.get() + "' is not implemented");
 
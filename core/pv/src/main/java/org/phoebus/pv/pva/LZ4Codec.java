@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2022-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,43 +7,131 @@
  ******************************************************************************/
 package org.phoebus.pv.pva;
 
-import java.io.ByteArrayInputStream;
-
-import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
-
 /** PVA NDArray codec for LZ4-compressed data
  *
  *  <p>Standard Java library only supports ZIP.
  *  Area detector provides binaries/JNI interface
  *  for LZ4 and BLOSC, but that would add a hard to maintain
  *  dependency on binaries.
- *  LZ4 is available via apache-commons-compress, making
- *  it easy to support.
+ *
+ *  <p>Area detector uses the LZ4 block format,
+ *  i.e. raw LZ4 sequences without frame header,
+ *  which is simple enough to decode right here.
+ *  Compared to the apache-commons-compress input stream,
+ *  this avoids stream and buffer overhead and can
+ *  decode into a re-used output buffer.
  *
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class LZ4Codec extends Codec
 {
+    /** Minimum length of an LZ4 match */
+    private static final int MIN_MATCH = 4;
+
     @Override
     public byte[] decompress(final byte[] data, final int decompressed_size) throws Exception
     {
-        final byte[] result = new byte[decompressed_size];
-        int expanded = 0;
+        return decompress(data, decompressed_size, null);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] data, final int decompressed_size, final byte[] buffer) throws Exception
+    {
+        final byte[] result = (buffer != null  &&  buffer.length == decompressed_size)
+                            ? buffer
+                            : new byte[decompressed_size];
+        final int decoded = decompress(data, data.length, result, decompressed_size);
+        if (decoded != decompressed_size)
+            throw new Exception("LZ4 data decoded into " + decoded + " instead of " + decompressed_size + " bytes");
+        return result;
+    }
 
+    /** De-compress LZ4 block
+     *
+     *  @param src Compressed data
+     *  @param src_len Number of valid bytes in 'src'
+     *  @param dst Buffer for de-compressed data
+     *  @param dst_len Number of bytes to de-compress into 'dst'
+     *  @return Number of de-compressed bytes
+     *  @throws Exception on error in compressed data
+     */
+    public static int decompress(final byte[] src, final int src_len,
+                                 final byte[] dst, final int dst_len) throws Exception
+    {
+        int s = 0, d = 0;
         try
-        ( final BlockLZ4CompressorInputStream in =
-            new BlockLZ4CompressorInputStream(new ByteArrayInputStream(data))
-        )
         {
-            while (expanded < decompressed_size)
+            while (s < src_len)
             {
-                final int batch = in.read(result, expanded, decompressed_size - expanded);
-                if (batch == -1)
+                // Token: 4 bits literal length, 4 bits match length
+                final int token = src[s++] & 0xFF;
+
+                // Literals
+                int literals = token >>> 4;
+                if (literals == 0x0F)
+                {
+                    int more;
+                    do
+                    {
+                        more = src[s++] & 0xFF;
+                        literals += more;
+                    }
+                    while (more == 0xFF);
+                }
+                if (s + literals > src_len  ||  d + literals > dst_len)
+                    throw new Exception("LZ4 literals exceed buffer");
+                System.arraycopy(src, s, dst, d, literals);
+                s += literals;
+                d += literals;
+
+                // Last sequence only has literals
+                if (s >= src_len)
                     break;
-                expanded += batch;
+
+                // Match: 2 byte little endian offset, length
+                final int offset = (src[s] & 0xFF) | ((src[s+1] & 0xFF) << 8);
+                s += 2;
+                if (offset <= 0  ||  offset > d)
+                    throw new Exception("Invalid LZ4 match offset " + offset + " at " + d);
+                int length = token & 0x0F;
+                if (length == 0x0F)
+                {
+                    int more;
+                    do
+                    {
+                        more = src[s++] & 0xFF;
+                        length += more;
+                    }
+                    while (more == 0xFF);
+                }
+                length += MIN_MATCH;
+                if (d + length > dst_len)
+                    throw new Exception("LZ4 match exceeds buffer");
+
+                final int match = d - offset;
+                if (offset >= length)
+                {   // Plain copy
+                    System.arraycopy(dst, match, dst, d, length);
+                    d += length;
+                }
+                else
+                {   // Overlapping match repeats the last 'offset' bytes.
+                    // Copy in chunks that double in size, each not overlapping its source
+                    final int end = d + length;
+                    while (d < end)
+                    {
+                        final int chunk = Math.min(d - match, end - d);
+                        System.arraycopy(dst, match, dst, d, chunk);
+                        d += chunk;
+                    }
+                }
             }
         }
-
-        return result;
+        catch (ArrayIndexOutOfBoundsException ex)
+        {
+            throw new Exception("Truncated LZ4 data", ex);
+        }
+        return d;
     }
 }
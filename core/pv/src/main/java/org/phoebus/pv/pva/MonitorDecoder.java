@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.epics.pva.data.PVAArray;
+import org.epics.pva.data.PVABool;
+import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVANumber;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStringArray;
+import org.epics.pva.data.PVAStructure;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Time;
+import org.epics.vtype.VBoolean;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VType;
+
+/** Decode monitor updates into {@link VType}s
+ *
+ *  <p>Monitor updates tend to only change the 'value',
+ *  'alarm' and 'timeStamp' of a structure,
+ *  while 'display', 'control' and 'valueAlarm' remain the same.
+ *  For NTScalar and NTScalarArray data, this decoder re-uses
+ *  the display information of the previous value,
+ *  and only decodes alarm and time when they changed.
+ *  Any change to other fields results in a complete decode
+ *  via {@link PVAStructureHelper}.
+ *
+ *  <p>Holds state of the previous update,
+ *  so each PV needs its own instance,
+ *  called with the updates of one subscription.
+ *
+ *  @author Kay Kasemir
+ */
+class MonitorDecoder
+{
+    private final PVNameHelper name_helper;
+
+    private final ImageDecoder image_decoder = new ImageDecoder();
+
+    /** Structure for which the bits have been determined */
+    private PVAStructure structure = null;
+
+    /** Change bits for the 'value', 'alarm' and 'timeStamp' fields of the structure,
+     *  <code>null</code> if structure is not handled incrementally
+     */
+    private BitSet value_bits = null, alarm_bits, time_bits;
+
+    /** Last decoded value */
+    private VType last = null;
+
+    /** @param name_helper {@link PVNameHelper} */
+    MonitorDecoder(final PVNameHelper name_helper)
+    {
+        this.name_helper = name_helper;
+    }
+
+    /** @param data Structure, updated by monitor
+     *  @param changes Elements of the structure that changed
+     *  @return Decoded VType
+     *  @throws Exception on error
+     */
+    VType decode(final PVAStructure data, final BitSet changes) throws Exception
+    {
+        try
+        {
+            if (data == structure  &&  value_bits != null  &&  isIncremental(changes))
+                last = decodeIncrement(data, changes);
+            else
+                last = decodeAll(data);
+            return last;
+        }
+        catch (Exception ex)
+        {
+            // Start over on next update
+            structure = null;
+            last = null;
+            throw ex;
+        }
+    }
+
+    /** @param changes Changed elements
+     *  @return <code>true</code> if changes only affect 'value', 'alarm', 'timeStamp'
+     */
+    private boolean isIncremental(final BitSet changes)
+    {
+        // Bit 0 for the complete structure is also not in any of the value etc. bits
+        for (int i = changes.nextSetBit(0);  i >= 0;  i = changes.nextSetBit(i + 1))
+            if (! (value_bits.get(i)  ||  alarm_bits.get(i)  ||  time_bits.get(i)))
+                return false;
+        return true;
+    }
+
+    /** Decode complete structure
+     *  @param struct Structure
+     *  @return VType
+     *  @throws Exception on error
+     */
+    private VType decodeAll(final PVAStructure struct) throws Exception
+    {
+        final VType value = PVAStructureHelper.getVType(struct, name_helper, image_decoder);
+
+        // Check if following updates for this structure can be decoded incrementally
+        if (struct != structure)
+        {
+            structure = struct;
+            value_bits = null;
+            String type = struct.getStructureName();
+            if (type.startsWith("epics:nt/"))
+                type = type.substring(9);
+            if ((type.equals("NTScalar:1.0")  ||  type.equals("NTScalarArray:1.0"))  &&
+                name_helper.getField().equals("value")  &&
+                ! name_helper.getElementIndex().isPresent()  &&
+                (value instanceof VNumber  ||  value instanceof VNumberArray  ||
+                 value instanceof VString  ||  value instanceof VStringArray  ||
+                 value instanceof VBoolean))
+            {
+                alarm_bits = getBits(struct, "alarm");
+                time_bits = getBits(struct, "timeStamp");
+                value_bits = getBits(struct, "value");
+            }
+        }
+        return value;
+    }
+
+    /** Decode changed value, alarm and time
+     *  @param data Structure
+     *  @param changes Changed elements
+     *  @return VType
+     *  @throws Exception on error
+     */
+    private VType decodeIncrement(final PVAStructure data, final BitSet changes) throws Exception
+    {
+        final Alarm alarm = changes.intersects(alarm_bits) ? Decoders.decodeAlarm(data) : Alarm.alarmOf(last);
+        final Time time = changes.intersects(time_bits) ? Decoders.decodeTime(data) : Time.timeOf(last);
+        final PVAData field = data.get("value");
+
+        // Based on the type of the last value, which was decoded from the same structure,
+        // so the 'value' field has the same type
+        if (last instanceof VNumber)
+            return Decoders.decodeNumber((PVANumber) field, alarm, time, ((VNumber) last).getDisplay());
+        if (last instanceof VNumberArray)
+            return Decoders.decodeNumericArray((PVAArray) field, alarm, time, ((VNumberArray) last).getDisplay());
+        if (last instanceof VString)
+            return VString.of(((PVAString) field).get(), alarm, time);
+        if (last instanceof VStringArray)
+            return VStringArray.of(Arrays.asList(((PVAStringArray) field).get()), alarm, time);
+        if (last instanceof VBoolean)
+            return VBoolean.of(((PVABool) field).get(), alarm, time);
+        return decodeAll(data);
+    }
+
+    /** @param struct Structure
+     *  @param name Name of field in structure
+     *  @return Bits for that field and all its sub-elements, empty if field does not exist
+     *  @throws Exception on error
+     */
+    private static BitSet getBits(final PVAStructure struct, final String name) throws Exception
+    {
+        final BitSet bits = new BitSet();
+        final PVAData field = struct.get(name);
+        if (field != null)
+        {
+            final int index = struct.getIndex(field);
+            bits.set(index, index + countElements(field));
+        }
+        return bits;
+    }
+
+    /** @param data Data
+     *  @return Number of elements, i.e. 1 for plain data, more for structure with all its sub-elements
+     */
+    private static int countElements(final PVAData data)
+    {
+        int count = 1;
+        if (data instanceof PVAStructure)
+            for (PVAData element : ((PVAStructure) data).get())
+                count += countElements(element);
+        return count;
+    }
+}
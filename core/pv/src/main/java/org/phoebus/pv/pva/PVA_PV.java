@@ -32,6 +32,9 @@ public class PVA_PV extends PV
     private final PVAChannel channel;
     final PVNameHelper name_helper;
 
+    /** Decoder for monitor updates, re-using unchanged meta data and image buffers */
+    private final MonitorDecoder monitor_decoder;
+
     /** @param name Full PV name with prefix and initializer
      *  @param base_name Base name
      *  @throws Exception on error
@@ -43,6 +46,7 @@ public class PVA_PV extends PV
         // Analyze base_name, determine channel and request
         name_helper = PVNameHelper.forName(base_name);
         logger.log(Level.FINE, () -> "PVA '" + base_name + "' -> " + name_helper);
+        monitor_decoder = new MonitorDecoder(name_helper);
         channel = PVA_Context.getInstance().getClient().getChannel(name_helper.getChannel(), this::channelStateChanged);
     }
 
@@ -85,7 +89,7 @@ public class PVA_PV extends PV
         else
             try
             {
-                final VType value = PVAStructureHelper.getVType(data, name_helper);
+                final VType value = monitor_decoder.decode(data, changes);
                 notifyListenersOfValue(value);
             }
             catch (Exception ex)
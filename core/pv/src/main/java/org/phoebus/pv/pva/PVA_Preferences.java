@@ -45,6 +45,8 @@ public class PVA_Preferences
 
     public static int epics_pva_write_reply_timeout_ms;
 
+    public static boolean epics_pva_reuse_image_arrays;
+
     /** Prevent direct instantiation */
     private PVA_Preferences()
     {
@@ -80,6 +82,7 @@ public class PVA_Preferences
         }
 
         epics_pva_write_reply_timeout_ms = prefs.getInt("epics_pva_write_reply_timeout_ms");
+        epics_pva_reuse_image_arrays = prefs.getBoolean("epics_pva_reuse_image_arrays");
     }
 
     /** @return Singleton instance */
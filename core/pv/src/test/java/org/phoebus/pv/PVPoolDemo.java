@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Measure {@link PVPool} contention
+ *
+ *  <p>Several threads concurrently get and release 'loc://' PVs,
+ *  similar to opening many displays at once.
+ *  Each thread uses a mix of PVs that are shared by all threads
+ *  and PVs that only that thread uses.
+ *
+ *  <p>Run with for example "-Dthreads=16 -Dpvs=10000 -Drepeat=10"
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PVPoolDemo
+{
+    private static final int THREADS = Integer.getInteger("threads", 8);
+    private static final int PVS = Integer.getInteger("pvs", 10000);
+    private static final int REPEAT = Integer.getInteger("repeat", 10);
+
+    private static List<String> createNames(final int thread)
+    {
+        final List<String> names = new ArrayList<>(PVS);
+        for (int i=0; i<PVS; ++i)
+            names.add(i % 2 == 0 ? "loc://shared" + i
+                                 : "loc://thread" + thread + "_" + i);
+        return names;
+    }
+
+    /** @param bulk Use getPVs/releasePVs, or individual getPV/releasePV?
+     *  @return Operations per second
+     */
+    private static double measure(final boolean bulk) throws Exception
+    {
+        final ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t=0; t<THREADS; ++t)
+        {
+            final List<String> names = createNames(t);
+            results.add(threads.submit(() ->
+            {
+                start.await();
+                for (int run=0; run<REPEAT; ++run)
+                {
+                    if (bulk)
+                        PVPool.releasePVs(PVPool.getPVs(names));
+                    else
+                    {
+                        final List<PV> pvs = new ArrayList<>(names.size());
+                        for (String name : names)
+                            pvs.add(PVPool.getPV(name));
+                        for (PV pv : pvs)
+                            PVPool.releasePV(pv);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        final long t0 = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results)
+            result.get();
+        final long nanos = System.nanoTime() - t0;
+        threads.shutdown();
+        threads.awaitTermination(10, TimeUnit.SECONDS);
+
+        // Each get and release counts as one operation
+        return 2.0 * THREADS * PVS * REPEAT / (nanos / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        // Suppress per-PV logging
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        System.out.println(THREADS + " threads, " + PVS + " PVs each, " + REPEAT + " runs");
+        // Warm up
+        measure(false);
+        System.out.format("getPV/releasePV  : %12.0f ops/s\n", measure(false));
+        System.out.format("getPVs/releasePVs: %12.0f ops/s\n", measure(true));
+        System.out.println("Remaining PVs: " + PVPool.getPVReferences().size());
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017-2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2017-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,14 +9,23 @@ package org.phoebus.pv;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.prefs.Preferences;
 
 import org.junit.jupiter.api.Test;
 import org.phoebus.pv.PVPool.TypedName;
+import org.phoebus.pv.RefCountMap.ReferencedEntry;
 import org.phoebus.pv.ca.JCA_Preferences;
 
 /** @author Kay Kasemir */
@@ -101,6 +110,53 @@ public class PVPoolTest
     }
 
 
+    @Test
+    public void concurrentPVs() throws Exception
+    {
+        final int threads = 8, count = 1000;
+        final List<String> names = new ArrayList<>();
+        for (int i=0; i<count; ++i)
+            names.add("loc://concurrent" + i);
+
+        // Threads concurrently obtain the same PVs
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<List<PV>>> results = new ArrayList<>();
+        for (int t=0; t<threads; ++t)
+            results.add(pool.submit(() -> PVPool.getPVs(names)));
+        final List<List<PV>> pvs = new ArrayList<>();
+        for (Future<List<PV>> result : results)
+            pvs.add(result.get());
+        pool.shutdown();
+
+        // Each PV was created once, with one reference per thread
+        for (int i=0; i<count; ++i)
+        {
+            final PV pv = pvs.get(0).get(i);
+            assertThat(pv.getName(), equalTo(names.get(i)));
+            for (int t=1; t<threads; ++t)
+                assertThat(pvs.get(t).get(i), sameInstance(pv));
+        }
+        for (ReferencedEntry<PV> ref : PVPool.getPVReferences())
+            if (ref.getEntry().getName().startsWith("loc://concurrent"))
+                assertThat(ref.getReferences(), equalTo(threads));
+
+        // Releasing all references removes the PVs from the pool
+        for (List<PV> thread_pvs : pvs)
+            PVPool.releasePVs(thread_pvs);
+        for (ReferencedEntry<PV> ref : PVPool.getPVReferences())
+            assertThat(ref.getEntry().getName().startsWith("loc://concurrent"), equalTo(false));
+    }
+
+    @Test
+    public void bulkPVsAllOrNothing() throws Exception
+    {
+        // Second PV has unknown type, so first one is released
+        final Exception ex = assertThrows(Exception.class, () -> PVPool.getPVs(List.of("loc://bulk1", "bogus://bulk2")));
+        assertThat(ex.getMessage(), equalTo("bogus://bulk2 has unknown PV type 'bogus'"));
+        for (ReferencedEntry<PV> ref : PVPool.getPVReferences())
+            assertThat(ref.getEntry().getName(), not(equalTo("loc://bulk1")));
+    }
+
     @Test
     public void dumpPreferences() throws Exception
     {
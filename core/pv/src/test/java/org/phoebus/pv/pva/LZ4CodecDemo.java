@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
+import org.epics.pva.data.PVAByteArray;
+
+/** Benchmark of LZ4 image de-compression
+ *
+ *  <p>Compresses a few camera-like 16 bit frames,
+ *  then compares de-compression via the apache-commons-compress
+ *  input stream with the {@link LZ4Codec} block decoder,
+ *  and the complete codec path with and without array re-use.
+ *
+ *  <p>Run with for example "-Dwidth=2048 -Dheight=2048 -Drepeat=100"
+ */
+@SuppressWarnings("nls")
+public class LZ4CodecDemo
+{
+    private static final int WIDTH = Integer.getInteger("width", 1024);
+    private static final int HEIGHT = Integer.getInteger("height", 1024);
+    private static final int REPEAT = Integer.getInteger("repeat", 100);
+    private static final int FRAMES = 4;
+
+    @FunctionalInterface
+    private interface Decoder
+    {
+        void decode(byte[] compressed) throws Exception;
+    }
+
+    private static void measure(final String title, final byte[][] frames, final Decoder decoder) throws Exception
+    {
+        // Warm up
+        for (int i=0; i<REPEAT/10 + 1; ++i)
+            decoder.decode(frames[i % FRAMES]);
+        final long start = System.nanoTime();
+        for (int i=0; i<REPEAT; ++i)
+            decoder.decode(frames[i % FRAMES]);
+        final double ms = (System.nanoTime() - start) * 1e-6 / REPEAT;
+        System.out.format("%-35s %8.3f ms/frame, %7.1f frames/s\n", title, ms, 1000.0 / ms);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final int size = WIDTH * HEIGHT * Short.BYTES;
+        final byte[][] frames = new byte[FRAMES][];
+        for (int f=0; f<FRAMES; ++f)
+        {
+            final short[] image = LZ4CodecTest.createImage(WIDTH, HEIGHT, f);
+            final ByteBuffer buf = ByteBuffer.allocate(size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.asShortBuffer().put(image);
+            frames[f] = LZ4CodecTest.compress(buf.array());
+        }
+        System.out.println(WIDTH + " x " + HEIGHT + " ushort frames, " + size + " bytes compressed to " + frames[0].length);
+
+        measure("Stream decompress", frames, compressed ->
+        {
+            final byte[] result = new byte[size];
+            int expanded = 0;
+            try (BlockLZ4CompressorInputStream in = new BlockLZ4CompressorInputStream(new ByteArrayInputStream(compressed)))
+            {
+                while (expanded < size)
+                {
+                    final int batch = in.read(result, expanded, size - expanded);
+                    if (batch == -1)
+                        break;
+                    expanded += batch;
+                }
+            }
+        });
+
+        final LZ4Codec codec = new LZ4Codec();
+        measure("Block decompress", frames, compressed -> codec.decompress(compressed, size));
+
+        final byte[] buffer = new byte[size];
+        measure("Block decompress into buffer", frames, compressed -> codec.decompress(compressed, size, buffer));
+
+        final PVAByteArray value = new PVAByteArray("value", true);
+        PVA_Preferences.epics_pva_reuse_image_arrays = false;
+        measure("Codec to ushort[]", frames, compressed ->
+        {
+            value.set(compressed);
+            codec.decompress(value, 6, WIDTH * HEIGHT);
+        });
+
+        PVA_Preferences.epics_pva_reuse_image_arrays = true;
+        measure("Codec to ushort[], re-use", frames, compressed ->
+        {
+            value.set(compressed);
+            codec.decompress(value, 6, WIDTH * HEIGHT);
+        });
+    }
+}
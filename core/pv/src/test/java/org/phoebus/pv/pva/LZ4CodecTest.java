@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.epics.pva.data.PVAByteArray;
+import org.epics.pva.data.PVAShortArray;
+import org.junit.jupiter.api.Test;
+
+/** Check {@link LZ4Codec} against apache-commons-compress */
+@SuppressWarnings("nls")
+public class LZ4CodecTest
+{
+    /** @param data Data
+     *  @return LZ4 block compressed data
+     */
+    static byte[] compress(final byte[] data) throws Exception
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (BlockLZ4CompressorOutputStream out = new BlockLZ4CompressorOutputStream(buf))
+        {
+            out.write(data);
+        }
+        return buf.toByteArray();
+    }
+
+    /** @param width Width
+     *  @param height Height
+     *  @param seed Random seed for noise
+     *  @return 16 bit camera-like image: Gradient with a bright spot and some noise
+     */
+    static short[] createImage(final int width, final int height, final long seed)
+    {
+        final Random random = new Random(seed);
+        final short[] pixels = new short[width * height];
+        for (int y=0; y<height; ++y)
+            for (int x=0; x<width; ++x)
+            {
+                final int dx = x - width/2, dy = y - height/2;
+                final int spot = (dx*dx + dy*dy < 400) ? 2000 : 0;
+                pixels[x + y*width] = (short) (x + y + spot + (random.nextInt(8) == 0 ? random.nextInt(4) : 0));
+            }
+        return pixels;
+    }
+
+    private void checkRoundtrip(final byte[] orig) throws Exception
+    {
+        final byte[] compressed = compress(orig);
+        final byte[] result = new LZ4Codec().decompress(compressed, orig.length);
+        assertArrayEquals(orig, result);
+    }
+
+    @Test
+    public void testRoundtrip() throws Exception
+    {
+        // Empty
+        checkRoundtrip(new byte[0]);
+
+        // Only literals
+        checkRoundtrip("Hello".getBytes());
+
+        // Long runs, i.e. overlapping matches
+        final byte[] zeros = new byte[100000];
+        checkRoundtrip(zeros);
+        final byte[] pattern = new byte[100000];
+        for (int i=0; i<pattern.length; ++i)
+            pattern[i] = (byte) (i % 3);
+        checkRoundtrip(pattern);
+
+        // Incompressible, i.e. long literal runs
+        final byte[] noise = new byte[100000];
+        new Random(42).nextBytes(noise);
+        checkRoundtrip(noise);
+
+        // Image
+        final short[] image = createImage(640, 480, 42);
+        final ByteBuffer buf = ByteBuffer.allocate(image.length * Short.BYTES);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.asShortBuffer().put(image);
+        checkRoundtrip(buf.array());
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        final byte[] orig = new byte[1000];
+        Arrays.fill(orig, (byte) 1);
+        final byte[] compressed = compress(orig);
+
+        // Output buffer too small
+        assertThrows(Exception.class, () -> LZ4Codec.decompress(compressed, compressed.length, new byte[10], 10));
+
+        // Truncated data
+        assertThrows(Exception.class, () -> LZ4Codec.decompress(compressed, compressed.length - 1, new byte[1000], 1000));
+
+        // Data decodes into fewer bytes than expected
+        final LZ4Codec codec = new LZ4Codec();
+        assertThrows(Exception.class, () -> codec.decompress(compressed, 1001));
+        assertThrows(Exception.class, () -> codec.decompress(compressed, 2000, new byte[2000]));
+    }
+
+    @Test
+    public void testImageReuse() throws Exception
+    {
+        final short[] image = createImage(640, 480, 42);
+        final ByteBuffer buf = ByteBuffer.allocate(image.length * Short.BYTES);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.asShortBuffer().put(image);
+        final PVAByteArray value = new PVAByteArray("value", true, compress(buf.array()));
+
+        final LZ4Codec codec = new LZ4Codec();
+        // 6 = ushort
+        PVA_Preferences.epics_pva_reuse_image_arrays = false;
+        final PVAShortArray first = (PVAShortArray) codec.decompress(value, 6, image.length);
+        assertArrayEquals(image, first.get());
+        PVAShortArray next = (PVAShortArray) codec.decompress(value, 6, image.length);
+        assertArrayEquals(image, next.get());
+        assertThat(next.get(), not(sameInstance(first.get())));
+
+        PVA_Preferences.epics_pva_reuse_image_arrays = true;
+        try
+        {
+            final PVAShortArray reused = (PVAShortArray) codec.decompress(value, 6, image.length);
+            assertArrayEquals(image, reused.get());
+            assertThat(reused.get(), sameInstance(next.get()));
+
+            // Different size: New array
+            final short[] smaller = Arrays.copyOf(image, 1000);
+            buf.clear();
+            buf.asShortBuffer().put(smaller);
+            next = (PVAShortArray) codec.decompress(new PVAByteArray("value", true, compress(Arrays.copyOf(buf.array(), 2000))), 6, 1000);
+            assertThat(next.get().length, equalTo(1000));
+            assertArrayEquals(smaller, next.get());
+        }
+        finally
+        {
+            PVA_Preferences.epics_pva_reuse_image_arrays = false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import java.time.Instant;
+import java.util.BitSet;
+
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.data.nt.PVAAlarm;
+import org.epics.pva.data.nt.PVAControl;
+import org.epics.pva.data.nt.PVADisplay;
+import org.epics.pva.data.nt.PVAScalar;
+import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.vtype.VType;
+
+/** Compare complete decoding of monitor updates with {@link MonitorDecoder}
+ *
+ *  <p>Simulates monitor updates where only value and time change.
+ *
+ *  <p>Run with for example "-Drepeat=1000000 -Dsize=100"
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class MonitorDecoderDemo
+{
+    private static final int REPEAT = Integer.getInteger("repeat", 1000000);
+    private static final int SIZE = Integer.getInteger("size", 100);
+
+    /** @param struct Structure to update and decode
+     *  @param incremental Use {@link MonitorDecoder} or {@link PVAStructureHelper}?
+     *  @return Updates per second
+     */
+    private static double measure(final PVAStructure struct, final boolean incremental) throws Exception
+    {
+        final PVNameHelper name = PVNameHelper.forName("demo");
+        final MonitorDecoder decoder = new MonitorDecoder(name);
+        final BitSet changes = new BitSet();
+        changes.set(struct.getIndex(struct.get("value")));
+        changes.set(struct.getIndex(struct.get("timeStamp")));
+
+        final BitSet all = new BitSet();
+        all.set(0);
+        decoder.decode(struct, all);
+
+        final double[] array = new double[SIZE];
+        long hash = 0;
+        final long t0 = System.nanoTime();
+        for (int i=0; i<REPEAT; ++i)
+        {
+            // Update value and time
+            if (struct.get("value") instanceof PVADouble)
+                ((PVADouble) struct.get("value")).set(i);
+            else
+            {
+                array[i % SIZE] = i;
+                ((PVADoubleArray) struct.get("value")).set(array);
+            }
+            PVATimeStamp.set(struct, Instant.ofEpochSecond(1000 + i));
+
+            final VType value = incremental
+                              ? decoder.decode(struct, changes)
+                              : PVAStructureHelper.getVType(struct, name);
+            hash += value.hashCode();
+        }
+        final long nanos = System.nanoTime() - t0;
+        if (hash == 42)
+            System.out.println("Unlikely");
+        return REPEAT / (nanos / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final PVAStructure scalar = PVAScalar.doubleScalarBuilder(1.0)
+                                             .name("demo")
+                                             .alarm(new PVAAlarm())
+                                             .timeStamp(new PVATimeStamp())
+                                             .display(new PVADisplay(0, 10, "Demo", "mm", 2, PVADisplay.Form.DEFAULT))
+                                             .control(new PVAControl(0, 10, 0.1))
+                                             .build();
+        final PVAStructure array = PVAScalar.doubleArrayScalarBuilder(new double[SIZE])
+                                            .name("demo")
+                                            .alarm(new PVAAlarm())
+                                            .timeStamp(new PVATimeStamp())
+                                            .display(new PVADisplay(0, 10, "Demo", "mm", 2, PVADisplay.Form.DEFAULT))
+                                            .control(new PVAControl(0, 10, 0.1))
+                                            .build();
+
+        System.out.println(REPEAT + " updates, array size " + SIZE);
+        // Warm up
+        measure(scalar, false);
+        measure(scalar, true);
+        System.out.format("NTScalar      complete   : %12.0f updates/s\n", measure(scalar, false));
+        System.out.format("NTScalar      incremental: %12.0f updates/s\n", measure(scalar, true));
+        System.out.format("NTScalarArray complete   : %12.0f updates/s\n", measure(array, false));
+        System.out.format("NTScalarArray incremental: %12.0f updates/s\n", measure(array, true));
+    }
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.phoebus.pv.pva;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.BitSet;
+
+import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.data.nt.PVAAlarm;
+import org.epics.pva.data.nt.PVAControl;
+import org.epics.pva.data.nt.PVADisplay;
+import org.epics.pva.data.nt.PVAScalar;
+import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+
+/** Check {@link MonitorDecoder} against complete decoding
+ *
+ *  <p>Updates the structure like a monitor would,
+ *  then compares the incrementally decoded value with
+ *  the result of {@link PVAStructureHelper}.
+ */
+@SuppressWarnings("nls")
+public class MonitorDecoderTest
+{
+    /** @param struct Structure
+     *  @param names Names of fields that changed
+     *  @return Changed bits as a monitor would report them
+     */
+    static BitSet changes(final PVAStructure struct, final String... names) throws Exception
+    {
+        final BitSet changes = new BitSet();
+        for (String name : names)
+        {
+            final PVAData field = struct.get(name);
+            changes.set(struct.getIndex(field));
+        }
+        return changes;
+    }
+
+    /** @param struct Structure
+     *  @param severity Alarm severity to set
+     */
+    static void setSeverity(final PVAStructure struct, final int severity)
+    {
+        final PVAStructure alarm = struct.get("alarm");
+        final PVAInt field = alarm.get("severity");
+        field.set(severity);
+    }
+
+    private static PVAStructure createScalar() throws Exception
+    {
+        return PVAScalar.doubleScalarBuilder(1.0)
+                        .name("demo")
+                        .alarm(new PVAAlarm())
+                        .timeStamp(new PVATimeStamp(Instant.ofEpochSecond(1000)))
+                        .display(new PVADisplay(0, 10, "Demo", "mm", 2, PVADisplay.Form.DEFAULT))
+                        .control(new PVAControl(0, 10, 0.1))
+                        .build();
+    }
+
+    private static void assertSameValue(final VDouble actual, final VType expected)
+    {
+        assertThat(actual.getValue(), equalTo(((VDouble) expected).getValue()));
+        assertThat(Alarm.alarmOf(actual), equalTo(Alarm.alarmOf(expected)));
+        assertThat(Time.timeOf(actual), equalTo(Time.timeOf(expected)));
+        assertThat(Display.displayOf(actual), equalTo(Display.displayOf(expected)));
+    }
+
+    @Test
+    public void testScalar() throws Exception
+    {
+        final PVAStructure struct = createScalar();
+        final PVNameHelper name = PVNameHelper.forName("demo");
+        final MonitorDecoder decoder = new MonitorDecoder(name);
+
+        // Initial update has everything
+        final BitSet all = new BitSet();
+        all.set(0);
+        final VDouble first = (VDouble) decoder.decode(struct, all);
+        assertSameValue(first, PVAStructureHelper.getVType(struct, name));
+
+        // Value and time change
+        final PVADouble value = struct.get("value");
+        value.set(2.0);
+        PVATimeStamp.set(struct, Instant.ofEpochSecond(1001));
+        final VDouble second = (VDouble) decoder.decode(struct, changes(struct, "value", "timeStamp"));
+        assertSameValue(second, PVAStructureHelper.getVType(struct, name));
+        assertThat(second.getValue(), equalTo(2.0));
+        // Re-used display and alarm
+        assertThat(second.getDisplay(), sameInstance(first.getDisplay()));
+        assertThat(second.getAlarm(), sameInstance(first.getAlarm()));
+
+        // Alarm changes, but time was not updated
+        setSeverity(struct, 2);
+        final VDouble third = (VDouble) decoder.decode(struct, changes(struct, "alarm"));
+        assertSameValue(third, PVAStructureHelper.getVType(struct, name));
+        assertThat(third.getAlarm().getSeverity(), equalTo(AlarmSeverity.MAJOR));
+        assertThat(third.getTime(), sameInstance(second.getTime()));
+
+        // Change of display info is decoded
+        final PVAStructure display = struct.get("display");
+        final PVADouble high = display.get("limitHigh");
+        high.set(20.0);
+        final VDouble fourth = (VDouble) decoder.decode(struct, changes(struct, "display"));
+        assertSameValue(fourth, PVAStructureHelper.getVType(struct, name));
+        assertThat(fourth.getDisplay(), not(sameInstance(first.getDisplay())));
+        assertThat(fourth.getDisplay().getDisplayRange().getMaximum(), equalTo(20.0));
+
+        // Bit for just a sub-field of the time stamp
+        PVATimeStamp.set(struct, Instant.ofEpochSecond(1002, 500));
+        final PVAStructure time = struct.get("timeStamp");
+        final BitSet nano_change = new BitSet();
+        nano_change.set(struct.getIndex(time.get("nanoseconds")));
+        final VDouble fifth = (VDouble) decoder.decode(struct, nano_change);
+        assertSameValue(fifth, PVAStructureHelper.getVType(struct, name));
+        assertThat(fifth.getDisplay(), sameInstance(fourth.getDisplay()));
+    }
+
+    @Test
+    public void testArray() throws Exception
+    {
+        final PVAStructure struct = PVAScalar.doubleArrayScalarBuilder(1.0, 2.0, 3.0)
+                                             .name("demo")
+                                             .alarm(new PVAAlarm())
+                                             .timeStamp(new PVATimeStamp(Instant.ofEpochSecond(1000)))
+                                             .display(new PVADisplay(0, 10, "Demo", "mm", 2, PVADisplay.Form.DEFAULT))
+                                             .build();
+        final PVNameHelper name = PVNameHelper.forName("demo");
+        final MonitorDecoder decoder = new MonitorDecoder(name);
+        final BitSet all = new BitSet();
+        all.set(0);
+        final VDoubleArray first = (VDoubleArray) decoder.decode(struct, all);
+
+        final PVADoubleArray value = struct.get("value");
+        value.set(new double[] { 4.0, 5.0 });
+        final VDoubleArray second = (VDoubleArray) decoder.decode(struct, changes(struct, "value"));
+        final VDoubleArray expected = (VDoubleArray) PVAStructureHelper.getVType(struct, name);
+        assertThat(second.getData(), equalTo(expected.getData()));
+        assertThat(second.getData().size(), equalTo(2));
+        assertThat(second.getDisplay(), sameInstance(first.getDisplay()));
+        assertThat(second.getTime(), sameInstance(first.getTime()));
+    }
+
+    @Test
+    public void testNewStructure() throws Exception
+    {
+        final PVNameHelper name = PVNameHelper.forName("demo");
+        final MonitorDecoder decoder = new MonitorDecoder(name);
+        final BitSet all = new BitSet();
+        all.set(0);
+        final VDouble first = (VDouble) decoder.decode(createScalar(), all);
+
+        // New structure, for example after reconnect, is fully decoded
+        final PVAStructure other = createScalar();
+        final PVAStructure display = other.get("display");
+        final PVADouble high = display.get("limitHigh");
+        high.set(50.0);
+        final VDouble second = (VDouble) decoder.decode(other, changes(other, "value"));
+        assertThat(second.getDisplay(), not(sameInstance(first.getDisplay())));
+        assertThat(second.getDisplay().getDisplayRange().getMaximum(), equalTo(50.0));
+    }
+}
@@ -189,6 +189,39 @@ public class PVASettings
      */
     public static final int EPICS_PVA_RECEIVE_BUFFER_SIZE = 16 * 1024;
 
+    /** Maximum number of bytes to combine into one TCP write
+     *
+     *  <p>When several messages are queued up to be sent,
+     *  for example when a display opens and subscribes to many channels,
+     *  they are encoded back to back into the send buffer
+     *  until it holds at least this many bytes, and then sent in one socket write.
+     *  Set to 0 to send each message on its own.
+     */
+    public static int EPICS_PVA_SEND_BATCH_SIZE = 64 * 1024;
+
+    /** Number of selector threads for client TCP connections
+     *
+     *  <p>By default (0), each TCP connection of the client uses
+     *  a receive and a send thread.
+     *  When set to a positive number, plain TCP connections of the client
+     *  are instead handled by this number of selector threads,
+     *  each serving many connections.
+     *  This reduces the number of threads when connecting to many servers,
+     *  but received messages are then handled on the selector thread,
+     *  so for example monitor listeners must not block.
+     *  TLS connections always use threads.
+     */
+    public static int EPICS_PVA_TCP_SELECTOR_THREADS = 0;
+
+    /** Maximum size of the TCP buffer pool in MB
+     *
+     *  <p>TCP send and receive buffers as well as buffers for
+     *  assembling segmented messages are shared by all connections
+     *  of the client and server via a pool.
+     *  This limits the amount of memory held in idle buffers.
+     */
+    public static int EPICS_PVA_BUFFER_POOL_MB = 64;
+
     /** UDP maximum send message size (for sending search requests).
      *
      *  <p>MAX_UDP: 1500 (max of ethernet and 802.{2,3} MTU) - 20/40(IPv4/IPv6) - 8(UDP) - some reserve (e.g. IPSEC)
@@ -215,6 +248,19 @@ public class PVASettings
     /** Maximum number of array elements shown when printing data */
     public static int EPICS_PVA_MAX_ARRAY_FORMATTING = 256;
 
+    /** Re-use the previous array when decoding array data of unchanged size?
+     *
+     *  <p>By default, each received array update is decoded into a newly allocated array,
+     *  so clients may hold on to the data obtained from for example
+     *  <code>PVADoubleArray.get()</code>.
+     *  When enabled, a received array of the same size as the previous value
+     *  is decoded into the existing array, which avoids allocating
+     *  large arrays for each update of for example a waveform or image,
+     *  but clients must then copy the data if they need to keep it beyond
+     *  the monitor callback.
+     */
+    public static boolean EPICS_PVA_REUSE_ARRAYS = false;
+
     /** Range of beacon periods in seconds recognized as "fast, new" beacons
      *  that re-start searches for disconnected channels.
      *
@@ -242,6 +288,18 @@ public class PVASettings
      */
     public static int EPICS_PVA_MAX_BEACON_AGE = 300;
 
+    /** Maximum number of UDP search packets per second
+     *
+     *  <p>Each search packet holds as many channel names as fit
+     *  into one unfragmented UDP packet and is sent to every search address,
+     *  so this limits the search rate for each destination.
+     *  When many channels start to search at once,
+     *  for example after an IOC reboot, searches beyond this rate
+     *  are deferred to the next search period instead of flooding the network.
+     *  Set to 0 to disable the limit.
+     */
+    public static int EPICS_PVA_MAX_SEARCH_RATE = 200;
+
 
 
     /** Whether to allow PVA to use IPv6 
@@ -264,14 +322,19 @@ public class PVASettings
         EPICS_PVAS_BROADCAST_PORT = get("EPICS_PVAS_BROADCAST_PORT", EPICS_PVAS_BROADCAST_PORT);
         EPICS_PVA_CONN_TMO = get("EPICS_PVA_CONN_TMO", EPICS_PVA_CONN_TMO);
         EPICS_PVA_MAX_ARRAY_FORMATTING = get("EPICS_PVA_MAX_ARRAY_FORMATTING", EPICS_PVA_MAX_ARRAY_FORMATTING);
+        EPICS_PVA_REUSE_ARRAYS = get("EPICS_PVA_REUSE_ARRAYS", EPICS_PVA_REUSE_ARRAYS);
         EPICS_PVAS_TLS_KEYCHAIN = get("EPICS_PVAS_TLS_KEYCHAIN", EPICS_PVAS_TLS_KEYCHAIN);
         EPICS_PVAS_TLS_OPTIONS = get("EPICS_PVAS_TLS_OPTIONS", EPICS_PVAS_TLS_OPTIONS);
         require_client_cert =  EPICS_PVAS_TLS_OPTIONS.contains("client_cert=require");
         EPICS_PVA_TLS_KEYCHAIN = get("EPICS_PVA_TLS_KEYCHAIN", EPICS_PVA_TLS_KEYCHAIN);
         EPICS_PVA_SEND_BUFFER_SIZE = get("EPICS_PVA_SEND_BUFFER_SIZE", EPICS_PVA_SEND_BUFFER_SIZE);
+        EPICS_PVA_BUFFER_POOL_MB = get("EPICS_PVA_BUFFER_POOL_MB", EPICS_PVA_BUFFER_POOL_MB);
+        EPICS_PVA_SEND_BATCH_SIZE = get("EPICS_PVA_SEND_BATCH_SIZE", EPICS_PVA_SEND_BATCH_SIZE);
+        EPICS_PVA_TCP_SELECTOR_THREADS = get("EPICS_PVA_TCP_SELECTOR_THREADS", EPICS_PVA_TCP_SELECTOR_THREADS);
         EPICS_PVA_FAST_BEACON_MIN = get("EPICS_PVA_FAST_BEACON_MIN", EPICS_PVA_FAST_BEACON_MIN);
         EPICS_PVA_FAST_BEACON_MAX = get("EPICS_PVA_FAST_BEACON_MAX", EPICS_PVA_FAST_BEACON_MAX);
         EPICS_PVA_MAX_BEACON_AGE = get("EPICS_PVA_MAX_BEACON_AGE", EPICS_PVA_MAX_BEACON_AGE);
+        EPICS_PVA_MAX_SEARCH_RATE = get("EPICS_PVA_MAX_SEARCH_RATE", EPICS_PVA_MAX_SEARCH_RATE);
         EPICS_PVA_ENABLE_IPV6 = get("EPICS_PVA_ENABLE_IPV6", EPICS_PVA_ENABLE_IPV6);
     }
 
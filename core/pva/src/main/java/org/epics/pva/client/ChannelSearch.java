@@ -13,13 +13,17 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
@@ -62,6 +66,12 @@ import org.epics.pva.data.PVAString;
  *  known channel to return a positive reply.
  *  TCP searches thus need to be repeated, but compared to the UDP searches they are sent less frequently.
  *
+ *  <p>Channels that are registered to be searched 'now' while a search is
+ *  already pending are combined into that one search,
+ *  and each search packet carries as many channel names as fit.
+ *  {@link PVASettings#EPICS_PVA_MAX_SEARCH_RATE} limits the number of UDP search packets,
+ *  deferring remaining channels to the next search period.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -91,6 +101,9 @@ class ChannelSearch
         final AtomicInteger search_period = new AtomicInteger(1);
         final PVAChannel channel;
 
+        /** Time when search started, for statistics */
+        final long start = System.nanoTime();
+
         SearchedChannel(final PVAChannel channel)
         {
             this.channel = channel;
@@ -146,6 +159,20 @@ class ChannelSearch
      */
     private final AtomicInteger current_search_bucket = new AtomicInteger();
 
+    /** Has a search 'now' been submitted to the timer, but not started? */
+    private final AtomicBoolean search_now_pending = new AtomicBoolean();
+
+    /** Number of search packets that may be sent right now,
+     *  replenished at EPICS_PVA_MAX_SEARCH_RATE.
+     *  Only accessed by {@link #runSearches()} on the timer thread.
+     */
+    private double search_tokens = PVASettings.EPICS_PVA_MAX_SEARCH_RATE;
+
+    /** Last time {@link #search_tokens} were updated */
+    private long search_tokens_time = System.nanoTime();
+
+    private final SearchStatistics statistics = new SearchStatistics();
+
     /** Timer used to periodically check channels and issue search requests */
     private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(run ->
     {
@@ -255,8 +282,9 @@ class ChannelSearch
                 bucket = (bucket + SEARCH_SOON_DELAY)  % search_buckets.size();
             search_buckets.get(bucket).add(sc);
         }
-        // Jumpstart search instead of waiting up to ~1 second for current bucket to be handled
-        if (now)
+        // Jumpstart search instead of waiting up to ~1 second for current bucket to be handled.
+        // When many channels are registered at once, combine them into one search
+        if (now  &&  search_now_pending.compareAndSet(false, true))
             timer.execute(this::runSearches);
     }
 
@@ -280,12 +308,32 @@ class ChannelSearch
         return null;
     }
 
+    /** Stop searching for channel because search reply was received
+     *  @param channel_id
+     *  @return {@link PVAChannel}, <code>null</code> when channel wasn't searched any more
+     */
+    public PVAChannel found(final int channel_id)
+    {
+        final SearchedChannel searched = searched_channels.get(channel_id);
+        final PVAChannel channel = unregister(channel_id);
+        if (channel != null  &&  searched != null)
+            statistics.channelFound(System.nanoTime() - searched.start);
+        return channel;
+    }
+
+    /** @return Search statistics */
+    public SearchStatistics getStatistics()
+    {
+        return statistics;
+    }
+
     /** Boost search for missing channels
      *
      *  <p>Resets their search counter so they're searched "real soon".
      */
     public void boost()
     {
+        final List<SearchedChannel> restart = new ArrayList<>();
         for (SearchedChannel searched : searched_channels.values())
         {
             // If search for channel has settled to the long period, restart
@@ -295,12 +343,7 @@ class ChannelSearch
             if (period == MIN_SEARCH_PERIOD)
             {
                 logger.log(Level.FINE, () -> "Restart search for '" + searched.channel.getName() + "'");
-                synchronized (search_buckets)
-                {
-                    final LinkedList<SearchedChannel> bucket = search_buckets.get(current_search_bucket.get());
-                    if (! bucket.contains(searched))
-                        bucket.add(searched);
-                }
+                restart.add(searched);
             }
             // Not sending search right now:
             //   search(channel);
@@ -309,6 +352,34 @@ class ChannelSearch
             // interfaces, so by scheduling a search real soon it happens once,
             // not for every duplicate of the same beacon
         }
+
+        if (restart.isEmpty())
+            return;
+        synchronized (search_buckets)
+        {
+            // Add to current bucket unless already in there.
+            // Checking a set instead of bucket.contains()
+            // keeps this linear when many channels are restarted
+            final LinkedList<SearchedChannel> bucket = search_buckets.get(current_search_bucket.get());
+            final Set<SearchedChannel> queued = Collections.newSetFromMap(new IdentityHashMap<>());
+            queued.addAll(bucket);
+            for (SearchedChannel searched : restart)
+                if (queued.add(searched))
+                    bucket.add(searched);
+        }
+    }
+
+    /** @return Number of search packets that may be sent right now */
+    private int getSearchBudget()
+    {
+        final int rate = PVASettings.EPICS_PVA_MAX_SEARCH_RATE;
+        if (rate <= 0)
+            return Integer.MAX_VALUE;
+        // Token bucket: Replenish at 'rate' per second, allow bursts of up to one second
+        final long now = System.nanoTime();
+        search_tokens = Math.min(rate, search_tokens + rate * (now - search_tokens_time) / 1e9);
+        search_tokens_time = now;
+        return (int) search_tokens;
     }
 
     /** List of channels to search, re-used within runSearches */
@@ -318,6 +389,11 @@ class ChannelSearch
     @SuppressWarnings("unchecked")
     private void runSearches()
     {
+        // Channels registered from now on need another search
+        search_now_pending.set(false);
+        final int budget = getSearchBudget();
+        int packets = 0, packet_payload = 0;
+
         to_search.clear();
         synchronized (search_buckets)
         {
@@ -328,11 +404,27 @@ class ChannelSearch
 
             // Remove searched channels from the current bucket
             SearchedChannel sc;
-            while ((sc = bucket.poll()) != null)
+            while ((sc = bucket.peek()) != null)
             {
                 if (sc.channel.getState() == ClientChannelState.SEARCHING  &&
                     searched_channels.containsKey(sc.channel.getCID()))
                 {
+                    // Would this channel start another search packet, exceeding the rate limit?
+                    // Same packing as in the 'Search batch..' below
+                    final int size = 4 + PVAString.getEncodedSize(sc.channel.getName());
+                    if (size < MAX_SEARCH_PAYLOAD)
+                    {
+                        if (packets == 0  ||  packet_payload + size >= MAX_SEARCH_PAYLOAD)
+                        {
+                            if (packets >= budget)
+                                break;
+                            ++packets;
+                            packet_payload = 0;
+                        }
+                        packet_payload += size;
+                    }
+                    bucket.poll();
+
                     // Collect channels in 'to_search' for handling outside of sync. section
                     to_search.add(sc.channel);
 
@@ -356,9 +448,24 @@ class ChannelSearch
                         next.add(sc);
                 }
                 else
+                {
+                    bucket.poll();
                     logger.log(Level.FINE, "Dropping channel from search: " + sc.channel);
+                }
+            }
+
+            // Defer channels beyond the rate limit to the next bucket
+            if (! bucket.isEmpty())
+            {
+                final int deferred = bucket.size();
+                logger.log(Level.FINE, () -> "Search rate limit defers " + deferred + " channels");
+                statistics.searchesDeferred(deferred);
+                search_buckets.get(current_search_bucket.get()).addAll(0, bucket);
+                bucket.clear();
             }
         }
+        if (budget != Integer.MAX_VALUE)
+            search_tokens -= packets;
 
 
         // Search batch..
@@ -400,6 +507,7 @@ class ChannelSearch
             final List<PVAChannel> batch = to_search.subList(start, start + count);
             // PVAChannel extends SearchRequest.Channel, so use List<PVAChannel> as Collection<SR.Channel>
             search((Collection<SearchRequest.Channel>) (List<? extends SearchRequest.Channel>)batch);
+            statistics.packetSent(count);
             start += count;
         }
     }
@@ -523,6 +631,7 @@ class ChannelSearch
     public void close()
     {
         searched_channels.clear();
+        logger.log(Level.FINE, () -> "Search statistics: " + statistics);
 
         timer.shutdown();
     }
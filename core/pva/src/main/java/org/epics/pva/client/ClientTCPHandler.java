@@ -12,6 +12,7 @@ import static org.epics.pva.PVASettings.logger;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -127,11 +128,15 @@ class ClientTCPHandler extends TCPHandler
         // Don't start the send thread, yet.
         // To prevent sending messages before the server is ready,
         // it's started when server confirms the connection.
+        startReceiver();
     }
 
     private static Socket createSocket(final InetSocketAddress address, final boolean tls) throws Exception
     {
-        final Socket socket = SecureSockets.createClientSocket(address, tls);
+        // Plain TCP connections may use a selector instead of threads
+        final Socket socket = (!tls  &&  PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS > 0)
+                            ? SocketChannel.open(address).socket()
+                            : SecureSockets.createClientSocket(address, tls);
         socket.setTcpNoDelay(true);
         socket.setKeepAlive(true);
         return socket;
@@ -215,11 +220,10 @@ class ClientTCPHandler extends TCPHandler
     }
 
     @Override
-    protected void send(ByteBuffer buffer) throws Exception
+    protected void onSend()
     {
         // Remember when we last sent a message to the server
         last_message_sent = System.currentTimeMillis();
-        super.send(buffer);
     }
 
     ResponseHandler getResponseHandler(final int request_id)
@@ -369,7 +373,7 @@ class ClientTCPHandler extends TCPHandler
         final int start = send_buffer.position();
 
         // Inform server about our receive buffer size
-        send_buffer.putInt(receive_buffer.capacity());
+        send_buffer.putInt(getReceiveBufferSize());
 
         // Unclear, just echo the server's size
         send_buffer.putShort(server_introspection_registry_max_size);
@@ -21,6 +21,7 @@ import java.util.logging.Level;
 import org.epics.pva.PVASettings;
 import org.epics.pva.client.ClientUDPHandler.BeaconHandler;
 import org.epics.pva.common.AddressInfo;
+import org.epics.pva.common.BufferPool;
 import org.epics.pva.common.Network;
 import org.epics.pva.server.Guid;
 
@@ -174,6 +175,12 @@ public class PVAClient implements AutoCloseable
         return channel;
     }
 
+    /** @return Statistics of channel searches */
+    public SearchStatistics getSearchStatistics()
+    {
+        return search.getStatistics();
+    }
+
     /** Get channel by client ID
      *  @param cid Channel ID, using client's ID
      *  @return {@link PVAChannel}, may be <code>null</code>
@@ -226,7 +233,7 @@ public class PVAClient implements AutoCloseable
         }
 
         // Reply for specific channel
-        final PVAChannel channel = search.unregister(channel_id);
+        final PVAChannel channel = search.found(channel_id);
         // Late reply for search that was already satisfied?
         if (channel == null)
         {
@@ -356,5 +363,6 @@ public class PVAClient implements AutoCloseable
             handler.close(true);
 
         udp.close();
+        logger.log(Level.FINE, BufferPool::getStatistics);
     }
 }
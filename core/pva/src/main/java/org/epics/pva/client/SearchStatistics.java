@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.client;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/** Channel search statistics
+ *
+ *  <p>Counts the search packets and the channel names that they contained,
+ *  and tracks the time from starting to search for a channel
+ *  until receiving the search reply for the most recently found channels.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SearchStatistics
+{
+    /** Number of recently found channels to keep for time-to-find percentiles */
+    private static final int RECENT = 1000;
+
+    // SYNC on this
+    private long packets = 0, names = 0, deferred = 0;
+    private int max_names = 0;
+    private final long[] recent_nanos = new long[RECENT];
+    private long found = 0;
+
+    /** @param count Number of channel names in search packet that was sent */
+    synchronized void packetSent(final int count)
+    {
+        ++packets;
+        names += count;
+        if (count > max_names)
+            max_names = count;
+    }
+
+    /** @param count Number of channel searches deferred by rate limit */
+    synchronized void searchesDeferred(final int count)
+    {
+        deferred += count;
+    }
+
+    /** @param nanos Time from starting to search until channel was found */
+    synchronized void channelFound(final long nanos)
+    {
+        recent_nanos[(int) (found % RECENT)] = nanos;
+        ++found;
+    }
+
+    /** @return Number of search packets sent */
+    public synchronized long getPackets()
+    {
+        return packets;
+    }
+
+    /** @return Number of channel names sent in search packets */
+    public synchronized long getNames()
+    {
+        return names;
+    }
+
+    /** @return Average number of channel names per search packet */
+    public synchronized double getNamesPerPacket()
+    {
+        return packets > 0 ? (double) names / packets : 0.0;
+    }
+
+    /** @return Maximum number of channel names in one search packet */
+    public synchronized int getMaxNamesPerPacket()
+    {
+        return max_names;
+    }
+
+    /** @return Number of channel searches that the rate limit deferred to a later search period */
+    public synchronized long getDeferred()
+    {
+        return deferred;
+    }
+
+    /** @return Number of channels that were found */
+    public synchronized long getFound()
+    {
+        return found;
+    }
+
+    /** @param percentile Percentile 0..100
+     *  @return Time from starting to search until channel was found in milliseconds,
+     *          for the given percentile of the most recently found channels.
+     *          0 if no channel has been found.
+     */
+    public long getTimeToFind(final double percentile)
+    {
+        final long[] sorted;
+        synchronized (this)
+        {
+            sorted = Arrays.copyOf(recent_nanos, (int) Math.min(found, RECENT));
+        }
+        if (sorted.length <= 0)
+            return 0;
+        Arrays.sort(sorted);
+        final int index = (int) Math.round(percentile / 100.0 * (sorted.length - 1));
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d search packets, %d names (%.1f per packet, max %d), %d deferred, " +
+                             "%d found, time to find 50%%: %d ms, 90%%: %d ms, 99%%: %d ms",
+                             getPackets(), getNames(), getNamesPerPacket(), getMaxNamesPerPacket(), getDeferred(),
+                             getFound(), getTimeToFind(50), getTimeToFind(90), getTimeToFind(99));
+    }
+}
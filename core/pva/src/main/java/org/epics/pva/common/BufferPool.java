@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.epics.pva.PVASettings.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.epics.pva.PVASettings;
+
+/** Pool of TCP send and receive buffers
+ *
+ *  <p>Shared by all {@link TCPHandler}s of the PVA client and server
+ *  in the same process.
+ *  Buffers are organized in size classes that are powers of two,
+ *  starting at {@link PVASettings#EPICS_PVA_RECEIVE_BUFFER_SIZE}.
+ *  When a connection closes, its buffers are returned to the pool
+ *  for use by the next connection.
+ *  Accumulators for segmented messages are returned after each message,
+ *  so large segmented updates like images on different connections
+ *  can share them.
+ *
+ *  <p>The pool holds at most {@link PVASettings#EPICS_PVA_BUFFER_POOL_MB}
+ *  of idle buffers. Buffers beyond that are left to the garbage collector.
+ *
+ *  <p>Buffers are heap buffers because the {@link TCPHandler} reads and writes
+ *  via the socket streams, which includes TLS sockets, and those require
+ *  access to the backing array.
+ */
+@SuppressWarnings("nls")
+public class BufferPool
+{
+    /** Size of smallest size class as power of 2 */
+    private static final int MIN_SHIFT = 32 - Integer.numberOfLeadingZeros(PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE - 1);
+
+    /** Size of largest size class as power of 2 */
+    private static final int MAX_SHIFT = 30;
+
+    /** Idle buffers, indexed by size class */
+    private static final List<Deque<ByteBuffer>> pool = new ArrayList<>(MAX_SHIFT - MIN_SHIFT + 1);
+
+    /** Maximum number of bytes held in idle buffers */
+    private static final long max_bytes = PVASettings.EPICS_PVA_BUFFER_POOL_MB * 1024L * 1024L;
+
+    private static final AtomicLong bytes_held = new AtomicLong(),
+                                    hits = new AtomicLong(),
+                                    allocations = new AtomicLong(),
+                                    growths = new AtomicLong(),
+                                    discards = new AtomicLong();
+
+    static
+    {
+        for (int i=MIN_SHIFT; i<=MAX_SHIFT; ++i)
+            pool.add(new ConcurrentLinkedDeque<>());
+    }
+
+    /** @param size Requested size
+     *  @return Index of size class, or -1 if size is too large for pool
+     */
+    private static int getSizeClass(final int size)
+    {
+        final int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+        if (shift > MAX_SHIFT)
+            return -1;
+        return shift - MIN_SHIFT;
+    }
+
+    /** Get a buffer
+     *
+     *  <p>Buffer is cleared and uses big endian byte order,
+     *  just like a newly allocated buffer.
+     *
+     *  @param size Minimum buffer size
+     *  @return Buffer with at least the requested capacity
+     */
+    public static ByteBuffer acquire(final int size)
+    {
+        final int size_class = getSizeClass(size);
+        if (size_class < 0)
+        {
+            allocations.incrementAndGet();
+            return ByteBuffer.allocate(size);
+        }
+        final ByteBuffer buffer = pool.get(size_class).pollFirst();
+        if (buffer == null)
+        {
+            allocations.incrementAndGet();
+            return ByteBuffer.allocate(1 << (size_class + MIN_SHIFT));
+        }
+        bytes_held.addAndGet(-buffer.capacity());
+        hits.incrementAndGet();
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        return buffer;
+    }
+
+    /** Return a buffer to the pool
+     *
+     *  <p>Caller must no longer use the buffer.
+     *
+     *  @param buffer Buffer obtained via {@link #acquire(int)}, may be <code>null</code>
+     */
+    public static void release(final ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        final int capacity = buffer.capacity();
+        final int size_class = getSizeClass(capacity);
+        // Only pool buffers that exactly match a size class
+        if (size_class < 0  ||  capacity != 1 << (size_class + MIN_SHIFT))
+        {
+            discards.incrementAndGet();
+            return;
+        }
+        if (bytes_held.addAndGet(capacity) > max_bytes)
+        {
+            bytes_held.addAndGet(-capacity);
+            discards.incrementAndGet();
+            return;
+        }
+        pool.get(size_class).addFirst(buffer);
+    }
+
+    /** Check buffer size, grow if needed
+     *
+     *  <p>When necessary, a larger buffer is obtained from the pool,
+     *  existing data copied, and the original buffer returned to the pool.
+     *
+     *  @param buffer Original buffer, positioned at end of valid data
+     *  @param size Required buffer size
+     *  @return Original buffer, or larger buffer with copied data and same byte order
+     */
+    public static ByteBuffer grow(final ByteBuffer buffer, final int size)
+    {
+        if (buffer.capacity() >= size)
+            return buffer;
+
+        final ByteBuffer new_buffer = acquire(size);
+        new_buffer.order(buffer.order());
+        buffer.flip();
+        new_buffer.put(buffer);
+        release(buffer);
+        growths.incrementAndGet();
+
+        logger.log(Level.FINE,
+                   () -> Thread.currentThread().getName() + " extends buffer from " +
+                         buffer.capacity() + " to " + new_buffer.capacity() +
+                         ", copied " + new_buffer.position() + " bytes to new buffer");
+        return new_buffer;
+    }
+
+    /** @return Number of buffer requests served from the pool */
+    public static long getHits()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of buffers that had to be allocated */
+    public static long getAllocations()
+    {
+        return allocations.get();
+    }
+
+    /** @return Number of times a buffer was replaced by a larger one */
+    public static long getGrowths()
+    {
+        return growths.get();
+    }
+
+    /** @return Number of returned buffers that were not kept because pool was full */
+    public static long getDiscards()
+    {
+        return discards.get();
+    }
+
+    /** @return Number of bytes held in idle buffers */
+    public static long getBytesHeld()
+    {
+        return bytes_held.get();
+    }
+
+    /** @return Summary of pool statistics */
+    public static String getStatistics()
+    {
+        return "Buffer pool: " + hits.get() + " hits, " +
+               allocations.get() + " allocations, " +
+               growths.get() + " growths, " +
+               discards.get() + " discards, " +
+               bytes_held.get() + " bytes held";
+    }
+}
@@ -16,12 +16,19 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.epics.pva.PVASettings;
@@ -37,6 +44,10 @@ import org.epics.pva.data.PVAString;
  *
  *  <p>Maintains send queue.
  *
+ *  <p>By default, each connection uses a receive and a send thread.
+ *  When the socket has a {@link SocketChannel}, the connection
+ *  is instead handled by a shared {@link TCPSelector}.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -70,17 +81,46 @@ abstract public class TCPHandler
     /** Flag to indicate that 'close' was called to close the 'socket' */
     protected volatile boolean running = true;
 
-    /** Buffer used to receive data via {@link TCPHandler#receive_thread} */
-    protected ByteBuffer receive_buffer = ByteBuffer.allocate(PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE);
+    /** Buffer used to receive data via {@link TCPHandler#receive_thread}.
+     *
+     *  <p>Returned to the {@link BufferPool} and set to <code>null</code>
+     *  when the receiver exits.
+     */
+    private volatile ByteBuffer receive_buffer = BufferPool.acquire(PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE);
 
     /** Buffer for assembling parts of segmented message
      *
-     *  <p>Created and then grown as needed
+     *  <p>Obtained from {@link BufferPool} for the first segment,
+     *  grown as needed, and returned to the pool once the
+     *  complete message has been handled
      */
     private ByteBuffer segments = null;
 
-    /** Buffer used to send data via {@link TCPHandler#send_thread} */
-    protected final ByteBuffer send_buffer = ByteBuffer.allocate(PVASettings.EPICS_PVA_SEND_BUFFER_SIZE);
+    /** Size of the last assembled segmented message,
+     *  used to request a sufficiently large accumulator for the next one
+     */
+    private int segments_size_hint = 0;
+
+    /** Buffer used to send data via {@link TCPHandler#send_thread}
+     *
+     *  <p>The sender encodes several queued messages back to back into this buffer,
+     *  see {@link PVASettings#EPICS_PVA_SEND_BATCH_SIZE}.
+     *  Any message that starts within the batch size still has
+     *  {@link PVASettings#EPICS_PVA_SEND_BUFFER_SIZE} available.
+     */
+    protected final ByteBuffer send_buffer = BufferPool.acquire(PVASettings.EPICS_PVA_SEND_BUFFER_SIZE +
+                                                                Math.max(0, PVASettings.EPICS_PVA_SEND_BATCH_SIZE));
+
+    /** Number of socket writes ('flushes') and messages sent by the sender */
+    private volatile long flushes = 0, messages_sent = 0;
+
+    /** Number of threads that still use the {@link #send_buffer}
+     *
+     *  <p>Starts with the receiver, which may directly send
+     *  before the sender is started, incremented when sender starts.
+     *  The last one to exit returns the send buffer to the {@link BufferPool}.
+     */
+    private final AtomicInteger send_buffer_users = new AtomicInteger(1);
 
     /** Queue of items to send to peer */
     private final BlockingQueue<RequestEncoder> send_items = new LinkedBlockingQueue<>();
@@ -104,23 +144,59 @@ abstract public class TCPHandler
         return thread;
     });
 
-    /** Thread that runs {@link TCPHandler#receiver()} */
-    private final Future<Void> receive_thread;
+    /** Thread that runs {@link TCPHandler#receiver()},
+     *  or receive_done when using selector
+     */
+    private volatile Future<Void> receive_thread;
 
-    /** Thread that runs {@link TCPHandler#sender()} */
+    /** Thread that runs {@link TCPHandler#sender()},
+     *  or send_done when using selector
+     */
     private volatile Future<Void> send_thread;
 
-    /** Start receiving messages
+    /** Non-blocking channel of the socket when using selector, else <code>null</code> */
+    private final SocketChannel channel;
+
+    /** Selector that handles this connection, or <code>null</code> when using threads */
+    private final TCPSelector selector;
+
+    /** Key of the channel within the selector */
+    private volatile SelectionKey key;
+
+    /** Selector mode: Has writing been requested, i.e. OP_WRITE is or will be set? */
+    private final AtomicBoolean write_requested = new AtomicBoolean();
+
+    /** Selector mode: Messages from {@link #send(ByteBuffer)}, written ahead of queued requests */
+    private final Queue<ByteBuffer> direct_sends = new ConcurrentLinkedQueue<>();
+
+    /** Selector mode: Has connection been closed? */
+    private final AtomicBoolean selector_closed = new AtomicBoolean();
+
+    /** Selector mode: Completes when connection is closed */
+    private final CompletableFuture<Void> receive_done;
+
+    /** Selector mode: Is the {@link #send_buffer} being written, i.e. not being filled with messages? */
+    private boolean send_buffer_writing = false;
+
+    /** Selector mode: Has END_REQUEST been reached? */
+    private boolean send_ending = false;
+
+    /** Selector mode: Completes when sending ends */
+    private volatile CompletableFuture<Void> send_done;
+
+    /** Create handler for socket
      *
      *  <p>Will accept messages to be sent,
      *  but will only start sending them when the
      *  send thread is running
      *
-     *  @param socket Socket to read/write
+     *  @param socket Socket to read/write. When it has a {@link SocketChannel}, a {@link TCPSelector} is used
      *  @param client_mode Is this the client, expecting to receive messages from server?
+     *  @throws Exception on error
+     *  @see #startReceiver()
      *  @see #startSender()
      */
-    public TCPHandler(final Socket socket, final boolean client_mode)
+    public TCPHandler(final Socket socket, final boolean client_mode) throws Exception
     {
         this.socket = socket;
         this.client_mode = client_mode;
@@ -131,8 +207,37 @@ abstract public class TCPHandler
         // For client, order is updated during connection validation (PVAHeader.CTRL_SET_BYTE_ORDER)
         send_buffer.order(ByteOrder.nativeOrder());
 
-        // Start receiving data
-        receive_thread = thread_pool.submit(this::receiver);
+        channel = socket.getChannel();
+        if (channel == null)
+        {
+            selector = null;
+            receive_done = null;
+        }
+        else
+        {
+            channel.configureBlocking(false);
+            // Nothing to send, yet
+            send_buffer.limit(0);
+            receive_buffer.clear();
+            receive_done = new CompletableFuture<>();
+            selector = TCPSelector.get();
+        }
+    }
+
+    /** Start receiving messages
+     *
+     *  <p>Must be called once by derived class
+     *  when it is fully initialized and ready to handle messages.
+     */
+    protected void startReceiver()
+    {
+        if (selector == null)
+            receive_thread = thread_pool.submit(this::receiver);
+        else
+        {
+            receive_thread = receive_done;
+            selector.register(channel, this);
+        }
     }
 
     /** Start send thread
@@ -140,14 +245,36 @@ abstract public class TCPHandler
      *  <p>Must be called from just one thread,
      *  might otherwise start multiple send threads.
      *
+     *  <p>Does nothing if the receiver already exited
+     *  because the connection was closed.
+     *
      * @throws Exception on error
      */
     protected void startSender() throws Exception
     {
-        if (send_thread == null)
+        if (send_thread != null)
+            throw new Exception("Send thread already running");
+        if (send_buffer_users.getAndUpdate(users -> users > 0 ? users + 1 : 0) <= 0)
+        {
+            logger.log(Level.FINE, () -> this + " closed, not starting sender");
+            return;
+        }
+        if (selector == null)
             send_thread = thread_pool.submit(this::sender);
         else
-            throw new Exception("Send thread already running");
+        {
+            send_done = new CompletableFuture<>();
+            send_thread = send_done;
+            // Send what has been queued so far
+            requestWrite();
+        }
+    }
+
+    /** Called by receiver and sender when they no longer use the {@link #send_buffer} */
+    private void releaseSendBuffer()
+    {
+        if (send_buffer_users.decrementAndGet() == 0)
+            BufferPool.release(send_buffer);
     }
 
     /** @return Remote address of this end of the TCP socket */
@@ -170,45 +297,125 @@ abstract public class TCPHandler
     public boolean submit(final RequestEncoder item)
     {
         if (send_items.offer(item))
+        {
+            if (selector != null  &&  send_thread != null)
+                requestWrite();
             return true;
+        }
         logger.log(Level.WARNING, this + " send queue full");
         return false;
     }
 
-    /** Send {@link RequestEncoder} entries off queue */
+    /** Send {@link RequestEncoder} entries off queue
+     *
+     *  <p>When more items are queued, they are encoded
+     *  back to back and combined into one socket write.
+     */
     private Void sender()
     {
         try
         {
             Thread.currentThread().setName("TCP sender from " + socket.getLocalSocketAddress() + " to " + socket.getRemoteSocketAddress());
             logger.log(Level.FINER, () -> Thread.currentThread().getName() + " started");
-            while (true)
+            boolean done = false;
+            while (! done)
             {
+                RequestEncoder to_send = send_items.take();
                 send_buffer.clear();
-                final RequestEncoder to_send = send_items.take();
-                if (to_send == END_REQUEST)
-                    break;
-                try
+                int messages = 0;
+                do
                 {
-                    to_send.encodeRequest(server_version, send_buffer);
-                }
-                catch (Exception ex)
-                {
-                    logger.log(Level.WARNING, Thread.currentThread().getName() + " request encoding error", ex);
-                    continue;
+                    if (to_send == END_REQUEST)
+                    {
+                        done = true;
+                        break;
+                    }
+                    if (encode(to_send))
+                        ++messages;
+                    if (send_buffer.position() >= PVASettings.EPICS_PVA_SEND_BATCH_SIZE)
+                    {
+                        flushBatch(messages);
+                        messages = 0;
+                    }
                 }
-                send_buffer.flip();
-                send(send_buffer);
+                while ((to_send = send_items.poll()) != null);
+                flushBatch(messages);
             }
         }
         catch (Exception ex)
         {
             logger.log(Level.WARNING, Thread.currentThread().getName() + " exits because of error", ex);
         }
+        finally
+        {
+            releaseSendBuffer();
+        }
         logger.log(Level.FINER, Thread.currentThread().getName() + " done.");
         return null;
     }
 
+    /** Encode item into send buffer, following messages already in the buffer
+     *
+     *  <p>Encoders clear the buffer and patch the payload size
+     *  at absolute offsets, so they are handed a slice of the
+     *  send buffer that starts at its current position.
+     *
+     *  @param to_send Item to encode
+     *  @return <code>true</code> if message was added, send buffer is positioned after it
+     */
+    private boolean encode(final RequestEncoder to_send)
+    {
+        final ByteBuffer message = send_buffer.slice().order(send_buffer.order());
+        try
+        {
+            to_send.encodeRequest(server_version, message);
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, this + " request encoding error", ex);
+            return false;
+        }
+        send_buffer.position(send_buffer.position() + message.position());
+        return true;
+    }
+
+    /** Send combined messages
+     *  @param messages Number of messages in {@link #send_buffer}
+     *  @throws Exception on error
+     */
+    private void flushBatch(final int messages) throws Exception
+    {
+        if (messages <= 0)
+            return;
+        send_buffer.flip();
+        flush(send_buffer, messages);
+        send_buffer.clear();
+    }
+
+    /** Send buffer, update statistics
+     *  @param buffer Buffer to send
+     *  @param messages Number of messages in buffer
+     *  @throws Exception on error
+     */
+    private void flush(final ByteBuffer buffer, final int messages) throws Exception
+    {
+        send(buffer);
+        ++flushes;
+        messages_sent += messages;
+    }
+
+    /** @return Number of socket writes, each sending one or more messages */
+    public long getFlushes()
+    {
+        return flushes;
+    }
+
+    /** @return Number of messages sent via the send queue */
+    public long getMessagesSent()
+    {
+        return messages_sent;
+    }
+
     /** Send message
      *
      *  <p>Must only be called by outside code before
@@ -219,8 +426,21 @@ abstract public class TCPHandler
      */
     protected void send(final ByteBuffer buffer) throws Exception
     {
+        onSend();
         logger.log(Level.FINER, () -> Thread.currentThread().getName() + " sends:\n" + Hexdump.toHexdump(buffer));
 
+        if (channel != null)
+        {
+            // Caller may re-use the buffer, so queue a copy
+            // for the selector thread to write when socket is writable
+            final ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+            copy.put(buffer);
+            copy.flip();
+            direct_sends.add(copy);
+            requestWrite();
+            return;
+        }
+
         // Original AbstractCodec.send() mentions
         // Microsoft KB article KB823764:
         // Limiting buffer size increases performance.
@@ -249,6 +469,16 @@ abstract public class TCPHandler
         }
     }
 
+    /** Invoked whenever a message is about to be sent
+     *
+     *  <p>Derived class may override to for example
+     *  track when the last message was sent.
+     */
+    protected void onSend()
+    {
+        // NOP
+    }
+
     /** Receiver */
     private Void receiver()
     {
@@ -266,7 +496,7 @@ abstract public class TCPHandler
                 int message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
                 while (receive_buffer.position() < message_size)
                 {
-                    receive_buffer = assertBufferSize(receive_buffer, message_size);
+                    receive_buffer = BufferPool.grow(receive_buffer, message_size);
                     final int read = in.read(receive_buffer.array(), receive_buffer.position(), receive_buffer.remaining());
                     if (read < 0)
                     {
@@ -281,35 +511,7 @@ abstract public class TCPHandler
                     message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
                 }
                 // .. then decode
-                receive_buffer.flip();
-                logger.log(Level.FINER, () -> Thread.currentThread().getName() + " received:\n" + Hexdump.toHexdump(receive_buffer));
-
-                // While buffer may contain more data,
-                // limit it to the end of this message to prevent
-                // message handler from reading beyond message boundary.
-                final int actual_limit = receive_buffer.limit();
-                receive_buffer.limit(message_size);
-                try
-                {
-                    handleMessage(receive_buffer);
-                }
-                catch (Exception ex)
-                {
-                    // Once we fail to decode and handle a message,
-                    // it is likely that the server/client protocol gets
-                    // out of step and never recovers.
-                    // Still, log error and keep reading in case
-                    // the issue is limited to just this one message.
-                    logger.log(Level.WARNING, Thread.currentThread().getName() + " message error. Protocol might be broken from here on.", ex);
-                }
-
-                receive_buffer.limit(actual_limit);
-                // No matter if message handler read the complete message,
-                // position at end of handled message
-                receive_buffer.position(message_size);
-
-                // Shift rest to start of buffer and handle next message
-                receive_buffer.compact();
+                handleReceivedMessage(message_size);
             }
         }
         catch (Exception ex)
@@ -319,48 +521,273 @@ abstract public class TCPHandler
         }
         finally
         {
-            onReceiverExited(running);
+            receiverExited();
             logger.log(Level.FINER, Thread.currentThread().getName() + " done.");
         }
         return null;
     }
 
-    /** Invoked when the receiver thread exits because socket has been closed.
+    /** Handle message at start of receive buffer
      *
-     *  <p>Derived class may override to perform cleanup
-     *  when socket has been closed
+     *  <p>Positions the receive buffer at the end of
+     *  remaining data that follows the handled message.
      *
-     *  @param running Was TCP connection still running, i.e. unexpected shutdown?
+     *  @param message_size Size of the complete message
      */
-    protected void onReceiverExited(final boolean running)
+    private void handleReceivedMessage(final int message_size)
     {
-        // NOP
+        receive_buffer.flip();
+        logger.log(Level.FINER, () -> Thread.currentThread().getName() + " received:\n" + Hexdump.toHexdump(receive_buffer));
+
+        // While buffer may contain more data,
+        // limit it to the end of this message to prevent
+        // message handler from reading beyond message boundary.
+        final int actual_limit = receive_buffer.limit();
+        receive_buffer.limit(message_size);
+        try
+        {
+            handleMessage(receive_buffer);
+        }
+        catch (Exception ex)
+        {
+            // Once we fail to decode and handle a message,
+            // it is likely that the server/client protocol gets
+            // out of step and never recovers.
+            // Still, log error and keep reading in case
+            // the issue is limited to just this one message.
+            logger.log(Level.WARNING, Thread.currentThread().getName() + " message error. Protocol might be broken from here on.", ex);
+        }
+
+        receive_buffer.limit(actual_limit);
+        // No matter if message handler read the complete message,
+        // position at end of handled message
+        receive_buffer.position(message_size);
+
+        // Shift rest to start of buffer and handle next message
+        receive_buffer.compact();
+    }
+
+    /** @return Size of receive buffer to report to peer */
+    protected int getReceiveBufferSize()
+    {
+        final ByteBuffer buffer = receive_buffer;
+        return buffer == null ? PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE : buffer.capacity();
     }
 
-    /** Check buffer size, grow if needed
+    /** Called when receiver exits */
+    private void receiverExited()
+    {
+        onReceiverExited(running);
+        // Receiver no longer needs its buffers.
+        // Drop reference to the receive_buffer since
+        // another connection may now obtain it from the pool
+        final ByteBuffer buffer = receive_buffer;
+        receive_buffer = null;
+        BufferPool.release(buffer);
+        BufferPool.release(segments);
+        segments = null;
+        releaseSendBuffer();
+    }
+
+    /** Selector mode: Read available data, handle all complete messages
+     *  @throws Exception on error
+     */
+    void handleReadable() throws Exception
+    {
+        final int read = channel.read(receive_buffer);
+        if (read < 0)
+        {
+            logger.log(Level.FINER, () -> this + ": socket closed");
+            closeSelectorConnection();
+            return;
+        }
+        if (read > 0)
+            logger.log(Level.FINER, () -> this + ": " + read + " bytes");
+
+        int message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
+        while (receive_buffer.position() >= message_size)
+        {
+            handleReceivedMessage(message_size);
+            message_size = PVAHeader.checkMessageAndGetSize(receive_buffer, client_mode);
+        }
+        // Assert room for the rest of an incomplete message
+        receive_buffer = BufferPool.grow(receive_buffer, message_size);
+    }
+
+    /** Selector mode: Request call to {@link #handleWritable()} */
+    private void requestWrite()
+    {
+        if (write_requested.compareAndSet(false, true))
+            selector.execute(() ->
+            {
+                final SelectionKey safe_key = key;
+                if (safe_key != null  &&  safe_key.isValid())
+                    safe_key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            });
+    }
+
+    /** Selector mode: Send queued messages until done or socket buffer is full
      *
-     *  <p>When necessary, a new buffer is allocated,
-     *  existing data copied.
+     *  <p>Like the sender thread, encodes queued messages back to back
+     *  into the {@link #send_buffer} and writes them together.
+     *
+     *  @throws Exception on error
+     */
+    void handleWritable() throws Exception
+    {
+        if (send_done == null)
+        {   // Sender not started, only write direct messages
+            if (! writeDirectMessages())
+                return;
+            key.interestOps(SelectionKey.OP_READ);
+            write_requested.set(false);
+            // Handle messages submitted or sender started while write_requested was still set
+            if ((send_done == null  &&  direct_sends.isEmpty())  ||
+                ! write_requested.compareAndSet(false, true))
+                return;
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            return;
+        }
+        if (send_done.isDone())
+        {   // Ignore items submitted after sender ended, buffers have been released
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        while (true)
+        {
+            // Complete a write that was only partial
+            if (send_buffer_writing)
+            {
+                channel.write(send_buffer);
+                if (send_buffer.hasRemaining())
+                    return;
+                send_buffer_writing = false;
+            }
+            // Direct messages go in between complete messages
+            if (! writeDirectMessages())
+                return;
+
+            // Encode queued messages until batch size is reached
+            send_buffer.clear();
+            int messages = 0;
+            while (! send_ending  &&
+                   (messages == 0  ||  send_buffer.position() < PVASettings.EPICS_PVA_SEND_BATCH_SIZE))
+            {
+                final RequestEncoder to_send = send_items.poll();
+                if (to_send == null)
+                    break;
+                if (to_send == END_REQUEST)
+                    // Send what has been collected, then stop
+                    send_ending = true;
+                else if (encode(to_send))
+                    ++messages;
+            }
+            send_buffer.flip();
+
+            if (messages > 0)
+            {
+                send_buffer_writing = true;
+                ++flushes;
+                messages_sent += messages;
+                onSend();
+                logger.log(Level.FINER, () -> this + " sends:\n" + Hexdump.toHexdump(send_buffer));
+            }
+            else if (send_ending)
+            {   // All sent up to END_REQUEST
+                key.interestOps(SelectionKey.OP_READ);
+                senderExited();
+                return;
+            }
+            else
+            {   // Nothing to send
+                key.interestOps(SelectionKey.OP_READ);
+                write_requested.set(false);
+                // Handle items submitted while write_requested was still set
+                if (send_done.isDone()  ||  (send_items.isEmpty()  &&  direct_sends.isEmpty())  ||
+                    ! write_requested.compareAndSet(false, true))
+                    return;
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /** Selector mode: Write messages queued by {@link #send(ByteBuffer)}
+     *  @return <code>true</code> when all have been written, <code>false</code> when socket buffer is full
+     *  @throws Exception on error
+     */
+    private boolean writeDirectMessages() throws Exception
+    {
+        ByteBuffer buffer;
+        while ((buffer = direct_sends.peek()) != null)
+        {
+            channel.write(buffer);
+            if (buffer.hasRemaining())
+                return false;
+            direct_sends.poll();
+        }
+        return true;
+    }
+
+    /** Selector mode: Mark sender as done */
+    private void senderExited()
+    {
+        final CompletableFuture<Void> done = send_done;
+        if (done != null  &&  done.complete(null))
+            releaseSendBuffer();
+    }
+
+    /** Selector mode: Handle error by closing the connection */
+    void handleSelectorError()
+    {
+        closeSelectorConnection();
+    }
+
+    /** Selector mode: Remove connection from selector, release buffers
      *
-     *  @param buffer Original buffer
-     *  @param message_size Required receive buffer size
-     *  @return Original buffer, or larger buffer with copied data
+     *  <p>Must be called on selector thread
      */
-    private ByteBuffer assertBufferSize(final ByteBuffer buffer, final int size)
+    private void closeSelectorConnection()
     {
-        if (buffer.capacity() >= size)
-            return buffer;
+        if (! selector_closed.compareAndSet(false, true))
+            return;
+        final SelectionKey safe_key = key;
+        if (safe_key != null)
+            safe_key.cancel();
+        try
+        {
+            channel.close();
+        }
+        catch (Exception ex)
+        {
+            // Ignore
+        }
+        try
+        {
+            senderExited();
+            receiverExited();
+        }
+        finally
+        {
+            receive_done.complete(null);
+        }
+    }
 
-        final ByteBuffer new_buffer = ByteBuffer.allocate(size);
-        new_buffer.order(buffer.order());
-        buffer.flip();
-        new_buffer.put(buffer);
+    /** @param key Key of this connection within selector */
+    void setSelectionKey(final SelectionKey key)
+    {
+        this.key = key;
+    }
 
-        logger.log(Level.INFO,
-                   Thread.currentThread().getName() + " extends buffer from " +
-                   buffer.capacity() + " to " + new_buffer.capacity() +
-                   ", copied " + new_buffer.position() + " bytes to new buffer");
-        return new_buffer;
+    /** Invoked when the receiver thread exits because socket has been closed.
+     *
+     *  <p>Derived class may override to perform cleanup
+     *  when socket has been closed
+     *
+     *  @param running Was TCP connection still running, i.e. unexpected shutdown?
+     */
+    protected void onReceiverExited(final boolean running)
+    {
+        // NOP
     }
 
     /** Handle a received message
@@ -414,15 +841,17 @@ abstract public class TCPHandler
         {
             if (segments == null)
             {
-                logger.log(Level.INFO,
-                           () -> Thread.currentThread().getName() + " allocates segmented message accumulator buffer for " + buffer.limit() + " bytes");
-                segments = ByteBuffer.allocate(buffer.limit());
+                // Size accumulator for the complete message based on the previous one
+                final int size = Math.max(buffer.limit(), segments_size_hint);
+                logger.log(Level.FINE,
+                           () -> Thread.currentThread().getName() + " requests segmented message accumulator buffer for " + size + " bytes");
+                segments = BufferPool.acquire(size);
                 segments.order(buffer.order());
             }
             else if (segments.position() > 0)
                 throw new Exception("Received new first message segment while still handling previous one");
 
-            segments = assertBufferSize(segments, buffer.limit());
+            segments = BufferPool.grow(segments, buffer.limit());
             segments.put(buffer);
             // Clear the 'segmented' flags in the accumulator buffer
             segments.put(2, (byte) (buffer.get(2) & 0b11001111));
@@ -453,7 +882,7 @@ abstract public class TCPHandler
             // Payload of segment to add
             final int payload = buffer.getInt(PVAHeader.HEADER_OFFSET_PAYLOAD_SIZE);
             final int total = seg_size + payload;
-            segments = assertBufferSize(segments, PVAHeader.HEADER_SIZE + total);
+            segments = BufferPool.grow(segments, PVAHeader.HEADER_SIZE + total);
             // Skip header, add payload to segments
             buffer.position(PVAHeader.HEADER_SIZE);
             segments.put(buffer);
@@ -480,8 +909,10 @@ abstract public class TCPHandler
                     throw new Exception("Error handling assembled segmented message", ex);
                 }
                 finally
-                {   // Reset segments buffer to allow starting with another 'first' message
-                    segments.clear();
+                {   // Return segments buffer to pool to allow starting with another 'first' message
+                    segments_size_hint = segments.limit();
+                    BufferPool.release(segments);
+                    segments = null;
                 }
             }
         }
@@ -558,13 +989,17 @@ abstract public class TCPHandler
         {
             running = false;
             socket.close();
-            if (wait)
-                receive_thread.get(5, TimeUnit.SECONDS);
+            if (selector != null)
+                selector.execute(this::closeSelectorConnection);
+            final Future<Void> receiver = receive_thread;
+            if (wait  &&  receiver != null)
+                receiver.get(5, TimeUnit.SECONDS);
         }
         catch (Exception ex)
         {
             logger.log(Level.WARNING, "Cannot stop receive thread", ex);
         }
+        logger.log(Level.FINE, () -> this + " sent " + messages_sent + " messages in " + flushes + " writes");
         logger.log(Level.FINE, () -> this + " closed  ============================");
     }
 
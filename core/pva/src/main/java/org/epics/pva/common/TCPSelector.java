@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.epics.pva.PVASettings.logger;
+
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.epics.pva.PVASettings;
+
+/** Selector thread that handles several TCP connections
+ *
+ *  <p>Instead of a sender and receiver thread for each connection,
+ *  a {@link TCPHandler} that uses a non-blocking {@link SocketChannel}
+ *  registers with one of {@link PVASettings#EPICS_PVA_TCP_SELECTOR_THREADS}
+ *  selector threads, which read, decode and handle received messages
+ *  and send queued messages for all the connections that they serve.
+ *
+ *  <p>Since all connections of a selector thread share that thread,
+ *  code that handles received messages, for example a monitor listener,
+ *  must not block.
+ */
+@SuppressWarnings("nls")
+class TCPSelector
+{
+    /** Selector threads, created on first use */
+    private static TCPSelector[] selectors = null;
+
+    /** Index of selector to use for the next connection */
+    private static final AtomicInteger next = new AtomicInteger();
+
+    private final Selector selector;
+
+    /** Tasks to perform on the selector thread */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** @return Selector for a new connection
+     *  @throws Exception on error
+     */
+    static synchronized TCPSelector get() throws Exception
+    {
+        if (selectors == null)
+        {
+            selectors = new TCPSelector[Math.max(1, PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS)];
+            for (int i=0; i<selectors.length; ++i)
+                selectors[i] = new TCPSelector(i);
+        }
+        return selectors[Math.floorMod(next.getAndIncrement(), selectors.length)];
+    }
+
+    private TCPSelector(final int index) throws Exception
+    {
+        selector = Selector.open();
+        final Thread thread = new Thread(this::run, "PVA TCP Selector " + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Perform task on the selector thread
+     *  @param task Task to perform
+     */
+    void execute(final Runnable task)
+    {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /** Register connection
+     *  @param channel Non-blocking channel
+     *  @param handler Handler for that channel
+     */
+    void register(final SocketChannel channel, final TCPHandler handler)
+    {
+        execute(() ->
+        {
+            try
+            {
+                handler.setSelectionKey(channel.register(selector, SelectionKey.OP_READ, handler));
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot register " + handler, ex);
+                handler.handleSelectorError();
+            }
+        });
+    }
+
+    private void run()
+    {
+        logger.log(Level.FINER, () -> Thread.currentThread().getName() + " started");
+        while (true)
+        {
+            try
+            {
+                selector.select();
+
+                Runnable task;
+                while ((task = tasks.poll()) != null)
+                    task.run();
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    final TCPHandler handler = (TCPHandler) key.attachment();
+                    try
+                    {
+                        if (key.isValid()  &&  key.isReadable())
+                            handler.handleReadable();
+                        if (key.isValid()  &&  key.isWritable())
+                            handler.handleWritable();
+                    }
+                    catch (ClosedChannelException | CancelledKeyException ex)
+                    {
+                        // Expected when connection is closed by another thread
+                        logger.log(Level.FINE, () -> Thread.currentThread().getName() + " closed " + handler);
+                        handler.handleSelectorError();
+                    }
+                    catch (Exception ex)
+                    {
+                        logger.log(Level.WARNING, Thread.currentThread().getName() + " error for " + handler, ex);
+                        handler.handleSelectorError();
+                    }
+                }
+            }
+            catch (Throwable ex)
+            {
+                logger.log(Level.SEVERE, Thread.currentThread().getName() + " error", ex);
+            }
+        }
+    }
+}
@@ -112,14 +112,17 @@ public class PVAShortArray extends PVAData implements PVAArray, PVAValue
     {
         final int size = PVASize.decodeSize(buffer);
         // Try to re-use existing array
-        final short[] new_value = new short[size];
-        // Considered using
-        //   buffer.asShortBuffer().get(new_value);
-        // but debugger shows that it ends up in the same loop:
-        //   for (..) short_array[i] = buffer.get()
-        // Profiler shows that it's overall slower.
-        for (int i=0; i<size; ++i)
-            new_value[i] = buffer.getShort();
+        short[] new_value = value;
+        if (! PVASettings.EPICS_PVA_REUSE_ARRAYS  ||  new_value == null  ||  new_value.length != size)
+            new_value = new short[size];
+        // With JDK 8, buffer.asShortBuffer().get(new_value)
+        // ended up in the same loop as
+        //   for (..) short_array[i] = buffer.getShort()
+        // Since JDK 9, the view buffer performs a bulk copy,
+        // swapping bytes as needed for the byte order of 'buffer'.
+        // See ArrayDecodeDemo for a comparison.
+        buffer.asShortBuffer().get(new_value);
+        buffer.position(buffer.position() + size * Short.BYTES);
         value = new_value;
     }
 
@@ -15,6 +15,9 @@ import java.util.logging.Level;
 import org.epics.pva.common.CommandHandler;
 import org.epics.pva.common.PVAHeader;
 import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVANumber;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStructure;
 
 /** Handle client's MONITOR command
  *  @author Kay Kasemir
@@ -50,19 +53,39 @@ class MonitorHandler implements CommandHandler<ServerTCPHandler>
             return;
         }
 
-        if (subcmd == PVAHeader.CMD_SUB_INIT)
+        if ((subcmd & ~PVAHeader.CMD_SUB_PIPELINE) == PVAHeader.CMD_SUB_INIT)
         {
             // FieldDesc pvRequestIF
             // PVField pvRequest
             final PVAData requested_type = tcp.getClientTypes().decodeType("", buffer);
             logger.log(Level.FINE, () -> "Received MONITOR INIT request for " + pv + " as\n" + requested_type.formatType());
+            if ((subcmd & PVAHeader.CMD_SUB_PIPELINE) != 0)
+            {
+                requested_type.decode(tcp.getClientTypes(), buffer);
+                // int nfree
+                final int nfree = buffer.getInt();
+                final int queue_size = getQueueSize(requested_type, nfree);
+                logger.log(Level.FINE, () -> "MONITOR pipeline for " + pv + ": queueSize " + queue_size + ", nfree " + nfree);
+                tcp.setMonitorPipeline(req, queue_size, nfree);
+            }
             GetHandler.sendDataInitReply(tcp, PVAHeader.CMD_MONITOR, req, pv, requested_type);
         }
         else if (subcmd == PVAHeader.CMD_SUB_START)
         {
             logger.log(Level.FINE, () -> "Received MONITOR START for " + pv);
             // Register monitor to PV can keep sending updates as data changes
-            pv.registerSubscription(new MonitorSubscription(req, pv, tcp));
+            final int[] pipeline = tcp.takeMonitorPipeline(req);
+            if (pipeline == null)
+                pv.registerSubscription(tcp, req, 1, 0);
+            else
+                pv.registerSubscription(tcp, req, pipeline[0], pipeline[1]);
+        }
+        else if (subcmd == PVAHeader.CMD_SUB_PIPELINE)
+        {
+            // int nfree
+            final int nfree = buffer.getInt();
+            logger.log(Level.FINER, () -> "Received MONITOR pipeline ack of " + nfree + " for " + pv);
+            pv.acknowledgeSubscription(tcp, req, nfree);
         }
         else if (subcmd == PVAHeader.CMD_SUB_STOP  ||
                  subcmd == PVAHeader.CMD_SUB_DESTROY)
@@ -76,4 +99,26 @@ class MonitorHandler implements CommandHandler<ServerTCPHandler>
             logger.log(Level.WARNING, () -> "Ignoring MONITOR request for " + pv + ", subcommand 0x" + Integer.toHexString(Byte.toUnsignedInt(subcmd)));
         }
     }
+
+    /** @param request Monitor request with optional 'record._options.queueSize'
+     *  @param nfree Initial 'nfree' from client
+     *  @return Requested queue size, or nfree
+     */
+    private static int getQueueSize(final PVAData request, final int nfree)
+    {
+        try
+        {
+            final PVAData option = ((PVAStructure) request).locate("record._options.queueSize");
+            // Some clients send options as string
+            if (option instanceof PVAString)
+                return Integer.parseInt(((PVAString) option).get().trim());
+            if (option instanceof PVANumber)
+                return ((PVANumber) option).getNumber().intValue();
+        }
+        catch (Exception ex)
+        {
+            // No or invalid queueSize, use nfree
+        }
+        return nfree;
+    }
 }
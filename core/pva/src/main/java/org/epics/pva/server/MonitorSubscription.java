@@ -10,8 +10,8 @@ package org.epics.pva.server;
 import static org.epics.pva.PVASettings.logger;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.BitSet;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.epics.pva.common.PVAHeader;
@@ -24,11 +24,40 @@ import org.epics.pva.data.PVAStructure;
  *  <p>Maintains the most recent value sent to client,
  *  sends changes to that client as the value is updated.
  *
+ *  <p>By default, only the latest value is sent.
+ *  Changes from updates that arrive faster than the TCP connection
+ *  can send them are combined and reported as overruns.
+ *
+ *  <p>When the client requests 'pipeline' mode,
+ *  up to 'queueSize' updates are queued,
+ *  and at most as many updates are sent as the client
+ *  has acknowledged to be ready to receive.
+ *  When the queue is full, the newest queued update
+ *  combines further changes, again reporting overruns.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 class MonitorSubscription
 {
+    /** Queued update */
+    private static class Update
+    {
+        /** Value snapshot, or <code>null</code> to use the most recent 'data' */
+        PVAStructure value = null;
+
+        /** Changed elements */
+        final BitSet changes;
+
+        /** Elements that changed again before they were sent */
+        final BitSet overrun = new BitSet();
+
+        Update(final BitSet changes)
+        {
+            this.changes = changes;
+        }
+    }
+
     /** ID of monitor request sent by client */
     private final int req;
 
@@ -48,33 +77,65 @@ class MonitorSubscription
      */
     private final PVAStructure data;
 
-    /** Most recent changes, yet to be sent to clients
+    /** Maximum number of queued updates, 1 unless in pipeline mode */
+    private final int queue_size;
+
+    /** Is client using pipeline mode, i.e. acknowledging received updates? */
+    private final boolean pipeline;
+
+    /** Updates yet to be sent to client.
+     *
+     *  <p>Only the last, newest entry uses the most recent 'data',
+     *  older entries hold a snapshot.
+     *
      *  SYNC on data
      */
-    private volatile BitSet changes = new BitSet();
+    private final ArrayDeque<Update> queue = new ArrayDeque<>();
 
-    /** Overruns, u.e. updates received between successful transmissions to client
+    /** Number of updates that client is ready to receive.
      *  SYNC on data
      */
-    private final BitSet overrun = new BitSet();
+    private int credit;
 
     /** Is an update pending to be sent out?
      *
      *  <p>Used to prevent scheduling more updates that TCP connection can handle.
-     *  Changes from multiple updates are combined, potentially triggering overrun.
+     *  SYNC on data
+     */
+    private boolean pending = false;
+
+    /** Statistics: Number of value updates, updates sent to client, updates combined into an already queued update,
+     *  largest number of queued updates.
+     *  SYNC on data
      */
-    private final AtomicBoolean pending = new AtomicBoolean(true);
+    private long updates = 0, sent = 0, overruns = 0, max_backlog = 0;
 
-    MonitorSubscription(final int req, final ServerPV pv, final ServerTCPHandler tcp)
+    /** Create subscription
+     *  @param req Client's request ID
+     *  @param pv PV to monitor
+     *  @param tcp TCP connection to client
+     *  @param queue_size Size of update queue
+     *  @param nfree Initial number of updates that client can receive in pipeline mode, 0 to disable pipeline mode
+     */
+    MonitorSubscription(final int req, final ServerPV pv, final ServerTCPHandler tcp,
+                        final int queue_size, final int nfree)
     {
         this.req = req;
         this.pv = pv;
         this.tcp = tcp;
+        this.pipeline = nfree > 0;
+        this.queue_size = pipeline ? Math.max(1, queue_size) : 1;
+        this.credit = pipeline ? nfree : Integer.MAX_VALUE;
         data = pv.getData();
 
         // Initial update: Send all the data
+        final BitSet changes = new BitSet();
         changes.set(0);
-        tcp.submit(this::encodeMonitor);
+        synchronized (data)
+        {
+            queue.add(new Update(changes));
+        }
+        scheduleUpdate();
     }
 
     boolean isFor(final ServerTCPHandler tcp, final int req)
@@ -86,30 +147,57 @@ class MonitorSubscription
     {
         synchronized (data)
         {
-            final BitSet old_changes = changes;
-
-            // Update data, see what's new
-            changes = data.update(new_data);
+            ++updates;
+            final Update last = queue.peekLast();
+            if (last != null  &&  queue.size() >= queue_size)
+            {
+                // Queue is full: Update data, see what's new,
+                // and accumulate overrun for what had changed before and now changed again
+                final BitSet changes = data.update(new_data);
+                final BitSet again = (BitSet) last.changes.clone();
+                again.and(changes);
+                last.overrun.or(again);
+                last.changes.or(changes);
+                ++overruns;
+            }
+            else
+            {
+                // Previously newest update keeps its value, new update uses 'data'
+                if (last != null)
+                    last.value = data.cloneData();
+                queue.add(new Update(data.update(new_data)));
+                max_backlog = Math.max(max_backlog, queue.size());
+            }
+        }
+        scheduleUpdate();
+    }
 
-            // Accumulate overrun:
-            // See what had changed before, and now changed again
-            old_changes.and(changes);
-            overrun.or(old_changes);
+    /** Client acknowledged received updates in pipeline mode
+     *  @param nfree Number of additional updates that client can receive
+     */
+    void acknowledge(final int nfree)
+    {
+        synchronized (data)
+        {
+            credit += nfree;
         }
+        scheduleUpdate();
+    }
 
-        // Only submit when there's not already one pending, waiting to be sent out
-        if (pending.compareAndSet(false, true))
-            tcp.submit(this::encodeMonitor);
-        else
-            logger.log(Level.WARNING, "Skipping already submitted " + this);
+    /** Submit update to TCP connection unless one is already pending or client cannot receive more */
+    private void scheduleUpdate()
+    {
+        synchronized (data)
+        {
+            if (pending  ||  queue.isEmpty()  ||  credit <= 0)
+                return;
+            pending = true;
+        }
+        tcp.submit(this::encodeMonitor);
     }
 
     private void encodeMonitor(final byte version, final ByteBuffer buffer) throws Exception
     {
-        pending.set(false);
-
-        logger.log(Level.FINE, () -> "Sending MONITOR value for " + pv + ": changes " + changes + ", overrun " + overrun);
-
         PVAHeader.encodeMessageHeader(buffer, PVAHeader.FLAG_SERVER, PVAHeader.CMD_MONITOR, 0);
         final int payload_start = buffer.position();
 
@@ -119,6 +207,18 @@ class MonitorSubscription
 
         synchronized (data)
         {
+            pending = false;
+            final Update update = queue.poll();
+            if (update == null)
+                throw new Exception("No update for " + this);
+            if (pipeline)
+                --credit;
+            ++sent;
+            final PVAStructure value = update.value == null ? data : update.value;
+            final BitSet changes = removeCoveredChanges(value, update.changes);
+
+            logger.log(Level.FINE, () -> "Sending MONITOR value for " + pv + ": changes " + changes + ", overrun " + update.overrun);
+
             // Encode what changed
             PVABitSet.encodeBitSet(changes, buffer);
             // Encode the changed data
@@ -128,7 +228,7 @@ class MonitorSubscription
             {
                 // final version of index to allow use in logging lambdas
                 final int i = index;
-                final PVAData element = data.get(i);
+                final PVAData element = value.get(i);
                 logger.log(Level.FINER, () -> "Encode data for indexed element " + i + ": " + element);
                 element.encode(buffer);
 
@@ -137,14 +237,71 @@ class MonitorSubscription
                 if (i == Integer.MAX_VALUE)
                     break;
             }
-            changes.clear();
 
-            PVABitSet.encodeBitSet(overrun, buffer);
-            overrun.clear();
+            PVABitSet.encodeBitSet(update.overrun, buffer);
         }
 
         final int payload_end = buffer.position();
         buffer.putInt(PVAHeader.HEADER_OFFSET_PAYLOAD_SIZE, payload_end - payload_start);
+
+        // Send more queued updates?
+        scheduleUpdate();
+    }
+
+    /** Remove changes to elements of sub-structures that are already marked as changed as a whole
+     *
+     *  <p>Combined updates may mark a complete sub-structure as changed
+     *  as well as elements within that structure.
+     *  Data of the sub-structure includes all its elements,
+     *  and the client skips them when decoding,
+     *  so they must not be encoded again.
+     *
+     *  @param value Structure
+     *  @param changes Changed elements, will be modified
+     *  @return Changed elements that need to be encoded
+     */
+    private static BitSet removeCoveredChanges(final PVAStructure value, final BitSet changes)
+    {
+        for (int index = changes.nextSetBit(0);
+             index >= 0;
+             index = changes.nextSetBit(index + 1))
+        {
+            final PVAData element = value.get(index);
+            if (element instanceof PVAStructure)
+            {
+                final int count = countElements((PVAStructure) element);
+                if (count > 0)
+                    changes.clear(index + 1, index + count + 1);
+            }
+            if (index == Integer.MAX_VALUE)
+                break;
+        }
+        return changes;
+    }
+
+    /** @param structure Structure
+     *  @return Number of elements, including elements of sub-structures
+     */
+    private static int countElements(final PVAStructure structure)
+    {
+        int count = 0;
+        for (PVAData element : structure.get())
+        {
+            ++count;
+            if (element instanceof PVAStructure)
+                count += countElements((PVAStructure) element);
+        }
+        return count;
+    }
+
+    /** @return Statistics for updates, sent updates, overruns and backlog */
+    String getStatistics()
+    {
+        synchronized (data)
+        {
+            return updates + " updates, " + sent + " sent, " + overruns + " overruns, backlog " +
+                   queue.size() + " (max " + max_backlog + ")";
+        }
     }
 
     @Override
@@ -17,6 +17,7 @@ import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import org.epics.pva.PVASettings;
+import org.epics.pva.common.BufferPool;
 import org.epics.pva.data.PVAStructure;
 
 /** PVA Server
@@ -271,5 +272,6 @@ public class PVAServer implements AutoCloseable
         for (ServerTCPHandler handler : tcp_handlers)
             handler.close(true);
         tcp_handlers.clear();
+        logger.log(Level.FINE, BufferPool::getStatistics);
     }
 }
@@ -156,11 +156,22 @@ public class ServerPV implements AutoCloseable
             logger.log(Level.WARNING, "Client " + tcp + " released " + this + " as CID " + cid + " instead of " + other);
     }
 
-    /** @param subscription Subscription that needs to receive value updates */
-    void registerSubscription(final MonitorSubscription subscription)
+    /** Register subscription that needs to receive value updates
+     *  @param tcp TCP connection to client
+     *  @param req Client's monitor request
+     *  @param queue_size Size of update queue
+     *  @param nfree Initial number of updates that client can receive in pipeline mode, 0 to disable pipeline mode
+     */
+    void registerSubscription(final ServerTCPHandler tcp, final int req, final int queue_size, final int nfree)
     {
-        logger.log(Level.FINER, () -> "Add " + subscription);
-        subscriptions.add(subscription);
+        // Holding lock on data so no update is missed
+        // between reading the initial value and adding the subscription
+        synchronized (data)
+        {
+            final MonitorSubscription subscription = new MonitorSubscription(req, this, tcp, queue_size, nfree);
+            logger.log(Level.FINER, () -> "Add " + subscription);
+            subscriptions.add(subscription);
+        }
     }
 
     /** Forget monitor subscriptions
@@ -172,12 +183,28 @@ public class ServerPV implements AutoCloseable
         for (MonitorSubscription subscription : subscriptions)
             if (subscription.isFor(tcp, req))
             {
-                logger.log(Level.FINER, () -> "Remove " + subscription);
+                logger.log(Level.FINER, () -> "Remove " + subscription + ": " + subscription.getStatistics());
                 subscriptions.remove(subscription);
                 break;
             }
     }
 
+    /** Pass pipeline acknowledgement to subscription
+     *  @param tcp TCP connection of the subscription
+     *  @param req Monitor request
+     *  @param nfree Number of additional updates that client can receive
+     */
+    void acknowledgeSubscription(final ServerTCPHandler tcp, final int req, final int nfree)
+    {
+        for (MonitorSubscription subscription : subscriptions)
+            if (subscription.isFor(tcp, req))
+            {
+                subscription.acknowledge(nfree);
+                return;
+            }
+        logger.log(Level.FINE, () -> "No subscription for MONITOR pipeline ack from " + tcp + ", request " + req);
+    }
+
     /** @return Does the PV have client subscriptions? */
     public boolean isSubscribed()
     {
@@ -196,14 +223,14 @@ public class ServerPV implements AutoCloseable
      */
     public void update(final PVAStructure new_data) throws Exception
     {
-        // Update data
         synchronized (data)
         {
+            // Update data
             data.update(new_data);
+            // Update subscriptions
+            for (MonitorSubscription subscription : subscriptions)
+                subscription.update(new_data);
         }
-        // Update subscriptions
-        for (MonitorSubscription subscription : subscriptions)
-            subscription.update(new_data);
     }
 
     /** Get current value (thread-safe copy)
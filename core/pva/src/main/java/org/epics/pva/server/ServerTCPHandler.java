@@ -12,6 +12,7 @@ import static org.epics.pva.PVASettings.logger;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import org.epics.pva.common.CommandHandlers;
@@ -58,6 +59,12 @@ class ServerTCPHandler extends TCPHandler
     /** Auth info, e.g. client user info and his/her permissions */
     private volatile ServerAuth auth = ServerAuth.Anonymous;
 
+    /** Pipeline options of monitor requests, by request ID,
+     *  from the INIT request until the monitor is started:
+     *  { queueSize, nfree }
+     */
+    private final ConcurrentHashMap<Integer, int[]> monitor_pipelines = new ConcurrentHashMap<>();
+
 
     public ServerTCPHandler(final PVAServer server, final Socket client, final TLSHandshakeInfo tls_info) throws Exception
     {
@@ -92,7 +99,7 @@ class ServerTCPHandler extends TCPHandler
             final int payload_start = buffer.position();
 
             // int serverReceiveBufferSize;
-            buffer.putInt(receive_buffer.capacity());
+            buffer.putInt(getReceiveBufferSize());
 
             // short serverIntrospectionRegistryMaxSize;
             buffer.putShort(Short.MAX_VALUE);
@@ -109,6 +116,8 @@ class ServerTCPHandler extends TCPHandler
 
             buffer.putInt(size_offset, buffer.position() - payload_start);
         });
+
+        startReceiver();
     }
 
     PVAServer getServer()
@@ -126,6 +135,23 @@ class ServerTCPHandler extends TCPHandler
         return client_types;
     }
 
+    /** @param req Monitor request ID
+     *  @param queue_size Requested queue size
+     *  @param nfree Number of updates that client is initially ready to receive
+     */
+    void setMonitorPipeline(final int req, final int queue_size, final int nfree)
+    {
+        monitor_pipelines.put(req, new int[] { queue_size, nfree });
+    }
+
+    /** @param req Monitor request ID
+     *  @return { queueSize, nfree } or <code>null</code> when not using pipeline
+     */
+    int[] takeMonitorPipeline(final int req)
+    {
+        return monitor_pipelines.remove(req);
+    }
+
     void setAuth(final ServerAuth auth)
     {
         this.auth = auth;
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVALong;
+import org.epics.pva.data.PVAString;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Slow client monitoring a fast-updating server PV
+ *
+ *  <p>Without pipeline, client receives the latest value.
+ *  With pipeline, the server queues updates.
+ */
+@SuppressWarnings("nls")
+public class MonitorFlowControlTest
+{
+    private static final int UPDATES = 100;
+
+    private static PVAServer server;
+    private static PVAClient client;
+
+    @BeforeAll
+    public static void setup() throws Exception
+    {
+        server = new PVAServer();
+        client = new PVAClient();
+    }
+
+    @AfterAll
+    public static void shutdown()
+    {
+        client.close();
+        server.close();
+    }
+
+    /** Monitor PV with slow listener, post updates as fast as possible
+     *  @param name PV name
+     *  @param pipeline Pipeline size, 0 for none
+     *  @return Received values
+     */
+    private List<Integer> monitor(final String name, final int pipeline) throws Exception
+    {
+        final PVAStructure data = new PVAStructure("demo", "demo_t",
+                                                   new PVAInt("value", 0));
+        final ServerPV pv = server.createPV(name, data);
+
+        final PVAChannel channel = client.getChannel(name);
+        channel.connect().get(5, TimeUnit.SECONDS);
+
+        final List<Integer> values = new CopyOnWriteArrayList<>();
+        final CountDownLatch initial = new CountDownLatch(1), done = new CountDownLatch(1);
+        final AutoCloseable subscription = channel.subscribe("", pipeline, (ch, changes, overruns, received) ->
+        {
+            final int value = ((PVAInt) received.get("value")).get();
+            values.add(value);
+            initial.countDown();
+            if (value == UPDATES)
+                done.countDown();
+            try
+            {
+                // Slow client
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        });
+        assertTrue(initial.await(5, TimeUnit.SECONDS));
+
+        for (int i=1; i<=UPDATES; ++i)
+        {
+            ((PVAInt) data.get("value")).set(i);
+            pv.update(data);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS), "Received last update");
+
+        subscription.close();
+        channel.close();
+        pv.close();
+
+        // Values are received in order
+        for (int i=1; i<values.size(); ++i)
+            assertTrue(values.get(i-1) < values.get(i), "Values " + values);
+        return values;
+    }
+
+    @Test
+    public void testLatestValue() throws Exception
+    {
+        // Slow client may miss some updates, but receives the last one
+        final List<Integer> values = monitor("flow_latest", 0);
+        assertThat(values.get(values.size()-1), equalTo(UPDATES));
+    }
+
+    @Test
+    public void testPipeline() throws Exception
+    {
+        // Queue large enough to hold all updates: Client receives every update
+        final List<Integer> values = monitor("flow_pipeline", UPDATES + 1);
+        assertThat(values.size(), equalTo(UPDATES + 1));
+        for (int i=0; i<=UPDATES; ++i)
+            assertThat(values.get(i), equalTo(i));
+    }
+
+    @Test
+    public void testSmallPipeline() throws Exception
+    {
+        // Small queue: Client may receive fewer updates, still ending with the last one
+        final List<Integer> values = monitor("flow_small_pipeline", 4);
+        assertThat(values.get(values.size()-1), equalTo(UPDATES));
+    }
+
+    @Test
+    public void testNestedStructure() throws Exception
+    {
+        // Updates alternate between changing a complete sub-structure
+        // and changing just one of its elements.
+        // When combined, the changes contain the bit of the sub-structure
+        // as well as bits of its elements, which must only be encoded once.
+        final PVAStructure data = new PVAStructure("demo", "demo_t",
+                                                   new PVAInt("value", 0),
+                                                   new PVAStructure("alarm", "alarm_t",
+                                                                    new PVAInt("severity", 0),
+                                                                    new PVAInt("status", 0),
+                                                                    new PVAString("message", "M0")),
+                                                   new PVAStructure("timeStamp", "time_t",
+                                                                    new PVALong("secondsPastEpoch", false, 0),
+                                                                    new PVAInt("nanoseconds", 0)));
+        final ServerPV pv = server.createPV("flow_nested", data);
+
+        final PVAChannel channel = client.getChannel("flow_nested");
+        channel.connect().get(5, TimeUnit.SECONDS);
+
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        final List<Integer> values = new CopyOnWriteArrayList<>();
+        final CountDownLatch initial = new CountDownLatch(1), done = new CountDownLatch(1);
+        final AutoCloseable subscription = channel.subscribe("", 0, (ch, changes, overruns, received) ->
+        {
+            final int value = ((PVAInt) received.get("value")).get();
+            final PVAStructure alarm = received.get("alarm");
+            final int severity = ((PVAInt) alarm.get("severity")).get();
+            final int status = ((PVAInt) alarm.get("status")).get();
+            final String message = ((PVAString) alarm.get("message")).get();
+            final PVAStructure time = received.get("timeStamp");
+            final long secs = ((PVALong) time.get("secondsPastEpoch")).get();
+            final int nano = ((PVAInt) time.get("nanoseconds")).get();
+            // Severity and time change on each update, status and message on even updates
+            final int even = value - value % 2;
+            if (severity != value  ||  status != even  ||  ! message.equals("M" + even)  ||
+                secs != value  ||  nano != 2*value)
+                errors.add("Value " + value + ": " + received);
+            values.add(value);
+            initial.countDown();
+            if (value == UPDATES)
+                done.countDown();
+            try
+            {
+                // Slow client
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        });
+        assertTrue(initial.await(5, TimeUnit.SECONDS));
+
+        final PVAStructure alarm = data.get("alarm");
+        final PVAStructure time = data.get("timeStamp");
+        for (int i=1; i<=UPDATES; ++i)
+        {
+            ((PVAInt) data.get("value")).set(i);
+            ((PVAInt) alarm.get("severity")).set(i);
+            if (i % 2 == 0)
+            {
+                ((PVAInt) alarm.get("status")).set(i);
+                ((PVAString) alarm.get("message")).set("M" + i);
+            }
+            ((PVALong) time.get("secondsPastEpoch")).set(i);
+            ((PVAInt) time.get("nanoseconds")).set(2*i);
+            pv.update(data);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS), "Received last update");
+
+        subscription.close();
+        channel.close();
+        pv.close();
+
+        // Possibly combined updates were received in order, all decoded correctly
+        for (int i=1; i<values.size(); ++i)
+            assertTrue(values.get(i-1) < values.get(i), "Values " + values);
+        assertThat(values.get(values.size()-1), equalTo(UPDATES));
+        assertThat(new ArrayList<>(errors), equalTo(List.of()));
+    }
+}
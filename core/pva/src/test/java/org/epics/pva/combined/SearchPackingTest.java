@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.ClientChannelListener;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.client.SearchStatistics;
+import org.epics.pva.data.PVAInt;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Check that searches for many channels are combined into few packets */
+@SuppressWarnings("nls")
+public class SearchPackingTest
+{
+    private static final int CHANNELS = 500;
+
+    private static PVAServer server;
+    private static final List<ServerPV> pvs = new ArrayList<>();
+
+    @BeforeAll
+    public static void setup() throws Exception
+    {
+        server = new PVAServer();
+        for (int i=0; i<CHANNELS; ++i)
+            pvs.add(server.createPV("packing" + i, new PVAStructure("demo", "demo_t", new PVAInt("value", i))));
+    }
+
+    @AfterAll
+    public static void shutdown()
+    {
+        for (ServerPV pv : pvs)
+            pv.close();
+        server.close();
+    }
+
+    /** Connect to all channels
+     *  @param seconds Timeout
+     *  @return Search statistics
+     */
+    private SearchStatistics connectAll(final int seconds) throws Exception
+    {
+        try (PVAClient client = new PVAClient())
+        {
+            final List<PVAChannel> channels = new ArrayList<>();
+            // Quiet listener, no log message for each channel
+            final ClientChannelListener listener = (channel, state) -> {};
+            for (int i=0; i<CHANNELS; ++i)
+                channels.add(client.getChannel("packing" + i, listener));
+            for (PVAChannel channel : channels)
+                channel.connect().get(seconds, TimeUnit.SECONDS);
+            final SearchStatistics statistics = client.getSearchStatistics();
+            System.out.println(statistics);
+            for (PVAChannel channel : channels)
+                channel.close();
+            return statistics;
+        }
+    }
+
+    @Test
+    public void testPacking() throws Exception
+    {
+        final SearchStatistics statistics = connectAll(10);
+        assertThat(statistics.getFound(), equalTo((long) CHANNELS));
+        // Channels registered one by one, but searched in a few packets
+        assertTrue(statistics.getPackets() < CHANNELS / 10, "Search packets: " + statistics.getPackets());
+        assertTrue(statistics.getMaxNamesPerPacket() > 10, "Names per packet: " + statistics.getMaxNamesPerPacket());
+        assertThat(statistics.getDeferred(), equalTo(0L));
+    }
+
+    @Test
+    public void testRateLimit() throws Exception
+    {
+        final int original = PVASettings.EPICS_PVA_MAX_SEARCH_RATE;
+        try
+        {
+            // Allow only 2 packets per second, so some searches are deferred
+            PVASettings.EPICS_PVA_MAX_SEARCH_RATE = 2;
+            final SearchStatistics statistics = connectAll(20);
+            assertThat(statistics.getFound(), equalTo((long) CHANNELS));
+            assertTrue(statistics.getDeferred() > 0, "Deferred searches");
+            assertTrue(statistics.getTimeToFind(99) > 500, "Time to find");
+        }
+        finally
+        {
+            PVASettings.EPICS_PVA_MAX_SEARCH_RATE = original;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Client using the TCP selector
+ *
+ *  <p>Messages that exceed the send batch and receive buffer
+ *  are written and read in several fragments.
+ */
+@SuppressWarnings("nls")
+public class SelectorTransportTest
+{
+    /** Array sizes, small ones that are batched, large ones that span many socket writes */
+    private static final int[] SIZES = { 1, 100_000, 10, 2, 500_000, 3, 20_000 };
+
+    private static int original_selector_threads;
+    private static PVAServer server;
+    private static PVAClient client;
+
+    @BeforeAll
+    public static void setup() throws Exception
+    {
+        original_selector_threads = PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS;
+        PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS = 1;
+        server = new PVAServer();
+        client = new PVAClient();
+    }
+
+    @AfterAll
+    public static void shutdown()
+    {
+        client.close();
+        server.close();
+        PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS = original_selector_threads;
+    }
+
+    /** @param size Array size
+     *  @param offset Offset to add to each element
+     *  @return Array with recognizable content
+     */
+    private static double[] createArray(final int size, final int offset)
+    {
+        final double[] array = new double[size];
+        for (int i=0; i<size; ++i)
+            array[i] = offset + i;
+        return array;
+    }
+
+    /** @param received Received array
+     *  @param size Expected size
+     *  @param offset Expected offset of elements
+     */
+    private static void checkArray(final double[] received, final int size, final int offset)
+    {
+        assertThat(received.length, equalTo(size));
+        for (int i=0; i<size; ++i)
+            if (received[i] != offset + i)
+                throw new AssertionError("Element " + i + " of " + size + " is " + received[i] + " instead of " + (offset + i));
+    }
+
+    @Test
+    public void testMonitor() throws Exception
+    {
+        final PVADoubleArray value = new PVADoubleArray("value", createArray(1, 0));
+        final PVAStructure data = new PVAStructure("demo", "demo_t", value);
+        final ServerPV pv = server.createPV("selector_monitor", data);
+
+        final PVAChannel channel = client.getChannel(pv.getName());
+        channel.connect().get(5, TimeUnit.SECONDS);
+
+        // Pipelined, so every update is received
+        final List<double[]> values = new CopyOnWriteArrayList<>();
+        final CountDownLatch initial = new CountDownLatch(1), done = new CountDownLatch(SIZES.length + 1);
+        final AutoCloseable subscription = channel.subscribe("", 4, (ch, changes, overruns, received) ->
+        {
+            values.add(((PVADoubleArray) received.get("value")).get());
+            initial.countDown();
+            done.countDown();
+        });
+        assertTrue(initial.await(5, TimeUnit.SECONDS));
+
+        for (int i=0; i<SIZES.length; ++i)
+        {
+            value.set(createArray(SIZES[i], i));
+            pv.update(data);
+        }
+        assertTrue(done.await(20, TimeUnit.SECONDS), "Received all updates");
+
+        subscription.close();
+        channel.close();
+        pv.close();
+
+        assertThat(values.size(), equalTo(SIZES.length + 1));
+        for (int i=0; i<SIZES.length; ++i)
+            checkArray(values.get(i + 1), SIZES[i], i);
+    }
+
+    @Test
+    public void testWrite() throws Exception
+    {
+        final List<double[]> written = new CopyOnWriteArrayList<>();
+        final PVAStructure data = new PVAStructure("demo", "demo_t", new PVADoubleArray("value"));
+        final ServerPV pv = server.createPV("selector_write", data, (spv, changes, received) ->
+        {
+            written.add(((PVADoubleArray) received.get("value")).get());
+        });
+
+        final PVAChannel channel = client.getChannel(pv.getName());
+        channel.connect().get(5, TimeUnit.SECONDS);
+
+        // Client queues large arrays interleaved with small ones,
+        // to be batched and written via the selector
+        final List<Future<Void>> writes = new ArrayList<>();
+        for (int i=0; i<SIZES.length; ++i)
+            writes.add(channel.write(true, "value", createArray(SIZES[i], i)));
+        for (Future<Void> write : writes)
+            write.get(20, TimeUnit.SECONDS);
+
+        channel.close();
+        pv.close();
+
+        assertThat(written.size(), equalTo(SIZES.length));
+        for (int i=0; i<SIZES.length; ++i)
+            checkArray(written.get(i), SIZES[i], i);
+    }
+}
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.ClientChannelListener;
+import org.epics.pva.client.MonitorListener;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.data.PVAData;
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVADoubleArray;
+import org.epics.pva.data.PVALong;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+
+/** Measure PVA monitor throughput and latency
+ *
+ *  <p>Runs a {@link PVAServer} with several PVs in this JVM,
+ *  updating them as fast as possible or at a fixed rate.
+ *  Several {@link PVAClient}s monitor all PVs via the loopback network.
+ *
+ *  <p>Each update carries the server's {@link System#nanoTime()},
+ *  so clients can determine the end-to-end latency.
+ *  Reports received updates and payload bytes per second,
+ *  latency percentiles and the allocation rate of the JVM's threads.
+ *  Since server and clients run in the same JVM, the allocation rate
+ *  includes both.
+ *
+ *  <p>Run with for example
+ *  "-Dpvs=10 -Dclients=2 -Dtype=array -Dsize=10000 -Drate=0 -Dseconds=10"
+ *
+ *  <ul>
+ *  <li>pvs: Number of server PVs
+ *  <li>clients: Number of clients, each monitoring all PVs
+ *  <li>type: "double" for scalar, "array" for double array
+ *  <li>size: Array size
+ *  <li>rate: Updates per second for each PV, 0 to update as fast as possible
+ *  <li>pipeline: Monitor pipeline size, 0 to disable
+ *  <li>warmup: Seconds to run before measuring
+ *  <li>seconds: Seconds to measure
+ *  </ul>
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ThroughputDemo
+{
+    private static final int PVS = Integer.getInteger("pvs", 10);
+    private static final int CLIENTS = Integer.getInteger("clients", 2);
+    private static final boolean ARRAY = System.getProperty("type", "double").equals("array");
+    private static final int SIZE = Integer.getInteger("size", 1000);
+    private static final int RATE = Integer.getInteger("rate", 0);
+    private static final int PIPELINE = Integer.getInteger("pipeline", 0);
+    private static final int WARMUP = Integer.getInteger("warmup", 2);
+    private static final int SECONDS = Integer.getInteger("seconds", 10);
+
+    /** Number of latency samples kept per client */
+    private static final int SAMPLES = 100000;
+
+    /** Are we measuring, or still warming up? */
+    private static volatile boolean measuring = false;
+
+    /** Server PV with its data */
+    private static class DemoPV
+    {
+        final PVAStructure data;
+        final PVALong sent = new PVALong("sent", false, 0);
+        final PVAData value;
+        final ServerPV pv;
+
+        DemoPV(final PVAServer server, final String name)
+        {
+            value = ARRAY ? new PVADoubleArray("value", new double[SIZE])
+                          : new PVADouble("value", 0.0);
+            data = new PVAStructure("demo", "demo_t", value, sent);
+            pv = server.createPV(name, data);
+        }
+
+        void update(final long count) throws Exception
+        {
+            if (ARRAY)
+            {
+                final double[] array = ((PVADoubleArray) value).get();
+                array[(int) (count % SIZE)] = count;
+                ((PVADoubleArray) value).set(array);
+            }
+            else
+                ((PVADouble) value).set(count);
+            sent.set(System.nanoTime());
+            pv.update(data);
+        }
+    }
+
+    /** Client-side statistics, written by the one thread that handles a client's monitors */
+    private static class Received implements MonitorListener
+    {
+        final LongAdder updates = new LongAdder();
+        final LongAdder overruns = new LongAdder();
+        final long[] latencies = new long[SAMPLES];
+        long samples = 0;
+
+        @Override
+        public void handleMonitor(final PVAChannel channel, final BitSet changes,
+                                  final BitSet overrun, final PVAStructure data)
+        {
+            if (! measuring  ||  data == null)
+                return;
+            final PVALong sent = data.get("sent");
+            latencies[(int) (samples++ % SAMPLES)] = System.nanoTime() - sent.get();
+            updates.increment();
+            if (! overrun.isEmpty())
+                overruns.increment();
+        }
+    }
+
+    /** @return Bytes allocated so far by all live threads, -1 if not supported */
+    private static long getAllocatedBytes()
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (! (threads instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds()))
+            if (bytes > 0)
+                total += bytes;
+        return total;
+    }
+
+    /** @param sorted Sorted latencies in nanoseconds
+     *  @param percentile Percentile 0..100
+     *  @return Latency in milliseconds
+     */
+    private static double getPercentile(final long[] sorted, final double percentile)
+    {
+        if (sorted.length <= 0)
+            return 0.0;
+        final int index = (int) Math.round(percentile / 100.0 * (sorted.length - 1));
+        return sorted[index] / 1e6;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        LogManager.getLogManager().readConfiguration(PVASettings.class.getResourceAsStream("/pva_logging.properties"));
+        final Logger root = Logger.getLogger("");
+        // Reduce log messages to only warnings for performance tests
+        root.setLevel(Level.WARNING);
+        for (Handler handler : root.getHandlers())
+            handler.setLevel(root.getLevel());
+
+        System.out.println(PVS + " PVs of " + (ARRAY ? "double[" + SIZE + "]" : "double") +
+                           ", " + CLIENTS + " clients, " +
+                           (RATE > 0 ? RATE + " Hz" : "max. rate") + ", pipeline " + PIPELINE);
+
+        // Server
+        final PVAServer server = new PVAServer();
+        final List<DemoPV> pvs = new ArrayList<>(PVS);
+        for (int i=0; i<PVS; ++i)
+            pvs.add(new DemoPV(server, "throughput" + i));
+
+        // Payload of one update, not including the message header and changed-bits
+        final ByteBuffer buffer = ByteBuffer.allocate(100 + (ARRAY ? SIZE * 8 : 8));
+        buffer.order(ByteOrder.nativeOrder());
+        pvs.get(0).data.encode(buffer);
+        final int payload = buffer.position();
+
+        // Clients
+        final ClientChannelListener quiet = (channel, state) -> {};
+        final List<PVAClient> clients = new ArrayList<>(CLIENTS);
+        final List<Received> received = new ArrayList<>(CLIENTS);
+        final List<PVAChannel> channels = new ArrayList<>();
+        final List<AutoCloseable> subscriptions = new ArrayList<>();
+        for (int c=0; c<CLIENTS; ++c)
+        {
+            final PVAClient client = new PVAClient();
+            final Received listener = new Received();
+            final List<CompletableFuture<?>> connected = new ArrayList<>();
+            final List<PVAChannel> client_channels = new ArrayList<>();
+            for (int i=0; i<PVS; ++i)
+            {
+                final PVAChannel channel = client.getChannel("throughput" + i, quiet);
+                connected.add(channel.connect());
+                client_channels.add(channel);
+            }
+            CompletableFuture.allOf(connected.toArray(new CompletableFuture<?>[connected.size()])).get(10, TimeUnit.SECONDS);
+            for (PVAChannel channel : client_channels)
+                subscriptions.add(channel.subscribe("", PIPELINE, listener));
+            channels.addAll(client_channels);
+            clients.add(client);
+            received.add(listener);
+        }
+
+        // Update PVs until done
+        final AtomicBoolean run = new AtomicBoolean(true);
+        final LongAdder posted = new LongAdder();
+        final Thread updater = new Thread(() ->
+        {
+            try
+            {
+                final long period = RATE > 0 ? TimeUnit.SECONDS.toNanos(1) / RATE : 0;
+                long next = System.nanoTime();
+                long count = 0;
+                while (run.get())
+                {
+                    ++count;
+                    for (DemoPV pv : pvs)
+                        pv.update(count);
+                    if (measuring)
+                        posted.add(PVS);
+                    if (period > 0)
+                    {
+                        next += period;
+                        final long delay = next - System.nanoTime();
+                        if (delay > 0)
+                            TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                }
+            }
+            catch (Exception ex)
+            {
+                ex.printStackTrace();
+            }
+        }, "Updater");
+        updater.start();
+
+        TimeUnit.SECONDS.sleep(WARMUP);
+        final long allocated = getAllocatedBytes();
+        final long start = System.nanoTime();
+        measuring = true;
+        TimeUnit.SECONDS.sleep(SECONDS);
+        measuring = false;
+        final double secs = (System.nanoTime() - start) / 1e9;
+        final long allocated_end = getAllocatedBytes();
+
+        run.set(false);
+        updater.join();
+
+        long updates = 0, overruns = 0;
+        long[] latencies = new long[0];
+        for (Received r : received)
+        {
+            updates += r.updates.sum();
+            overruns += r.overruns.sum();
+            final int count = (int) Math.min(r.samples, SAMPLES);
+            final int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + count);
+            System.arraycopy(r.latencies, 0, latencies, offset, count);
+        }
+        Arrays.sort(latencies);
+
+        System.out.format("Posted  : %12.0f updates/s\n", posted.sum() / secs);
+        System.out.format("Received: %12.0f updates/s, %d with overruns\n", updates / secs, overruns);
+        System.out.format("Payload : %12.1f MB/s (%d bytes per update)\n", updates * payload / secs / 1e6, payload);
+        System.out.format("Latency : 50%% %.3f ms, 90%% %.3f ms, 99%% %.3f ms, 99.9%% %.3f ms, max %.3f ms\n",
+                          getPercentile(latencies, 50), getPercentile(latencies, 90),
+                          getPercentile(latencies, 99), getPercentile(latencies, 99.9),
+                          getPercentile(latencies, 100));
+        if (allocated >= 0)
+            System.out.format("Allocate: %12.1f MB/s\n", (allocated_end - allocated) / secs / 1e6);
+
+        for (AutoCloseable subscription : subscriptions)
+            subscription.close();
+        for (PVAChannel channel : channels)
+            channel.close();
+        for (PVAClient client : clients)
+            client.close();
+        for (DemoPV pv : pvs)
+            pv.pv.close();
+        server.close();
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.combined;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.epics.pva.PVASettings;
+import org.epics.pva.client.PVAChannel;
+import org.epics.pva.client.PVAClient;
+import org.epics.pva.data.PVADouble;
+import org.epics.pva.data.PVAStructure;
+import org.epics.pva.data.nt.PVATimeStamp;
+import org.epics.pva.server.PVAServer;
+import org.epics.pva.server.ServerPV;
+
+/** Compare client TCP transports
+ *
+ *  <p>Starts many PVA servers, each with one PV,
+ *  then monitors all PVs with a client that uses
+ *  threads for each TCP connection respectively
+ *  a few selector threads for all connections.
+ *  Reports the number of client threads and the update latency.
+ *
+ *  <p>Run with for example "-Dservers=500 -Dperiod=100 -Dseconds=10"
+ */
+@SuppressWarnings("nls")
+public class TransportDemo
+{
+    private static final int SERVERS = Integer.getInteger("servers", 100);
+    private static final int PERIOD_MS = Integer.getInteger("period", 100);
+    private static final int SECONDS = Integer.getInteger("seconds", 10);
+    private static final int SELECTORS = Integer.getInteger("selectors", 2);
+
+    private static void measure(final String title) throws Exception
+    {
+        final int threads_before = Thread.activeCount();
+
+        final PVAClient pva = new PVAClient();
+        final List<PVAChannel> channels = new ArrayList<>();
+        for (int i=0; i<SERVERS; ++i)
+            channels.add(pva.getChannel("transport" + i));
+        for (PVAChannel channel : channels)
+            channel.connect().get(10, TimeUnit.SECONDS);
+
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final List<AutoCloseable> subscriptions = new ArrayList<>();
+        for (PVAChannel channel : channels)
+            subscriptions.add(channel.subscribe("", (ch, changes, overruns, data) ->
+            {
+                final Instant sent = PVATimeStamp.getTimeStamp(data).instant();
+                latencies.add(Duration.between(sent, Instant.now()).toNanos() / 1000);
+            }));
+
+        TimeUnit.SECONDS.sleep(SECONDS);
+        final int client_threads = Thread.activeCount() - threads_before;
+
+        for (AutoCloseable subscription : subscriptions)
+            subscription.close();
+        for (PVAChannel channel : channels)
+            channel.close();
+        pva.close();
+
+        final List<Long> sorted;
+        synchronized (latencies)
+        {
+            sorted = new ArrayList<>(latencies);
+        }
+        Collections.sort(sorted);
+        final int n = sorted.size();
+        System.out.format("%-25s: %5d client threads, %8d updates (%8.1f/s), latency [us] 50%%: %6d, 90%%: %6d, 99%%: %6d, max: %6d\n",
+                          title, client_threads, n, (double) n / SECONDS,
+                          sorted.get(n / 2), sorted.get(n * 9 / 10), sorted.get(n * 99 / 100), sorted.get(n - 1));
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        LogManager.getLogManager().readConfiguration(PVASettings.class.getResourceAsStream("/pva_logging.properties"));
+        final Logger root = Logger.getLogger("");
+        root.setLevel(Level.WARNING);
+        for (Handler handler : root.getHandlers())
+            handler.setLevel(root.getLevel());
+
+        // Start servers, one PV each, updated by one timer
+        final List<PVAServer> servers = new ArrayList<>();
+        final List<ServerPV> pvs = new ArrayList<>();
+        final List<PVAStructure> data = new ArrayList<>();
+        for (int i=0; i<SERVERS; ++i)
+        {
+            final PVAServer server = new PVAServer();
+            servers.add(server);
+            final PVAStructure value = new PVAStructure("demo", "demo_t",
+                                                        new PVADouble("value", i),
+                                                        new PVATimeStamp());
+            data.add(value);
+            pvs.add(server.createPV("transport" + i, value));
+        }
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        timer.scheduleAtFixedRate(() ->
+        {
+            try
+            {
+                for (int i=0; i<SERVERS; ++i)
+                {
+                    final PVAStructure value = data.get(i);
+                    final PVADouble number = value.get("value");
+                    number.set(number.get() + 1);
+                    PVATimeStamp.set(value, Instant.now());
+                    pvs.get(i).update(value);
+                }
+            }
+            catch (Exception ex)
+            {
+                ex.printStackTrace();
+            }
+        }, PERIOD_MS, PERIOD_MS, TimeUnit.MILLISECONDS);
+
+        System.out.println(SERVERS + " servers, update period " + PERIOD_MS + " ms, " + SECONDS + " seconds");
+        try
+        {
+            PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS = 0;
+            measure("Send/receive threads");
+
+            PVASettings.EPICS_PVA_TCP_SELECTOR_THREADS = SELECTORS;
+            measure(SELECTORS + " selector threads");
+        }
+        finally
+        {
+            timer.shutdown();
+            for (PVAServer server : servers)
+                server.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pva.PVASettings;
+import org.junit.jupiter.api.Test;
+
+/** Check {@link BufferPool} */
+@SuppressWarnings("nls")
+public class BufferPoolTest
+{
+    @Test
+    public void testSizeClasses()
+    {
+        // Small requests get at least the minimum size
+        ByteBuffer buffer = BufferPool.acquire(10);
+        assertThat(buffer.capacity(), equalTo(PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE));
+        BufferPool.release(buffer);
+
+        // Larger requests are rounded up to power of 2
+        buffer = BufferPool.acquire(PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE + 1);
+        assertThat(buffer.capacity(), equalTo(2 * PVASettings.EPICS_PVA_RECEIVE_BUFFER_SIZE));
+        BufferPool.release(buffer);
+    }
+
+    @Test
+    public void testReuse()
+    {
+        final ByteBuffer buffer = BufferPool.acquire(100000);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(42);
+        BufferPool.release(buffer);
+
+        final long hits = BufferPool.getHits();
+        final ByteBuffer again = BufferPool.acquire(100000);
+        assertThat(again, sameInstance(buffer));
+        assertThat(BufferPool.getHits(), equalTo(hits + 1));
+        // Re-used buffer is cleared and back to default byte order
+        assertThat(again.position(), equalTo(0));
+        assertThat(again.limit(), equalTo(again.capacity()));
+        assertThat(again.order(), equalTo(ByteOrder.BIG_ENDIAN));
+        BufferPool.release(again);
+    }
+
+    @Test
+    public void testGrow()
+    {
+        final ByteBuffer buffer = BufferPool.acquire(10);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(1).putInt(2).putInt(3);
+
+        // No change when large enough
+        assertThat(BufferPool.grow(buffer, 12), sameInstance(buffer));
+
+        final long growths = BufferPool.getGrowths();
+        final ByteBuffer larger = BufferPool.grow(buffer, 3 * buffer.capacity());
+        assertThat(BufferPool.getGrowths(), equalTo(growths + 1));
+        assertThat(larger.capacity(), equalTo(4 * buffer.capacity()));
+        assertThat(larger.order(), equalTo(ByteOrder.LITTLE_ENDIAN));
+        assertThat(larger.position(), equalTo(12));
+        assertThat(larger.getInt(0), equalTo(1));
+        assertThat(larger.getInt(4), equalTo(2));
+        assertThat(larger.getInt(8), equalTo(3));
+        BufferPool.release(larger);
+    }
+}
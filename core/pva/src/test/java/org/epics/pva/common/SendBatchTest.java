@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.common;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Check that {@link TCPHandler} combines queued messages into fewer writes */
+@SuppressWarnings("nls")
+public class SendBatchTest
+{
+    private static final int MESSAGES = 1000;
+
+    /** @param use_selector Use selector or threads?
+     *  @param server Server socket to which handler connects
+     *  @return Handler
+     */
+    private static TCPHandler createHandler(final boolean use_selector, final ServerSocket server) throws Exception
+    {
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        final Socket socket = use_selector ? SocketChannel.open(address).socket()
+                                           : new Socket(address.getAddress(), address.getPort());
+        final TCPHandler handler = new TCPHandler(socket, false) {};
+        handler.startReceiver();
+        return handler;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testBatching(final boolean use_selector) throws Exception
+    {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+        {
+            final TCPHandler handler = createHandler(use_selector, server);
+
+            // Queue messages before the sender starts
+            for (int i=0; i<MESSAGES; ++i)
+            {
+                final int number = i;
+                handler.submit((version, buffer) ->
+                {
+                    PVAHeader.encodeMessageHeader(buffer, PVAHeader.FLAG_SERVER, PVAHeader.CMD_ECHO, Integer.BYTES);
+                    buffer.putInt(number);
+                });
+            }
+            handler.startSender();
+
+            // Peer receives all messages in order
+            try (Socket peer = server.accept())
+            {
+                final DataInputStream in = new DataInputStream(peer.getInputStream());
+                final byte[] message = new byte[PVAHeader.HEADER_SIZE + Integer.BYTES];
+                for (int i=0; i<MESSAGES; ++i)
+                {
+                    in.readFully(message);
+                    final ByteBuffer buffer = ByteBuffer.wrap(message);
+                    buffer.order(ByteOrder.nativeOrder());
+                    assertThat(buffer.get(3), equalTo(PVAHeader.CMD_ECHO));
+                    assertThat(buffer.getInt(PVAHeader.HEADER_SIZE), equalTo(i));
+                }
+                handler.close(true);
+            }
+
+            assertThat(handler.getMessagesSent(), equalTo((long) MESSAGES));
+            assertTrue(handler.getFlushes() < MESSAGES / 10);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testLargeMessages(final boolean use_selector) throws Exception
+    {
+        // Small messages mixed with ones that exceed the batch size
+        final int[] counts = { 1, 100_000, 2, 3, 50_000, 4, 20_000 };
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+        {
+            final TCPHandler handler = createHandler(use_selector, server);
+            for (int count : counts)
+                handler.submit((version, buffer) ->
+                {
+                    PVAHeader.encodeMessageHeader(buffer, PVAHeader.FLAG_SERVER, PVAHeader.CMD_ECHO, count * Integer.BYTES);
+                    for (int i=0; i<count; ++i)
+                        buffer.putInt(count + i);
+                });
+            handler.startSender();
+
+            try (Socket peer = server.accept())
+            {
+                final DataInputStream in = new DataInputStream(peer.getInputStream());
+                for (int count : counts)
+                {
+                    final byte[] message = new byte[PVAHeader.HEADER_SIZE + count * Integer.BYTES];
+                    in.readFully(message);
+                    final ByteBuffer buffer = ByteBuffer.wrap(message);
+                    buffer.order(ByteOrder.nativeOrder());
+                    assertThat(buffer.get(3), equalTo(PVAHeader.CMD_ECHO));
+                    assertThat(buffer.getInt(PVAHeader.HEADER_OFFSET_PAYLOAD_SIZE), equalTo(count * Integer.BYTES));
+                    for (int i=0; i<count; ++i)
+                        assertThat(buffer.getInt(PVAHeader.HEADER_SIZE + i * Integer.BYTES), equalTo(count + i));
+                }
+                handler.close(true);
+            }
+            assertThat(handler.getMessagesSent(), equalTo((long) counts.length));
+        }
+    }
+}
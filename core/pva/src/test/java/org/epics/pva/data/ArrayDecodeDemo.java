@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pva.PVASettings;
+
+/** Benchmark of array decoding
+ *
+ *  <p>Compares the original element-by-element decoding
+ *  with the bulk decode of the PVA...Array classes,
+ *  for each byte order, with and without array re-use.
+ *
+ *  <p>Run with for example "-Dsize=1000000 -Drepeat=200"
+ */
+@SuppressWarnings("nls")
+public class ArrayDecodeDemo
+{
+    private static final int SIZE = Integer.getInteger("size", 1000000);
+    private static final int REPEAT = Integer.getInteger("repeat", 100);
+
+    @FunctionalInterface
+    private interface Decoder
+    {
+        void decode(ByteBuffer buffer) throws Exception;
+    }
+
+    /** @return Buffer with encoded data */
+    private static ByteBuffer encode(final ByteOrder order, final PVAData data) throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE * Long.BYTES + 10);
+        buffer.order(order);
+        data.encode(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void measure(final String title, final ByteBuffer buffer, final Decoder decoder) throws Exception
+    {
+        // Warm up
+        for (int i=0; i<REPEAT/10 + 1; ++i)
+        {
+            buffer.rewind();
+            decoder.decode(buffer);
+        }
+        final long start = System.nanoTime();
+        for (int i=0; i<REPEAT; ++i)
+        {
+            buffer.rewind();
+            decoder.decode(buffer);
+        }
+        final double secs = (System.nanoTime() - start) * 1e-9;
+        final double mb = (double) buffer.limit() * REPEAT / 1024 / 1024;
+        System.out.format("%-35s %-14s %10.1f MB/s\n", title, buffer.order(), mb / secs);
+    }
+
+    private static void benchmark(final String type, final PVAData data, final PVAData result, final Decoder loop) throws Exception
+    {
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+        {
+            final ByteBuffer buffer = encode(order, data);
+            measure(type + " element loop", buffer, loop);
+            PVASettings.EPICS_PVA_REUSE_ARRAYS = false;
+            measure(type + " bulk decode", buffer, b -> result.decode(null, b));
+            PVASettings.EPICS_PVA_REUSE_ARRAYS = true;
+            measure(type + " bulk decode, re-use", buffer, b -> result.decode(null, b));
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        System.out.println(SIZE + " elements, " + REPEAT + " repeats");
+
+        final double[] doubles = new double[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            doubles[i] = i * 0.1;
+        benchmark("double[]", new PVADoubleArray("d", doubles), new PVADoubleArray("d"), buffer ->
+        {
+            final double[] value = new double[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.getDouble();
+        });
+
+        final float[] floats = new float[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            floats[i] = i * 0.1f;
+        benchmark("float[]", new PVAFloatArray("f", floats), new PVAFloatArray("f"), buffer ->
+        {
+            final float[] value = new float[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.getFloat();
+        });
+
+        final long[] longs = new long[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            longs[i] = i;
+        benchmark("long[]", new PVALongArray("l", false, longs), new PVALongArray("l", false), buffer ->
+        {
+            final long[] value = new long[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.getLong();
+        });
+
+        final int[] ints = new int[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            ints[i] = i;
+        benchmark("int[]", new PVAIntArray("i", false, ints), new PVAIntArray("i", false), buffer ->
+        {
+            final int[] value = new int[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.getInt();
+        });
+
+        final short[] shorts = new short[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            shorts[i] = (short) i;
+        benchmark("short[]", new PVAShortArray("s", false, shorts), new PVAShortArray("s", false), buffer ->
+        {
+            final short[] value = new short[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.getShort();
+        });
+
+        final byte[] bytes = new byte[SIZE];
+        for (int i=0; i<SIZE; ++i)
+            bytes[i] = (byte) i;
+        benchmark("byte[]", new PVAByteArray("b", false, bytes), new PVAByteArray("b", false), buffer ->
+        {
+            final byte[] value = new byte[PVASize.decodeSize(buffer)];
+            for (int i=0; i<value.length; ++i)
+                value[i] = buffer.get();
+        });
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.epics.pva.data;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pva.PVASettings;
+import org.junit.jupiter.api.Test;
+
+/** Check bulk decoding of arrays */
+@SuppressWarnings("nls")
+public class ArrayDecodeTest
+{
+    /** Encode data into buffer, decode into result, check that all bytes were consumed */
+    private void roundtrip(final ByteOrder order, final PVAData data, final PVAData result) throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(1000);
+        buffer.order(order);
+        // Start at odd offset to check unaligned access
+        buffer.put((byte) 42);
+        data.encode(buffer);
+        buffer.put((byte) 43);
+        buffer.flip();
+
+        assertThat(buffer.get(), equalTo((byte) 42));
+        result.decode(null, buffer);
+        assertThat(buffer.get(), equalTo((byte) 43));
+        assertThat(buffer.remaining(), equalTo(0));
+    }
+
+    @Test
+    public void testDecode() throws Exception
+    {
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+        {
+            final PVADoubleArray doubles = new PVADoubleArray("d", 1.0, -2.5, Double.NaN, 1e300);
+            final PVADoubleArray double_result = new PVADoubleArray("d");
+            roundtrip(order, doubles, double_result);
+            assertThat(double_result, equalTo(doubles));
+
+            final PVAFloatArray floats = new PVAFloatArray("f", 1.0f, -2.5f, Float.NaN, 3e30f);
+            final PVAFloatArray float_result = new PVAFloatArray("f");
+            roundtrip(order, floats, float_result);
+            assertThat(float_result, equalTo(floats));
+
+            final PVALongArray longs = new PVALongArray("l", false, 1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE);
+            final PVALongArray long_result = new PVALongArray("l", false);
+            roundtrip(order, longs, long_result);
+            assertThat(long_result, equalTo(longs));
+
+            final PVAIntArray ints = new PVAIntArray("i", false, 1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE);
+            final PVAIntArray int_result = new PVAIntArray("i", false);
+            roundtrip(order, ints, int_result);
+            assertThat(int_result, equalTo(ints));
+
+            final PVAShortArray shorts = new PVAShortArray("s", false, (short) 1, (short) -2, Short.MAX_VALUE, Short.MIN_VALUE);
+            final PVAShortArray short_result = new PVAShortArray("s", false);
+            roundtrip(order, shorts, short_result);
+            assertThat(short_result, equalTo(shorts));
+
+            final PVAByteArray bytes = new PVAByteArray("b", false, (byte) 1, (byte) -2, Byte.MAX_VALUE, Byte.MIN_VALUE);
+            final PVAByteArray byte_result = new PVAByteArray("b", false);
+            roundtrip(order, bytes, byte_result);
+            assertThat(byte_result, equalTo(bytes));
+        }
+    }
+
+    @Test
+    public void testReuse() throws Exception
+    {
+        final boolean orig = PVASettings.EPICS_PVA_REUSE_ARRAYS;
+        try
+        {
+            final PVADoubleArray data = new PVADoubleArray("d", 1.0, 2.0, 3.0);
+            final PVADoubleArray result = new PVADoubleArray("d", 0.0, 0.0, 0.0);
+            final double[] initial = result.get();
+
+            // By default, each decode allocates a new array
+            PVASettings.EPICS_PVA_REUSE_ARRAYS = false;
+            roundtrip(ByteOrder.BIG_ENDIAN, data, result);
+            assertThat(result, equalTo(data));
+            assertThat(result.get(), not(sameInstance(initial)));
+
+            // With re-use enabled, array of same size is updated
+            PVASettings.EPICS_PVA_REUSE_ARRAYS = true;
+            final double[] previous = result.get();
+            data.set(new double[] { 4.0, 5.0, 6.0 });
+            roundtrip(ByteOrder.LITTLE_ENDIAN, data, result);
+            assertThat(result, equalTo(data));
+            assertThat(result.get(), sameInstance(previous));
+
+            // .. but size change still requires a new array
+            data.set(new double[] { 7.0, 8.0 });
+            roundtrip(ByteOrder.BIG_ENDIAN, data, result);
+            assertThat(result, equalTo(data));
+            assertThat(result.get(), not(sameInstance(previous)));
+        }
+        finally
+        {
+            PVASettings.EPICS_PVA_REUSE_ARRAYS = orig;
+        }
+    }
+}
@@ -65,6 +65,7 @@ public class Engine
         System.out.println("-delete_config                Delete existing engine config");
         System.out.println("-export engine_config.xml     Export configuration to XML");
         System.out.println("-import engine_config.xml     Import configuration from XML");
+        System.out.println("-config engine_config.xml     Run with configuration from XML instead of RDB");
         System.out.println("-description \"Some Info\"      Import: Description for the engine");
         System.out.println("-replace_engine               Import: Replace existing engine config, or stop?");
         System.out.println("-abort_on_duplicate_channel   Import: Abort if channel is already listed with other engine (default: skip with warning)?");
@@ -139,7 +140,7 @@ public class Engine
         boolean skip_last = false;
         boolean list = false, delete = false, replace_engine = false, use_shell = true;
         RDBConfig.DuplicateMode duplicates = DuplicateMode.SKIP;
-        File import_file = null, export_file = null;
+        File import_file = null, export_file = null, config_file = null;
 
         // Handle arguments
         final List<String> args = new ArrayList<>(List.of(original_args));
@@ -240,6 +241,14 @@ public class Engine
                     import_file = new File(iter.next());
                     iter.remove();
                 }
+                else if (cmd.equals("-config"))
+                {
+                    if (! iter.hasNext())
+                        throw new Exception("Missing -config file name");
+                    iter.remove();
+                    config_file = new File(iter.next());
+                    iter.remove();
+                }
                 else if (cmd.equals("-description"))
                 {
                     if (! iter.hasNext())
@@ -357,13 +366,16 @@ public class Engine
         {
             logger.log(Level.INFO, "Reading configuration");
             model = new EngineModel();
-            try
-            (
-                RDBConfig config = new RDBConfig();
-            )
-            {
-                config.read(model, config_name, port, skip_last);
-            }
+            if (config_file != null)
+                new XMLConfig().read(config_file, model);
+            else
+                try
+                (
+                    RDBConfig config = new RDBConfig();
+                )
+                {
+                    config.read(model, config_name, port, skip_last);
+                }
 
             logger.log(Level.INFO, "Archive Engine web interface on http://localhost:" + port + "/index.html");
             final EngineWebServer httpd = new EngineWebServer(port);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018-2022 Oak Ridge National Laboratory.
+ * Copyright (c) 2018-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,13 +25,17 @@ public class Preferences
     @Preference public static String write_sample_table;
     @Preference public static int max_text_sample_length;
     @Preference public static boolean use_postgres_copy;
+    @Preference public static boolean use_postgres_binary_copy;
     @Preference public static String[] equivalent_pv_prefixes;
     @Preference public static int log_trouble_samples;
     @Preference public static int log_overrun;
     @Preference public static int write_period;
     @Preference public static int max_repeats;
+    @Preference public static int scan_threads;
     @Preference public static int batch_size;
+    @Preference public static int write_threads;
     @Preference public static double buffer_reserve;
+    @Preference public static boolean primitive_sample_buffer;
     @Preference public static int ignored_future;
 
 
@@ -7,10 +7,13 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.config;
 
+import static org.csstudio.archive.Engine.logger;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.util.logging.Level;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamWriter;
@@ -21,6 +24,7 @@ import org.csstudio.archive.engine.model.DeltaArchiveChannel;
 import org.csstudio.archive.engine.model.Enablement;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.MonitoredArchiveChannel;
+import org.csstudio.archive.engine.model.SampleMode;
 import org.csstudio.archive.engine.model.ScannedArchiveChannel;
 import org.phoebus.framework.persistence.IndentingXMLStreamWriter;
 import org.phoebus.framework.persistence.XMLUtil;
@@ -122,34 +126,112 @@ public class XMLConfig
         writer.writeEndElement();
     }
 
-    /** @param import_file XML file to read
-     *  @param config RDB to update with configuration from XML file
-     *  @param duplicates How to handle duplicate channels
-     *  @throws Exception on error
+    /** Receives configuration read from XML file
+     *  @param <G> Type used to identify a group
      */
-    public void read(final File import_file, final RDBConfig config, final int engine_id, final RDBConfig.DuplicateMode duplicates) throws FileNotFoundException, Exception
+    private interface ConfigHandler<G>
     {
-        // TODO RDB: Load sample modes?
+        /** @param group_name Name of group
+         *  @return Group
+         *  @throws Exception on error
+         */
+        G addGroup(String group_name) throws Exception;
+
+        /** @param group Group of channel
+         *  @param name Channel name
+         *  @param monitor Monitor, or scan?
+         *  @param period Scan period or estimated monitor period
+         *  @param delta Value change threshold, -1 for none
+         *  @param enable Does channel enable the group?
+         *  @throws Exception on error
+         */
+        void addChannel(G group, String name, boolean monitor, double period, double delta, boolean enable) throws Exception;
+    }
 
-        final Element doc = XMLUtil.openXMLDocument(new FileInputStream(import_file), ENGINECONFIG);
+    /** @param file XML file to read
+     *  @param handler Handler for groups and channels
+     *  @throws Exception on error
+     */
+    private <G> void read(final File file, final ConfigHandler<G> handler) throws Exception
+    {
+        final Element doc;
+        try (FileInputStream stream = new FileInputStream(file))
+        {
+            doc = XMLUtil.openXMLDocument(stream, ENGINECONFIG);
+        }
         for (Element ge : XMLUtil.getChildElements(doc, GROUP))
         {
             final String group_name = XMLUtil.getChildString(ge, NAME)
-                                             .orElseThrow(() -> new Exception(import_file + " line " + XMLUtil.getLineInfo(ge) + " Missing group name"));
-
-            final int group_id = config.createGroup(engine_id, group_name);
+                                             .orElseThrow(() -> new Exception(file + " line " + XMLUtil.getLineInfo(ge) + " Missing group name"));
+            final G group = handler.addGroup(group_name);
 
             for (Element ce : XMLUtil.getChildElements(ge, CHANNEL))
             {
                 final String name = XMLUtil.getChildString(ce, NAME)
-                                           .orElseThrow(() -> new Exception(import_file + " line " + XMLUtil.getLineInfo(ce) + " Missing channel name"));
+                                           .orElseThrow(() -> new Exception(file + " line " + XMLUtil.getLineInfo(ce) + " Missing channel name"));
                 final boolean monitor = XMLUtil.getChildElement(ce, MONITOR) != null;
                 final double period = SecondsParser.parseSeconds(XMLUtil.getChildString(ce, PERIOD).orElse("60.0"));
                 final double delta = XMLUtil.getChildDouble(ce, DELTA).orElse(-1.0);
                 final boolean enable = XMLUtil.getChildElement(ce, ENABLE) != null;
+                handler.addChannel(group, name, monitor, period, delta, enable);
+            }
+        }
+    }
 
+    /** @param import_file XML file to read
+     *  @param config RDB to update with configuration from XML file
+     *  @param duplicates How to handle duplicate channels
+     *  @throws Exception on error
+     */
+    public void read(final File import_file, final RDBConfig config, final int engine_id, final RDBConfig.DuplicateMode duplicates) throws FileNotFoundException, Exception
+    {
+        // TODO RDB: Load sample modes?
+
+        read(import_file, new ConfigHandler<Integer>()
+        {
+            @Override
+            public Integer addGroup(final String group_name) throws Exception
+            {
+                return config.createGroup(engine_id, group_name);
+            }
+
+            @Override
+            public void addChannel(final Integer group_id, final String name, final boolean monitor,
+                                   final double period, final double delta, final boolean enable) throws Exception
+            {
                 config.addChannel(group_id, duplicates, name, monitor, period, delta, enable);
             }
-        }
+        });
+    }
+
+    /** Read configuration from XML file into model
+     *
+     *  <p>Allows running the engine without an RDB configuration,
+     *  for example when writing to a columnar file archive.
+     *
+     *  @param config_file XML file to read
+     *  @param model {@link EngineModel} to configure
+     *  @throws Exception on error
+     */
+    public void read(final File config_file, final EngineModel model) throws Exception
+    {
+        read(config_file, new ConfigHandler<ArchiveGroup>()
+        {
+            @Override
+            public ArchiveGroup addGroup(final String group_name) throws Exception
+            {
+                logger.log(Level.INFO, "Group '" + group_name + "'");
+                return model.addGroup(group_name);
+            }
+
+            @Override
+            public void addChannel(final ArchiveGroup group, final String name, final boolean monitor,
+                                   final double period, final double delta, final boolean enable) throws Exception
+            {
+                final SampleMode sample_mode = new SampleMode(monitor, delta, period);
+                logger.log(Level.INFO, "Channel '" + name + "', " + sample_mode);
+                model.addChannel(name, group, enable ? Enablement.Enabling : Enablement.Passive, sample_mode, null);
+            }
+        });
     }
 }
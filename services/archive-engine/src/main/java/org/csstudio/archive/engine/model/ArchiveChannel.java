@@ -134,7 +134,7 @@ abstract public class ArchiveChannel
         this.name = name;
         this.enablement = enablement;
         this.last_archived_value = last_archived_value;
-        this.buffer = new SampleBuffer(name, retention, buffer_capacity);
+        this.buffer = SampleBuffer.create(name, retention, buffer_capacity);
         if (last_archived_value == null)
             logger.log(Level.INFO, "No known last value for {0}", name);
     }
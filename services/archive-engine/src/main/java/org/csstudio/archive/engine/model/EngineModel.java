@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,14 @@ import static org.csstudio.archive.Engine.logger;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.archive.Preferences;
+import org.csstudio.archive.engine.scanner.ScanList;
 import org.csstudio.archive.engine.scanner.ScanThread;
 import org.csstudio.archive.engine.scanner.Scanner;
 import org.csstudio.archive.writer.rdb.TimestampHelper;
@@ -40,8 +42,10 @@ public class EngineModel
     /** Name of this model */
     private String name = "Archive Engine";  //$NON-NLS-1$
 
-    /** Thread that writes to the <code>archive</code> */
-    final private WriteThread writer;
+    /** Threads that write to the <code>archive</code>,
+     *  each handling a subset of the channels
+     */
+    final private List<WriteThread> writers = new ArrayList<>();
 
     /** All the channels.
      *  <p>
@@ -62,7 +66,7 @@ public class EngineModel
     final List<ArchiveGroup> groups = new ArrayList<>();
 
     /** Scanner for scanned channels */
-    final Scanner scanner = new Scanner();
+    final Scanner scanner = new Scanner(Preferences.scan_threads);
 
     /** Thread that runs the scanner */
     final ScanThread scan_thread = new ScanThread(scanner);
@@ -91,7 +95,9 @@ public class EngineModel
     /** Construct model that writes to archive */
     public EngineModel()
     {
-        writer = new WriteThread();
+        final int count = Math.max(1, Preferences.write_threads);
+        for (int i=0; i<count; ++i)
+            writers.add(new WriteThread(i));
     }
 
     /** @return Name (description) */
@@ -263,7 +269,7 @@ public class EngineModel
             channels.add(channel);
             channel_by_name.put(channel.getName(), channel);
         }
-        writer.addChannel(channel);
+        getWriter(channel.getName()).addChannel(channel);
 
         // Connect new or old channel to group
         channel.addGroup(group);
@@ -277,7 +283,8 @@ public class EngineModel
     {
         start_time = Instant.now();
         state = State.RUNNING;
-        writer.start(Preferences.write_period, Preferences.batch_size);
+        for (WriteThread writer : writers)
+            writer.start(Preferences.write_period, Preferences.batch_size);
         for (ArchiveGroup group : groups)
         {
             group.start();
@@ -290,22 +297,61 @@ public class EngineModel
         scan_thread.start();
     }
 
-    /** @return Timestamp of end of last write run */
+    /** @param channel_name Channel name
+     *  @return Write thread that handles the channel
+     */
+    private WriteThread getWriter(final String channel_name)
+    {
+        // String hash is stable, so channel remains with the same writer across restarts
+        return writers.get(Math.floorMod(channel_name.hashCode(), writers.size()));
+    }
+
+    /** @return Write threads */
+    public List<WriteThread> getWriters()
+    {
+        return Collections.unmodifiableList(writers);
+    }
+
+    /** @return Timestamp of end of last write run,
+     *          the oldest one of all write threads,
+     *          <code>null</code> if any write thread has not written
+     */
     public Instant getLastWriteTime()
     {
-        return writer.getLastWriteTime();
+        Instant oldest = null;
+        for (WriteThread writer : writers)
+        {
+            final Instant time = writer.getLastWriteTime();
+            if (time == null)
+                return null;
+            if (oldest == null  ||  time.isBefore(oldest))
+                oldest = time;
+        }
+        return oldest;
     }
 
-    /** @return Average number of values per write run */
+    /** @return Average number of values per write run, sum of all write threads */
     public double getWriteCount()
     {
-        return writer.getWriteCount();
+        double count = 0.0;
+        for (WriteThread writer : writers)
+            count += writer.getWriteCount();
+        return count;
     }
 
-    /** @return  Average duration of write run in seconds */
+    /** @return  Average duration of write run in seconds, longest of all write threads */
     public double getWriteDuration()
     {
-        return writer.getWriteDuration();
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getWriteDuration());
+        return duration;
+    }
+
+    /** @return Scan lists of the scanner */
+    public List<ScanList> getScanLists()
+    {
+        return scanner.getScanLists();
     }
 
     /** @see Scanner#getIdlePercentage() */
@@ -344,7 +390,8 @@ public class EngineModel
     /** Reset engine statistics */
     public void reset()
     {
-        writer.reset();
+        for (WriteThread writer : writers)
+            writer.reset();
         scanner.reset();
         synchronized (this)
         {
@@ -368,7 +415,24 @@ public class EngineModel
             group.stop();
         // Flush all values out
         logger.info("Stopping writer");
-        writer.shutdown();
+        // Stop all writers, even if one of them has an error
+        Exception error = null;
+        for (WriteThread writer : writers)
+        {
+            try
+            {
+                writer.shutdown();
+            }
+            catch (Exception ex)
+            {
+                if (error == null)
+                    error = ex;
+                else
+                    error.addSuppressed(ex);
+            }
+        }
+        if (error != null)
+            throw error;
         // Update state
         state = State.IDLE;
         start_time = null;
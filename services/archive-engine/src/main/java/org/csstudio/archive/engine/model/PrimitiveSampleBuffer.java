@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VType;
+
+/** Sample buffer that keeps numeric scalars in primitive arrays
+ *
+ *  <p>For {@link VDouble}, {@link VFloat}, {@link VLong} and {@link VInt}
+ *  samples with valid time stamp, the value, time stamp and alarm
+ *  are kept in parallel arrays.
+ *  The VType is re-created when the sample is removed for writing,
+ *  so the received VType objects can be garbage collected right away.
+ *  Other samples, for example the info samples for 'disconnected',
+ *  are kept as they are.
+ *
+ *  <p>The thread that removes samples does not lock.
+ *  Threads that add samples synchronize among each other,
+ *  which is usually uncontended because a channel's samples
+ *  arrive from one PV monitor or scan thread.
+ *  When the buffer is full, adding a sample drops the oldest sample
+ *  by advancing the 'head' just like the removing thread,
+ *  and the removing thread only uses a sample after
+ *  it successfully advanced the 'head' beyond that sample.
+ *
+ *  <p>Storage starts small and grows up to the capacity
+ *  as needed, so buffers that are rarely full
+ *  don't use much memory.
+ *
+ *  @author Kay Kasemir
+ */
+class PrimitiveSampleBuffer extends SampleBuffer
+{
+    /** Initial storage size */
+    private static final int INITIAL_SIZE = 16;
+
+    /** Sample types */
+    private static final byte OBJECT = 0, DOUBLE = 1, FLOAT = 2, LONG = 3, INT = 4;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmStatus[] STATI = AlarmStatus.values();
+
+    /** Parallel arrays for samples, indexed by (sequence number % size) */
+    private static class Storage
+    {
+        final byte[] type;
+        final long[] seconds;
+        final int[] nanos;
+        /** Raw bits of double or float value, or long value */
+        final long[] value;
+        final byte[] severity;
+        final byte[] status;
+        /** Alarm name */
+        final String[] name;
+        /** {@link Display} for numbers, complete VType for {@link #OBJECT} */
+        final Object[] object;
+
+        Storage(final int size)
+        {
+            type = new byte[size];
+            seconds = new long[size];
+            nanos = new int[size];
+            value = new long[size];
+            severity = new byte[size];
+            status = new byte[size];
+            name = new String[size];
+            object = new Object[size];
+        }
+
+        int size()
+        {
+            return type.length;
+        }
+
+        /** Copy sample from other storage
+         *  @param other Other storage
+         *  @param seq Sequence number of sample
+         */
+        void copy(final Storage other, final long seq)
+        {
+            final int from = (int) (seq % other.size()), to = (int) (seq % size());
+            type[to] = other.type[from];
+            seconds[to] = other.seconds[from];
+            nanos[to] = other.nanos[from];
+            value[to] = other.value[from];
+            severity[to] = other.severity[from];
+            status[to] = other.status[from];
+            name[to] = other.name[from];
+            object[to] = other.object[from];
+        }
+    }
+
+    private final int capacity;
+
+    /** Storage, replaced by larger storage as the buffer grows */
+    private volatile Storage storage;
+
+    /** Sequence number of oldest sample, advanced by removing thread or by adding thread when full */
+    private final AtomicLong head = new AtomicLong();
+
+    /** Sequence number for next sample, only changed by (synchronized) adding thread */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Lock for threads that add samples */
+    private final Object add_lock = new Object();
+
+    /** Sequence number up to which references have been released, SYNC on add_lock */
+    private long released = 0;
+
+    /** Create sample buffer of given capacity
+     *  @param channel_name Channel name
+     *  @param retention Sample retention policy (for archive); may be null if default/not supported
+     *  @param capacity Queue capacity
+     */
+    PrimitiveSampleBuffer(final String channel_name, final String retention, final int capacity)
+    {
+        super(channel_name, retention);
+        this.capacity = Math.max(1, capacity);
+        storage = new Storage(Math.min(this.capacity, INITIAL_SIZE));
+    }
+
+    @Override
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        // Read head first, so size is never negative
+        final long h = head.get();
+        return (int) (tail.get() - h);
+    }
+
+    @Override
+    void add(final VType value)
+    {
+        synchronized (add_lock)
+        {
+            final long t = tail.get();
+            final long h = head.get();
+            // When full, drop oldest sample.
+            // If that fails, the removing thread just removed it
+            final boolean full = t - h >= capacity  &&  head.compareAndSet(h, h + 1);
+            updateOverruns(full);
+
+            Storage store = storage;
+            if (t - head.get() >= store.size())
+                store = grow(store, t);
+            releaseRemoved(store, t);
+
+            final int i = (int) (t % store.size());
+            if (! setNumber(store, i, value))
+            {
+                store.type[i] = OBJECT;
+                store.name[i] = null;
+                store.object[i] = value;
+            }
+            // Publish the sample
+            tail.set(t + 1);
+        }
+    }
+
+    /** Release references to removed samples
+     *
+     *  <p>Only clears slots of samples before the 'head'.
+     *  If the removing thread still reads such a slot,
+     *  it will fail to advance the head and ignore what it read.
+     *
+     *  @param store Storage
+     *  @param t Current tail
+     */
+    private void releaseRemoved(final Storage store, final long t)
+    {
+        final long h = head.get();
+        // Older slots have already been re-used for newer samples
+        long seq = Math.max(released, t - store.size());
+        for (/**/;  seq < h;  ++seq)
+        {
+            final int i = (int) (seq % store.size());
+            store.name[i] = null;
+            store.object[i] = null;
+        }
+        released = seq;
+    }
+
+    /** @param store Current storage, full
+     *  @param t Current tail
+     *  @return New, larger storage
+     */
+    private Storage grow(final Storage store, final long t)
+    {
+        final Storage larger = new Storage(Math.min(capacity, 2 * store.size()));
+        // Copy from the current head. If the removing thread advances the head
+        // while we copy, it reads from the old storage which remains unchanged.
+        for (long seq = head.get();  seq < t;  ++seq)
+            larger.copy(store, seq);
+        storage = larger;
+        return larger;
+    }
+
+    /** @param store Storage
+     *  @param i Index
+     *  @param value Sample
+     *  @return <code>true</code> if sample was numeric and placed in storage
+     */
+    private static boolean setNumber(final Storage store, final int i, final VType value)
+    {
+        final byte type;
+        final long raw;
+        final Alarm alarm;
+        final Time time;
+        final Display display;
+        if (value instanceof VDouble)
+        {
+            final VDouble number = (VDouble) value;
+            type = DOUBLE;
+            raw = Double.doubleToRawLongBits(number.getValue());
+            alarm = number.getAlarm();
+            time = number.getTime();
+            display = number.getDisplay();
+        }
+        else if (value instanceof VFloat)
+        {
+            final VFloat number = (VFloat) value;
+            type = FLOAT;
+            raw = Float.floatToRawIntBits(number.getValue());
+            alarm = number.getAlarm();
+            time = number.getTime();
+            display = number.getDisplay();
+        }
+        else if (value instanceof VLong)
+        {
+            final VLong number = (VLong) value;
+            type = LONG;
+            raw = number.getValue();
+            alarm = number.getAlarm();
+            time = number.getTime();
+            display = number.getDisplay();
+        }
+        else if (value instanceof VInt)
+        {
+            final VInt number = (VInt) value;
+            type = INT;
+            raw = number.getValue();
+            alarm = number.getAlarm();
+            time = number.getTime();
+            display = number.getDisplay();
+        }
+        else
+            return false;
+
+        // Keep samples with invalid time stamp as they are
+        if (! time.isValid())
+            return false;
+
+        final Instant stamp = time.getTimestamp();
+        store.type[i] = type;
+        store.seconds[i] = stamp.getEpochSecond();
+        store.nanos[i] = stamp.getNano();
+        store.value[i] = raw;
+        store.severity[i] = (byte) alarm.getSeverity().ordinal();
+        store.status[i] = (byte) alarm.getStatus().ordinal();
+        store.name[i] = alarm.getName();
+        store.object[i] = display;
+        return true;
+    }
+
+    @Override
+    VType remove()
+    {
+        while (true)
+        {
+            final long h = head.get();
+            // Read tail, then storage, so storage holds all samples up to tail
+            if (h >= tail.get())
+                return null;
+            final Storage store = storage;
+            final int i = (int) (h % store.size());
+            final byte type = store.type[i];
+            final long seconds = store.seconds[i];
+            final int nanos = store.nanos[i];
+            final long raw = store.value[i];
+            final byte severity = store.severity[i];
+            final byte status = store.status[i];
+            final String name = store.name[i];
+            final Object object = store.object[i];
+            // Only use the sample if the adding thread did not drop it meanwhile
+            if (! head.compareAndSet(h, h + 1))
+                continue;
+            if (type == OBJECT)
+                return (VType) object;
+
+            final Alarm alarm = Alarm.of(SEVERITIES[severity], STATI[status], name);
+            final Time time = Time.of(Instant.ofEpochSecond(seconds, nanos));
+            final Display display = (Display) object;
+            switch (type)
+            {
+            case DOUBLE:
+                return VDouble.of(Double.longBitsToDouble(raw), alarm, time, display);
+            case FLOAT:
+                return VFloat.of(Float.intBitsToFloat((int) raw), alarm, time, display);
+            case LONG:
+                return VLong.of(raw, alarm, time, display);
+            default:
+                return VInt.of((int) raw, alarm, time, display);
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,9 @@ import org.phoebus.framework.util.RingBuffer;
  *  thread removes them.
  *  When the queue size is reached, older samples get dropped.
  *
+ *  <p>Use {@link #create(String, String, int)} to get
+ *  the buffer implementation selected in the preferences.
+ *
  *  @author Kay Kasemir
  */
 public class SampleBuffer
@@ -35,7 +38,9 @@ public class SampleBuffer
      */
     final private String retention;
 
-    /** The actual samples in a thread-save queue. */
+    /** The actual samples in a thread-save queue,
+     *  <code>null</code> for derived implementation
+     */
     final private RingBuffer<VType> samples;
 
     /** Statistics */
@@ -69,6 +74,30 @@ public class SampleBuffer
         samples = new RingBuffer<>(capacity);
     }
 
+    /** Constructor for derived implementation that keeps its own samples
+     *  @param channel_name Channel name
+     *  @param retention Sample retention policy (for archive); may be null if default/not supported
+     */
+    protected SampleBuffer(final String channel_name, final String retention)
+    {
+        this.channel_name = channel_name;
+        this.retention = retention;
+        samples = null;
+    }
+
+    /** Create sample buffer
+     *  @param channel_name Channel name
+     *  @param retention Sample retention policy (for archive); may be null if default/not supported
+     *  @param capacity Queue capacity
+     *  @return {@link PrimitiveSampleBuffer} or plain {@link SampleBuffer}, depending on preferences
+     */
+    static SampleBuffer create(final String channel_name, final String retention, final int capacity)
+    {
+        if (Preferences.primitive_sample_buffer)
+            return new PrimitiveSampleBuffer(channel_name, retention, capacity);
+        return new SampleBuffer(channel_name, retention, capacity);
+    }
+
     /** @return channel name of this buffer */
     String getChannelName()
     {
@@ -112,27 +141,39 @@ public class SampleBuffer
     }
 
     /** Add a sample to the queue, maybe dropping older samples */
-    @SuppressWarnings("nls")
     void add(final VType value)
     {
         synchronized (samples)
         {
-            if (samples.isFull())
-            {   // Note start of overruns, then drop older sample
-                if (start_of_overruns == null)
-                    start_of_overruns = Integer.valueOf(stats.getOverruns());
-                stats.addOverrun();
-            }
-            else if (start_of_overruns != null)
-            {   // Ending a string of overruns. Maybe log it.
-                final int overruns = stats.getOverruns() - start_of_overruns;
-                overrun_msg.log(channel_name + ": " + overruns + " overruns");
-                start_of_overruns = null;
-            }
+            updateOverruns(samples.isFull());
             samples.add(value);
         }
     }
 
+    /** Update overrun statistics before adding a sample
+     *
+     *  <p>Must be called by the thread that adds samples,
+     *  synchronized with other threads that might add samples
+     *
+     *  @param full Is the buffer full, so adding a sample drops the oldest one?
+     */
+    @SuppressWarnings("nls")
+    protected void updateOverruns(final boolean full)
+    {
+        if (full)
+        {   // Note start of overruns, then drop older sample
+            if (start_of_overruns == null)
+                start_of_overruns = Integer.valueOf(stats.getOverruns());
+            stats.addOverrun();
+        }
+        else if (start_of_overruns != null)
+        {   // Ending a string of overruns. Maybe log it.
+            final int overruns = stats.getOverruns() - start_of_overruns;
+            overrun_msg.log(channel_name + ": " + overruns + " overruns");
+            start_of_overruns = null;
+        }
+    }
+
     /** @return latest sample in queue or <code>null</code> if empty */
     VType remove()
     {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@ import static org.csstudio.archive.Engine.logger;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.archive.writer.ArchiveWriter;
@@ -28,6 +30,12 @@ import org.epics.vtype.VType;
  *  be lost.
  *  The channels that add samples to the sample buffer supposedly notice
  *  the error condition and add a special indicator once we recover.
+ *  <p>
+ *  An engine may use several write threads, each with its own
+ *  <code>ArchiveWriter</code>, handling a subset of all channels.
+ *  Each write run handles the fullest sample buffers first,
+ *  and when a buffer is getting full, the next run starts
+ *  after the minimum write period.
  *
  *  @author Kay Kasemir
  */
@@ -36,6 +44,15 @@ public class WriteThread implements Runnable
     /** Minimum write period [seconds] */
     private static final double MIN_WRITE_PERIOD = 5.0;
 
+    /** Buffer fill level 0..1 that triggers writing after the minimum write period */
+    private static final double BACKLOG_FILL = 0.5;
+
+    /** Number of write threads that currently experience write errors */
+    private static final AtomicInteger threads_in_error = new AtomicInteger();
+
+    /** Index of this write thread */
+    final private int index;
+
     /** Server to which this thread writes. */
     private ArchiveWriter writer;
 
@@ -69,6 +86,32 @@ public class WriteThread implements Runnable
     /** Thread the executes this.run() */
     private Thread thread;
 
+    /** Is this thread experiencing write errors? */
+    private volatile boolean in_error = false;
+
+    /** Fill level 0..1 of the fullest buffer at start of last write run */
+    private volatile double max_fill = 0.0;
+
+    /** Create the only write thread */
+    public WriteThread()
+    {
+        this(0);
+    }
+
+    /** Create one of several write threads
+     *  @param index Index of this write thread
+     */
+    public WriteThread(final int index)
+    {
+        this.index = index;
+    }
+
+    /** @return Index of this write thread */
+    public int getIndex()
+    {
+        return index;
+    }
+
     /** Add a channel's buffer that this thread reads */
     public void addChannel(final ArchiveChannel channel)
     {
@@ -96,7 +139,7 @@ public class WriteThread implements Runnable
         }
         millisec_delay = (int)(1000.0 * write_period);
         this.batch_size = batch_size;
-        thread = new Thread(this, "WriteThread");
+        thread = new Thread(this, index > 0 ? "WriteThread" + index : "WriteThread");
         thread.start();
     }
 
@@ -135,6 +178,36 @@ public class WriteThread implements Runnable
         return write_time.get();
     }
 
+    /** @return Number of channels written by this thread */
+    public int getChannelCount()
+    {
+        return buffers.size();
+    }
+
+    /** @return Fill level 0..1 of the fullest buffer at start of last write run */
+    public double getMaxFill()
+    {
+        return max_fill;
+    }
+
+    /** @return <code>true</code> if this thread currently experiences write errors */
+    public boolean isInErrorState()
+    {
+        return in_error;
+    }
+
+    /** @param error Does this thread experience write errors? */
+    private void setErrorState(final boolean error)
+    {
+        if (error == in_error)
+            return;
+        in_error = error;
+        // Buffers are in error state while any write thread has errors
+        final int errors = error ? threads_in_error.incrementAndGet()
+                                 : threads_in_error.decrementAndGet();
+        SampleBuffer.setErrorState(errors > 0);
+    }
+
     /** 'Main loop' of the write thread.
      *  <p>
      *  Writes all values out, then waits.
@@ -152,7 +225,7 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void run()
     {
-        logger.info("WriteThread starts");
+        logger.info(Thread.currentThread().getName() + " starts");
         boolean write_error = false;
         do_run = true;
         while (do_run)
@@ -183,7 +256,11 @@ public class WriteThread implements Runnable
                 write_count.update(written);
                 write_time.update(milli / 1000.0);
                 // How much of the scheduled delay is left after write()?
-                delay = millisec_delay - milli;
+                // When buffers are getting full, only wait for the minimum period
+                if (max_fill > BACKLOG_FILL)
+                    delay = Math.min(millisec_delay, (long) (1000.0 * MIN_WRITE_PERIOD)) - milli;
+                else
+                    delay = millisec_delay - milli;
             }
             catch (Exception ex)
             {   // Error in write() or the preceding reconnect()...
@@ -192,7 +269,7 @@ public class WriteThread implements Runnable
                 delay = millisec_delay;
                 write_error = true;
             }
-            SampleBuffer.setErrorState(write_error);
+            setErrorState(write_error);
             // See if there's any time left to wait,
             // or if we already used all that time in the last 'write'
             if (delay > 0)
@@ -210,7 +287,7 @@ public class WriteThread implements Runnable
                 }
             }
         }
-        logger.info("WriteThread exists");
+        logger.info(Thread.currentThread().getName() + " exits");
     }
 
     /** Stop the write thread, performing a final write. */
@@ -233,20 +310,43 @@ public class WriteThread implements Runnable
                 writer.close();
                 writer = null;
             }
+            // Stopped thread no longer contributes to the error state
+            setErrorState(false);
         }
     }
 
     /** Write right now until all sample buffers are empty
+     *
+     *  <p>Writes the fullest buffers first
+     *  so they're less likely to overrun
+     *  while waiting for a slow write of other buffers.
+     *
      *  @return number of samples written
      */
     private long write() throws Exception
     {
-        int total_count = 0;
-        int count = 0;
-        for (SampleBuffer buffer : buffers)
+        // Sort by fill level, fullest first, via keys that combine
+        // (1000 - fill level in permille) and the buffer index
+        final int N = buffers.size();
+        final long[] order = new long[N];
+        double max = 0.0;
+        for (int i=0; i<N; ++i)
         {
+            final SampleBuffer buffer = buffers.get(i);
             // Update max buffer length etc. before we start to remove samples
             buffer.updateStats();
+            final double fill = (double) buffer.getQueueSize() / buffer.getCapacity();
+            max = Math.max(max, fill);
+            order[i] = ((long) (1000 - (int) (fill * 1000)) << 32) | i;
+        }
+        max_fill = max;
+        Arrays.sort(order);
+
+        int total_count = 0;
+        int count = 0;
+        for (long key : order)
+        {
+            final SampleBuffer buffer = buffers.get((int) key);
             // Write samples for one channel
             final String name = buffer.getChannelName();
             final String retention = buffer.getArchiveDataRetention();
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import static org.csstudio.archive.Engine.logger;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/** Batch of items on a {@link ScanList}
+ *
+ *  <p>A scan list with many items is split into batches
+ *  which can be scanned in parallel.
+ *
+ *  <p>Items are changed by the {@link Scanner} with the scanner locked,
+ *  while a worker thread might be scanning the previous items.
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class ScanBatch
+{
+    /** List to which this batch belongs */
+    final ScanList list;
+
+    /** Items to scan, replaced when changed */
+    private volatile Runnable[] items = new Runnable[0];
+
+    /** Next deadline in System.nanoTime(), SYNC on Scanner */
+    long deadline;
+
+    /** Deadline of the scan handed to a worker */
+    private long scan_deadline;
+
+    /** Lateness of previous scan in nanosecs, -1 if none */
+    private long last_lateness = -1;
+
+    /** Is a worker currently scanning this batch? */
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    /** Set when batch has been removed from its list */
+    private volatile boolean cancelled = false;
+
+    /** @param list List to which this batch belongs */
+    ScanBatch(final ScanList list)
+    {
+        this.list = list;
+    }
+
+    /** @return Number of items */
+    int size()
+    {
+        return items.length;
+    }
+
+    /** @param index Item index
+     *  @return Item
+     */
+    Runnable get(final int index)
+    {
+        return items[index];
+    }
+
+    /** @param item Item to add */
+    void add(final Runnable item)
+    {
+        final Runnable[] old = items;
+        final Runnable[] update = Arrays.copyOf(old, old.length + 1);
+        update[old.length] = item;
+        items = update;
+    }
+
+    /** @param item Item to remove
+     *  @return <code>true</code> if found and removed
+     */
+    boolean remove(final Runnable item)
+    {
+        final Runnable[] old = items;
+        for (int i=0; i<old.length; ++i)
+            if (old[i] == item)
+            {
+                final Runnable[] update = new Runnable[old.length - 1];
+                System.arraycopy(old, 0, update, 0, i);
+                System.arraycopy(old, i+1, update, i, old.length - i - 1);
+                items = update;
+                return true;
+            }
+        return false;
+    }
+
+    /** Mark as removed, ignore when next due */
+    void cancel()
+    {
+        cancelled = true;
+    }
+
+    /** @return <code>true</code> if batch has been removed */
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /** Prepare for scan by worker
+     *  @param deadline Deadline of the scan in System.nanoTime()
+     *  @return <code>true</code> if batch should be handed to worker,
+     *          <code>false</code> if still busy with the previous scan
+     */
+    boolean prepareScan(final long deadline)
+    {
+        if (! busy.compareAndSet(false, true))
+            return false;
+        scan_deadline = deadline;
+        return true;
+    }
+
+    /** Scan all items
+     *  @return Duration of the scan in nanosecs
+     */
+    long scan()
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            for (Runnable item : items)
+            {
+                try
+                {
+                    item.run();
+                }
+                catch (Throwable ex)
+                {
+                    logger.log(Level.SEVERE, list + " scan error", ex);
+                }
+            }
+            final long duration = System.nanoTime() - start;
+            final long lateness = start - scan_deadline;
+            list.updateStatistics(lateness, last_lateness < 0 ? 0 : Math.abs(lateness - last_lateness), duration);
+            last_lateness = lateness;
+            return duration;
+        }
+        finally
+        {
+            busy.set(false);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,64 +7,95 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.scanner;
 
-import static org.csstudio.archive.Engine.logger;
-
 import java.util.ArrayList;
-import java.util.logging.Level;
+import java.util.List;
+
+import org.csstudio.archive.engine.model.Average;
 
 /** A Scan list scans a list of channels at a given rate.
  *  <p>
  *  Only the {@link Scanner} is supposed to modify and scan
  *  the scan list, so many methods are package-scoped.
+ *  Items are kept in batches of limited size which the scanner
+ *  schedules and executes independently.
+ *  <p>
+ *  Statistics are updated by the threads that scan the batches,
+ *  so they lock on the scan list.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
-public class ScanList implements Scheduleable
+public class ScanList
 {
-    /** Scan period in seconds */
-    final private long scan_period_millis;
+    /** Maximum number of items per batch */
+    static final int BATCH_SIZE = 500;
+
+    /** Nanosecs per millisec */
+    private static final double NANO_PER_MILLI = 1e6;
+
+    /** Scan period in nanoseconds */
+    final private long scan_period_nanos;
+
+    /** Batches of items to scan, SYNC on Scanner */
+    final private List<ScanBatch> batches = new ArrayList<>();
+
+    /** Number of scanned batches */
+    private long scans = 0;
+
+    /** Number of scans that were skipped because the previous one was still running */
+    private long missed = 0;
+
+    /** Average lateness of batch scans in nanosecs */
+    private final Average lateness = new Average();
 
-    /** Items to scan */
-    final private ArrayList<Runnable> items = new ArrayList<>();
+    /** Maximum lateness of batch scans in nanosecs */
+    private long max_lateness = 0;
 
-    private long next_due_time = System.currentTimeMillis();
+    /** Average change of lateness between consecutive scans of a batch in nanosecs */
+    private final Average jitter = new Average();
+
+    /** Average duration of batch scans in nanosecs */
+    private final Average duration = new Average();
 
     /** Construct scan list.
      *  @param scan_period Scan period in seconds
      */
     public ScanList(final double scan_period)
     {
-        scan_period_millis = (long)(scan_period * 1000.0);
-        // Schedule initial run
-        next_due_time = System.currentTimeMillis() + scan_period_millis;
+        scan_period_nanos = (long)(scan_period * 1e9);
     }
 
     /** @return Scan period in seconds */
     public final double getPeriod()
     {
-        return scan_period_millis / 1000.0;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public boolean isDueAtAll()
-    {
-        return items.size() > 0;
+        return scan_period_nanos / 1e9;
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public long getNextDueTime()
+    /** @return Scan period in nanoseconds */
+    final long getPeriodNanos()
     {
-        if (items.size() == 0)
-            throw new Error(toString() + " never due");
-        return next_due_time;
+        return scan_period_nanos;
     }
 
-    /** Add an item to the scan list */
-    void add(final Runnable item)
+    /** Add an item to the scan list
+     *  @param item Item to add
+     *  @return Newly created batch that needs to be scheduled, or <code>null</code>
+     */
+    ScanBatch add(final Runnable item)
     {
-        items.add(item);
+        // Add to last batch if it has room
+        if (! batches.isEmpty())
+        {
+            final ScanBatch last = batches.get(batches.size() - 1);
+            if (last.size() < BATCH_SIZE)
+            {
+                last.add(item);
+                return null;
+            }
+        }
+        final ScanBatch batch = new ScanBatch(this);
+        batch.add(item);
+        batches.add(batch);
+        return batch;
     }
 
     /** Remove an item from the scan list.
@@ -72,43 +103,126 @@ public class ScanList implements Scheduleable
      */
     boolean remove(final Runnable item)
     {
-        return items.remove(item);
+        for (int i=0; i<batches.size(); ++i)
+        {
+            final ScanBatch batch = batches.get(i);
+            if (batch.remove(item))
+            {
+                if (batch.size() <= 0)
+                {
+                    batch.cancel();
+                    batches.remove(i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Cancel all batches */
+    void cancel()
+    {
+        for (ScanBatch batch : batches)
+            batch.cancel();
+    }
+
+    /** @return Batches of this list */
+    List<ScanBatch> getBatches()
+    {
+        return batches;
+    }
+
+    /** @return Number of batches */
+    public int getBatchCount()
+    {
+        return batches.size();
     }
 
     /** @return Number of items on scan list */
     public int size()
     {
-        return items.size();
+        int size = 0;
+        for (ScanBatch batch : batches)
+            size += batch.size();
+        return size;
     }
 
     /** @return Item with given index from the scan list */
-    public Runnable get(final int index)
+    public Runnable get(int index)
     {
-        return items.get(index);
+        for (ScanBatch batch : batches)
+        {
+            if (index < batch.size())
+                return batch.get(index);
+            index -= batch.size();
+        }
+        throw new IndexOutOfBoundsException("No item " + index + " in " + this);
     }
 
-    /** Scan all items on this scan list.
-     *  Doesn't care if they're due or not,
-     *  that's up to the code that invokes this.
+    /** @param lateness Time in nanosecs between deadline and start of scan
+     *  @param change Change of lateness since previous scan of the batch
+     *  @param time Duration of the scan in nanosecs
      */
-    void scanItems()
+    synchronized void updateStatistics(final long lateness, final long change, final long time)
     {
-        final long start = System.currentTimeMillis();
-        // Scan all items
-        for (Runnable item : items)
-        {
-            try
-            {
-                item.run();
-            }
-            catch (Throwable ex)
-            {
-                logger.log(Level.SEVERE, toString() + " scan error", ex);
-            }
-        }
-        // Determine next due time relative to start,
-        // swallowing the time used to scan the items.
-        next_due_time = start + scan_period_millis;
+        ++scans;
+        this.lateness.update(lateness);
+        max_lateness = Math.max(max_lateness, lateness);
+        jitter.update(change);
+        duration.update(time);
+    }
+
+    /** @param count Number of missed scans to add */
+    synchronized void addMissed(final long count)
+    {
+        missed += count;
+    }
+
+    /** @return Number of batch scans */
+    public synchronized long getScanCount()
+    {
+        return scans;
+    }
+
+    /** @return Number of batch scans that were skipped because the scan threads fell behind */
+    public synchronized long getMissedScans()
+    {
+        return missed;
+    }
+
+    /** @return Average lateness of a scan in millisecs */
+    public synchronized double getAverageLateness()
+    {
+        return lateness.get() / NANO_PER_MILLI;
+    }
+
+    /** @return Maximum lateness of a scan in millisecs */
+    public synchronized double getMaxLateness()
+    {
+        return max_lateness / NANO_PER_MILLI;
+    }
+
+    /** @return Average change of lateness between scans in millisecs */
+    public synchronized double getJitter()
+    {
+        return jitter.get() / NANO_PER_MILLI;
+    }
+
+    /** @return Average duration of a batch scan in millisecs */
+    public synchronized double getAverageDuration()
+    {
+        return duration.get() / NANO_PER_MILLI;
+    }
+
+    /** Reset statistics */
+    public synchronized void reset()
+    {
+        scans = 0;
+        missed = 0;
+        lateness.reset();
+        max_lateness = 0;
+        jitter.reset();
+        duration.reset();
     }
 
     @Override
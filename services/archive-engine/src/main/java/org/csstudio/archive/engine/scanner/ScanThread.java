@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,9 @@ import static org.csstudio.archive.Engine.logger;
 import java.util.logging.Level;
 
 /** Thread that runs a Scanner.
+ *  <p>
+ *  Starts the scanner's worker threads,
+ *  and when stopped waits for them to finish.
  *  @author Kay Kasemir
  */
 public class ScanThread implements Runnable
@@ -52,10 +55,12 @@ public class ScanThread implements Runnable
     {
         logger.info("Scan Thread runs");
         do_run = true;
+        scanner.start();
         while (do_run)
         {
             scanner.scanOnce();
         }
+        scanner.stop();
         logger.info("Scan Thread ends");
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,59 +10,85 @@ package org.csstudio.archive.engine.scanner;
 import static org.csstudio.archive.Engine.logger;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.csstudio.archive.engine.model.Average;
 
 /** Helper for scanning something.
  *  <p>
- *  Places runnable items on scan lists,
- *  determines how long to wait to the scan next.
+ *  Places runnable items on scan lists, one per scan period.
+ *  Each scan list is divided into batches.
+ *  A timer wheel determines which batches are due,
+ *  and the due batches are then scanned by a pool of worker threads.
+ *  <p>
+ *  Deadlines advance by the scan period,
+ *  independent of when a batch was actually scanned,
+ *  so delays do not accumulate.
+ *  The batches of a scan list are spread over the scan period.
+ *  When a batch is still being scanned by a worker as it becomes due again,
+ *  that scan is skipped and counted as 'missed'.
  *  @author Kay Kasemir
  */
-public class Scanner implements Scheduleable
+@SuppressWarnings("nls")
+public class Scanner
 {
     /** Granularity in seconds for the supported lists. */
     final private static double GRANULARITY = 0.1;
 
-    /** Default idle delay */
-    final private static long DEFAULT_IDLE_DELAY = 500;
+    /** Timer wheel tick */
+    final private static long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** Timer wheel slots, one turn of the wheel covers 5 seconds */
+    final private static int WHEEL_SLOTS = 512;
+
+    /** Period for updating the idle percentage */
+    final private static long IDLE_UPDATE_NANOS = TimeUnit.SECONDS.toNanos(1);
 
-    /** Time to wait in system millis when nothing to do */
-    final private long idle_delay;
+    /** Number of worker threads */
+    final private int threads;
 
     /** All the single-period scan lists.
      *  <p>
-     *  Note that we don't keep empty lists around,
-     *  so every list should have a valid 'due time'.
+     *  Note that we don't keep empty lists around.
+     *  <p>
+     *  SYNC on this
      */
     final private ArrayList<ScanList> lists = new ArrayList<>();
 
-    /** Next due time in system millis */
-    private long next_due_time;
+    /** Timer wheel for due batches while scanner runs, otherwise <code>null</code>. SYNC on this */
+    private TimerWheel<ScanBatch> wheel = null;
+
+    /** Workers that scan the batches */
+    private ExecutorService workers = null;
+
+    /** Nanosecs spent by workers since last idle update */
+    final private AtomicLong busy_nanos = new AtomicLong();
+
+    /** Time of last idle update in System.nanoTime() */
+    private long idle_update;
 
     /** Average idle time in percent. */
     final private Average idle_percentage = new Average();
 
     /** Construct scanner
-     *  @param idle_delay Time to wait in system millis when nothing to do
+     *  @param threads Number of worker threads
      */
-    public Scanner(final long idle_delay)
-    {
-        this.idle_delay = idle_delay;
-    }
-
-    /** Construct scanner with default idle delay */
-    public Scanner()
+    public Scanner(final int threads)
     {
-        this(DEFAULT_IDLE_DELAY);
+        this.threads = Math.max(1, threads);
     }
 
     /** Add an item to the scanner, placing it on a suitable scan list.
      *  @param item Item to scan
      *  @param period Scan period in seconds
      */
-    public void add(final Runnable item, final double period)
+    public synchronized void add(final Runnable item, final double period)
     {
         // Avoid duplicates by removing what might be there
         remove(item);
@@ -84,12 +110,17 @@ public class Scanner implements Scheduleable
             lists.add(the_list);
         }
         // Add item to list
-        the_list.add(item);
-        computeDueTime();
+        final ScanBatch new_batch = the_list.add(item);
+        // When running, schedule new batch
+        if (new_batch != null  &&  wheel != null)
+        {
+            new_batch.deadline = System.nanoTime() + the_list.getPeriodNanos();
+            wheel.schedule(new_batch, new_batch.deadline);
+        }
     }
 
     /** Remove an item from the scanner */
-    public void remove(final Runnable item)
+    public synchronized void remove(final Runnable item)
     {
         // Brute-force remove from all lists,
         // stopping as soon as item was found
@@ -97,74 +128,97 @@ public class Scanner implements Scheduleable
             if (list.remove(item))
             {
                 // If this leaves an empty list, remove it.
-                if (! list.isDueAtAll())
+                if (list.getBatchCount() <= 0)
                     lists.remove(list);
                 return;
             }
     }
 
     /** Remove all items from this scanner */
-    public void clear()
+    public synchronized void clear()
     {
+        for (ScanList list : lists)
+            list.cancel();
         lists.clear();
+        if (wheel != null)
+            wheel.clear();
     }
 
     /** @return Number of scan lists. */
-    public long size()
+    public synchronized long size()
     {
         return lists.size();
     }
 
     /** @return One of the scan lists. */
-    public ScanList get(final int index)
+    public synchronized ScanList get(final int index)
     {
         return lists.get(index);
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public boolean isDueAtAll()
-    {
-        return lists.size() > 0;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public long getNextDueTime()
+    /** @return Scan lists */
+    public synchronized List<ScanList> getScanLists()
     {
-        if (lists.size() == 0)
-            throw new Error("Scanner never due"); //$NON-NLS-1$
-        return next_due_time;
+        return new ArrayList<>(lists);
     }
 
-    /** Scan all the scan lists which are currently due */
-    void scanDueScanLists()
+    /** Start the worker threads and schedule all batches */
+    void start()
     {
-        final long now = System.currentTimeMillis();
-        next_due_time = Long.MAX_VALUE;
-        for (ScanList list : lists)
-        {   // Scan (run) what's due now, and update the next due time
-            if (list.getNextDueTime() <= now)
-                list.scanItems();
-            // Update the next due time - which could change in run()
-            if (list.getNextDueTime() < next_due_time)
-                next_due_time = list.getNextDueTime();
+        final AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "ScanWorker" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long now = System.nanoTime();
+        idle_update = now;
+        busy_nanos.set(0);
+        synchronized (this)
+        {
+            wheel = new TimerWheel<>(TICK_NANOS, WHEEL_SLOTS, now);
+            for (ScanList list : lists)
+            {   // Spread batches over the scan period
+                final List<ScanBatch> batches = list.getBatches();
+                final long period = list.getPeriodNanos();
+                for (int i=0; i<batches.size(); ++i)
+                {
+                    final ScanBatch batch = batches.get(i);
+                    batch.deadline = now + period * (i+1) / batches.size();
+                    wheel.schedule(batch, batch.deadline);
+                }
+            }
         }
     }
 
-    /** Compute the next due time */
-    private void computeDueTime()
+    /** Stop scanning, wait for workers to finish */
+    void stop()
     {
-        next_due_time = Long.MAX_VALUE;
-        for (ScanList list : lists)
-            next_due_time = Math.min(list.getNextDueTime(), next_due_time);
+        synchronized (this)
+        {
+            wheel = null;
+        }
+        if (workers == null)
+            return;
+        workers.shutdown();
+        try
+        {
+            if (! workers.awaitTermination(30, TimeUnit.SECONDS))
+                logger.log(Level.WARNING, "Scan workers did not finish");
+        }
+        catch (InterruptedException ex)
+        {
+            logger.log(Level.WARNING, "Scanner interrupted while stopping", ex);
+        }
+        workers = null;
     }
 
     /** Average idle time in percent.
      *  <p>
-     *  100 means: Nothing to do, always waiting.<br>
-     *   50 means: using about half the allocated time for the scan<br>
-     *    0 means: Busy all the time, actually missing scans<br>
+     *  100 means: Nothing to do, worker threads always waiting.<br>
+     *   50 means: using about half the worker thread time for scans<br>
+     *    0 means: Busy all the time, likely missing scans<br>
      */
     public double getIdlePercentage()
     {
@@ -175,41 +229,76 @@ public class Scanner implements Scheduleable
     public void reset()
     {
         idle_percentage.reset();
+        for (ScanList list : getScanLists())
+            list.reset();
     }
 
-    /** Perform one scan: Wait for the next scan, perform it. */
+    /** Perform one scan: Wait for the next tick, hand due batches to workers. */
     public void scanOnce()
     {
         try
         {
-            if (isDueAtAll())
+            final long next;
+            synchronized (this)
             {
-                final long delay = getNextDueTime() - System.currentTimeMillis();
-                if (delay > idle_delay)
-                {   // Nothing due within idle time
-                    idle_percentage.update(100.0);
-                    Thread.sleep(idle_delay);
-                    return;
-                }
-                if (delay > 0)
-                {   // Need to wait a little, then run scan
-                    idle_percentage.update(delay*100.0/idle_delay);
-                    Thread.sleep(delay);
-                    scanDueScanLists();
-                    return;
-                }
-                // High noon
-                idle_percentage.update(0.0);
-                scanDueScanLists();
-                return;
+                if (wheel == null)
+                    throw new IllegalStateException("Scanner is not running");
+                next = wheel.getNextTickTime();
+            }
+            final long delay = next - System.nanoTime();
+            if (delay > 0)
+                TimeUnit.NANOSECONDS.sleep(delay);
+            final long now = System.nanoTime();
+            synchronized (this)
+            {
+                wheel.expire(now, batch -> dispatch(batch, now));
             }
-            // Nothing to do, ever. Just wait.
-            idle_percentage.update(100.0);
-            Thread.sleep(idle_delay);
+            updateIdle(now);
         }
         catch (InterruptedException ex)
         {
             logger.log(Level.WARNING, "Scanner interrupted", ex); //$NON-NLS-1$
         }
     }
+
+    /** Re-schedule due batch and hand it to a worker
+     *  @param batch Batch that's due
+     *  @param now Current time in System.nanoTime()
+     */
+    private void dispatch(final ScanBatch batch, final long now)
+    {
+        if (batch.isCancelled())
+            return;
+        final ScanList list = batch.list;
+        final long period = list.getPeriodNanos();
+        final long deadline = batch.deadline;
+
+        // Next deadline is one period after this one,
+        // skipping periods that have already passed
+        long next = deadline + period;
+        if (next <= now)
+        {
+            final long skipped = (now - next) / period + 1;
+            list.addMissed(skipped);
+            next += skipped * period;
+        }
+        batch.deadline = next;
+        wheel.schedule(batch, next);
+
+        if (batch.prepareScan(deadline))
+            workers.execute(() -> busy_nanos.addAndGet(batch.scan()));
+        else
+            list.addMissed(1);
+    }
+
+    /** @param now Current time in System.nanoTime() */
+    private void updateIdle(final long now)
+    {
+        final long elapsed = now - idle_update;
+        if (elapsed < IDLE_UPDATE_NANOS)
+            return;
+        final double busy = busy_nanos.getAndSet(0) / (double) (elapsed * threads);
+        idle_percentage.update(Math.max(0.0, 100.0 * (1.0 - busy)));
+        idle_update = now;
+    }
 }
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Hashed timer wheel
+ *
+ *  <p>Time is divided into ticks.
+ *  Items are placed in the slot for the tick of their deadline,
+ *  modulo the number of slots.
+ *  Advancing the wheel by one tick only needs to inspect one slot,
+ *  no matter how many items are scheduled overall.
+ *  Items with deadlines beyond one turn of the wheel remain
+ *  in their slot until the wheel comes around to their tick.
+ *
+ *  <p>Not thread-safe, caller needs to synchronize.
+ *
+ *  @param <T> Item type
+ *  @author Kay Kasemir
+ */
+class TimerWheel<T>
+{
+    /** Item with its deadline tick */
+    private static class Entry<T>
+    {
+        final T item;
+        final long tick;
+
+        Entry(final T item, final long tick)
+        {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+
+    /** Nanosecs per tick */
+    private final long tick_nanos;
+
+    /** Time of tick 0 in System.nanoTime() */
+    private final long start;
+
+    private final List<List<Entry<T>>> slots;
+
+    /** Next tick to expire */
+    private long tick = 0;
+
+    /** Number of scheduled items */
+    private int size = 0;
+
+    /** @param tick_nanos Duration of one tick in nanosecs
+     *  @param slot_count Number of slots
+     *  @param start Time of the initial tick in System.nanoTime()
+     */
+    TimerWheel(final long tick_nanos, final int slot_count, final long start)
+    {
+        this.tick_nanos = tick_nanos;
+        this.start = start;
+        slots = new ArrayList<>(slot_count);
+        for (int i=0; i<slot_count; ++i)
+            slots.add(new ArrayList<>());
+    }
+
+    /** @return Number of scheduled items */
+    int size()
+    {
+        return size;
+    }
+
+    /** @return Time of the next tick in System.nanoTime() */
+    long getNextTickTime()
+    {
+        return start + tick * tick_nanos;
+    }
+
+    /** @param item Item to schedule
+     *  @param deadline Time in System.nanoTime() when item is due.
+     *                  Past deadlines are due on the next tick.
+     */
+    void schedule(final T item, final long deadline)
+    {
+        // Round up, so item is never expired before its deadline
+        long item_tick = Math.floorDiv(deadline - start + tick_nanos - 1, tick_nanos);
+        if (item_tick < tick)
+            item_tick = tick;
+        slots.get((int) (item_tick % slots.size())).add(new Entry<>(item, item_tick));
+        ++size;
+    }
+
+    /** Expire all ticks up to the given time
+     *  @param now Time in System.nanoTime()
+     *  @param due Called for each item that's due
+     */
+    void expire(final long now, final Consumer<T> due)
+    {
+        final List<T> expired = new ArrayList<>();
+        while (getNextTickTime() <= now)
+        {
+            final List<Entry<T>> slot = slots.get((int) (tick % slots.size()));
+            // Remove due entries, keep those for a later turn of the wheel
+            slot.removeIf(entry ->
+            {
+                if (entry.tick > tick)
+                    return false;
+                expired.add(entry.item);
+                return true;
+            });
+            ++tick;
+        }
+        size -= expired.size();
+        // Items may re-schedule themselves while being handled
+        for (T item : expired)
+            due.accept(item);
+    }
+
+    /** Remove all items */
+    void clear()
+    {
+        for (List<Entry<T>> slot : slots)
+            slot.clear();
+        size = 0;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2018-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@ package org.csstudio.archive.engine.server;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -21,6 +22,8 @@ import org.csstudio.archive.Preferences;
 import org.csstudio.archive.engine.model.ArchiveGroup;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.SampleBuffer;
+import org.csstudio.archive.engine.model.WriteThread;
+import org.csstudio.archive.engine.scanner.ScanList;
 import org.csstudio.archive.writer.rdb.TimestampHelper;
 import org.phoebus.util.time.SecondsParser;
 import org.phoebus.util.time.TimeDuration;
@@ -95,6 +98,39 @@ public class MainServlet extends HttpServlet
             jg.writeNumberField(Messages.HTTP_WriteDuration, model.getWriteDuration());
             jg.writeNumberField(Messages.HTTP_Idletime, model.getIdlePercentage());
 
+            jg.writeArrayFieldStart(Messages.HTTP_WriteThreads);
+            for (WriteThread writer : model.getWriters())
+            {
+                final Instant last = writer.getLastWriteTime();
+                jg.writeStartObject();
+                jg.writeNumberField(Messages.HTTP_WriteThread, writer.getIndex());
+                jg.writeNumberField(Messages.HTTP_ChannelCount, writer.getChannelCount());
+                jg.writeStringField(Messages.HTTP_WriteState, writer.isInErrorState() ? Messages.HTTP_WriteError : "OK");
+                jg.writeStringField(Messages.HTTP_LastWriteTime, last == null ? "Never" : TimestampHelper.format(last));
+                jg.writeNumberField(Messages.HTTP_WriteCount, writer.getWriteCount());
+                jg.writeNumberField(Messages.HTTP_WriteDuration, writer.getWriteDuration());
+                jg.writeNumberField(Messages.HTTP_FullestBuffer, writer.getMaxFill() * 100.0);
+                jg.writeEndObject();
+            }
+            jg.writeEndArray();
+
+            jg.writeArrayFieldStart(Messages.HTTP_ScanLists);
+            for (ScanList list : model.getScanLists())
+            {
+                jg.writeStartObject();
+                jg.writeNumberField(Messages.HTTP_ScanPeriod, list.getPeriod());
+                jg.writeNumberField(Messages.HTTP_ChannelCount, list.size());
+                jg.writeNumberField(Messages.HTTP_ScanBatches, list.getBatchCount());
+                jg.writeNumberField(Messages.HTTP_Scans, list.getScanCount());
+                jg.writeNumberField(Messages.HTTP_MissedScans, list.getMissedScans());
+                jg.writeNumberField(Messages.HTTP_Lateness, list.getAverageLateness());
+                jg.writeNumberField(Messages.HTTP_MaxLateness, list.getMaxLateness());
+                jg.writeNumberField(Messages.HTTP_Jitter, list.getJitter());
+                jg.writeNumberField(Messages.HTTP_ScanDuration, list.getAverageDuration());
+                jg.writeEndObject();
+            }
+            jg.writeEndArray();
+
             final Runtime runtime = Runtime.getRuntime();
             final double used_mem = runtime.totalMemory() / MB;
             final double max_mem = runtime.maxMemory() / MB;
@@ -150,6 +186,57 @@ public class MainServlet extends HttpServlet
             html.tableLine("Memory", String.format("%.1f MB of %.1f MB used (%.1f %%)", used_mem, max_mem, perc_mem));
 
             html.closeTable();
+
+            if (model.getWriters().size() > 1)
+            {
+                html.openTable(1, Messages.HTTP_WriteThread,
+                               Messages.HTTP_ChannelCount,
+                               Messages.HTTP_WriteState,
+                               Messages.HTTP_LastWriteTime,
+                               Messages.HTTP_WriteCount,
+                               Messages.HTTP_WriteDuration,
+                               Messages.HTTP_FullestBuffer);
+                for (WriteThread writer : model.getWriters())
+                {
+                    final Instant last = writer.getLastWriteTime();
+                    html.tableLine(Integer.toString(writer.getIndex()),
+                                   Integer.toString(writer.getChannelCount()),
+                                   writer.isInErrorState() ? HTMLWriter.makeRedText(Messages.HTTP_WriteError) : "OK",
+                                   last == null ? "Never" : TimestampHelper.format(last),
+                                   (int) writer.getWriteCount() + " samples",
+                                   String.format("%.1f sec", writer.getWriteDuration()),
+                                   String.format("%.1f %%", writer.getMaxFill() * 100.0));
+                }
+                html.closeTable();
+            }
+
+            final List<ScanList> scan_lists = model.getScanLists();
+            if (! scan_lists.isEmpty())
+            {
+                html.openTable(1, Messages.HTTP_ScanPeriod,
+                               Messages.HTTP_ChannelCount,
+                               Messages.HTTP_ScanBatches,
+                               Messages.HTTP_Scans,
+                               Messages.HTTP_MissedScans,
+                               Messages.HTTP_Lateness,
+                               Messages.HTTP_MaxLateness,
+                               Messages.HTTP_Jitter,
+                               Messages.HTTP_ScanDuration);
+                for (ScanList list : scan_lists)
+                {
+                    final long missed = list.getMissedScans();
+                    html.tableLine(list.getPeriod() + " sec",
+                                   Integer.toString(list.size()),
+                                   Integer.toString(list.getBatchCount()),
+                                   Long.toString(list.getScanCount()),
+                                   missed > 0 ? HTMLWriter.makeRedText(Long.toString(missed)) : "0",
+                                   String.format("%.1f ms", list.getAverageLateness()),
+                                   String.format("%.1f ms", list.getMaxLateness()),
+                                   String.format("%.1f ms", list.getJitter()),
+                                   String.format("%.1f ms", list.getAverageDuration()));
+                }
+                html.closeTable();
+            }
             html.close();
         }
     }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010-2018 Oak Ridge National Laboratory.
+ * Copyright (c) 2010-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ public class Messages
     final public static String HTTP_ChannelCount = "Channels";
     final public static String HTTP_ChannelInfo = "Channel Info";
     final public static String HTTP_Channels = "Channels";
+    final public static String HTTP_FullestBuffer = "Fullest Buffer";
     final public static String HTTP_Connected = "Connected";
     final public static String HTTP_Description = "Description";
     final public static String HTTP_Disabled = "Disabled";
@@ -30,6 +31,10 @@ public class Messages
     final public static String HTTP_Group = "Group";
     final public static String HTTP_GroupCount = "Groups";
     final public static String HTTP_Host = "HTTP Server";
+    final public static String HTTP_Jitter = "Jitter";
+    final public static String HTTP_Lateness = "Avg. Lateness";
+    final public static String HTTP_MaxLateness = "Max. Lateness";
+    final public static String HTTP_MissedScans = "Missed Scans";
     final public static String HTTP_Idletime = "Idle Time";
     final public static String HTTP_InternalState = "Internal State";
     final public static String HTTP_CurrentValue = "Current Value";
@@ -44,6 +49,11 @@ public class Messages
     final public static String HTTP_QueueCapacity = "Capacity";
     final public static String HTTP_QueueOverruns = "Overruns";
     final public static String HTTP_ReceivedValues = "Received Values";
+    final public static String HTTP_ScanBatches = "Batches";
+    final public static String HTTP_ScanDuration = "Scan Duration";
+    final public static String HTTP_ScanLists = "Scan Lists";
+    final public static String HTTP_ScanPeriod = "Scan Period";
+    final public static String HTTP_Scans = "Scans";
     final public static String HTTP_StartTime = "Start Time";
     final public static String HTTP_State = "State";
     final public static String HTTP_Status = "Status";
@@ -56,4 +66,6 @@ public class Messages
     final public static String HTTP_WriteError = "Write Error";
     final public static String HTTP_WritePeriod = "Write Period";
     final public static String HTTP_WriteState = "Write State";
+    final public static String HTTP_WriteThread = "Write Thread";
+    final public static String HTTP_WriteThreads = "Write Threads";
 }
@@ -8,6 +8,7 @@
 package org.csstudio.archive.writer;
 
 import org.csstudio.archive.Preferences;
+import org.csstudio.archive.writer.columnar.ColumnarArchiveWriter;
 import org.csstudio.archive.writer.rdb.RDBArchiveWriter;
 
 /** Factory for obtaining an {@link ArchiveWriter}
@@ -21,7 +22,9 @@ public class ArchiveWriterFactory
      */
     public static ArchiveWriter getArchiveWriter() throws Exception
     {
-        // XXX Use SPI when there's more than one implementation.
+        // XXX Use SPI when there are more implementations.
+        if (Preferences.url.startsWith(ColumnarArchiveWriter.PREFIX))
+            return new ColumnarArchiveWriter(Preferences.url);
         return new RDBArchiveWriter(Preferences.url, Preferences.user, Preferences.password, Preferences.schema, Preferences.use_array_blob);
     }
 }
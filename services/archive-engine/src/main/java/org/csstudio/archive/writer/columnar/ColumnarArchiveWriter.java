@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.columnar;
+
+import static org.csstudio.archive.Engine.logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import org.csstudio.archive.writer.ArchiveWriter;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VByteArray;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VType;
+import org.phoebus.framework.columnar.ColumnarBlock;
+import org.phoebus.framework.columnar.ColumnarBlockEncoder;
+import org.phoebus.framework.columnar.ColumnarMetaData;
+import org.phoebus.framework.columnar.ColumnarStorage;
+import org.phoebus.pv.LongString;
+
+/** ArchiveWriter implementation for columnar files
+ *
+ *  <p>Writes samples into per-channel, per-day partition files
+ *  below a root directory, see {@link ColumnarStorage}.
+ *  Does not require a relational database.
+ *  Samples are compressed into blocks which are appended to the
+ *  partition files on {@link #flush()}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarArchiveWriter implements ArchiveWriter
+{
+    /** URL prefix, followed by the root directory of the archive */
+    public static final String PREFIX = "columnar:";
+
+    private final ColumnarStorage storage;
+
+    /** Channels by name */
+    private final Map<String, ColumnarWriteChannel> channels = new HashMap<>();
+
+    /** Initialize
+     *  @param url "columnar:/path/to/archive"
+     *  @throws Exception on error, for example root directory cannot be created
+     */
+    public ColumnarArchiveWriter(final String url) throws Exception
+    {
+        if (! url.startsWith(PREFIX))
+            throw new Exception("Expected '" + PREFIX + "..' URL, got '" + url + "'");
+        final Path root = Paths.get(url.substring(PREFIX.length()));
+        Files.createDirectories(root);
+        storage = new ColumnarStorage(root);
+        logger.log(Level.INFO, "Columnar archive in " + root.toAbsolutePath());
+    }
+
+    @Override
+    public WriteChannel getChannel(final String name) throws Exception
+    {
+        // Any channel name is OK, its directory is created when samples are written
+        return channels.computeIfAbsent(name, ColumnarWriteChannel::new);
+    }
+
+    @Override
+    public void addSample(final WriteChannel channel, final VType sample) throws Exception
+    {
+        final ColumnarWriteChannel col_channel = (ColumnarWriteChannel) channel;
+        final long time = getTimestamp(sample);
+        final Alarm alarm = Alarm.alarmOf(sample);
+        final int severity = alarm == null ? 0 : alarm.getSeverity().ordinal();
+        final int status = alarm == null ? 0 : alarm.getStatus().ordinal();
+        final String message = alarm == null ? "" : alarm.getName();
+
+        // Same order of types as RDBArchiveWriter
+        if (sample instanceof VDouble)
+            getBlock(col_channel, ColumnarBlock.DOUBLE, sample, time).addDouble(time, severity, status, message, ((VDouble)sample).getValue());
+        else if (sample instanceof VFloat)
+            getBlock(col_channel, ColumnarBlock.DOUBLE, sample, time).addDouble(time, severity, status, message, ((VFloat)sample).getValue());
+        else if (sample instanceof VNumber)
+        {
+            final Number number = ((VNumber)sample).getValue();
+            if (number instanceof Double  ||  number instanceof Float)
+                getBlock(col_channel, ColumnarBlock.DOUBLE, sample, time).addDouble(time, severity, status, message, number.doubleValue());
+            else
+                getBlock(col_channel, ColumnarBlock.LONG, sample, time).addLong(time, severity, status, message, number.longValue());
+        }
+        else if (sample instanceof VByteArray)
+            getBlock(col_channel, ColumnarBlock.STRING, sample, time).addString(time, severity, status, message, LongString.fromArray((VByteArray)sample));
+        else if (sample instanceof VNumberArray)
+        {
+            final ListNumber data = ((VNumberArray)sample).getData();
+            final double[] array = new double[data.size()];
+            for (int i=0; i<array.length; ++i)
+                array[i] = data.getDouble(i);
+            getBlock(col_channel, ColumnarBlock.DOUBLE_ARRAY, sample, time).addArray(time, severity, status, message, array);
+        }
+        else if (sample instanceof VEnum)
+            getBlock(col_channel, ColumnarBlock.LONG, sample, time).addLong(time, severity, status, message, ((VEnum)sample).getIndex());
+        else if (sample instanceof VString)
+            getBlock(col_channel, ColumnarBlock.STRING, sample, time).addString(time, severity, status, message, ((VString)sample).getValue());
+        else if (sample instanceof VStringArray)
+        {
+            // Store as comma-separated elements, omitting blank elements
+            final String text = ((VStringArray) sample).getData()
+                                                       .stream()
+                                                       .filter(element -> ! element.isBlank())
+                                                       .collect(Collectors.joining(", "));
+            getBlock(col_channel, ColumnarBlock.STRING, sample, time).addString(time, severity, status, message, text);
+        }
+        else // Handle possible other types as strings
+            getBlock(col_channel, ColumnarBlock.STRING, sample, time).addString(time, severity, status, message, sample.toString());
+    }
+
+    /** @param value Sample
+     *  @return Epoch nanosecs of the sample, or now if sample has no valid time stamp
+     */
+    private static long getTimestamp(final VType value)
+    {
+        final Time time = Time.timeOf(value);
+        final Instant stamp = (time != null  &&  time.isValid()) ? time.getTimestamp() : Instant.now();
+        return stamp.getEpochSecond() * 1000000000L + stamp.getNano();
+    }
+
+    private static ColumnarBlockEncoder getBlock(final ColumnarWriteChannel channel, final byte type,
+                                                 final VType sample, final long time) throws Exception
+    {
+        return channel.getBlock(type, getMetaData(channel, type, sample), time);
+    }
+
+    /** @param channel Channel
+     *  @param type Value type
+     *  @param sample Sample
+     *  @return Meta data for the sample
+     */
+    private static ColumnarMetaData getMetaData(final ColumnarWriteChannel channel, final byte type, final VType sample)
+    {
+        // Text has no meta data
+        if (type == ColumnarBlock.STRING)
+            return ColumnarMetaData.EMPTY;
+
+        final Display display = Display.displayOf(sample);
+        if (display != null)
+        {
+            ColumnarMetaData meta = channel.getCachedMetaData(display);
+            if (meta == null)
+            {
+                final NumberFormat format = display.getFormat();
+                meta = ColumnarMetaData.numeric(display.getUnit() == null ? "" : display.getUnit(),
+                                                format == null ? 0 : format.getMinimumFractionDigits(),
+                                                display.getDisplayRange().getMinimum(),
+                                                display.getDisplayRange().getMaximum(),
+                                                display.getWarningRange().getMinimum(),
+                                                display.getWarningRange().getMaximum(),
+                                                display.getAlarmRange().getMinimum(),
+                                                display.getAlarmRange().getMaximum());
+                channel.setCachedMetaData(display, meta);
+            }
+            return meta;
+        }
+        if (sample instanceof VEnum)
+        {
+            final EnumDisplay labels = ((VEnum)sample).getDisplay();
+            ColumnarMetaData meta = channel.getCachedMetaData(labels);
+            if (meta == null)
+            {
+                meta = ColumnarMetaData.enumerated(labels.getChoices());
+                channel.setCachedMetaData(labels, meta);
+            }
+            return meta;
+        }
+        return ColumnarMetaData.EMPTY;
+    }
+
+    @Override
+    public void flush() throws Exception
+    {
+        Exception error = null;
+        for (ColumnarWriteChannel channel : channels.values())
+        {
+            try
+            {
+                channel.flush(storage);
+            }
+            catch (Exception ex)
+            {
+                // Try the remaining channels, then report the first error
+                if (error == null)
+                    error = new Exception("Cannot write samples for " + channel.getName(), ex);
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    @Override
+    public void close()
+    {
+        channels.clear();
+    }
+}
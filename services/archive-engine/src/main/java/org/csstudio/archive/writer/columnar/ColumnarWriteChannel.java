@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.columnar;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.archive.writer.WriteChannel;
+import org.phoebus.framework.columnar.ColumnarBlockEncoder;
+import org.phoebus.framework.columnar.ColumnarMetaData;
+import org.phoebus.framework.columnar.ColumnarStorage;
+
+/** Channel in columnar file archive
+ *
+ *  <p>Accumulates samples in a block,
+ *  keeps encoded blocks until they are appended to the partition files.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarWriteChannel implements WriteChannel
+{
+    private final String name;
+
+    /** Block that receives samples, or <code>null</code> */
+    private ColumnarBlockEncoder block = null;
+
+    /** Partition date of current block */
+    private LocalDate block_date = null;
+
+    /** Encoded blocks by partition date */
+    private final Map<LocalDate, List<byte[]>> pending = new LinkedHashMap<>();
+
+    /** Last display meta data and its columnar representation */
+    private Object last_display = null;
+    private ColumnarMetaData last_meta = ColumnarMetaData.EMPTY;
+
+    /** @param name Channel name */
+    public ColumnarWriteChannel(final String name)
+    {
+        this.name = name;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /** @param display Display or enum labels of a sample
+     *  @return Cached meta data if display is the same as last time, else <code>null</code>
+     */
+    ColumnarMetaData getCachedMetaData(final Object display)
+    {
+        return display == last_display ? last_meta : null;
+    }
+
+    /** @param display Display or enum labels of a sample
+     *  @param meta Meta data for that display
+     */
+    void setCachedMetaData(final Object display, final ColumnarMetaData meta)
+    {
+        last_display = display;
+        last_meta = meta;
+    }
+
+    /** Get block for adding a sample
+     *
+     *  <p>Starts a new block when the current one is full,
+     *  or has a different value type, meta data or partition.
+     *
+     *  @param type Value type
+     *  @param meta Meta data
+     *  @param time Epoch nanosecs of the sample
+     *  @return Block to which sample can be added
+     *  @throws IOException on error
+     */
+    ColumnarBlockEncoder getBlock(final byte type, final ColumnarMetaData meta, final long time) throws IOException
+    {
+        final LocalDate date = ColumnarStorage.getPartitionDate(time);
+        if (block != null  &&
+            (block.isFull()  ||  block.getType() != type  ||
+             !date.equals(block_date)  ||  !block.getMetaData().equals(meta)))
+            finishBlock();
+        if (block == null)
+        {
+            block = new ColumnarBlockEncoder(type, meta);
+            block_date = date;
+        }
+        return block;
+    }
+
+    /** Encode current block, add it to pending blocks
+     *  @throws IOException on error
+     */
+    private void finishBlock() throws IOException
+    {
+        if (block == null)
+            return;
+        if (block.getCount() > 0)
+            pending.computeIfAbsent(block_date, date -> new ArrayList<>()).add(block.encode());
+        block = null;
+        block_date = null;
+    }
+
+    /** Append all samples to the storage
+     *
+     *  <p>Samples that could not be appended
+     *  are kept and tried again on the next call.
+     *
+     *  @param storage {@link ColumnarStorage}
+     *  @throws IOException on error
+     */
+    void flush(final ColumnarStorage storage) throws IOException
+    {
+        finishBlock();
+        // Remove each partition once it has been appended.
+        // On error, the failed and all following partitions remain
+        // pending for the next flush.
+        // Storage removes a partially written block, so nothing is written twice.
+        final Iterator<Map.Entry<LocalDate, List<byte[]>>> partitions = pending.entrySet().iterator();
+        while (partitions.hasNext())
+        {
+            final Map.Entry<LocalDate, List<byte[]>> partition = partitions.next();
+            storage.append(name, partition.getKey(), partition.getValue());
+            partitions.remove();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "ColumnarWriteChannel '" + name + "'";
+    }
+}
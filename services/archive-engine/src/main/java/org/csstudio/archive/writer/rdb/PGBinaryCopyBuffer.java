@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/** Buffer for PostgreSQL 'COPY .. FROM STDIN WITH BINARY' data
+ *
+ *  <p>Rows are appended to a byte array that is re-used
+ *  from one batch to the next.
+ *  All numbers use network byte order.
+ *
+ *  <p>See <a href="https://www.postgresql.org/docs/current/sql-copy.html">
+ *  https://www.postgresql.org/docs/current/sql-copy.html</a>,
+ *  'Binary Format'.
+ *
+ *  @author Kay Kasemir
+ */
+class PGBinaryCopyBuffer
+{
+    /** Signature, flags, header extension length */
+    private static final byte[] HEADER =
+    {
+        'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+        0, 0, 0, 0,
+        0, 0, 0, 0
+    };
+
+    /** PostgreSQL time stamps count from 2000-01-01 00:00:00, in seconds since 1970-01-01 */
+    private static final long PG_EPOCH_SECS = 946684800L;
+
+    private byte[] buffer;
+    private int length;
+    private int rows;
+
+    /** @param capacity Initial capacity in bytes */
+    PGBinaryCopyBuffer(final int capacity)
+    {
+        buffer = new byte[Math.max(capacity, HEADER.length + 2)];
+        clear();
+    }
+
+    /** Clear all rows */
+    void clear()
+    {
+        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+        length = HEADER.length;
+        rows = 0;
+    }
+
+    /** @return Number of rows in buffer */
+    int getRows()
+    {
+        return rows;
+    }
+
+    /** Complete the data by adding the trailer
+     *
+     *  <p>Buffer needs to be cleared before
+     *  adding more rows.
+     *
+     *  @return Number of valid bytes in {@link #getBuffer()}
+     */
+    int finish()
+    {
+        writeShort(-1);
+        return length;
+    }
+
+    /** @return Buffer, see {@link #finish()} for number of valid bytes */
+    byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    /** @param bytes Number of bytes that need to fit into the buffer */
+    private void ensureCapacity(final int bytes)
+    {
+        final int needed = length + bytes;
+        if (needed > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(needed, 2 * buffer.length));
+    }
+
+    private void writeShort(final int value)
+    {
+        ensureCapacity(2);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeInt(final int value)
+    {
+        ensureCapacity(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeLong(final long value)
+    {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /** Start a new row
+     *  @param fields Number of fields in the row
+     */
+    void startRow(final int fields)
+    {
+        writeShort(fields);
+        ++rows;
+    }
+
+    /** Add NULL field */
+    void addNull()
+    {
+        writeInt(-1);
+    }
+
+    /** @param value Value for 'smallint' field */
+    void addInt2(final short value)
+    {
+        writeInt(2);
+        writeShort(value);
+    }
+
+    /** @param value Value for 'integer' field */
+    void addInt4(final int value)
+    {
+        writeInt(4);
+        writeInt(value);
+    }
+
+    /** @param value Value for 'bigint' field */
+    void addInt8(final long value)
+    {
+        writeInt(8);
+        writeLong(value);
+    }
+
+    /** @param value Value for 'real' field */
+    void addFloat4(final float value)
+    {
+        addInt4(Float.floatToRawIntBits(value));
+    }
+
+    /** @param value Value for 'double precision' field */
+    void addFloat8(final double value)
+    {
+        addInt8(Double.doubleToRawLongBits(value));
+    }
+
+    /** @param value Value for 'boolean' field */
+    void addBool(final boolean value)
+    {
+        writeInt(1);
+        ensureCapacity(1);
+        buffer[length++] = (byte) (value ? 1 : 0);
+    }
+
+    /** @param value Value for text or 'bytea' field, text must be UTF-8 encoded */
+    void addBytes(final byte[] value)
+    {
+        writeInt(value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, length, value.length);
+        length += value.length;
+    }
+
+    /** @param micros Microseconds since 2000-01-01 00:00:00 for 'timestamp' field */
+    void addTimestamp(final long micros)
+    {
+        addInt8(micros);
+    }
+
+    /** Convert time stamp to PostgreSQL binary representation
+     *
+     *  <p>A 'timestamp' column without time zone holds the local time,
+     *  same as the text of {@link Timestamp#toString()}.
+     *  A 'timestamp with time zone' column holds UTC.
+     *
+     *  @param stamp Time stamp
+     *  @param zone Time zone for 'timestamp' column, <code>null</code> for 'timestamptz' column
+     *  @return Microseconds since 2000-01-01 00:00:00
+     */
+    static long toMicros(final Timestamp stamp, final TimeZone zone)
+    {
+        long millis = stamp.getTime();
+        if (zone != null)
+            millis += zone.getOffset(millis);
+        final long secs = Math.floorDiv(millis, 1000L) - PG_EPOCH_SECS;
+        return secs * 1000000L + stamp.getNanos() / 1000;
+    }
+}
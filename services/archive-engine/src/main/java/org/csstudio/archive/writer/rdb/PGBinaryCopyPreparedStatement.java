@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/** {@link PGCopyPreparedStatement} that uses the binary COPY format
+ *
+ *  <p>Parameters are kept as numbers until the row is added to the batch,
+ *  where they are written in the binary representation of the column type
+ *  into a re-used buffer.
+ *  This avoids formatting each value as text, which the database server
+ *  would then need to parse again.
+ *
+ *  <p>Only the columns listed in the insert query are copied,
+ *  other columns receive their default value.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PGBinaryCopyPreparedStatement extends PGCopyPreparedStatement {
+
+    /** Supported column types */
+    private enum ColumnType {
+        INT2, INT4, INT8, FLOAT4, FLOAT8, BOOL, TIMESTAMP, TIMESTAMPTZ, TEXT, BYTEA
+    }
+
+    /** Type of parameter value */
+    private enum ValueType {
+        NULL, LONG, DOUBLE, BYTES, TIMESTAMP
+    }
+
+    private final String copyQuery;
+
+    /** Column type for each parameter, index 0 for the first parameter */
+    private final ColumnType[] columnTypes;
+
+    /** Type and value of each parameter */
+    private final ValueType[] valueTypes;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private final Object[] objectValues;
+
+    /** Time zone for 'timestamp' columns which hold local time */
+    private final TimeZone zone = TimeZone.getDefault();
+
+    private PGBinaryCopyBuffer buffer = new PGBinaryCopyBuffer(64 * 1024);
+
+    public PGBinaryCopyPreparedStatement(Connection connection, String insertSqlQuery)
+            throws SQLException {
+        super(connection, insertSqlQuery);
+
+        // Get the type of each column
+        final Map<String, String> typeNames = new HashMap<>();
+        ResultSet columnsRs = connection.getMetaData().getColumns(
+                connection.getCatalog(), null, tableName, null);
+        while (columnsRs.next()) {
+            typeNames.put(columnsRs.getString("COLUMN_NAME"),
+                    columnsRs.getString("TYPE_NAME"));
+        }
+        columnsRs.close();
+
+        columnTypes = new ColumnType[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnTypes[i] = getColumnType(typeNames.get(columnNames[i]));
+            if (columnTypes[i] == null) {
+                throw new SQLException("Unsupported type " + typeNames.get(columnNames[i])
+                        + " of column " + columnNames[i] + " in table " + tableName);
+            }
+        }
+        valueTypes = new ValueType[columnNames.length];
+        longValues = new long[columnNames.length];
+        doubleValues = new double[columnNames.length];
+        objectValues = new Object[columnNames.length];
+        Arrays.fill(valueTypes, ValueType.NULL);
+
+        copyQuery = "COPY " + tableName + " (" + String.join(", ", columnNames)
+                + ") FROM STDIN WITH BINARY";
+    }
+
+    /** @param typeName PostgreSQL type name
+     *  @return {@link ColumnType} or <code>null</code>
+     */
+    private static ColumnType getColumnType(final String typeName) {
+        if (typeName == null) {
+            return null;
+        }
+        switch (typeName.toLowerCase()) {
+        case "int2":
+            return ColumnType.INT2;
+        case "int4":
+        case "serial":
+            return ColumnType.INT4;
+        case "int8":
+        case "bigserial":
+            return ColumnType.INT8;
+        case "float4":
+            return ColumnType.FLOAT4;
+        case "float8":
+            return ColumnType.FLOAT8;
+        case "bool":
+            return ColumnType.BOOL;
+        case "timestamp":
+            return ColumnType.TIMESTAMP;
+        case "timestamptz":
+            return ColumnType.TIMESTAMPTZ;
+        case "varchar":
+        case "bpchar":
+        case "text":
+            return ColumnType.TEXT;
+        case "bytea":
+            return ColumnType.BYTEA;
+        default:
+            return null;
+        }
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        buffer.startRow(columnTypes.length);
+        for (int i = 0; i < columnTypes.length; i++) {
+            final ValueType valueType = valueTypes[i];
+            if (valueType == ValueType.NULL) {
+                buffer.addNull();
+                continue;
+            }
+            switch (columnTypes[i]) {
+            case INT2:
+                buffer.addInt2((short) getLong(i));
+                break;
+            case INT4:
+                buffer.addInt4((int) getLong(i));
+                break;
+            case INT8:
+                buffer.addInt8(getLong(i));
+                break;
+            case FLOAT4:
+                buffer.addFloat4((float) getDouble(i));
+                break;
+            case FLOAT8:
+                buffer.addFloat8(getDouble(i));
+                break;
+            case BOOL:
+                buffer.addBool(getLong(i) != 0);
+                break;
+            case TIMESTAMP:
+                buffer.addTimestamp(PGBinaryCopyBuffer.toMicros(getTimestamp(i), zone));
+                break;
+            case TIMESTAMPTZ:
+                buffer.addTimestamp(PGBinaryCopyBuffer.toMicros(getTimestamp(i), null));
+                break;
+            case TEXT:
+            case BYTEA:
+                buffer.addBytes(getBytes(i));
+                break;
+            }
+        }
+        clearParameters();
+    }
+
+    private long getLong(final int i) throws SQLException {
+        if (valueTypes[i] == ValueType.LONG) {
+            return longValues[i];
+        }
+        throw new SQLException("Column " + columnNames[i] + " needs integer value, got " + valueTypes[i]);
+    }
+
+    private double getDouble(final int i) throws SQLException {
+        if (valueTypes[i] == ValueType.DOUBLE) {
+            return doubleValues[i];
+        }
+        if (valueTypes[i] == ValueType.LONG) {
+            return longValues[i];
+        }
+        throw new SQLException("Column " + columnNames[i] + " needs number, got " + valueTypes[i]);
+    }
+
+    private Timestamp getTimestamp(final int i) throws SQLException {
+        if (valueTypes[i] == ValueType.TIMESTAMP) {
+            return (Timestamp) objectValues[i];
+        }
+        throw new SQLException("Column " + columnNames[i] + " needs timestamp, got " + valueTypes[i]);
+    }
+
+    private byte[] getBytes(final int i) throws SQLException {
+        if (valueTypes[i] == ValueType.BYTES) {
+            return (byte[]) objectValues[i];
+        }
+        throw new SQLException("Column " + columnNames[i] + " needs text or bytes, got " + valueTypes[i]);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        buffer.clear();
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        Arrays.fill(valueTypes, ValueType.NULL);
+        Arrays.fill(objectValues, null);
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        if (buffer.getRows() <= 0) {
+            return new int[] { 0 };
+        }
+        final int length = buffer.finish();
+        final CopyIn copy = ((PGConnection) getConnection()).getCopyAPI().copyIn(copyQuery);
+        long res = 0;
+        try {
+            copy.writeToCopy(buffer.getBuffer(), 0, length);
+            res = copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+            buffer.clear();
+        }
+        return new int[] { (int) res };
+    }
+
+    @Override
+    public void close() throws SQLException {
+        buffer = null;
+        super.close();
+    }
+
+    private void setLongValue(final int parameterIndex, final long x) {
+        valueTypes[parameterIndex - 1] = ValueType.LONG;
+        longValues[parameterIndex - 1] = x;
+    }
+
+    private void setDoubleValue(final int parameterIndex, final double x) {
+        valueTypes[parameterIndex - 1] = ValueType.DOUBLE;
+        doubleValues[parameterIndex - 1] = x;
+    }
+
+    private void setObjectValue(final int parameterIndex, final ValueType type, final Object x) {
+        valueTypes[parameterIndex - 1] = x == null ? ValueType.NULL : type;
+        objectValues[parameterIndex - 1] = x;
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x)
+            throws SQLException {
+        if (x == null) {
+            setNull(parameterIndex, 0);
+        } else {
+            setDoubleValue(parameterIndex, x.doubleValue());
+        }
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        setLongValue(parameterIndex, x ? 1 : 0);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        setObjectValue(parameterIndex, ValueType.BYTES, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        setDoubleValue(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        setDoubleValue(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        setLongValue(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        setLongValue(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        setLongValue(parameterIndex, x);
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value)
+            throws SQLException {
+        setString(parameterIndex, value);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        setObjectValue(parameterIndex, ValueType.BYTES,
+                x == null ? null : x.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        setObjectValue(parameterIndex, ValueType.NULL, null);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName)
+            throws SQLException {
+        setObjectValue(parameterIndex, ValueType.NULL, null);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x)
+            throws SQLException {
+        setObjectValue(parameterIndex, ValueType.TIMESTAMP, x);
+    }
+}
@@ -45,7 +45,11 @@ public class PGCopyPreparedStatement implements PreparedStatement {
 
     private int[] columnOrderMapping;
 
-    private String tableName;
+    /** Table name from insert query */
+    protected String tableName;
+
+    /** Column names from insert query, in the order of the query parameters */
+    protected String[] columnNames;
 
     public PGCopyPreparedStatement(Connection connection, String insertSqlQuery)
             throws SQLException {
@@ -78,8 +82,10 @@ public class PGCopyPreparedStatement implements PreparedStatement {
         // database order
         columnOrderMapping = new int[columnsArrays.length + 1];
         columnOrderMapping[0] = -1;
+        columnNames = new String[columnsArrays.length];
         for (int i = 0; i < columnsArrays.length; i++) {
             String columnName = columnsArrays[i].trim();
+            columnNames[i] = columnName;
             Integer postgresColumnOrder = postgresColumnOrderMap
                     .get(columnName);
             if (postgresColumnOrder == null) {
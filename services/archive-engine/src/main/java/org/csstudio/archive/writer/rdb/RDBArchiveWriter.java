@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011-2020 Oak Ridge National Laboratory.
+ * Copyright (c) 2011-2023 Oak Ridge National Laboratory.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,8 +9,7 @@ package org.csstudio.archive.writer.rdb;
 
 import static org.csstudio.archive.Engine.logger;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -130,7 +129,8 @@ public class RDBArchiveWriter implements ArchiveWriter
 
     /** Create a new prepared statement. For PostgreSQL connections, this method
      *  create a PGCopyPreparedStatement to improve insert speed using COPY
-     *  instead of INSERT.
+     *  instead of INSERT, optionally the PGBinaryCopyPreparedStatement
+     *  which uses the binary COPY format.
      *
      *  @param sqlQuery
      *  @return
@@ -143,7 +143,12 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         final PreparedStatement statement;
         if (dialect == Dialect.PostgreSQL  &&  Preferences.use_postgres_copy)
-            statement = new PGCopyPreparedStatement(connection, sqlQuery);
+        {
+            if (Preferences.use_postgres_binary_copy)
+                statement = new PGBinaryCopyPreparedStatement(connection, sqlQuery);
+            else
+                statement = new PGCopyPreparedStatement(connection, sqlQuery);
+        }
         else
             statement = connection.prepareStatement(sqlQuery);
         if (Preferences.timeout_secs > 0)
@@ -360,16 +365,16 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
         else
         {   // More array elements
-            final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            final DataOutputStream dout = new DataOutputStream(bout);
-            // Indicate 'Double' as data type
+            // Same big-endian layout as a DataOutputStream,
+            // written directly into an array of the exact size
             final int N = additional.size();
-            dout.writeInt(N);
+            final byte[] asBytes = new byte[Integer.BYTES + N * Double.BYTES];
+            final ByteBuffer buf = ByteBuffer.wrap(asBytes);
+            // Indicate 'Double' as data type
+            buf.putInt(N);
             // Write binary data for array elements
             for (int i=0; i<N; ++i)
-                dout.writeDouble(additional.getDouble(i));
-            dout.close();
-            final byte[] asBytes = bout.toByteArray();
+                buf.putDouble(additional.getDouble(i));
             if (dialect == Dialect.Oracle)
             {
                 insert_double_sample.setString(6, "d");
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VFloat;
+import org.epics.vtype.VInt;
+import org.epics.vtype.VLong;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.jupiter.api.Test;
+
+/** Check {@link PrimitiveSampleBuffer}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PrimitiveSampleBufferTest
+{
+    private static final Display display = Display.none();
+
+    private static Time time(final int secs)
+    {
+        return Time.of(Instant.ofEpochSecond(1000000 + secs, 123456789));
+    }
+
+    @Test
+    public void testTypes()
+    {
+        final SampleBuffer buffer = new PrimitiveSampleBuffer("test", null, 10);
+        final Alarm alarm = Alarm.of(AlarmSeverity.MAJOR, AlarmStatus.RECORD, "HIHI");
+        final VString info = VString.of("Disconnected", Alarm.none(), time(5));
+        buffer.add(VDouble.of(3.14, alarm, time(1), display));
+        buffer.add(VFloat.of(2.5f, Alarm.none(), time(2), display));
+        buffer.add(VLong.of(Long.MAX_VALUE, Alarm.none(), time(3), display));
+        buffer.add(VInt.of(-42, alarm, time(4), display));
+        buffer.add(info);
+        assertThat(buffer.getQueueSize(), equalTo(5));
+
+        VType value = buffer.remove();
+        assertThat(value, instanceOf(VDouble.class));
+        assertThat(((VDouble) value).getValue(), equalTo(3.14));
+        assertThat(((VDouble) value).getAlarm(), equalTo(alarm));
+        assertThat(((VDouble) value).getTime().getTimestamp(), equalTo(time(1).getTimestamp()));
+        assertThat(((VDouble) value).getDisplay(), sameInstance(display));
+
+        value = buffer.remove();
+        assertThat(((VFloat) value).getValue(), equalTo(2.5f));
+        assertThat(((VFloat) value).getAlarm(), equalTo(Alarm.none()));
+
+        value = buffer.remove();
+        assertThat(((VLong) value).getValue(), equalTo(Long.MAX_VALUE));
+
+        value = buffer.remove();
+        assertThat(((VInt) value).getValue(), equalTo(-42));
+        assertThat(((VInt) value).getTime().getTimestamp(), equalTo(time(4).getTimestamp()));
+
+        // Other samples are kept as is
+        assertThat(buffer.remove(), sameInstance(info));
+        assertThat(buffer.remove(), nullValue());
+        assertThat(buffer.getQueueSize(), equalTo(0));
+    }
+
+    @Test
+    public void testInvalidTime()
+    {
+        final SampleBuffer buffer = new PrimitiveSampleBuffer("test", null, 10);
+        final VDouble value = VDouble.of(1.0, Alarm.none(), Time.of(Instant.EPOCH, 0, false), display);
+        buffer.add(value);
+        assertThat(buffer.remove(), sameInstance(value));
+    }
+
+    @Test
+    public void testOverrun()
+    {
+        // Capacity larger than initial storage, so storage needs to grow
+        final int capacity = 40;
+        final SampleBuffer buffer = new PrimitiveSampleBuffer("test", null, capacity);
+        for (int i=0; i<capacity+10; ++i)
+            buffer.add(VDouble.of((double) i, Alarm.none(), time(i), display));
+        assertThat(buffer.getQueueSize(), equalTo(capacity));
+        assertThat(buffer.getBufferStats().getOverruns(), equalTo(10));
+
+        // Oldest samples were dropped
+        for (int i=10; i<capacity+10; ++i)
+            assertThat(((VDouble) buffer.remove()).getValue(), equalTo((double) i));
+        assertThat(buffer.remove(), nullValue());
+
+        // Re-use after wrapping around
+        for (int i=0; i<capacity/2; ++i)
+            buffer.add(VInt.of(i, Alarm.none(), time(i), display));
+        for (int i=0; i<capacity/2; ++i)
+            assertThat(((VInt) buffer.remove()).getValue(), equalTo(i));
+        assertThat(buffer.remove(), nullValue());
+    }
+
+    @Test
+    public void testConcurrentAddRemove() throws Exception
+    {
+        final int total = 1000000;
+        final SampleBuffer buffer = new PrimitiveSampleBuffer("test", null, 100);
+        final Thread producer = new Thread(() ->
+        {
+            for (int i=0; i<total; ++i)
+                buffer.add(VDouble.of((double) i, Alarm.none(), time(i), display));
+        });
+        producer.start();
+
+        // Remove while producer adds, checking that values are in order
+        int removed = 0;
+        double last = -1;
+        while (producer.isAlive()  ||  buffer.getQueueSize() > 0)
+        {
+            final VType value = buffer.remove();
+            if (value == null)
+                continue;
+            final double number = ((VDouble) value).getValue();
+            assertTrue(number > last, "Received " + number + " after " + last);
+            assertThat(((VDouble) value).getTime().getTimestamp(), equalTo(time((int) number).getTimestamp()));
+            last = number;
+            ++removed;
+        }
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(last, equalTo(total - 1.0));
+        // Each sample was either removed or dropped
+        assertThat(removed + buffer.getBufferStats().getOverruns(), equalTo(total));
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+
+/** Compare {@link SampleBuffer} with {@link PrimitiveSampleBuffer}
+ *
+ *  <p>Measures the add/remove throughput with one thread adding
+ *  and another thread removing samples,
+ *  and the heap used by many full buffers.
+ *
+ *  <p>Run with for example "-Dchannels=100000 -Dcapacity=1000",
+ *  which requires a large heap "-Xmx8g".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SampleBufferDemo
+{
+    private static final int SAMPLES = Integer.getInteger("samples", 10000000);
+    private static final int CHANNELS = Integer.getInteger("channels", 10000);
+    private static final int CAPACITY = Integer.getInteger("capacity", 1000);
+
+    private static final Display display = Display.none();
+
+    private static VDouble sample(final long i)
+    {
+        return VDouble.of(i * 0.1, Alarm.none(), Time.of(Instant.ofEpochSecond(i, 1000)), display);
+    }
+
+    /** @param buffer Buffer
+     *  @return Samples per second that could be added and removed
+     */
+    private static double throughput(final SampleBuffer buffer) throws Exception
+    {
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread consumer = new Thread(() ->
+        {
+            while (! done.get()  ||  buffer.getQueueSize() > 0)
+                if (buffer.remove() == null)
+                    Thread.onSpinWait();
+        });
+        consumer.start();
+
+        final long start = System.nanoTime();
+        for (int i=0; i<SAMPLES; ++i)
+            buffer.add(sample(i));
+        done.set(true);
+        consumer.join();
+        final double secs = (System.nanoTime() - start) / 1e9;
+        return SAMPLES / secs;
+    }
+
+    /** @param create Creates buffer for name and capacity
+     *  @return Bytes of heap used by full buffers for all channels
+     */
+    private static long heap(final BiFunction<String, Integer, SampleBuffer> create)
+    {
+        final long before = usedHeap();
+        final SampleBuffer[] buffers = new SampleBuffer[CHANNELS];
+        for (int c=0; c<CHANNELS; ++c)
+        {
+            buffers[c] = create.apply("channel" + c, CAPACITY);
+            for (int i=0; i<CAPACITY; ++i)
+                buffers[c].add(sample(i));
+        }
+        final long used = usedHeap() - before;
+        // Keep buffers reachable until measured
+        if (buffers[CHANNELS-1].getQueueSize() != CAPACITY)
+            throw new IllegalStateException("Buffer not full");
+        return used;
+    }
+
+    private static long usedHeap()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        System.out.println("Throughput for " + SAMPLES + " samples, capacity " + CAPACITY);
+        for (int run=0; run<3; ++run)
+        {
+            System.out.format("SampleBuffer         : %12.0f samples/s\n", throughput(new SampleBuffer("test", null, CAPACITY)));
+            System.out.format("PrimitiveSampleBuffer: %12.0f samples/s\n", throughput(new PrimitiveSampleBuffer("test", null, CAPACITY)));
+        }
+
+        System.out.println("Heap for " + CHANNELS + " full buffers of capacity " + CAPACITY);
+        System.out.format("SampleBuffer         : %8.1f MB\n", heap((name, capacity) -> new SampleBuffer(name, null, capacity)) / 1e6);
+        System.out.format("PrimitiveSampleBuffer: %8.1f MB\n", heap((name, capacity) -> new PrimitiveSampleBuffer(name, null, capacity)) / 1e6);
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import java.util.concurrent.TimeUnit;
+
+/** Scan many items, print lateness and jitter
+ *
+ *  <p>Run with for example "-Dchannels=50000 -Dperiod=1 -Dthreads=2 -Dwork=5"
+ *  to scan 50000 items at 1 Hz on 2 threads, where each item
+ *  takes about 5 microseconds.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScannerDemo
+{
+    private static final int CHANNELS = Integer.getInteger("channels", 50000);
+    private static final double PERIOD = Double.parseDouble(System.getProperty("period", "1"));
+    private static final int THREADS = Integer.getInteger("threads", 2);
+    private static final long WORK = TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("work", 5));
+    private static final int SECONDS = Integer.getInteger("seconds", 30);
+
+    public static void main(String[] args) throws Exception
+    {
+        final Scanner scanner = new Scanner(THREADS);
+        for (int i=0; i<CHANNELS; ++i)
+            // Anonymous class, not lambda, to get distinct items
+            scanner.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    final long end = System.nanoTime() + WORK;
+                    while (System.nanoTime() < end)
+                        Thread.onSpinWait();
+                }
+            }, PERIOD);
+        final ScanList list = scanner.get(0);
+        System.out.println(CHANNELS + " channels at " + PERIOD + " sec in " + list.getBatchCount() + " batches, " + THREADS + " threads");
+
+        final ScanThread thread = new ScanThread(scanner);
+        thread.start();
+        for (int sec=1; sec<=SECONDS; ++sec)
+        {
+            TimeUnit.SECONDS.sleep(1);
+            if (sec % 5 == 0)
+                System.out.format("%3d sec: %6d batch scans, %4d missed, lateness %.1f ms (max %.1f ms), jitter %.1f ms, batch duration %.1f ms, idle %.0f %%\n",
+                                  sec,
+                                  list.getScanCount(),
+                                  list.getMissedScans(),
+                                  list.getAverageLateness(),
+                                  list.getMaxLateness(),
+                                  list.getJitter(),
+                                  list.getAverageDuration(),
+                                  scanner.getIdlePercentage());
+        }
+        thread.stop();
+        thread.join();
+    }
+}
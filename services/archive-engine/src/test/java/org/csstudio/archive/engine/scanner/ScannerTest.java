@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/** Check {@link TimerWheel} and {@link Scanner}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScannerTest
+{
+    @Test
+    public void testTimerWheel()
+    {
+        // Ticks of 10, 4 slots, so one turn covers 40
+        final TimerWheel<String> wheel = new TimerWheel<>(10, 4, 1000);
+        wheel.schedule("A", 1015);
+        wheel.schedule("B", 1020);
+        // Same slot as A, but next turn of the wheel
+        wheel.schedule("C", 1060);
+        // Past deadline is due on next tick
+        wheel.schedule("D", 900);
+        assertThat(wheel.size(), equalTo(4));
+
+        final List<String> due = new ArrayList<>();
+        wheel.expire(1000, due::add);
+        assertThat(due, equalTo(List.of("D")));
+
+        // A is due at 1015, i.e. tick 2 at 1020, together with B
+        due.clear();
+        wheel.expire(1019, due::add);
+        assertThat(due.size(), equalTo(0));
+        wheel.expire(1020, due::add);
+        assertThat(due, equalTo(List.of("A", "B")));
+
+        due.clear();
+        wheel.expire(1059, due::add);
+        assertThat(due.size(), equalTo(0));
+        wheel.expire(1060, due::add);
+        assertThat(due, equalTo(List.of("C")));
+        assertThat(wheel.size(), equalTo(0));
+
+        // Re-schedule while handling expired item.
+        // Deadline has passed, so it's due on the following tick.
+        due.clear();
+        wheel.schedule("E", 1105);
+        wheel.expire(1200, item ->
+        {
+            due.add(item);
+            wheel.schedule(item, 1150);
+        });
+        assertThat(due, equalTo(List.of("E")));
+        assertThat(wheel.size(), equalTo(1));
+        assertThat(wheel.getNextTickTime(), equalTo(1210L));
+        wheel.expire(1210, due::add);
+        assertThat(due, equalTo(List.of("E", "E")));
+        assertThat(wheel.size(), equalTo(0));
+    }
+
+    @Test
+    public void testScanner() throws Exception
+    {
+        final Scanner scanner = new Scanner(2);
+
+        // Items for a 0.1 sec list, using more than one batch
+        final AtomicInteger fast = new AtomicInteger();
+        final int fast_count = ScanList.BATCH_SIZE + 10;
+        for (int i=0; i<fast_count; ++i)
+            scanner.add(() -> fast.incrementAndGet(), 0.1);
+        // Item for a 1 sec list
+        final AtomicInteger slow = new AtomicInteger();
+        final Runnable slow_item = () -> slow.incrementAndGet();
+        scanner.add(slow_item, 1.0);
+        assertThat(scanner.size(), equalTo(2L));
+        assertThat(scanner.get(1).getPeriod(), equalTo(1.0));
+        // Adding the same item again moves it to a 0.5 sec list,
+        // and the then empty 1 sec list is removed
+        scanner.add(slow_item, 0.5);
+        assertThat(scanner.size(), equalTo(2L));
+        final ScanList fast_list = scanner.get(0);
+        assertThat(fast_list.size(), equalTo(fast_count));
+        assertThat(fast_list.getBatchCount(), equalTo(2));
+        assertThat(scanner.get(1).getPeriod(), equalTo(0.5));
+        assertThat(scanner.get(1).size(), equalTo(1));
+
+        // Run for about 1 second.
+        // The two batches of the fast list are spread over the 0.1 sec period,
+        // each should be scanned about 10 times
+        scanner.start();
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1020);
+        while (System.nanoTime() < end)
+            scanner.scanOnce();
+        scanner.stop();
+
+        // A loaded machine may miss scans, so only check that scans happened
+        final long scans = fast_list.getScanCount();
+        assertTrue(scans >= 10, "Expected about 2 x 10 batch scans, got " + scans);
+        assertTrue(fast.get() >= 5 * fast_count, "Expected about 10 scans per item, got " + fast.get() + " for " + fast_count + " items");
+        assertTrue(slow.get() >= 1, "Expected about 2 scans, got " + slow.get());
+
+        // Removing the last item removes the list
+        scanner.remove(slow_item);
+        assertThat(scanner.size(), equalTo(1L));
+        scanner.clear();
+        assertThat(scanner.size(), equalTo(0L));
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.columnar;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.util.stats.Range;
+import org.epics.util.text.NumberFormats;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+
+/** Measure write throughput and file size of the {@link ColumnarArchiveWriter}
+ *
+ *  <p>Writes 1Hz samples for many channels,
+ *  flushing in between like the engine's write thread.
+ *  Compare with the samples per second reported by the RDBArchiveWriterDemo.
+ *
+ *  <p>Run with for example "-Dchannels=10000 -Dsamples=1000 -Ddirectory=/tmp/columnar".
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarArchiveWriterDemo
+{
+    private static final int CHANNELS = Integer.getInteger("channels", 1000);
+    private static final int SAMPLES = Integer.getInteger("samples", 1000);
+    private static final int FLUSH = Integer.getInteger("flush", 30);
+
+    private static final Display display = Display.of(Range.of(0, 10), Range.of(1, 9), Range.of(2,  8), Range.of(0, 10),
+                                                      "a.u.", NumberFormats.precisionFormat(2));
+    private static final Alarm minor = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.RECORD, "HIGH");
+
+    public static void main(final String[] args) throws Exception
+    {
+        final String dir = System.getProperty("directory");
+        final Path root = dir == null ? Files.createTempDirectory("columnar") : Path.of(dir);
+        final ColumnarArchiveWriter writer = new ColumnarArchiveWriter(ColumnarArchiveWriter.PREFIX + root);
+
+        final WriteChannel[] channels = new WriteChannel[CHANNELS];
+        for (int c=0; c<CHANNELS; ++c)
+            channels[c] = writer.getChannel("demo:channel" + c);
+
+        final Instant t0 = Instant.now();
+        final long start = System.nanoTime();
+        for (int i=0; i<SAMPLES; ++i)
+        {
+            // 1Hz samples with some jitter, slowly changing values
+            for (int c=0; c<CHANNELS; ++c)
+            {
+                final double value = 5.0 + 4.0 * Math.sin((i + c) / 100.0);
+                final Time time = Time.of(t0.plusSeconds(i).plusNanos(c * 1000 + (i * 7919 % 1000)));
+                writer.addSample(channels[c], VDouble.of(Math.round(value * 100) / 100.0, value > 8 ? minor : Alarm.none(), time, display));
+            }
+            if ((i+1) % FLUSH == 0)
+                writer.flush();
+        }
+        writer.flush();
+        writer.close();
+        final double secs = (System.nanoTime() - start) / 1e9;
+
+        final long total = (long) CHANNELS * SAMPLES;
+        final long bytes = size(root);
+        System.out.format("%d channels, %d samples: %.0f samples/sec, %.2f bytes/sample in %s\n",
+                          CHANNELS, total, total / secs, bytes / (double) total, root);
+
+        if (dir == null)
+            try (Stream<Path> files = Files.walk(root))
+            {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+    }
+
+    private static long size(final Path root) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(root))
+        {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
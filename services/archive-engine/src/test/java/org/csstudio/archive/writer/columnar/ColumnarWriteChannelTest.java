@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.columnar;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.phoebus.framework.columnar.ColumnarBlock;
+import org.phoebus.framework.columnar.ColumnarMetaData;
+import org.phoebus.framework.columnar.ColumnarStorage;
+
+/** JUnit test of the {@link ColumnarWriteChannel}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColumnarWriteChannelTest
+{
+    /** Start of 2023-11-14 */
+    private static final long DAY_START = 1_699_920_000_000_000_000L;
+
+    private static final long DAY = TimeUnit.DAYS.toNanos(1);
+
+    private Path root;
+
+    @BeforeEach
+    public void createRoot() throws IOException
+    {
+        root = Files.createTempDirectory("columnar");
+    }
+
+    @AfterEach
+    public void deleteRoot() throws IOException
+    {
+        try (Stream<Path> files = Files.walk(root))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /** Storage where appending to one partition fails */
+    private static class FailingStorage extends ColumnarStorage
+    {
+        volatile LocalDate failing = null;
+        final List<LocalDate> appended = new ArrayList<>();
+
+        FailingStorage(final Path root)
+        {
+            super(root);
+        }
+
+        @Override
+        public void append(final String name, final LocalDate date, final List<byte[]> blocks) throws IOException
+        {
+            if (date.equals(failing))
+                throw new IOException("Cannot write " + date);
+            super.append(name, date, blocks);
+            appended.add(date);
+        }
+    }
+
+    @Test
+    public void testFailedAppend() throws Exception
+    {
+        final FailingStorage storage = new FailingStorage(root);
+        final ColumnarWriteChannel channel = new ColumnarWriteChannel("Demo:Value");
+
+        // Samples for three days
+        for (int day=0; day<3; ++day)
+        {
+            final long time = DAY_START + day * DAY;
+            channel.getBlock(ColumnarBlock.DOUBLE, ColumnarMetaData.EMPTY, time)
+                   .addDouble(time, 0, 0, "", day);
+        }
+        final LocalDate first = ColumnarStorage.getPartitionDate(DAY_START);
+
+        // Second day fails, so first day is written, second and third are kept
+        storage.failing = first.plusDays(1);
+        assertThrows(IOException.class, () -> channel.flush(storage));
+        assertThat(storage.appended, equalTo(List.of(first)));
+
+        // Next flush writes the remaining days
+        storage.failing = null;
+        channel.flush(storage);
+        assertThat(storage.appended, equalTo(List.of(first, first.plusDays(1), first.plusDays(2))));
+        assertThat(storage.getPartitionDates("Demo:Value"), equalTo(storage.appended));
+
+        // Nothing left to write
+        channel.flush(storage);
+        assertThat(storage.appended.size(), equalTo(3));
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+/** Check binary COPY format
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PGBinaryCopyBufferTest
+{
+    @Test
+    public void testRows() throws Exception
+    {
+        // Start small to check growing the buffer
+        final PGBinaryCopyBuffer buffer = new PGBinaryCopyBuffer(10);
+        for (int row=0; row<2; ++row)
+        {
+            buffer.startRow(5);
+            buffer.addInt4(42);
+            buffer.addInt8(-2);
+            buffer.addFloat8(3.14);
+            buffer.addNull();
+            buffer.addBytes("Hi".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(buffer.getRows(), equalTo(2));
+        final int length = buffer.finish();
+
+        final ByteBuffer data = ByteBuffer.wrap(buffer.getBuffer(), 0, length);
+        final byte[] signature = new byte[11];
+        data.get(signature);
+        assertThat(signature, equalTo(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 }));
+        assertThat(data.getInt(), equalTo(0));
+        assertThat(data.getInt(), equalTo(0));
+        for (int row=0; row<2; ++row)
+        {
+            assertThat(data.getShort(), equalTo((short) 5));
+            assertThat(data.getInt(), equalTo(4));
+            assertThat(data.getInt(), equalTo(42));
+            assertThat(data.getInt(), equalTo(8));
+            assertThat(data.getLong(), equalTo(-2L));
+            assertThat(data.getInt(), equalTo(8));
+            assertThat(data.getDouble(), equalTo(3.14));
+            assertThat(data.getInt(), equalTo(-1));
+            assertThat(data.getInt(), equalTo(2));
+            assertThat(data.get(), equalTo((byte) 'H'));
+            assertThat(data.get(), equalTo((byte) 'i'));
+        }
+        assertThat(data.getShort(), equalTo((short) -1));
+        assertThat(data.remaining(), equalTo(0));
+
+        // Re-use buffer
+        buffer.clear();
+        assertThat(buffer.getRows(), equalTo(0));
+        assertThat(buffer.finish(), equalTo(19 + 2));
+    }
+
+    @Test
+    public void testTimestamp() throws Exception
+    {
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        Timestamp stamp = Timestamp.from(Instant.parse("2000-01-01T00:00:00Z"));
+        assertThat(PGBinaryCopyBuffer.toMicros(stamp, null), equalTo(0L));
+        assertThat(PGBinaryCopyBuffer.toMicros(stamp, utc), equalTo(0L));
+
+        stamp = Timestamp.from(Instant.parse("2000-01-01T00:00:01.123456789Z"));
+        assertThat(PGBinaryCopyBuffer.toMicros(stamp, null), equalTo(1123456L));
+
+        // Before 2000
+        stamp = Timestamp.from(Instant.parse("1999-12-31T23:59:59.5Z"));
+        assertThat(PGBinaryCopyBuffer.toMicros(stamp, null), equalTo(-500000L));
+
+        // 'timestamp' column holds local time
+        final TimeZone zone = TimeZone.getTimeZone("GMT+02:00");
+        stamp = Timestamp.from(Instant.parse("2000-01-01T00:00:00Z"));
+        assertThat(PGBinaryCopyBuffer.toMicros(stamp, zone), equalTo(2 * 3600 * 1000000L));
+    }
+}
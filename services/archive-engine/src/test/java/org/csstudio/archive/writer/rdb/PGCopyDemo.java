@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.csstudio.archive.Preferences;
+import org.phoebus.framework.rdb.RDBInfo;
+import org.phoebus.framework.rdb.RDBInfo.Dialect;
+
+/** Compare sample insert throughput for JDBC batches, text COPY and binary COPY
+ *
+ *  <p>Requires a PostgreSQL database configured via the archive preferences.
+ *  Writes to a temporary table with the same columns as the 'sample' table,
+ *  but without foreign key constraints.
+ *
+ *  <p>Run with for example "-Drows=100000 -Darray=100"
+ *  to write 100000 rows, each with an array of 100 elements.
+ *  "-Darray=0" writes scalars.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PGCopyDemo
+{
+    private static final int ROWS = Integer.getInteger("rows", 100000);
+    private static final int ARRAY = Integer.getInteger("array", 0);
+    private static final int BATCH = Preferences.batch_size;
+
+    private static final String TABLE = "copy_demo";
+    private static final String INSERT =
+        "INSERT INTO " + TABLE + " " +
+        "(channel_id, smpl_time, severity_id, status_id, float_val, nanosecs, datatype, array_val)" +
+        " VALUES (?,?,?,?,?,?,?,?)";
+
+    private static void createTable(final Connection connection) throws Exception
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            statement.execute("CREATE TEMPORARY TABLE " + TABLE +
+                              "(channel_id BIGINT NOT NULL," +
+                              " smpl_time TIMESTAMP NOT NULL," +
+                              " nanosecs BIGINT NOT NULL," +
+                              " severity_id BIGINT NOT NULL," +
+                              " status_id BIGINT NOT NULL," +
+                              " num_val INT NULL," +
+                              " float_val double precision NULL," +
+                              " str_val VARCHAR(120) NULL," +
+                              " datatype CHAR(1) NULL DEFAULT ' '," +
+                              " array_val BYTEA NULL)");
+        }
+        connection.commit();
+    }
+
+    private static void truncateTable(final Connection connection) throws Exception
+    {
+        try (Statement statement = connection.createStatement())
+        {
+            statement.execute("TRUNCATE " + TABLE);
+        }
+        connection.commit();
+    }
+
+    /** @param connection Connection
+     *  @param insert Statement to use
+     *  @return Rows per second
+     */
+    private static double write(final Connection connection, final PreparedStatement insert) throws Exception
+    {
+        truncateTable(connection);
+        final byte[] blob;
+        if (ARRAY > 0)
+        {
+            blob = new byte[Integer.BYTES + ARRAY * Double.BYTES];
+            final ByteBuffer buf = ByteBuffer.wrap(blob);
+            buf.putInt(ARRAY);
+            for (int i=0; i<ARRAY; ++i)
+                buf.putDouble(i * 0.1);
+        }
+        else
+            blob = null;
+
+        final long start = Instant.now().getEpochSecond();
+        final long t0 = System.nanoTime();
+        for (int row=0; row<ROWS; ++row)
+        {
+            // Same order of calls as RDBArchiveWriter
+            final Timestamp stamp = Timestamp.from(Instant.ofEpochSecond(start + row, row % 1000));
+            insert.setDouble(5, row * 0.1);
+            insert.setString(7, blob == null ? " " : "d");
+            insert.setBytes(8, blob);
+            final Timestamp truncated = Timestamp.from(stamp.toInstant());
+            truncated.setNanos(0);
+            insert.setTimestamp(2, truncated);
+            insert.setInt(6, stamp.getNanos());
+            insert.setInt(1, 1);
+            insert.setInt(3, 1);
+            insert.setInt(4, 1);
+            insert.addBatch();
+            if ((row + 1) % BATCH == 0)
+            {
+                insert.executeBatch();
+                connection.commit();
+            }
+        }
+        insert.executeBatch();
+        connection.commit();
+        final long nanos = System.nanoTime() - t0;
+        insert.close();
+        return ROWS / (nanos / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final RDBInfo info = new RDBInfo(Preferences.url, Preferences.user, Preferences.password);
+        if (info.getDialect() != Dialect.PostgreSQL)
+        {
+            System.out.println("Need PostgreSQL, not " + Preferences.url);
+            return;
+        }
+        try (Connection connection = info.connect())
+        {
+            connection.setAutoCommit(false);
+            createTable(connection);
+            System.out.println(ROWS + " rows, " + (ARRAY > 0 ? ARRAY + " array elements" : "scalar") + ", batch size " + BATCH);
+            for (int run=0; run<2; ++run)
+            {
+                System.out.format("JDBC batch : %10.0f rows/s\n", write(connection, connection.prepareStatement(INSERT)));
+                System.out.format("Text COPY  : %10.0f rows/s\n", write(connection, new PGCopyPreparedStatement(connection, INSERT)));
+                System.out.format("Binary COPY: %10.0f rows/s\n", write(connection, new PGBinaryCopyPreparedStatement(connection, INSERT)));
+            }
+        }
+    }
+}